@@ -1,14 +1,21 @@
 package de.ovgu.featureide.fm.core.explanations.evaluation;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TimeZone;
 
+import de.ovgu.featureide.fm.core.explanations.evaluation.metrics.EvaluationMetrics;
+import de.ovgu.featureide.fm.core.explanations.evaluation.metrics.PrometheusEndpoint;
+import de.ovgu.featureide.fm.core.explanations.evaluation.profiling.StackSampler;
+import de.ovgu.featureide.fm.core.explanations.evaluation.results.ResultsStore;
+
 /**
  * Executes {@link Test tests}.
  * 
@@ -22,6 +29,12 @@ public class TestRunner {
 
 	/** Whether to run tests in parallel instead of sequence. */
 	private boolean multiThreaded = false;
+	/** The port of the metrics endpoint; negative to disable it. */
+	private int metricsPort = -1;
+	/** The time between two stack samples of each test thread in milliseconds; nonpositive to disable sampling. */
+	private long samplingInterval = -1L;
+	/** The file of the results store; null to disable it. */
+	private File resultsStore = null;
 
 	/**
 	 * Returns true iff the tests are executed in parallel.
@@ -39,6 +52,57 @@ public class TestRunner {
 		this.multiThreaded = multiThreaded;
 	}
 
+	/**
+	 * Returns the port of the metrics endpoint.
+	 * @return the metrics port; negative if disabled
+	 */
+	public int getMetricsPort() {
+		return metricsPort;
+	}
+
+	/**
+	 * Sets the port of the {@link PrometheusEndpoint metrics endpoint}.
+	 * The metrics are always available through JMX.
+	 * @param metricsPort the metrics port; 0 for any free port; negative to disable the endpoint
+	 */
+	public void setMetricsPort(int metricsPort) {
+		this.metricsPort = metricsPort;
+	}
+
+	/**
+	 * Returns the time between two stack samples of each test thread.
+	 * @return the sampling interval in milliseconds; nonpositive if disabled
+	 */
+	public long getSamplingInterval() {
+		return samplingInterval;
+	}
+
+	/**
+	 * Sets the time between two {@link StackSampler stack samples} of each test thread.
+	 * Tests writing measurements write the samples of their measured steps next to the measurements.
+	 * @param samplingInterval the sampling interval in milliseconds; nonpositive to disable sampling
+	 */
+	public void setSamplingInterval(long samplingInterval) {
+		this.samplingInterval = samplingInterval;
+	}
+
+	/**
+	 * Returns the file of the results store.
+	 * @return the results store file; null if disabled
+	 */
+	public File getResultsStore() {
+		return resultsStore;
+	}
+
+	/**
+	 * Sets the file of the {@link ResultsStore results store}.
+	 * The step measurements and the results of each test are appended to it.
+	 * @param resultsStore the results store file; null to disable the store
+	 */
+	public void setResultsStore(File resultsStore) {
+		this.resultsStore = resultsStore;
+	}
+
 	/**
 	 * Executes the given tests.
 	 * 
@@ -55,27 +119,57 @@ public class TestRunner {
 	 */
 	public void run(Test... tests) {
 		log("Running %d test%s.", tests.length, tests.length == 1 ? "" : "s");
+		final EvaluationMetrics metrics = EvaluationMetrics.getInstance();
+		metrics.register();
+		metrics.setQueueDepth(tests.length);
+		PrometheusEndpoint endpoint = null;
+		if (metricsPort >= 0) {
+			endpoint = new PrometheusEndpoint(metrics, metricsPort);
+			endpoint.start();
+			log("Serving metrics on port %d.", endpoint.getPort());
+		}
+		int queueDepth = tests.length;
 		int longestNameLength = 0;
 		final List<Thread> ts = new ArrayList<>(tests.length);
+		final Map<Thread, StackSampler> samplers = new HashMap<>();
+		final ResultsStore store = resultsStore == null ? null : new ResultsStore(resultsStore);
 		for (final Test test : tests) {
 			final String name = test.getName();
 			longestNameLength = Math.max(longestNameLength, name.length());
 			final Thread t = new Thread(test, name);
 			ts.add(t);
+			if (samplingInterval > 0) {
+				final StackSampler sampler = new StackSampler(t, samplingInterval);
+				samplers.put(t, sampler);
+				sampler.start();
+			}
+			if (store != null) {
+				store.attach(t);
+			}
 			log("Started %s.", name);
+			metrics.setQueueDepth(--queueDepth);
 			t.start();
 			if (!isMultiThreaded()) {
-				try {
-					t.join();
-				} catch (InterruptedException e) {}
+				join(t, samplers.get(t));
 			}
 		}
 		for (final Thread t : ts) {
-			try {
-				t.join();
-			} catch (InterruptedException e) {}
+			join(t, samplers.get(t));
 		}
 		log("Finished all tests.");
+		if (store != null) {
+			for (int i = 0; i < tests.length; i++) {
+				store.detach(ts.get(i));
+				final Map<String, Object> results = new LinkedHashMap<>(tests[i].getTestResults());
+				results.put("Class", tests[i].getClass().getSimpleName());
+				store.appendTest(ResultsStore.getKey(tests[i]), results);
+			}
+			store.close();
+			log("Stored results in %s.", store.getFile());
+		}
+		if (endpoint != null) {
+			endpoint.stop();
+		}
 		if (VERBOSE) {
 			System.out.println();
 			final List<Map<String, Object>> results = new ArrayList<>(tests.length);
@@ -86,6 +180,21 @@ public class TestRunner {
 		}
 	}
 
+	/**
+	 * Waits for the given test thread to end and then stops sampling it.
+	 * 
+	 * @param t the test thread; not null
+	 * @param sampler the sampler of the test thread; null if not sampled
+	 */
+	private static void join(Thread t, StackSampler sampler) {
+		try {
+			t.join();
+		} catch (InterruptedException e) {}
+		if (sampler != null) {
+			sampler.stop();
+		}
+	}
+
 	/**
 	 * Logs the given message.
 	 * 
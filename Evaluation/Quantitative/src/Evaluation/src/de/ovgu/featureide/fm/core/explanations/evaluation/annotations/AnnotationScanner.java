@@ -0,0 +1,274 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.annotations;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Scans source files for annotated blocks.
+ * Both C preprocessor directives such as <code>#ifdef X</code> and Antenna directives such as <code>// #if X</code> are recognized.
+ * The supported directives are <code>#if</code>, <code>#ifdef</code>, <code>#ifndef</code>, <code>#elif</code>, <code>#else</code> and <code>#endif</code>
+ * as well as the Antenna directives <code>#elifdef</code> and <code>#elifndef</code>.
+ * Other directives are ignored.
+ * </p>
+ * 
+ * <p>
+ * The condition of an <code>#elif</code>, <code>#elifdef</code>, <code>#elifndef</code> or <code>#else</code> block includes the negations of the preceding branches.
+ * Conditions are normalized by collapsing whitespace, so that equal conditions are recognized regardless of formatting.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class AnnotationScanner {
+
+	/** The default extensions of the files to scan. */
+	public static final List<String> EXTENSIONS = Collections.unmodifiableList(Arrays.asList(
+			"c", "h", "cc", "cpp", "cxx", "hpp", "hxx", "java", "jak"));
+
+	/**
+	 * An open block together with the preceding branches of the same directive.
+	 */
+	private static class Block {
+
+		/** The conditions of the preceding branches as written. */
+		private final List<String> branches = new ArrayList<>();
+		/** The condition of the current branch including the negations of the preceding branches. */
+		private String condition;
+	}
+
+	/** The extensions of the files to scan. */
+	private final List<String> extensions;
+
+	/**
+	 * Constructs a new instance of this class scanning files with the {@link #EXTENSIONS default extensions}.
+	 */
+	public AnnotationScanner() {
+		this(EXTENSIONS);
+	}
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param extensions the extensions of the files to scan without the dot; not null
+	 */
+	public AnnotationScanner(List<String> extensions) {
+		this.extensions = extensions;
+	}
+
+	/**
+	 * Returns all files to scan in the given directory and its subdirectories.
+	 * 
+	 * @param dir the directory; not null
+	 * @return the files in a stable order; not null
+	 */
+	public List<File> listFiles(File dir) {
+		final List<File> files = new ArrayList<>();
+		final LinkedList<File> open = new LinkedList<>();
+		open.add(dir);
+		while (!open.isEmpty()) {
+			final File[] children = open.removeFirst().listFiles();
+			if (children == null) {
+				continue;
+			}
+			Arrays.sort(children);
+			for (final File child : children) {
+				if (child.isDirectory()) {
+					open.add(child);
+				} else if (isScanned(child)) {
+					files.add(child);
+				}
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Returns true iff the given file has one of the extensions to scan.
+	 * 
+	 * @param file the file; not null
+	 * @return true iff scanned
+	 */
+	private boolean isScanned(File file) {
+		final String name = file.getName();
+		final int dot = name.lastIndexOf('.');
+		return dot >= 0 && extensions.contains(name.substring(dot + 1));
+	}
+
+	/**
+	 * Scans the given file for annotated blocks.
+	 * Blocks with the same presence condition are combined.
+	 * 
+	 * @param file the file; not null
+	 * @param name the name of the file used in the locations; not null
+	 * @return the presence conditions of the file by their conditions; not null
+	 */
+	public Map<List<String>, PresenceCondition> scan(File file, String name) {
+		final Map<List<String>, PresenceCondition> conditions = new LinkedHashMap<>();
+		final LinkedList<Block> blocks = new LinkedList<>();
+		try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			int lineNumber = 0;
+			String line;
+			while ((line = in.readLine()) != null) {
+				lineNumber++;
+				final String directive = getDirective(line);
+				if (directive == null) {
+					continue;
+				}
+				final int end = getKeywordEnd(directive);
+				final String keyword = directive.substring(0, end);
+				final String argument = normalize(stripComment(directive.substring(end)));
+				final Block block;
+				switch (keyword) {
+				case "if":
+				case "ifdef":
+					block = new Block();
+					block.condition = argument;
+					block.branches.add(argument);
+					blocks.addLast(block);
+					break;
+				case "ifndef":
+					block = new Block();
+					block.condition = "!" + argument;
+					block.branches.add(block.condition);
+					blocks.addLast(block);
+					break;
+				case "elif":
+				case "elifdef":
+					if (blocks.isEmpty()) {
+						continue;
+					}
+					block = blocks.getLast();
+					block.condition = negateBranches(block, argument);
+					block.branches.add(argument);
+					break;
+				case "elifndef":
+					if (blocks.isEmpty()) {
+						continue;
+					}
+					block = blocks.getLast();
+					block.condition = negateBranches(block, "!" + argument);
+					block.branches.add("!" + argument);
+					break;
+				case "else":
+					if (blocks.isEmpty()) {
+						continue;
+					}
+					block = blocks.getLast();
+					block.condition = negateBranches(block, null);
+					break;
+				case "endif":
+					if (!blocks.isEmpty()) {
+						blocks.removeLast();
+					}
+					continue;
+				default:
+					continue;
+				}
+				final List<String> key = new ArrayList<>(blocks.size());
+				for (final Block b : blocks) {
+					key.add(b.condition);
+				}
+				PresenceCondition pc = conditions.get(key);
+				if (pc == null) {
+					pc = new PresenceCondition(key);
+					conditions.put(key, pc);
+				}
+				pc.addLocation(name + ":" + lineNumber);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return conditions;
+	}
+
+	/**
+	 * Returns the condition of a branch following the preceding branches of the given block.
+	 * 
+	 * @param block the block; not null
+	 * @param condition the condition of the branch as written; null for an else branch
+	 * @return the conjunction of the negated preceding branches and the given condition; not null
+	 */
+	private static String negateBranches(Block block, String condition) {
+		final StringBuilder sb = new StringBuilder();
+		for (final String branch : block.branches) {
+			if (sb.length() > 0) {
+				sb.append(" && ");
+			}
+			sb.append("!(").append(branch).append(')');
+		}
+		if (condition != null) {
+			sb.append(" && (").append(condition).append(')');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the directive in the given line without the leading hash.
+	 * 
+	 * @param line the line; not null
+	 * @return the directive; null if the line contains none
+	 */
+	private static String getDirective(String line) {
+		String s = line.trim();
+		if (s.startsWith("//")) {
+			s = s.substring(2).trim();
+		}
+		if (!s.startsWith("#")) {
+			return null;
+		}
+		return s.substring(1).trim();
+	}
+
+	/**
+	 * Removes a trailing comment from the given argument of a directive.
+	 * 
+	 * @param argument the argument; not null
+	 * @return the argument without the comment; not null
+	 */
+	private static String stripComment(String argument) {
+		int end = argument.length();
+		final int lineComment = argument.indexOf("//");
+		if (lineComment >= 0) {
+			end = lineComment;
+		}
+		final int blockComment = argument.indexOf("/*");
+		if (blockComment >= 0 && blockComment < end) {
+			end = blockComment;
+		}
+		return argument.substring(0, end);
+	}
+
+	/**
+	 * Trims the given string and collapses all whitespace into single spaces.
+	 * 
+	 * @param s the string; not null
+	 * @return the normalized string; not null
+	 */
+	private static String normalize(String s) {
+		return s.trim().replaceAll("\\s+", " ");
+	}
+
+	/**
+	 * Returns the end of the keyword at the start of the given directive.
+	 * 
+	 * @param directive the directive; not null
+	 * @return the index of the first character after the keyword
+	 */
+	private static int getKeywordEnd(String directive) {
+		int i = 0;
+		while (i < directive.length() && Character.isLetter(directive.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+}
@@ -0,0 +1,203 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.annotations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.prop4j.And;
+import org.prop4j.Literal;
+import org.prop4j.Node;
+import org.prop4j.Not;
+import org.prop4j.Or;
+
+/**
+ * <p>
+ * Parses the presence condition of an annotation into a propositional formula.
+ * Identifiers are taken as feature names.
+ * </p>
+ * 
+ * <p>
+ * The syntax is the common subset of the C preprocessor and Antenna.
+ * It consists of identifiers, <code>defined(X)</code> and <code>defined X</code>, negation with <code>!</code>,
+ * conjunction with <code>&amp;&amp;</code> or <code>&amp;</code>, disjunction with <code>||</code> or <code>|</code>, and parentheses.
+ * Conjunction binds stronger than disjunction.
+ * Anything else, such as numbers or comparisons, is rejected.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ConditionParser {
+
+	/** The tokens of the condition. */
+	private final List<String> tokens;
+	/** The index of the next token. */
+	private int next;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param condition the condition to parse; not null
+	 * @throws IllegalArgumentException if the condition contains an unsupported character
+	 */
+	private ConditionParser(String condition) throws IllegalArgumentException {
+		tokens = tokenize(condition);
+	}
+
+	/**
+	 * Parses the given condition.
+	 * 
+	 * @param condition the condition; not null
+	 * @return the propositional formula; not null
+	 * @throws IllegalArgumentException if the condition is not supported
+	 */
+	public static Node parse(String condition) throws IllegalArgumentException {
+		final ConditionParser parser = new ConditionParser(condition);
+		final Node node = parser.parseOr();
+		if (parser.next < parser.tokens.size()) {
+			throw new IllegalArgumentException(String.format("Unexpected %s in condition: %s", parser.tokens.get(parser.next), condition));
+		}
+		return node;
+	}
+
+	/**
+	 * Splits the given condition into tokens.
+	 * 
+	 * @param condition the condition; not null
+	 * @return the tokens; not null
+	 * @throws IllegalArgumentException if the condition contains an unsupported character
+	 */
+	private static List<String> tokenize(String condition) throws IllegalArgumentException {
+		final List<String> tokens = new ArrayList<>();
+		int i = 0;
+		while (i < condition.length()) {
+			final char c = condition.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (Character.isJavaIdentifierStart(c)) {
+				int j = i + 1;
+				while (j < condition.length() && Character.isJavaIdentifierPart(condition.charAt(j))) {
+					j++;
+				}
+				tokens.add(condition.substring(i, j));
+				i = j;
+			} else if ((c == '&' || c == '|') && i + 1 < condition.length() && condition.charAt(i + 1) == c) {
+				tokens.add(String.valueOf(c));
+				i += 2;
+			} else if (c == '&' || c == '|' || c == '!' || c == '(' || c == ')') {
+				tokens.add(String.valueOf(c));
+				i++;
+			} else {
+				throw new IllegalArgumentException(String.format("Unsupported character %s in condition: %s", c, condition));
+			}
+		}
+		return tokens;
+	}
+
+	/**
+	 * Returns the next token without consuming it.
+	 * 
+	 * @return the next token; null if there is none
+	 */
+	private String peek() {
+		return next < tokens.size() ? tokens.get(next) : null;
+	}
+
+	/**
+	 * Consumes the next token.
+	 * 
+	 * @return the consumed token; not null
+	 * @throws IllegalArgumentException if there is no next token
+	 */
+	private String consume() throws IllegalArgumentException {
+		if (next >= tokens.size()) {
+			throw new IllegalArgumentException("Unexpected end of condition");
+		}
+		return tokens.get(next++);
+	}
+
+	/**
+	 * Consumes the next token, which must be the given one.
+	 * 
+	 * @param expected the expected token; not null
+	 * @throws IllegalArgumentException if the next token is a different one
+	 */
+	private void expect(String expected) throws IllegalArgumentException {
+		final String token = consume();
+		if (!token.equals(expected)) {
+			throw new IllegalArgumentException(String.format("Expected %s but found %s", expected, token));
+		}
+	}
+
+	/**
+	 * Parses a disjunction.
+	 * 
+	 * @return the formula; not null
+	 * @throws IllegalArgumentException if the condition is not supported
+	 */
+	private Node parseOr() throws IllegalArgumentException {
+		final List<Node> children = new ArrayList<>();
+		children.add(parseAnd());
+		while ("|".equals(peek())) {
+			consume();
+			children.add(parseAnd());
+		}
+		return children.size() == 1 ? children.get(0) : new Or(children.toArray(new Node[children.size()]));
+	}
+
+	/**
+	 * Parses a conjunction.
+	 * 
+	 * @return the formula; not null
+	 * @throws IllegalArgumentException if the condition is not supported
+	 */
+	private Node parseAnd() throws IllegalArgumentException {
+		final List<Node> children = new ArrayList<>();
+		children.add(parseUnary());
+		while ("&".equals(peek())) {
+			consume();
+			children.add(parseUnary());
+		}
+		return children.size() == 1 ? children.get(0) : new And(children.toArray(new Node[children.size()]));
+	}
+
+	/**
+	 * Parses a negation, a parenthesized formula, or a feature.
+	 * 
+	 * @return the formula; not null
+	 * @throws IllegalArgumentException if the condition is not supported
+	 */
+	private Node parseUnary() throws IllegalArgumentException {
+		final String token = consume();
+		switch (token) {
+		case "!":
+			return new Not(parseUnary());
+		case "(":
+			final Node node = parseOr();
+			expect(")");
+			return node;
+		case "defined":
+			if ("(".equals(peek())) {
+				consume();
+				final Node defined = parseFeature(consume());
+				expect(")");
+				return defined;
+			}
+			return parseFeature(consume());
+		default:
+			return parseFeature(token);
+		}
+	}
+
+	/**
+	 * Parses a feature.
+	 * 
+	 * @param token the token naming the feature; not null
+	 * @return the literal of the feature; not null
+	 * @throws IllegalArgumentException if the token is not an identifier
+	 */
+	private static Node parseFeature(String token) throws IllegalArgumentException {
+		if (!Character.isJavaIdentifierStart(token.charAt(0))) {
+			throw new IllegalArgumentException("Expected a feature but found " + token);
+		}
+		return new Literal(token);
+	}
+}
@@ -0,0 +1,395 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.annotations;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.ovgu.featureide.fm.core.base.IFeatureModel;
+import de.ovgu.featureide.fm.core.explanations.evaluation.annotations.PresenceCondition.Invariance;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.MusOracle;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.Origin;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.PresenceConditionCnf;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ShrinkingStrategy;
+import de.ovgu.featureide.fm.core.io.manager.FeatureModelManager;
+
+/**
+ * <p>
+ * Finds and explains the invariant presence conditions of a whole source tree at once.
+ * A presence condition is invariant if it is always true or always false given the feature model.
+ * Always true annotations are superfluous, always false ones mark dead code.
+ * </p>
+ * 
+ * <p>
+ * The work is done in two parallel passes.
+ * First, the source files are {@link AnnotationScanner scanned} in parallel and their presence conditions are merged.
+ * Blocks with the same presence condition are only explained once, which pays off as the same conditions recur throughout a code base.
+ * Second, the unique presence conditions are explained in parallel.
+ * Each thread has its own {@link PresenceConditionCnf CNF} and {@link MusOracle oracle} and takes the next condition when done with the previous one.
+ * </p>
+ * 
+ * <p>
+ * A block is always false if its condition and those of its enclosing blocks contradict the feature model.
+ * The explanation is a minimal subset of the feature model and these conditions.
+ * Otherwise, a block is always true if the feature model and the enclosing conditions imply its own condition.
+ * The explanation is a minimal subset of the feature model and the enclosing conditions.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class InvariantConditionExplainer {
+
+	/**
+	 * The result of explaining a source tree.
+	 * 
+	 * @author Timo G&uuml;nther
+	 */
+	public static class Report {
+
+		/** The number of scanned files. */
+		private final int files;
+		/** The unique presence conditions in order of their first occurrence. */
+		private final List<PresenceCondition> conditions;
+		/** The duration of scanning the files. */
+		private final long scanDuration;
+		/** The duration of explaining the presence conditions. */
+		private final long explainDuration;
+
+		/**
+		 * Constructs a new instance of this class.
+		 * 
+		 * @param files the number of scanned files
+		 * @param conditions the unique presence conditions; not null
+		 * @param scanDuration the duration of scanning the files
+		 * @param explainDuration the duration of explaining the presence conditions
+		 */
+		private Report(int files, List<PresenceCondition> conditions, long scanDuration, long explainDuration) {
+			this.files = files;
+			this.conditions = conditions;
+			this.scanDuration = scanDuration;
+			this.explainDuration = explainDuration;
+		}
+
+		/**
+		 * Returns the number of scanned files.
+		 * 
+		 * @return the number of files
+		 */
+		public int getFileCount() {
+			return files;
+		}
+
+		/**
+		 * Returns the number of annotated blocks.
+		 * 
+		 * @return the number of blocks
+		 */
+		public int getAnnotationCount() {
+			int count = 0;
+			for (final PresenceCondition pc : conditions) {
+				count += pc.getLocations().size();
+			}
+			return count;
+		}
+
+		/**
+		 * Returns the unique presence conditions in order of their first occurrence.
+		 * 
+		 * @return the presence conditions; not null
+		 */
+		public List<PresenceCondition> getConditions() {
+			return Collections.unmodifiableList(conditions);
+		}
+
+		/**
+		 * Returns the number of unique presence conditions with the given invariance.
+		 * 
+		 * @param invariance the invariance; not null
+		 * @return the number of presence conditions
+		 */
+		public int getCount(Invariance invariance) {
+			int count = 0;
+			for (final PresenceCondition pc : conditions) {
+				if (pc.getInvariance() == invariance) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * Returns the duration of scanning the files.
+		 * 
+		 * @return the scan duration in nanoseconds
+		 */
+		public long getScanDuration() {
+			return scanDuration;
+		}
+
+		/**
+		 * Returns the duration of explaining the presence conditions.
+		 * 
+		 * @return the explain duration in nanoseconds
+		 */
+		public long getExplainDuration() {
+			return explainDuration;
+		}
+	}
+
+	/** The feature model. */
+	private final IFeatureModel fm;
+	/** The number of threads. */
+	private final int threads;
+	/** The strategy used to shrink unsatisfiable subsets. */
+	private final ShrinkingStrategy strategy;
+	/** The scanner. */
+	private final AnnotationScanner scanner;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param fm the feature model; not null
+	 * @param threads the number of threads; positive
+	 * @param strategy the strategy used to shrink unsatisfiable subsets; not null
+	 */
+	public InvariantConditionExplainer(IFeatureModel fm, int threads, ShrinkingStrategy strategy) {
+		this(fm, threads, strategy, new AnnotationScanner());
+	}
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param fm the feature model; not null
+	 * @param threads the number of threads; positive
+	 * @param strategy the strategy used to shrink unsatisfiable subsets; not null
+	 * @param scanner the scanner; not null
+	 */
+	public InvariantConditionExplainer(IFeatureModel fm, int threads, ShrinkingStrategy strategy, AnnotationScanner scanner) {
+		this.fm = fm;
+		this.threads = threads;
+		this.strategy = strategy;
+		this.scanner = scanner;
+	}
+
+	/**
+	 * Scans the given source tree and explains its invariant presence conditions.
+	 * 
+	 * @param dir the root of the source tree; not null
+	 * @return the report; not null
+	 */
+	public Report explain(File dir) {
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final long scanStart = System.nanoTime();
+			final List<File> files = scanner.listFiles(dir);
+			final List<PresenceCondition> conditions = scan(executor, dir, files);
+			final long explainStart = System.nanoTime();
+			explain(executor, conditions);
+			final long explainStop = System.nanoTime();
+			return new Report(files.size(), conditions, explainStart - scanStart, explainStop - explainStart);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Scans the given files in parallel and merges their presence conditions.
+	 * 
+	 * @param executor the executor; not null
+	 * @param dir the root of the source tree; not null
+	 * @param files the files to scan; not null
+	 * @return the unique presence conditions in order of their first occurrence; not null
+	 */
+	private List<PresenceCondition> scan(ExecutorService executor, File dir, List<File> files) {
+		final List<Future<Map<List<String>, PresenceCondition>>> futures = new ArrayList<>(files.size());
+		final String root = dir.getAbsolutePath();
+		for (final File file : files) {
+			final String path = file.getAbsolutePath();
+			final String name = path.startsWith(root) ? path.substring(root.length() + 1) : path;
+			futures.add(executor.submit(new Callable<Map<List<String>, PresenceCondition>>() {
+				@Override
+				public Map<List<String>, PresenceCondition> call() {
+					return scanner.scan(file, name);
+				}
+			}));
+		}
+		final Map<List<String>, PresenceCondition> merged = new LinkedHashMap<>();
+		for (final Future<Map<List<String>, PresenceCondition>> future : futures) {
+			for (final Entry<List<String>, PresenceCondition> e : get(future).entrySet()) {
+				final PresenceCondition existing = merged.get(e.getKey());
+				if (existing == null) {
+					merged.put(e.getKey(), e.getValue());
+				} else {
+					for (final String location : e.getValue().getLocations()) {
+						existing.addLocation(location);
+					}
+				}
+			}
+		}
+		return new ArrayList<>(merged.values());
+	}
+
+	/**
+	 * Explains the given presence conditions in parallel.
+	 * 
+	 * @param executor the executor; not null
+	 * @param conditions the presence conditions; not null
+	 */
+	private void explain(ExecutorService executor, final List<PresenceCondition> conditions) {
+		final AtomicInteger next = new AtomicInteger();
+		final List<Future<Void>> futures = new ArrayList<>(threads);
+		for (int i = 0; i < threads; i++) {
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					final Worker worker = new Worker();
+					for (int j = next.getAndIncrement(); j < conditions.size(); j = next.getAndIncrement()) {
+						worker.explain(conditions.get(j));
+					}
+					return null;
+				}
+			}));
+		}
+		for (final Future<Void> future : futures) {
+			get(future);
+		}
+	}
+
+	/**
+	 * Waits for the given future.
+	 * 
+	 * @param <T> the type of the result
+	 * @param future the future; not null
+	 * @return the result; not null
+	 */
+	private static <T> T get(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Explains presence conditions on a single thread.
+	 * Conditions are only encoded the first time they are seen by the worker.
+	 */
+	private class Worker {
+
+		/** The CNF of the feature model and the presence conditions seen so far. */
+		private final PresenceConditionCnf cnf = new PresenceConditionCnf(fm);
+		/** The origins of the feature model. */
+		private final List<Origin> fmOrigins = new ArrayList<>(cnf.getOrigins());
+		/** The oracle. */
+		private final MusOracle oracle = new MusOracle(cnf);
+		/** The origins of the conditions already encoded. */
+		private final Map<String, Origin> encoded = new LinkedHashMap<>();
+		/** The conditions that could not be encoded. */
+		private final Set<String> invalid = new HashSet<>();
+
+		/**
+		 * Explains the given presence condition.
+		 * 
+		 * @param pc the presence condition; not null
+		 */
+		public void explain(PresenceCondition pc) {
+			final List<Origin> origins = new ArrayList<>(pc.getConditions().size());
+			for (final String condition : pc.getConditions()) {
+				final Origin origin = encode(condition);
+				if (origin == null) {
+					pc.setResult(Invariance.UNKNOWN, null);
+					return;
+				}
+				origins.add(origin);
+			}
+			final Set<Origin> candidates = new LinkedHashSet<>(fmOrigins);
+			candidates.addAll(origins);
+			Set<Origin> explanation = oracle.getMinimalUnsatisfiableSubset(new int[0], candidates, strategy);
+			if (explanation != null) {
+				pc.setResult(Invariance.ALWAYS_FALSE, explanation);
+				return;
+			}
+			final Origin inner = origins.remove(origins.size() - 1);
+			candidates.clear();
+			candidates.addAll(fmOrigins);
+			candidates.addAll(origins);
+			explanation = oracle.getMinimalUnsatisfiableSubset(new int[] { oracle.getNegation(inner) }, candidates, strategy);
+			if (explanation != null) {
+				pc.setResult(Invariance.ALWAYS_TRUE, explanation);
+			} else {
+				pc.setResult(Invariance.VARIANT, null);
+			}
+		}
+
+		/**
+		 * Encodes the given condition unless already done.
+		 * 
+		 * @param condition the condition; not null
+		 * @return the origin of the condition; null if it could not be encoded
+		 */
+		private Origin encode(String condition) {
+			Origin origin = encoded.get(condition);
+			if (origin != null || invalid.contains(condition)) {
+				return origin;
+			}
+			try {
+				origin = cnf.addCondition(condition, ConditionParser.parse(condition));
+			} catch (IllegalArgumentException e) {
+				invalid.add(condition);
+				return null;
+			}
+			oracle.addOrigin(origin);
+			encoded.put(condition, origin);
+			return origin;
+		}
+	}
+
+	/**
+	 * Explains the invariant presence conditions of a source tree and prints them.
+	 * The arguments are the feature model file, the root of the source tree, and the number of threads.
+	 * 
+	 * @param args the arguments
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.err.println("Usage: InvariantConditionExplainer <model.xml> <source dir> [threads]");
+			System.exit(2);
+		}
+		final IFeatureModel fm = FeatureModelManager.load(Paths.get(args[0])).getObject();
+		final int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		final Report report = new InvariantConditionExplainer(fm, threads, ShrinkingStrategy.QUICKXPLAIN).explain(new File(args[1]));
+		for (final PresenceCondition pc : report.getConditions()) {
+			if (!pc.isInvariant()) {
+				continue;
+			}
+			System.out.println(String.format("%s: %s", pc.getInvariance(), pc));
+			System.out.println(String.format("\tat %s", pc.getLocations()));
+			System.out.println(String.format("\tbecause %s", pc.getExplanation()));
+		}
+		System.out.println(String.format("%d files, %d annotations, %d unique, %d always true, %d always false, %d unknown; scan %.3f s, explain %.3f s",
+				report.getFileCount(),
+				report.getAnnotationCount(),
+				report.getConditions().size(),
+				report.getCount(Invariance.ALWAYS_TRUE),
+				report.getCount(Invariance.ALWAYS_FALSE),
+				report.getCount(Invariance.UNKNOWN),
+				report.getScanDuration() / 1e9,
+				report.getExplainDuration() / 1e9));
+	}
+}
@@ -0,0 +1,143 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.annotations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.Origin;
+
+/**
+ * <p>
+ * The presence condition of annotated blocks in the source code.
+ * It consists of the conditions of the block itself and of all enclosing blocks.
+ * Blocks with the same conditions share one instance, so each presence condition is only explained once.
+ * </p>
+ * 
+ * <p>
+ * After being explained, the presence condition knows whether it is invariant and why.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class PresenceCondition {
+
+	/**
+	 * Whether a presence condition depends on the configuration.
+	 */
+	public static enum Invariance {
+		/** The block is present in some configurations but not in others. */
+		VARIANT,
+		/** The block is present in every valid configuration, so its annotation is superfluous. */
+		ALWAYS_TRUE,
+		/** The block is present in no valid configuration, so it is dead code. */
+		ALWAYS_FALSE,
+		/** The condition could not be parsed or refers to something other than a feature. */
+		UNKNOWN
+	}
+
+	/** The conditions from the outermost enclosing block to the block itself. */
+	private final List<String> conditions;
+	/** The locations of the blocks as file and line. */
+	private final List<String> locations = new ArrayList<>(1);
+	/** Whether the presence condition is invariant; null if not explained yet. */
+	private Invariance invariance;
+	/** The explanation of the invariance; null if variant or unknown. */
+	private Set<Origin> explanation;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param conditions the conditions from the outermost enclosing block to the block itself; not null; not empty
+	 */
+	public PresenceCondition(List<String> conditions) {
+		this.conditions = conditions;
+	}
+
+	/**
+	 * Returns the conditions from the outermost enclosing block to the block itself.
+	 * 
+	 * @return the conditions; not null; not empty
+	 */
+	public List<String> getConditions() {
+		return Collections.unmodifiableList(conditions);
+	}
+
+	/**
+	 * Returns the condition of the block itself.
+	 * 
+	 * @return the innermost condition; not null
+	 */
+	public String getCondition() {
+		return conditions.get(conditions.size() - 1);
+	}
+
+	/**
+	 * Returns the locations of the blocks with this presence condition.
+	 * 
+	 * @return the locations as file and line; not null
+	 */
+	public List<String> getLocations() {
+		return Collections.unmodifiableList(locations);
+	}
+
+	/**
+	 * Adds the location of a block with this presence condition.
+	 * 
+	 * @param location the location as file and line; not null
+	 */
+	void addLocation(String location) {
+		locations.add(location);
+	}
+
+	/**
+	 * Returns whether this presence condition is invariant.
+	 * 
+	 * @return the invariance; null if not explained yet
+	 */
+	public Invariance getInvariance() {
+		return invariance;
+	}
+
+	/**
+	 * Returns the explanation of the invariance.
+	 * It consists of the origins in the feature model and the enclosing conditions that imply it.
+	 * 
+	 * @return the explanation; null if variant or unknown
+	 */
+	public Set<Origin> getExplanation() {
+		return explanation;
+	}
+
+	/**
+	 * Sets the result of explaining this presence condition.
+	 * 
+	 * @param invariance the invariance; not null
+	 * @param explanation the explanation; null if variant or unknown
+	 */
+	void setResult(Invariance invariance, Set<Origin> explanation) {
+		this.invariance = invariance;
+		this.explanation = explanation;
+	}
+
+	/**
+	 * Returns true iff this presence condition is always true or always false.
+	 * 
+	 * @return true iff invariant
+	 */
+	public boolean isInvariant() {
+		return invariance == Invariance.ALWAYS_TRUE || invariance == Invariance.ALWAYS_FALSE;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		for (final String condition : conditions) {
+			if (sb.length() > 0) {
+				sb.append(" > ");
+			}
+			sb.append(condition);
+		}
+		return sb.toString();
+	}
+}
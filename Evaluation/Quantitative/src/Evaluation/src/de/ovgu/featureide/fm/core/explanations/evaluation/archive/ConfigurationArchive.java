@@ -0,0 +1,334 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import de.ovgu.featureide.fm.core.base.IFeature;
+import de.ovgu.featureide.fm.core.base.IFeatureModel;
+
+/**
+ * <p>
+ * Reads all configurations of a project from a single packed file.
+ * The file is memory-mapped, so any configuration can be accessed directly by its index without parsing.
+ * Archives are written using {@link #write(File, List, Map)}, usually by the {@link ConfigurationArchiveConverter converter}.
+ * </p>
+ * 
+ * <p>
+ * The file starts with a header.
+ * The header consists of the {@link #MAGIC magic number}, the feature names, the configuration names and the width of each configuration in bytes.
+ * Each name is stored as its length followed by its bytes in UTF-8.
+ * The position of a feature name in the header is its id.
+ * The header is padded to a multiple of 8 bytes.
+ * Then follows one fixed-width bit set per configuration, stored as longs.
+ * Bit <i>i</i> is set iff the feature with id <i>i</i> is manually selected.
+ * All numbers are big-endian.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ConfigurationArchive implements Closeable {
+
+	/** The number identifying an archive file. */
+	public static final int MAGIC = 0x46434131;
+	/** The usual name of the archive file in a project directory. */
+	public static final String FILE_NAME = "configs.fca";
+
+	/** The file. */
+	private final RandomAccessFile file;
+	/** The mapped contents of the file. */
+	private final MappedByteBuffer buffer;
+	/** The feature names by id. */
+	private final List<String> featureNames = new ArrayList<>();
+	/** The configuration names by index. */
+	private final List<String> configNames = new ArrayList<>();
+	/** The index of each configuration by its name. */
+	private final Map<String, Integer> configIndices = new HashMap<>();
+	/** The width of each configuration in bytes. */
+	private final int width;
+	/** The position of the first configuration. */
+	private final int dataStart;
+
+	/**
+	 * Constructs a new instance of this class and maps the given file.
+	 * The file is closed again if it cannot be read as an archive.
+	 * 
+	 * @param archiveFile the archive file; not null
+	 * @throws IllegalArgumentException if the file is not an archive or is corrupt
+	 * @throws IllegalStateException if the file cannot be read
+	 */
+	public ConfigurationArchive(File archiveFile) throws IllegalArgumentException, IllegalStateException {
+		try {
+			file = new RandomAccessFile(archiveFile, "r");
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		boolean read = false;
+		try {
+			buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+			if (buffer.getInt() != MAGIC) {
+				throw new IllegalArgumentException("Not a configuration archive: " + archiveFile);
+			}
+			final int featureCount = buffer.getInt();
+			for (int i = 0; i < featureCount; i++) {
+				featureNames.add(readString());
+			}
+			final int configCount = buffer.getInt();
+			for (int k = 0; k < configCount; k++) {
+				final String name = readString();
+				configIndices.put(name, k);
+				configNames.add(name);
+			}
+			width = buffer.getInt();
+			dataStart = align(buffer.position());
+			if (width != getWidth(featureCount) || dataStart + (long) configCount * width > buffer.limit()) {
+				throw new IllegalArgumentException("Corrupt configuration archive: " + archiveFile);
+			}
+			read = true;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		} catch (BufferUnderflowException | NegativeArraySizeException e) {
+			throw new IllegalArgumentException("Corrupt configuration archive: " + archiveFile, e);
+		} finally {
+			if (!read) {
+				closeQuietly();
+			}
+		}
+	}
+
+	/**
+	 * Closes the file while already failing for another reason.
+	 */
+	private void closeQuietly() {
+		try {
+			file.close();
+		} catch (IOException e) {
+			// the original failure is more relevant
+		}
+	}
+
+	/**
+	 * Reads a string at the current position.
+	 * 
+	 * @return the string; not null
+	 */
+	private String readString() {
+		final byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the given position rounded up to a multiple of 8.
+	 * 
+	 * @param position the position
+	 * @return the aligned position
+	 */
+	private static int align(int position) {
+		return (position + 7) & ~7;
+	}
+
+	/**
+	 * Returns the width in bytes of a configuration with the given number of features.
+	 * 
+	 * @param featureCount the number of features
+	 * @return the width in bytes; a multiple of 8
+	 */
+	private static int getWidth(int featureCount) {
+		return (featureCount + 63) / 64 * 8;
+	}
+
+	/**
+	 * Returns the names of the features by id.
+	 * 
+	 * @return the feature names; not null
+	 */
+	public List<String> getFeatureNames() {
+		return Collections.unmodifiableList(featureNames);
+	}
+
+	/**
+	 * Returns whether the feature ids of this archive are those of the given feature model.
+	 * This is not the case if the feature model changed since the archive was written.
+	 * 
+	 * @param fm the feature model; not null
+	 * @return true iff the feature names match in order
+	 */
+	public boolean matches(IFeatureModel fm) {
+		return featureNames.equals(getFeatureNames(fm));
+	}
+
+	/**
+	 * Returns the names of the features of the given feature model in the order used for feature ids.
+	 * 
+	 * @param fm the feature model; not null
+	 * @return the feature names; not null
+	 */
+	public static List<String> getFeatureNames(IFeatureModel fm) {
+		final List<String> names = new ArrayList<>();
+		for (final IFeature f : fm.getFeatures()) {
+			names.add(f.getName());
+		}
+		return names;
+	}
+
+	/**
+	 * Returns the number of configurations.
+	 * 
+	 * @return the number of configurations
+	 */
+	public int getConfigurationCount() {
+		return configNames.size();
+	}
+
+	/**
+	 * Returns the name of the configuration with the given index.
+	 * 
+	 * @param k the index of the configuration
+	 * @return the configuration name; not null
+	 */
+	public String getConfigurationName(int k) {
+		return configNames.get(k);
+	}
+
+	/**
+	 * Returns the index of the configuration with the given name.
+	 * 
+	 * @param name the configuration name; not null
+	 * @return the index; -1 if there is no such configuration
+	 */
+	public int indexOf(String name) {
+		final Integer k = configIndices.get(name);
+		return k == null ? -1 : k;
+	}
+
+	/**
+	 * Returns true iff the given feature is manually selected in the given configuration.
+	 * 
+	 * @param k the index of the configuration
+	 * @param id the id of the feature
+	 * @return true iff selected
+	 */
+	public boolean isSelected(int k, int id) {
+		final long word = buffer.getLong(dataStart + k * width + (id >>> 6) * 8);
+		return (word & (1L << (id & 63))) != 0;
+	}
+
+	/**
+	 * Returns the ids of the features manually selected in the given configuration.
+	 * 
+	 * @param k the index of the configuration
+	 * @return the selected feature ids; not null
+	 */
+	public BitSet getSelected(int k) {
+		final long[] words = new long[width / 8];
+		final int position = dataStart + k * width;
+		for (int i = 0; i < words.length; i++) {
+			words[i] = buffer.getLong(position + i * 8);
+		}
+		return BitSet.valueOf(words);
+	}
+
+	/**
+	 * Returns the names of the features manually selected in the given configuration.
+	 * 
+	 * @param k the index of the configuration
+	 * @return the selected feature names in order of their ids; not null
+	 */
+	public List<String> getSelectedNames(int k) {
+		final BitSet selected = getSelected(k);
+		final List<String> names = new ArrayList<>(selected.cardinality());
+		for (int id = selected.nextSetBit(0); id >= 0; id = selected.nextSetBit(id + 1)) {
+			names.add(featureNames.get(id));
+		}
+		return names;
+	}
+
+	@Override
+	public void close() {
+		try {
+			file.close();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Writes an archive.
+	 * 
+	 * @param archiveFile the archive file to write; not null
+	 * @param featureNames the feature names in order of their ids; not null
+	 * @param configs the names of the manually selected features of each configuration by the configuration name; not null
+	 * @throws IllegalArgumentException if a configuration selects an unknown feature
+	 */
+	public static void write(File archiveFile, List<String> featureNames, Map<String, ? extends Collection<String>> configs) throws IllegalArgumentException {
+		final Map<String, Integer> ids = new HashMap<>();
+		for (final String name : featureNames) {
+			ids.put(name, ids.size());
+		}
+		final int width = getWidth(featureNames.size());
+		final List<long[]> bitSets = new ArrayList<>(configs.size());
+		for (final Entry<String, ? extends Collection<String>> e : configs.entrySet()) {
+			final long[] words = new long[width / 8];
+			for (final String name : e.getValue()) {
+				final Integer id = ids.get(name);
+				if (id == null) {
+					throw new IllegalArgumentException(String.format("Unknown feature in configuration %s: %s", e.getKey(), name));
+				}
+				words[id >>> 6] |= 1L << (id & 63);
+			}
+			bitSets.add(words);
+		}
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(archiveFile)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(featureNames.size());
+			for (final String name : featureNames) {
+				writeString(out, name);
+			}
+			out.writeInt(configs.size());
+			for (final String name : configs.keySet()) {
+				writeString(out, name);
+			}
+			out.writeInt(width);
+			while (out.size() != align(out.size())) {
+				out.writeByte(0);
+			}
+			for (final long[] words : bitSets) {
+				for (final long word : words) {
+					out.writeLong(word);
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Writes a string.
+	 * 
+	 * @param out the output; not null
+	 * @param s the string; not null
+	 * @throws IOException if writing fails
+	 */
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+}
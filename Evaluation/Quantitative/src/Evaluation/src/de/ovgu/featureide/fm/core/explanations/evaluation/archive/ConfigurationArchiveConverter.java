@@ -0,0 +1,121 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.archive;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.ovgu.featureide.fm.core.base.IFeatureModel;
+import de.ovgu.featureide.fm.core.configuration.Configuration;
+import de.ovgu.featureide.fm.core.configuration.SelectableFeature;
+import de.ovgu.featureide.fm.core.configuration.Selection;
+import de.ovgu.featureide.fm.core.io.manager.ConfigurationManager;
+import de.ovgu.featureide.fm.core.io.manager.FeatureModelManager;
+
+/**
+ * <p>
+ * Builds a {@link ConfigurationArchive configuration archive} from the configuration files of a project.
+ * </p>
+ * 
+ * <p>
+ * Each configuration file is loaded using the {@link ConfigurationManager}.
+ * Only the manual selections are stored, since the automatic ones follow from them when reading the archive.
+ * Names of features no longer in the feature model are skipped instead of failing the whole project.
+ * The feature ids of the archive follow the order of the features in the feature model of the project.
+ * The configurations are stored in order of their file names.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ConfigurationArchiveConverter {
+
+	/** The file extension of configuration files. */
+	private static final String EXTENSION = ".config";
+
+	/**
+	 * Converts the configuration files of the given project directory.
+	 * The archive is written to {@link ConfigurationArchive#FILE_NAME} in the project directory.
+	 * 
+	 * @param projectDir the project directory containing the feature model and the configurations; not null
+	 * @param fmName the name of the feature model; not null
+	 * @return the archive file; not null
+	 */
+	public File convert(File projectDir, String fmName) {
+		final IFeatureModel fm = FeatureModelManager.load(Paths.get(new File(projectDir, fmName + ".xml").getPath())).getObject();
+		final List<String> featureNames = ConfigurationArchive.getFeatureNames(fm);
+		final Map<String, List<String>> configs = new LinkedHashMap<>();
+		final File[] files = new File(projectDir, "configs").listFiles();
+		if (files != null) {
+			Arrays.sort(files);
+			for (final File configFile : files) {
+				final String name = configFile.getName();
+				if (name.endsWith(EXTENSION)) {
+					configs.put(name.substring(0, name.length() - EXTENSION.length()), readSelected(configFile, fm));
+				}
+			}
+		}
+		final File archiveFile = new File(projectDir, ConfigurationArchive.FILE_NAME);
+		ConfigurationArchive.write(archiveFile, featureNames, configs);
+		return archiveFile;
+	}
+
+	/**
+	 * Returns the names of the features manually selected in the given configuration file.
+	 * The file is loaded the same way as when reading it directly, so names of features no longer in the feature model are skipped.
+	 * 
+	 * @param configFile the configuration file; not null
+	 * @param fm the feature model of the configuration; not null
+	 * @return the selected feature names in order of the feature model; not null
+	 */
+	private static List<String> readSelected(File configFile, IFeatureModel fm) {
+		final Configuration config = ConfigurationManager.load(Paths.get(configFile.getPath()), new Configuration(fm)).getObject();
+		final List<String> names = new ArrayList<>();
+		for (final SelectableFeature f : config.getFeatures()) {
+			if (f.getManual() == Selection.SELECTED) {
+				names.add(f.getFeature().getName());
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Converts the configurations of projects.
+	 * The arguments are the data directory followed by the names of the projects.
+	 * By default, all projects in the data directory are converted.
+	 * 
+	 * @param args the data directory and the project names
+	 */
+	public static void main(String[] args) {
+		final File dataDir = new File(args.length > 0 ? args[0] : "../../data");
+		final List<File> projectDirs = new ArrayList<>();
+		if (args.length > 1) {
+			for (final String projectName : Arrays.copyOfRange(args, 1, args.length)) {
+				projectDirs.add(new File(dataDir, projectName));
+			}
+		} else {
+			final File[] dirs = dataDir.listFiles();
+			if (dirs != null) {
+				Arrays.sort(dirs);
+				for (final File dir : dirs) {
+					if (new File(dir, "configs").isDirectory()) {
+						projectDirs.add(dir);
+					}
+				}
+			}
+		}
+		final ConfigurationArchiveConverter converter = new ConfigurationArchiveConverter();
+		for (final File projectDir : projectDirs) {
+			final File archiveFile = converter.convert(projectDir, "model");
+			try (ConfigurationArchive archive = new ConfigurationArchive(archiveFile)) {
+				System.out.println(String.format("%s: %d configurations, %d features, %d bytes",
+						projectDir.getName(),
+						archive.getConfigurationCount(),
+						archive.getFeatureNames().size(),
+						archiveFile.length()));
+			}
+		}
+	}
+}
@@ -0,0 +1,230 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ * Generates a random code base annotated with C preprocessor directives.
+ * The presence conditions refer to the features of a given feature model.
+ * The same seed always yields the same code base.
+ * </p>
+ * 
+ * <p>
+ * Real code bases use the same presence conditions again and again.
+ * This is imitated by reusing a previously generated condition with a given probability.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class AnnotatedSourceGenerator {
+
+	/** The number of files per directory. */
+	private static final int FILES_PER_DIRECTORY = 100;
+
+	/** The number of files to generate. */
+	private int fileCount = 1000;
+	/** The number of top-level annotated blocks per file. */
+	private int blocksPerFile = 20;
+	/** The maximum nesting depth of annotated blocks. */
+	private int maxDepth = 3;
+	/** The maximum number of features in a condition. */
+	private int maxLiterals = 3;
+	/** The probability of reusing a previously generated condition. */
+	private double reuseProbability = 0.8;
+
+	/**
+	 * Returns the number of files to generate.
+	 * 
+	 * @return the number of files
+	 */
+	public int getFileCount() {
+		return fileCount;
+	}
+
+	/**
+	 * Sets the number of files to generate.
+	 * 
+	 * @param fileCount the number of files; positive
+	 */
+	public void setFileCount(int fileCount) {
+		this.fileCount = fileCount;
+	}
+
+	/**
+	 * Returns the number of top-level annotated blocks per file.
+	 * 
+	 * @return the number of blocks
+	 */
+	public int getBlocksPerFile() {
+		return blocksPerFile;
+	}
+
+	/**
+	 * Sets the number of top-level annotated blocks per file.
+	 * 
+	 * @param blocksPerFile the number of blocks; positive
+	 */
+	public void setBlocksPerFile(int blocksPerFile) {
+		this.blocksPerFile = blocksPerFile;
+	}
+
+	/**
+	 * Returns the maximum nesting depth of annotated blocks.
+	 * 
+	 * @return the maximum depth
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Sets the maximum nesting depth of annotated blocks.
+	 * Top-level blocks have depth 1.
+	 * 
+	 * @param maxDepth the maximum depth; positive
+	 */
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Returns the maximum number of features in a condition.
+	 * 
+	 * @return the maximum number of literals
+	 */
+	public int getMaxLiterals() {
+		return maxLiterals;
+	}
+
+	/**
+	 * Sets the maximum number of features in a condition.
+	 * 
+	 * @param maxLiterals the maximum number of literals; positive
+	 */
+	public void setMaxLiterals(int maxLiterals) {
+		this.maxLiterals = maxLiterals;
+	}
+
+	/**
+	 * Returns the probability of reusing a previously generated condition.
+	 * 
+	 * @return the reuse probability
+	 */
+	public double getReuseProbability() {
+		return reuseProbability;
+	}
+
+	/**
+	 * Sets the probability of reusing a previously generated condition.
+	 * 
+	 * @param reuseProbability the reuse probability between 0 and 1
+	 */
+	public void setReuseProbability(double reuseProbability) {
+		this.reuseProbability = reuseProbability;
+	}
+
+	/**
+	 * Generates a code base with the given seed and writes it to the given directory.
+	 * 
+	 * @param dir the directory; not null
+	 * @param features the names of the features to refer to; not null; not empty
+	 * @param seed the seed
+	 */
+	public void write(File dir, List<String> features, long seed) {
+		final Random random = new Random(seed);
+		final List<String> conditions = new ArrayList<>();
+		try {
+			for (int i = 0; i < fileCount; i++) {
+				final File file = new File(new File(dir, String.format("d%d", i / FILES_PER_DIRECTORY)), String.format("f%d.c", i));
+				file.getParentFile().mkdirs();
+				final StringBuilder sb = new StringBuilder();
+				sb.append(String.format("/* Generated file %d */%n", i));
+				for (int j = 0; j < blocksPerFile; j++) {
+					writeBlock(sb, random, features, conditions, 1);
+				}
+				Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Writes an annotated block with random nested blocks.
+	 * 
+	 * @param sb the output; not null
+	 * @param random the source of randomness; not null
+	 * @param features the names of the features; not null
+	 * @param conditions the conditions generated so far; not null
+	 * @param depth the depth of the block
+	 */
+	private void writeBlock(StringBuilder sb, Random random, List<String> features, List<String> conditions, int depth) {
+		final String condition = getCondition(random, features, conditions);
+		if (condition.indexOf(' ') < 0 && random.nextBoolean()) {
+			if (condition.startsWith("!")) {
+				sb.append("#ifndef ").append(condition.substring(1)).append('\n');
+			} else {
+				sb.append("#ifdef ").append(condition).append('\n');
+			}
+		} else {
+			sb.append("#if ").append(condition).append('\n');
+		}
+		writeBody(sb, random, features, conditions, depth);
+		if (random.nextInt(4) == 0) {
+			sb.append("#else\n");
+			writeBody(sb, random, features, conditions, depth);
+		}
+		sb.append("#endif\n");
+	}
+
+	/**
+	 * Writes the body of an annotated block.
+	 * 
+	 * @param sb the output; not null
+	 * @param random the source of randomness; not null
+	 * @param features the names of the features; not null
+	 * @param conditions the conditions generated so far; not null
+	 * @param depth the depth of the enclosing block
+	 */
+	private void writeBody(StringBuilder sb, Random random, List<String> features, List<String> conditions, int depth) {
+		sb.append(String.format("int v%d;%n", random.nextInt(Integer.MAX_VALUE)));
+		if (depth < maxDepth && random.nextInt(3) == 0) {
+			writeBlock(sb, random, features, conditions, depth + 1);
+		}
+	}
+
+	/**
+	 * Returns a condition.
+	 * A previous condition is reused with the set probability.
+	 * 
+	 * @param random the source of randomness; not null
+	 * @param features the names of the features; not null
+	 * @param conditions the conditions generated so far; not null
+	 * @return the condition; not null
+	 */
+	private String getCondition(Random random, List<String> features, List<String> conditions) {
+		if (!conditions.isEmpty() && random.nextDouble() < reuseProbability) {
+			return conditions.get(random.nextInt(conditions.size()));
+		}
+		final int literals = 1 + random.nextInt(maxLiterals);
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < literals; i++) {
+			if (i > 0) {
+				sb.append(random.nextBoolean() ? " && " : " || ");
+			}
+			if (random.nextInt(4) == 0) {
+				sb.append('!');
+			}
+			sb.append(features.get(random.nextInt(features.size())));
+		}
+		final String condition = sb.toString();
+		conditions.add(condition);
+		return condition;
+	}
+}
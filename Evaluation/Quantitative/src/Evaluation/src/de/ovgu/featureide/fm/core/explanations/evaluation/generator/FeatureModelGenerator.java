@@ -0,0 +1,471 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ * Generates random feature models in the FeatureIDE XML format.
+ * The generation is controlled by the number of features, the tree depth, the mix of group types and the density of cross-tree constraints.
+ * The same seed always yields the same feature model.
+ * </p>
+ * 
+ * <p>
+ * Besides random cross-tree constraints, defects with a known cause can be injected.
+ * A dead feature excludes its own parent.
+ * A false-optional feature is required by its parent.
+ * A redundant constraint requires the parent of a feature, which the feature tree implies already.
+ * The random constraints may cause further defects.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class FeatureModelGenerator {
+
+	/**
+	 * A feature in the generated feature tree.
+	 */
+	private static class Feature {
+
+		/** The name of this feature. */
+		private final String name;
+		/** The parent of this feature; null for the root. */
+		private final Feature parent;
+		/** The depth of this feature; 0 for the root. */
+		private final int depth;
+		/** The children of this feature. */
+		private final List<Feature> children = new ArrayList<>();
+		/** The group type of the children; one of and, or and alt. */
+		private String group = "and";
+		/** Whether this feature is mandatory. Only applies to children of and-groups. */
+		private boolean mandatory;
+
+		/**
+		 * Constructs a new instance of this class.
+		 * 
+		 * @param name the name of this feature; not null
+		 * @param parent the parent of this feature; null for the root
+		 */
+		private Feature(String name, Feature parent) {
+			this.name = name;
+			this.parent = parent;
+			this.depth = parent == null ? 0 : parent.depth + 1;
+		}
+
+		/**
+		 * Returns true iff this feature is optional.
+		 * 
+		 * @return true iff optional
+		 */
+		private boolean isOptional() {
+			return parent != null && parent.group.equals("and") && !mandatory;
+		}
+	}
+
+	/** The number of features to generate. */
+	private int featureCount = 1000;
+	/** The maximum depth of the feature tree. */
+	private int maxDepth = 10;
+	/** The maximum number of children of a feature. */
+	private int maxChildren = 8;
+	/** The relative frequency of and-groups. */
+	private int andWeight = 2;
+	/** The relative frequency of or-groups. */
+	private int orWeight = 1;
+	/** The relative frequency of alternative-groups. */
+	private int altWeight = 1;
+	/** The probability of a child of an and-group being mandatory. */
+	private double mandatoryProbability = 0.3;
+	/** The number of random cross-tree constraints per feature. */
+	private double constraintDensity = 0.1;
+	/** The number of dead features to inject. */
+	private int deadFeatures;
+	/** The number of false-optional features to inject. */
+	private int falseOptionalFeatures;
+	/** The number of redundant constraints to inject. */
+	private int redundantConstraints;
+
+	/** The names of the dead features injected during the most recent generation. */
+	private final List<String> injectedDeadFeatures = new ArrayList<>();
+	/** The names of the false-optional features injected during the most recent generation. */
+	private final List<String> injectedFalseOptionalFeatures = new ArrayList<>();
+	/** The number of redundant constraints injected during the most recent generation. */
+	private int injectedRedundantConstraints;
+
+	/**
+	 * Returns the number of features to generate.
+	 * 
+	 * @return the number of features
+	 */
+	public int getFeatureCount() {
+		return featureCount;
+	}
+
+	/**
+	 * Sets the number of features to generate.
+	 * 
+	 * @param featureCount the number of features; at least 1
+	 */
+	public void setFeatureCount(int featureCount) {
+		this.featureCount = featureCount;
+	}
+
+	/**
+	 * Returns the maximum depth of the feature tree.
+	 * 
+	 * @return the maximum depth
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Sets the maximum depth of the feature tree.
+	 * The root has depth 0.
+	 * 
+	 * @param maxDepth the maximum depth; at least 1
+	 */
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Returns the maximum number of children of a feature.
+	 * 
+	 * @return the maximum number of children
+	 */
+	public int getMaxChildren() {
+		return maxChildren;
+	}
+
+	/**
+	 * Sets the maximum number of children of a feature.
+	 * This limit is exceeded if the features would not fit into the tree otherwise.
+	 * The maximum depth is never exceeded.
+	 * 
+	 * @param maxChildren the maximum number of children; at least 1
+	 */
+	public void setMaxChildren(int maxChildren) {
+		this.maxChildren = maxChildren;
+	}
+
+	/**
+	 * Sets the relative frequencies of the group types.
+	 * Features with a single child always form an and-group.
+	 * 
+	 * @param andWeight the relative frequency of and-groups
+	 * @param orWeight the relative frequency of or-groups
+	 * @param altWeight the relative frequency of alternative-groups
+	 */
+	public void setGroupWeights(int andWeight, int orWeight, int altWeight) {
+		this.andWeight = andWeight;
+		this.orWeight = orWeight;
+		this.altWeight = altWeight;
+	}
+
+	/**
+	 * Returns the probability of a child of an and-group being mandatory.
+	 * 
+	 * @return the mandatory probability
+	 */
+	public double getMandatoryProbability() {
+		return mandatoryProbability;
+	}
+
+	/**
+	 * Sets the probability of a child of an and-group being mandatory.
+	 * 
+	 * @param mandatoryProbability the mandatory probability; between 0 and 1
+	 */
+	public void setMandatoryProbability(double mandatoryProbability) {
+		this.mandatoryProbability = mandatoryProbability;
+	}
+
+	/**
+	 * Returns the number of random cross-tree constraints per feature.
+	 * 
+	 * @return the constraint density
+	 */
+	public double getConstraintDensity() {
+		return constraintDensity;
+	}
+
+	/**
+	 * Sets the number of random cross-tree constraints per feature.
+	 * 
+	 * @param constraintDensity the constraint density; not negative
+	 */
+	public void setConstraintDensity(double constraintDensity) {
+		this.constraintDensity = constraintDensity;
+	}
+
+	/**
+	 * Sets the number of defects to inject.
+	 * Fewer defects are injected if there are not enough optional features.
+	 * 
+	 * @param deadFeatures the number of dead features
+	 * @param falseOptionalFeatures the number of false-optional features
+	 * @param redundantConstraints the number of redundant constraints
+	 */
+	public void setDefects(int deadFeatures, int falseOptionalFeatures, int redundantConstraints) {
+		this.deadFeatures = deadFeatures;
+		this.falseOptionalFeatures = falseOptionalFeatures;
+		this.redundantConstraints = redundantConstraints;
+	}
+
+	/**
+	 * Returns the names of the dead features injected during the most recent generation.
+	 * 
+	 * @return the names of the injected dead features; not null
+	 */
+	public List<String> getInjectedDeadFeatures() {
+		return Collections.unmodifiableList(injectedDeadFeatures);
+	}
+
+	/**
+	 * Returns the names of the false-optional features injected during the most recent generation.
+	 * 
+	 * @return the names of the injected false-optional features; not null
+	 */
+	public List<String> getInjectedFalseOptionalFeatures() {
+		return Collections.unmodifiableList(injectedFalseOptionalFeatures);
+	}
+
+	/**
+	 * Returns the number of redundant constraints injected during the most recent generation.
+	 * 
+	 * @return the number of injected redundant constraints
+	 */
+	public int getInjectedRedundantConstraints() {
+		return injectedRedundantConstraints;
+	}
+
+	/**
+	 * Generates a feature model with the given seed and writes it to the given file.
+	 * 
+	 * @param file the file to write to; not null
+	 * @param seed the seed
+	 */
+	public void write(File file, long seed) {
+		final String xml = generate(seed);
+		try {
+			file.getAbsoluteFile().getParentFile().mkdirs();
+			Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Generates a feature model with the given seed.
+	 * 
+	 * @param seed the seed
+	 * @return the feature model in the FeatureIDE XML format; not null
+	 */
+	public String generate(long seed) {
+		final Random random = new Random(seed);
+		final List<Feature> features = generateTree(random);
+		final List<String> rules = new ArrayList<>();
+		generateDefects(random, features, rules);
+		generateConstraints(random, features, rules);
+		final StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+		sb.append("\t<featureModel>\n");
+		sb.append("\t\t<properties/>\n");
+		sb.append("\t\t<struct>\n");
+		writeFeature(sb, features.get(0), 3);
+		sb.append("\t\t</struct>\n");
+		sb.append("\t\t<constraints>\n");
+		for (final String rule : rules) {
+			sb.append("\t\t\t<rule>\n");
+			sb.append("\t\t\t\t").append(rule).append('\n');
+			sb.append("\t\t\t</rule>\n");
+		}
+		sb.append("\t\t</constraints>\n");
+		sb.append("\t</featureModel>\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Generates the feature tree.
+	 * 
+	 * @param random the source of randomness; not null
+	 * @return all features in the order of their creation, starting with the root; not null
+	 */
+	private List<Feature> generateTree(Random random) {
+		final List<Feature> features = new ArrayList<>(featureCount);
+		final List<Feature> open = new ArrayList<>();
+		final List<Feature> inner = new ArrayList<>(); // features whose children stay within the maximum depth
+		final Feature root = new Feature("Root", null);
+		features.add(root);
+		open.add(root);
+		inner.add(root);
+		while (features.size() < featureCount) {
+			final Feature parent;
+			if (open.isEmpty()) {
+				parent = inner.get(random.nextInt(inner.size())); // exceed the maximum number of children rather than the maximum depth
+			} else {
+				parent = open.get(random.nextInt(open.size()));
+			}
+			final Feature child = new Feature("F" + features.size(), parent);
+			parent.children.add(child);
+			features.add(child);
+			if (parent.children.size() >= maxChildren) {
+				open.remove(parent);
+			}
+			if (child.depth < maxDepth) {
+				open.add(child);
+				inner.add(child);
+			}
+		}
+		final int totalWeight = andWeight + orWeight + altWeight;
+		for (final Feature f : features) {
+			if (f.children.size() >= 2 && totalWeight > 0) {
+				final int r = random.nextInt(totalWeight);
+				f.group = r < andWeight ? "and" : r < andWeight + orWeight ? "or" : "alt";
+			}
+			for (final Feature child : f.children) {
+				child.mandatory = f.group.equals("and") && random.nextDouble() < mandatoryProbability;
+			}
+		}
+		return features;
+	}
+
+	/**
+	 * Injects the defects.
+	 * Each feature is involved in at most one injected defect.
+	 * 
+	 * @param random the source of randomness; not null
+	 * @param features all features; not null
+	 * @param rules the constraints to add to; not null
+	 */
+	private void generateDefects(Random random, List<Feature> features, List<String> rules) {
+		injectedDeadFeatures.clear();
+		injectedFalseOptionalFeatures.clear();
+		injectedRedundantConstraints = 0;
+		final List<Feature> candidates = new ArrayList<>();
+		for (final Feature f : features) {
+			if (f.isOptional()) {
+				candidates.add(f);
+			}
+		}
+		Collections.shuffle(candidates, random);
+		int next = 0;
+		for (int i = 0; i < deadFeatures && next < candidates.size(); i++) {
+			final Feature f = candidates.get(next++);
+			rules.add(implies(var(f.name), not(var(f.parent.name))));
+			injectedDeadFeatures.add(f.name);
+		}
+		for (int i = 0; i < falseOptionalFeatures && next < candidates.size(); i++) {
+			final Feature f = candidates.get(next++);
+			rules.add(implies(var(f.parent.name), var(f.name)));
+			injectedFalseOptionalFeatures.add(f.name);
+		}
+		for (int i = 0; i < redundantConstraints && next < candidates.size(); i++) {
+			final Feature f = candidates.get(next++);
+			rules.add(implies(var(f.name), var(f.parent.name)));
+			injectedRedundantConstraints++;
+		}
+	}
+
+	/**
+	 * Generates the random cross-tree constraints.
+	 * Each one is an implication between two distinct features where the consequent is negated with a probability of one in four.
+	 * 
+	 * @param random the source of randomness; not null
+	 * @param features all features; not null
+	 * @param rules the constraints to add to; not null
+	 */
+	private void generateConstraints(Random random, List<Feature> features, List<String> rules) {
+		if (features.size() < 3) {
+			return;
+		}
+		final int constraintCount = (int) Math.round(constraintDensity * features.size());
+		for (int i = 0; i < constraintCount; i++) {
+			final Feature a = features.get(1 + random.nextInt(features.size() - 1));
+			Feature b;
+			do {
+				b = features.get(1 + random.nextInt(features.size() - 1));
+			} while (a == b);
+			final String consequent = random.nextInt(4) == 0 ? not(var(b.name)) : var(b.name);
+			rules.add(implies(var(a.name), consequent));
+		}
+	}
+
+	/**
+	 * Writes the given feature and its descendants.
+	 * 
+	 * @param sb the builder to write to; not null
+	 * @param f the feature to write; not null
+	 * @param indent the indentation level
+	 */
+	private static void writeFeature(StringBuilder sb, Feature f, int indent) {
+		final String tabs = tabs(indent);
+		final String tag = f.children.isEmpty() ? "feature" : f.group;
+		sb.append(tabs).append('<').append(tag);
+		if (f.parent == null || f.mandatory) {
+			sb.append(" mandatory=\"true\"");
+		}
+		sb.append(" name=\"").append(f.name).append('"');
+		if (f.children.isEmpty()) {
+			sb.append("/>\n");
+			return;
+		}
+		sb.append(">\n");
+		for (final Feature child : f.children) {
+			writeFeature(sb, child, indent + 1);
+		}
+		sb.append(tabs).append("</").append(tag).append(">\n");
+	}
+
+	/**
+	 * Returns the given number of tabs.
+	 * 
+	 * @param count the number of tabs
+	 * @return the tabs; not null
+	 */
+	private static String tabs(int count) {
+		final StringBuilder sb = new StringBuilder(count);
+		for (int i = 0; i < count; i++) {
+			sb.append('\t');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the XML of a variable.
+	 * 
+	 * @param name the name of the variable; not null
+	 * @return the XML; not null
+	 */
+	private static String var(String name) {
+		return "<var>" + name + "</var>";
+	}
+
+	/**
+	 * Returns the XML of a negation.
+	 * 
+	 * @param operand the XML of the operand; not null
+	 * @return the XML; not null
+	 */
+	private static String not(String operand) {
+		return "<not>" + operand + "</not>";
+	}
+
+	/**
+	 * Returns the XML of an implication.
+	 * 
+	 * @param antecedent the XML of the antecedent; not null
+	 * @param consequent the XML of the consequent; not null
+	 * @return the XML; not null
+	 */
+	private static String implies(String antecedent, String consequent) {
+		return "<imp>" + antecedent + consequent + "</imp>";
+	}
+}
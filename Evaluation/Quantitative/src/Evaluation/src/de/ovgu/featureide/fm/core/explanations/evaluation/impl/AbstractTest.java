@@ -4,12 +4,16 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import de.ovgu.featureide.fm.core.explanations.evaluation.Test;
+import de.ovgu.featureide.fm.core.explanations.evaluation.jfr.FlightRecorderEvents;
+import de.ovgu.featureide.fm.core.explanations.evaluation.metrics.EvaluationMetrics;
 
 /**
  * Abstract implementation of {@link Test}.
  * A test composes any number of iterations.
  * Each iteration in turn composes any number of steps.
  * Subclasses may hook into the methods called at the start and the end of each scope to prepare the state.
+ * Progress is reported to the {@link EvaluationMetrics evaluation metrics} outside of the steps.
+ * Each step is also recorded as a {@link FlightRecorderEvents flight recorder event} if available.
  * 
  * @param <R> the type of the results of each step
  * @author Timo G&uuml;nther
@@ -30,6 +34,8 @@ public abstract class AbstractTest<R> implements Test {
 	private int steps;
 	/** The result of the most recent step. */
 	private R result;
+	/** The flight recorder event of the current step; null if disabled. */
+	private Object stepEvent;
 
 	/**
 	 * Constructs a new instance of this class.
@@ -42,11 +48,17 @@ public abstract class AbstractTest<R> implements Test {
 
 	@Override
 	public void run() {
-		runBeforeTest();
+		final EvaluationMetrics metrics = EvaluationMetrics.getInstance();
+		metrics.testStarted(getName());
 		try {
-			runTest();
+			runBeforeTest();
+			try {
+				runTest();
+			} finally {
+				runAfterTest();
+			}
 		} finally {
-			runAfterTest();
+			metrics.testFinished();
 		}
 	}
 
@@ -116,15 +128,18 @@ public abstract class AbstractTest<R> implements Test {
 	 * @param iterations the number of iterations to run
 	 */
 	protected void runTest(int iterations) {
+		final EvaluationMetrics metrics = EvaluationMetrics.getInstance();
 		steps = 0;
 		runBeforeIterations();
 		for (iteration = 0; iteration < iterations; iteration++) {
 			runBeforeIteration();
 			step = 0;
 			while (hasNextStep()) {
+				metrics.stepStarted();
 				runBeforeStep();
 				result = runStep();
 				runAfterStep();
+				metrics.stepCompleted(getStepSubject());
 				step++;
 				steps++;
 			}
@@ -155,7 +170,9 @@ public abstract class AbstractTest<R> implements Test {
 	/**
 	 * Called before a step starts.
 	 */
-	protected void runBeforeStep() {}
+	protected void runBeforeStep() {
+		stepEvent = FlightRecorderEvents.beginStep();
+	}
 
 	/**
 	 * Takes a single step.
@@ -168,7 +185,51 @@ public abstract class AbstractTest<R> implements Test {
 	/**
 	 * Called after a step ends.
 	 */
-	protected void runAfterStep() {}
+	protected void runAfterStep() {
+		if (stepEvent != null) {
+			FlightRecorderEvents.endStep(stepEvent, getName(), step, getStepSubject(), getOracleName(), getStepReasonCount(), isColdStep());
+			stepEvent = null;
+		}
+	}
+
+	/**
+	 * Returns the subject of the most recent step.
+	 * This is reported to the evaluation metrics.
+	 * 
+	 * @return the step subject; null if unknown
+	 */
+	protected Object getStepSubject() {
+		return null;
+	}
+
+	/**
+	 * Returns the number of reasons in the result of the most recent step.
+	 * This is reported to the flight recorder.
+	 * 
+	 * @return the number of reasons; negative if unknown or not explained
+	 */
+	protected int getStepReasonCount() {
+		return -1;
+	}
+
+	/**
+	 * Returns whether the most recent step included lazy preparations that later steps do not repeat.
+	 * This is reported to the flight recorder.
+	 * 
+	 * @return true iff cold
+	 */
+	protected boolean isColdStep() {
+		return false;
+	}
+
+	/**
+	 * Returns the name of the oracle used by this test.
+	 * 
+	 * @return the oracle name; null if not applicable
+	 */
+	protected String getOracleName() {
+		return null;
+	}
 
 	/**
 	 * Called after an iteration ends.
@@ -0,0 +1,518 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.impl;
+
+import java.io.Closeable;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.ovgu.featureide.fm.core.explanations.evaluation.results.ResultsStore;
+
+/**
+ * <p>
+ * Buffers the measurements of many steps off the heap before writing them as comma-separated values.
+ * Each step is a row.
+ * Each measured value is a column with a fixed width of eight bytes.
+ * The columns are stored one after another in a direct {@link ByteBuffer}, so recording a number neither allocates nor boxes.
+ * Strings are stored as indexes into a dictionary that is cleared with every chunk.
+ * </p>
+ * 
+ * <p>
+ * The columns are defined by the first row.
+ * The type of each column is fixed by the first value put into it that is not null.
+ * Integral numbers are widened in floating point columns, and numbers are stored as their string representation in string columns.
+ * Any other value not matching the type of its column is rejected.
+ * Putting a value into a column again within the same row replaces the previous value.
+ * Columns not put in a later row are left empty.
+ * Once a chunk of rows is full, it is written at once and the buffer is reused.
+ * If a {@link ResultsStore results store} is given, each chunk is also appended to it column by column.
+ * This keeps the measurement overhead and the garbage collection pressure flat regardless of the number of steps.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class MeasurementBuffer implements Closeable {
+
+	/** The default number of rows per chunk. */
+	public static final int CHUNK_ROWS = 1 << 14;
+
+	/**
+	 * The type of a column.
+	 */
+	private static enum Type {
+		/** Integral numbers. */
+		LONG,
+		/** Floating point numbers. */
+		DOUBLE,
+		/** Anything else, stored as strings. */
+		STRING
+	}
+
+	/** The width of each cell in bytes. */
+	private static final int CELL_WIDTH = 8;
+	/** The value of an empty integral or string cell. */
+	private static final long EMPTY = Long.MIN_VALUE;
+
+	/** The output to write to; null to discard the measurements. */
+	private final PrintWriter out;
+	/** The store to append to; null to not store the measurements. */
+	private final ResultsStore store;
+	/** The key of the test in the store. */
+	private final String test;
+	/** The number of rows per chunk. */
+	private final int chunkRows;
+
+	/** The name of each column. */
+	private final List<String> names = new ArrayList<>();
+	/** The type of each column; null until a value that is not null is put. */
+	private final List<Type> types = new ArrayList<>();
+	/** The index of each column by its name. */
+	private final Map<String, Integer> columns = new HashMap<>();
+	/** The values of the first row until the columns are fixed. */
+	private final List<Object> firstRow = new ArrayList<>();
+
+	/** The strings of the current chunk. */
+	private final List<String> strings = new ArrayList<>();
+	/** The index of each string of the current chunk. */
+	private final Map<String, Integer> stringIndexes = new HashMap<>();
+
+	/** The cells of the current chunk, column by column; null until the columns are fixed. */
+	private ByteBuffer cells;
+	/** The number of complete rows in the current chunk. */
+	private int rows;
+	/** The total number of complete rows. */
+	private long totalRows;
+	/** Whether a row is in progress. */
+	private boolean inRow;
+	/** Whether the header has been written. */
+	private boolean headerWritten;
+
+	/**
+	 * Constructs a new instance of this class with the default number of rows per chunk.
+	 * 
+	 * @param out the output to write to; null to discard the measurements
+	 */
+	public MeasurementBuffer(PrintWriter out) {
+		this(out, null, null);
+	}
+
+	/**
+	 * Constructs a new instance of this class with the default number of rows per chunk.
+	 * 
+	 * @param out the output to write to; null to discard the measurements
+	 * @param store the store to append to; null to not store the measurements
+	 * @param test the key of the test in the store; not null if the store is given
+	 */
+	public MeasurementBuffer(PrintWriter out, ResultsStore store, String test) {
+		this(out, store, test, CHUNK_ROWS);
+	}
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param out the output to write to; null to discard the measurements
+	 * @param store the store to append to; null to not store the measurements
+	 * @param test the key of the test in the store; not null if the store is given
+	 * @param chunkRows the number of rows per chunk; positive
+	 */
+	public MeasurementBuffer(PrintWriter out, ResultsStore store, String test, int chunkRows) {
+		if (chunkRows <= 0) {
+			throw new IllegalArgumentException("Chunk size must be positive");
+		}
+		this.out = out;
+		this.store = store;
+		this.test = test;
+		this.chunkRows = chunkRows;
+	}
+
+	/**
+	 * Returns the total number of rows recorded.
+	 * 
+	 * @return the number of rows
+	 */
+	public long getRowCount() {
+		return totalRows;
+	}
+
+	/**
+	 * Starts a new row.
+	 * All cells of the row are empty at first.
+	 */
+	public void beginRow() {
+		if (inRow) {
+			throw new IllegalStateException("Row already in progress");
+		}
+		inRow = true;
+		if (cells == null) {
+			return;
+		}
+		if (rows == chunkRows) {
+			flush();
+		}
+		for (int column = 0; column < names.size(); column++) {
+			if (types.get(column) == Type.DOUBLE) {
+				cells.putDouble(offset(column), Double.NaN);
+			} else {
+				cells.putLong(offset(column), EMPTY);
+			}
+		}
+	}
+
+	/**
+	 * Ends the current row.
+	 */
+	public void endRow() {
+		if (!inRow) {
+			throw new IllegalStateException("No row in progress");
+		}
+		inRow = false;
+		if (cells == null) {
+			fixColumns();
+		}
+		rows++;
+		totalRows++;
+	}
+
+	/**
+	 * Puts an integral number into the given column of the current row.
+	 * 
+	 * @param name the name of the column; not null
+	 * @param value the value
+	 */
+	public void put(String name, long value) {
+		final int column = getColumn(name, Type.LONG);
+		if (cells == null) {
+			firstRow.set(column, value);
+			return;
+		}
+		switch (getType(column, Type.LONG)) {
+		case LONG:
+			cells.putLong(offset(column), value);
+			break;
+		case DOUBLE:
+			cells.putDouble(offset(column), value);
+			break;
+		case STRING:
+			cells.putLong(offset(column), getStringIndex(String.valueOf(value)));
+			break;
+		default:
+			throw new IllegalStateException("Unknown column type");
+		}
+	}
+
+	/**
+	 * Puts a floating point number into the given column of the current row.
+	 * 
+	 * @param name the name of the column; not null
+	 * @param value the value
+	 * @throws IllegalStateException if the column holds integral numbers
+	 */
+	public void put(String name, double value) throws IllegalStateException {
+		final int column = getColumn(name, Type.DOUBLE);
+		if (cells == null) {
+			firstRow.set(column, value);
+			return;
+		}
+		switch (getType(column, Type.DOUBLE)) {
+		case LONG:
+			throw new IllegalStateException("Column is not a floating point column: " + name);
+		case DOUBLE:
+			cells.putDouble(offset(column), value);
+			break;
+		case STRING:
+			cells.putLong(offset(column), getStringIndex(String.valueOf(value)));
+			break;
+		default:
+			throw new IllegalStateException("Unknown column type");
+		}
+	}
+
+	/**
+	 * Puts an arbitrary value into the given column of the current row.
+	 * Numbers are stored as such.
+	 * Anything else is stored as its string representation.
+	 * Null leaves the cell empty.
+	 * 
+	 * @param name the name of the column; not null
+	 * @param value the value
+	 * @throws IllegalStateException if the column holds numbers but the value is neither a number nor null
+	 */
+	public void put(String name, Object value) throws IllegalStateException {
+		if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			put(name, ((Number) value).longValue());
+			return;
+		}
+		if (value instanceof Double || value instanceof Float) {
+			put(name, ((Number) value).doubleValue());
+			return;
+		}
+		final int column = getColumn(name, value == null ? null : Type.STRING);
+		if (cells == null) {
+			firstRow.set(column, value == null ? null : String.valueOf(value));
+			return;
+		}
+		if (value == null) {
+			clear(column);
+			return;
+		}
+		if (getType(column, Type.STRING) != Type.STRING) {
+			throw new IllegalStateException("Column is not a string column: " + name);
+		}
+		cells.putLong(offset(column), getStringIndex(String.valueOf(value)));
+	}
+
+	/**
+	 * Returns the type of the given column.
+	 * If the column has no type yet, it is given the given type.
+	 * 
+	 * @param column the index of the column
+	 * @param type the type of the value to put; not null
+	 * @return the type of the column; not null
+	 */
+	private Type getType(int column, Type type) {
+		final Type current = types.get(column);
+		if (current != null) {
+			return current;
+		}
+		types.set(column, type);
+		if (type == Type.DOUBLE) {
+			for (int row = 0; row <= rows; row++) {
+				cells.putDouble(offset(column, row), Double.NaN);
+			}
+		}
+		return type;
+	}
+
+	/**
+	 * Empties the given cell of the current row.
+	 * 
+	 * @param column the index of the column
+	 */
+	private void clear(int column) {
+		if (types.get(column) == Type.DOUBLE) {
+			cells.putDouble(offset(column), Double.NaN);
+		} else {
+			cells.putLong(offset(column), EMPTY);
+		}
+	}
+
+	/**
+	 * Returns the index of the given column.
+	 * While the columns are not fixed yet, the column is added or its type replaced.
+	 * 
+	 * @param name the name of the column; not null
+	 * @param type the type of the value to put; null if the value is null
+	 * @return the index of the column
+	 */
+	private int getColumn(String name, Type type) {
+		if (!inRow) {
+			throw new IllegalStateException("No row in progress");
+		}
+		final Integer column = columns.get(name);
+		if (cells != null) {
+			if (column == null) {
+				throw new IllegalStateException("Unknown column: " + name);
+			}
+			return column;
+		}
+		if (column != null) {
+			if (type != null) {
+				types.set(column, type);
+			}
+			return column;
+		}
+		columns.put(name, names.size());
+		names.add(name);
+		types.add(type);
+		firstRow.add(null);
+		return names.size() - 1;
+	}
+
+	/**
+	 * Fixes the columns as defined by the first row, allocates the cells and stores the first row.
+	 */
+	private void fixColumns() {
+		cells = ByteBuffer.allocateDirect(Math.max(1, names.size()) * chunkRows * CELL_WIDTH);
+		for (int column = 0; column < names.size(); column++) {
+			final Object value = firstRow.get(column);
+			if (value == null) {
+				clear(column);
+				continue;
+			}
+			switch (types.get(column)) {
+			case LONG:
+				cells.putLong(offset(column), (Long) value);
+				break;
+			case DOUBLE:
+				cells.putDouble(offset(column), (Double) value);
+				break;
+			case STRING:
+				cells.putLong(offset(column), getStringIndex((String) value));
+				break;
+			default:
+				throw new IllegalStateException("Unknown column type");
+			}
+		}
+		firstRow.clear();
+	}
+
+	/**
+	 * Returns the offset of the given column in the current row.
+	 * 
+	 * @param column the index of the column
+	 * @return the offset in bytes
+	 */
+	private int offset(int column) {
+		return offset(column, rows);
+	}
+
+	/**
+	 * Returns the offset of the given cell.
+	 * 
+	 * @param column the index of the column
+	 * @param row the index of the row within the chunk
+	 * @return the offset in bytes
+	 */
+	private int offset(int column, int row) {
+		return (column * chunkRows + row) * CELL_WIDTH;
+	}
+
+	/**
+	 * Returns the index of the given string in the dictionary of the current chunk.
+	 * 
+	 * @param s the string; not null
+	 * @return the index
+	 */
+	private int getStringIndex(String s) {
+		Integer index = stringIndexes.get(s);
+		if (index == null) {
+			index = strings.size();
+			strings.add(s);
+			stringIndexes.put(s, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Writes all complete rows of the current chunk and empties it.
+	 */
+	public void flush() {
+		if (out != null) {
+			if (!headerWritten && !names.isEmpty()) {
+				out.println(asCsv(names));
+				headerWritten = true;
+			}
+			final List<Object> values = new ArrayList<>(names.size());
+			for (int row = 0; row < rows; row++) {
+				values.clear();
+				for (int column = 0; column < names.size(); column++) {
+					values.add(getCell(column, row));
+				}
+				out.println(asCsv(values));
+			}
+			out.flush();
+		}
+		if (store != null && rows > 0) {
+			store.appendSteps(test, names, getColumns(), rows);
+		}
+		rows = 0;
+		strings.clear();
+		stringIndexes.clear();
+	}
+
+	/**
+	 * Returns the complete rows of the current chunk column by column.
+	 * Empty cells are {@link Long#MIN_VALUE}, NaN, or the empty string depending on the type of the column.
+	 * Columns without a type yet are empty integral columns.
+	 * 
+	 * @return a <code>long[]</code>, <code>double[]</code>, or <code>String[]</code> for each column; not null
+	 */
+	private List<Object> getColumns() {
+		final List<Object> values = new ArrayList<>(names.size());
+		for (int column = 0; column < names.size(); column++) {
+			final Type type = types.get(column);
+			switch (type == null ? Type.LONG : type) {
+			case LONG:
+				final long[] longs = new long[rows];
+				for (int row = 0; row < rows; row++) {
+					longs[row] = cells.getLong(offset(column, row));
+				}
+				values.add(longs);
+				break;
+			case DOUBLE:
+				final double[] doubles = new double[rows];
+				for (int row = 0; row < rows; row++) {
+					doubles[row] = cells.getDouble(offset(column, row));
+				}
+				values.add(doubles);
+				break;
+			case STRING:
+				final String[] strings = new String[rows];
+				for (int row = 0; row < rows; row++) {
+					strings[row] = String.valueOf(getCell(column, row));
+				}
+				values.add(strings);
+				break;
+			default:
+				throw new IllegalStateException("Unknown column type");
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the value of the given cell.
+	 * 
+	 * @param column the index of the column
+	 * @param row the index of the row within the chunk
+	 * @return the value; empty if not put
+	 */
+	private Object getCell(int column, int row) {
+		if (types.get(column) == Type.DOUBLE) {
+			final double value = cells.getDouble(offset(column, row));
+			return Double.isNaN(value) ? "" : value;
+		}
+		final long value = cells.getLong(offset(column, row));
+		if (value == EMPTY) {
+			return "";
+		}
+		return types.get(column) == Type.STRING ? strings.get((int) value) : value;
+	}
+
+	/**
+	 * Writes all remaining rows and closes the output.
+	 */
+	@Override
+	public void close() {
+		if (inRow) {
+			inRow = false;
+		}
+		flush();
+		if (out != null) {
+			out.close();
+		}
+		cells = null;
+	}
+
+	/**
+	 * Returns the given elements as comma-separated values
+	 * 
+	 * @param elements elements to transform
+	 * @return the given elements as comma-separated values
+	 */
+	private static String asCsv(List<?> elements) {
+		final StringBuilder sb = new StringBuilder();
+		boolean first = true;
+		for (final Object element : elements) {
+			if (first) {
+				first = false;
+			} else {
+				sb.append(',');
+			}
+			sb.append('"').append(String.valueOf(element).replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+		}
+		return sb.toString();
+	}
+}
@@ -4,12 +4,14 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.Collection;
-import java.util.LinkedHashMap;
-import java.util.Map;
+
+import de.ovgu.featureide.fm.core.explanations.evaluation.profiling.StackSampler;
+import de.ovgu.featureide.fm.core.explanations.evaluation.results.ResultsStore;
 
 /**
  * A test that takes measurements.
+ * The measurements of each step are recorded in a {@link MeasurementBuffer measurement buffer}.
+ * If the test thread is {@link StackSampler sampled}, the samples are written next to the measurements.
  * 
  * @param <R> the type of the results of each step
  * @author Timo G&uuml;nther
@@ -21,8 +23,8 @@ public abstract class MeasuringTest<R> extends AbstractTest<R> {
 	/** The file to write the measurements to. */
 	private static final File OUT_DIR = new File("results");
 
-	/** The output stream. */
-	private PrintWriter out;
+	/** The buffer of the step measurements. */
+	private MeasurementBuffer measurements;
 
 	/**
 	 * Constructs a new instance of this class.
@@ -47,11 +49,7 @@ public abstract class MeasuringTest<R> extends AbstractTest<R> {
 		if (!isMeasuring()) {
 			return;
 		}
-		final Collection<?> keys = getStepMeasurement().keySet();
-		if (WRITE_TO_FILE) {
-			out = openOut();
-			out.println(asCsv(keys));
-		}
+		measurements = new MeasurementBuffer(WRITE_TO_FILE ? openOut() : null, ResultsStore.get(Thread.currentThread()), ResultsStore.getKey(this));
 	}
 
 	@Override
@@ -60,31 +58,43 @@ public abstract class MeasuringTest<R> extends AbstractTest<R> {
 		if (!isMeasuring()) {
 			return;
 		}
-		final Collection<?> values = getStepMeasurement().values();
-		if (WRITE_TO_FILE) {
-			out.println(asCsv(values));
-		}
+		measurements.beginRow();
+		measureStep(measurements);
+		measurements.endRow();
 	}
 
 	@Override
 	protected void runAfterTest() {
 		super.runAfterTest();
-		if (out != null) {
-			out.close();
+		if (measurements != null) {
+			measurements.close();
+			measurements = null;
+		}
+		final StackSampler sampler = StackSampler.get(Thread.currentThread());
+		if (sampler != null && isMeasuring()) {
+			sampler.write(getProfileFile());
 		}
 	}
 
 	/**
-	 * Returns a measurement of the most recently taken step.
+	 * Records a measurement of the most recently taken step.
+	 * Subclasses add their own columns after calling this.
 	 * 
-	 * @return a step measurement
+	 * @param measurement the row to record the measurement in; not null
 	 */
-	protected Map<String, Object> getStepMeasurement() {
-		final Map<String, Object> measurement = new LinkedHashMap<>();
+	protected void measureStep(MeasurementBuffer measurement) {
 		measurement.put("Iteration", getIteration());
 		measurement.put("Step", getStep());
-		measurement.put("Result", getResult());
-		return measurement;
+		measurement.put("Result", getResultMeasurement());
+	}
+
+	/**
+	 * Returns the value recorded as the result of the most recent step.
+	 * 
+	 * @return the result measurement
+	 */
+	protected Object getResultMeasurement() {
+		return getResult();
 	}
 
 	/**
@@ -106,6 +116,16 @@ public abstract class MeasuringTest<R> extends AbstractTest<R> {
 		return new File(getOutDir(), String.format("%s/%s.csv", getClass().getSimpleName(), getName()));
 	}
 
+	/**
+	 * Returns the file to write the stack samples to in collapsed-stack format.
+	 * 
+	 * @return the profile file
+	 * @see {@link StackSampler}
+	 */
+	public File getProfileFile() {
+		return new File(getOutDir(), String.format("%s/%s.collapsed", getClass().getSimpleName(), getName()));
+	}
+
 	/**
 	 * Opens the output stream.
 	 * 
@@ -125,24 +145,4 @@ public abstract class MeasuringTest<R> extends AbstractTest<R> {
 			throw new IllegalStateException(e);
 		}
 	}
-
-	/**
-	 * Returns the given elements as comma-separated values
-	 * 
-	 * @param elements elements to transform
-	 * @return the given elements as comma-separated values
-	 */
-	private static String asCsv(Collection<?> elements) {
-		String s = "";
-		boolean first = true;
-		for (final Object element : elements) {
-			if (first) {
-				first = false;
-			} else {
-				s += ",";
-			}
-			s += '"' + String.valueOf(element).replace("\\", "\\\\").replace("\"", "\\\"") + '"';
-		}
-		return s;
-	}
 }
@@ -3,6 +3,9 @@ package de.ovgu.featureide.fm.core.explanations.evaluation.impl;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import de.ovgu.featureide.fm.core.explanations.evaluation.metrics.EvaluationMetrics;
+import de.ovgu.featureide.fm.core.explanations.evaluation.profiling.StackSampler;
+
 /**
  * <p>
  * A test that measures time.
@@ -15,6 +18,10 @@ import java.util.concurrent.TimeUnit;
  * This is to avoid timing biases.
  * </p>
  * 
+ * <p>
+ * If the test thread is {@link StackSampler sampled}, samples are only recorded during the timed steps after the warm-up phase.
+ * </p>
+ * 
  * @param <R> the type of the results of each step
  * @author Timo G&uuml;nther
  */
@@ -131,12 +138,11 @@ public abstract class TimingTest<R> extends MeasuringTest<R> {
 	}
 
 	@Override
-	protected Map<String, Object> getStepMeasurement() {
-		final Map<String, Object> measurement = super.getStepMeasurement();
+	protected void measureStep(MeasurementBuffer measurement) {
+		super.measureStep(measurement);
 		measurement.put("Start", getStepStartTime());
 		measurement.put("Stop", getStepStopTime());
 		measurement.put("Duration", getStepDuration());
-		return measurement;
 	}
 
 	@Override
@@ -160,15 +166,20 @@ public abstract class TimingTest<R> extends MeasuringTest<R> {
 	@Override
 	protected void runBeforeStep() {
 		super.runBeforeStep();
+		if (isMeasuring()) {
+			StackSampler.resume();
+		}
 		stepStartTime = System.nanoTime();
 	}
 
 	@Override
 	protected void runAfterStep() {
 		stepStopTime = System.nanoTime();
+		StackSampler.pause();
 		stepDuration = stepStopTime - stepStartTime;
 		iterationDuration += stepDuration;
 		testDuration += stepDuration;
+		EvaluationMetrics.getInstance().addStepDuration(stepDuration);
 		super.runAfterStep();
 	}
 }
@@ -0,0 +1,223 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.config;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import de.ovgu.featureide.fm.core.configuration.Configuration;
+import de.ovgu.featureide.fm.core.configuration.SelectableFeature;
+import de.ovgu.featureide.fm.core.configuration.Selection;
+import de.ovgu.featureide.fm.core.explanations.evaluation.Test;
+import de.ovgu.featureide.fm.core.explanations.evaluation.TestRunner;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.MeasurementBuffer;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.resources.FeatureModelTest;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.BackboneExtractor;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.FeatureModelCnf;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.SelectionSet;
+import de.ovgu.featureide.fm.core.io.manager.ConfigurationManager;
+
+/**
+ * <p>
+ * A test computing the automatic selections of all configurations of a project.
+ * Each step computes the {@link BackboneExtractor backbone} under the manual selections of one configuration.
+ * All steps share one incremental solver.
+ * </p>
+ * 
+ * <p>
+ * The backbone is either extracted guided by models or checked per feature for comparison.
+ * Besides time, this measures the number of satisfiability checks in each step.
+ * The number of automatic selections found is compared to the one computed by FeatureIDE when loading the configuration.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class BackboneTest extends FeatureModelTest<int[]> {
+
+	/** Whether to extract the backbone guided by models instead of checking each feature. */
+	private final boolean modelGuided;
+
+	/** The manual selections of each configuration in order of the file names. */
+	private List<int[]> selections;
+	/** The number of automatic selections of each configuration according to FeatureIDE. */
+	private List<Integer> expected;
+	/** The extractor. */
+	private BackboneExtractor extractor;
+
+	/** The number of configurations. */
+	private int configCount;
+	/** The position of the configuration of the current step. */
+	private int position;
+	/** The number of satisfiability checks done before the current step. */
+	private long satCallsBefore;
+	/** The number of satisfiability checks done in the most recent step. */
+	private long stepSatCalls;
+	/** The total number of satisfiability checks done in all steps. */
+	private long satCalls;
+	/** The total number of automatic selections found. */
+	private long implied;
+	/** The number of configurations whose number of automatic selections differs from FeatureIDE's. */
+	private int mismatches;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param modelGuided whether to extract the backbone guided by models instead of checking each feature
+	 * @param iterations number of iterations to run
+	 */
+	protected BackboneTest(String projectName, String fmName, boolean modelGuided, int iterations) {
+		super(projectName, fmName, iterations);
+		this.modelGuided = modelGuided;
+	}
+
+	@Override
+	public String getName() {
+		return String.format("%s_%s_%s_%d",
+				getProjectName(),
+				getFeatureModelName(),
+				getOracleName(),
+				getIterations());
+	}
+
+	@Override
+	protected String getOracleName() {
+		return modelGuided ? "backbone" : "per-feature";
+	}
+
+	@Override
+	protected void runBeforeTest() {
+		super.runBeforeTest();
+		startPhase("Config Load");
+		final FeatureModelCnf cnf = new FeatureModelCnf(getFeatureModel());
+		selections = new ArrayList<>();
+		expected = new ArrayList<>();
+		final File[] files = new File(getProjectDir(), "configs").listFiles();
+		if (files != null) {
+			Arrays.sort(files);
+			for (final File configFile : files) {
+				if (!configFile.getName().endsWith(".config")) {
+					continue;
+				}
+				final Configuration config = ConfigurationManager.load(Paths.get(configFile.getPath()), new Configuration(getFeatureModel())).getObject();
+				selections.add(new SelectionSet(cnf, config).getLiterals());
+				int automatic = 0;
+				for (final SelectableFeature s : config.getFeatures()) {
+					if (s.getAutomatic() != Selection.UNDEFINED) {
+						automatic++;
+					}
+				}
+				expected.add(automatic);
+			}
+		}
+		configCount = selections.size();
+		stopPhase();
+		startPhase("Extractor");
+		extractor = new BackboneExtractor(cnf);
+		stopPhase();
+	}
+
+	@Override
+	protected void runBeforeIterations() {
+		super.runBeforeIterations();
+		satCalls = 0L;
+		implied = 0L;
+		mismatches = 0;
+	}
+
+	@Override
+	protected void runBeforeIteration() {
+		super.runBeforeIteration();
+		position = -1;
+	}
+
+	@Override
+	protected boolean hasNextStep() {
+		return ++position < selections.size();
+	}
+
+	@Override
+	protected void runBeforeStep() {
+		satCallsBefore = extractor.getSatCalls();
+		super.runBeforeStep();
+	}
+
+	@Override
+	protected int[] runStep() {
+		final int[] literals = selections.get(position);
+		return modelGuided ? extractor.getBackbone(literals) : extractor.getBackboneByFeature(literals);
+	}
+
+	@Override
+	protected void runAfterStep() {
+		stepSatCalls = extractor.getSatCalls() - satCallsBefore;
+		satCalls += stepSatCalls;
+		super.runAfterStep();
+	}
+
+	@Override
+	protected void runAfterTest() {
+		super.runAfterTest();
+		selections = null;
+		expected = null;
+		extractor = null;
+	}
+
+	@Override
+	protected Object getResultMeasurement() {
+		final int[] backbone = getResult();
+		return backbone == null ? -1 : backbone.length;
+	}
+
+	@Override
+	protected void measureStep(MeasurementBuffer measurement) {
+		super.measureStep(measurement);
+		final int[] backbone = getResult();
+		if (backbone != null) {
+			implied += backbone.length;
+		}
+		if (backbone == null || backbone.length != expected.get(position)) {
+			mismatches++;
+		}
+		measurement.put("SAT Calls", stepSatCalls);
+	}
+
+	@Override
+	public Map<String, Object> getTestResults() {
+		final Map<String, Object> results = super.getTestResults();
+		results.put("Configs", configCount);
+		results.put("Implied", implied);
+		results.put("Avg SAT Calls", (double) satCalls / Math.max(1, getSteps()));
+		results.put("Mismatches", mismatches);
+		return results;
+	}
+
+	/**
+	 * Runs the tests.
+	 * 
+	 * @param args unused
+	 */
+	public static void main(String[] args) {
+		final List<Test> tests = new LinkedList<>();
+		for (final String projectName : Arrays.asList(
+				"SortingLine",
+				"PPU",
+				"Violet",
+				"uClibc",
+				"E-Shop",
+				"WaterlooGenerated",
+				"Busybox_1.18.0",
+				"XSEngine",
+				"uClibc-Distribution",
+				"Automotive01")) {
+			for (final boolean modelGuided : new boolean[] { true, false }) {
+				tests.add(new BackboneTest(projectName, "model", modelGuided, ITERATIONS));
+			}
+		}
+		new TestRunner().run(tests);
+	}
+}
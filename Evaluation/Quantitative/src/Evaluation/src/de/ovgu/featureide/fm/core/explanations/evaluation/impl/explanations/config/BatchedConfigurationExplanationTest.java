@@ -0,0 +1,223 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.config;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.ovgu.featureide.fm.core.configuration.SelectableFeature;
+import de.ovgu.featureide.fm.core.explanations.evaluation.Test;
+import de.ovgu.featureide.fm.core.explanations.evaluation.TestRunner;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.MeasurementBuffer;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.resources.ConfigurationTest;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ConfigurationCnf;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.MusOracle;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.Origin;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ShrinkingStrategy;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.UnitPropagator;
+
+/**
+ * <p>
+ * A test explaining all automatic selections of a configuration in a single batched pass.
+ * Unlike {@link ConfigurationExplanationTest}, the manual selections are only propagated once per step using a {@link UnitPropagator unit propagator}.
+ * The explanations of all automatic selections are then extracted from the justifications recorded during that propagation.
+ * </p>
+ * 
+ * <p>
+ * Automatic selections not found by unit propagation are explained using a {@link MusOracle MUS oracle} with the given {@link ShrinkingStrategy shrinking strategy}.
+ * Each step explains the entire configuration.
+ * Besides time, this measures how many automatic selections are explained per second.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class BatchedConfigurationExplanationTest extends ConfigurationTest<Map<SelectableFeature, Set<Origin>>> {
+
+	/** The strategy used to shrink unsatisfiable subsets for automatic selections not found by unit propagation. */
+	private final ShrinkingStrategy strategy;
+
+	/** The configuration in conjunctive normal form. */
+	private ConfigurationCnf cnf;
+	/** The oracle for automatic selections not found by unit propagation. */
+	private MusOracle oracle;
+	/** The automatic selections to explain. */
+	private List<SelectableFeature> automatics;
+
+	/** The number of automatic selections explained using the propagation trace in the most recent step. */
+	private int stepTraced;
+	/** The total number of automatic selections explained. */
+	private int asExpl;
+	/** The total number of automatic selections explained using the propagation trace. */
+	private int traced;
+	/** The total number of reasons of all found explanations. */
+	private int reasons;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param configName the name of the configuration; not null
+	 * @param strategy the strategy used to shrink unsatisfiable subsets; not null
+	 * @param iterations number of iterations to run
+	 */
+	protected BatchedConfigurationExplanationTest(String projectName, String fmName, String configName, ShrinkingStrategy strategy, int iterations) {
+		super(projectName, fmName, configName, iterations);
+		this.strategy = strategy;
+	}
+
+	@Override
+	public String getName() {
+		return String.format("%s_%s_%s_%d",
+				getProjectName(),
+				getConfigurationName(),
+				getOracleName(),
+				getIterations());
+	}
+
+	@Override
+	protected String getOracleName() {
+		return "batched-" + strategy;
+	}
+
+	@Override
+	protected void runBeforeTest() {
+		super.runBeforeTest();
+		startPhase("Oracle");
+		cnf = new ConfigurationCnf(getConfiguration());
+		oracle = new MusOracle(cnf);
+		stopPhase();
+		automatics = new ArrayList<>();
+		for (final SelectableFeature s : getConfiguration().getFeatures()) {
+			if (cnf.getAutomaticLiteral(s) != 0) {
+				automatics.add(s);
+			}
+		}
+	}
+
+	@Override
+	protected void runBeforeIterations() {
+		super.runBeforeIterations();
+		asExpl = 0;
+		traced = 0;
+		reasons = 0;
+	}
+
+	@Override
+	protected boolean hasNextStep() {
+		return getStep() == 0;
+	}
+
+	@Override
+	protected Map<SelectableFeature, Set<Origin>> runStep() {
+		final UnitPropagator propagator = new UnitPropagator(cnf);
+		final boolean consistent = propagator.propagate();
+		final Map<SelectableFeature, Set<Origin>> explanations = new LinkedHashMap<>();
+		stepTraced = 0;
+		for (final SelectableFeature s : automatics) {
+			final int literal = cnf.getAutomaticLiteral(s);
+			Set<Origin> explanation = consistent ? propagator.explain(literal) : null;
+			if (explanation == null) {
+				explanation = oracle.getMinimalUnsatisfiableSubset(new int[] { -literal }, oracle.getOrigins(), strategy);
+			} else {
+				stepTraced++;
+			}
+			explanations.put(s, explanation);
+		}
+		return explanations;
+	}
+
+	@Override
+	protected int getStepReasonCount() {
+		final Map<SelectableFeature, Set<Origin>> explanations = getResult();
+		if (explanations == null) {
+			return -1;
+		}
+		int stepReasons = 0;
+		for (final Set<Origin> explanation : explanations.values()) {
+			if (explanation != null) {
+				stepReasons += explanation.size();
+			}
+		}
+		return stepReasons;
+	}
+
+	@Override
+	protected void runAfterTest() {
+		super.runAfterTest();
+		cnf = null;
+		oracle = null;
+		automatics = null;
+	}
+
+	@Override
+	protected Object getResultMeasurement() {
+		return getStepExplained();
+	}
+
+	/**
+	 * Returns the number of automatic selections explained in the most recent step.
+	 * 
+	 * @return the number of explained automatic selections
+	 */
+	private int getStepExplained() {
+		final Map<SelectableFeature, Set<Origin>> explanations = getResult();
+		int stepExplained = 0;
+		if (explanations != null) {
+			for (final Set<Origin> explanation : explanations.values()) {
+				if (explanation != null) {
+					stepExplained++;
+				}
+			}
+		}
+		return stepExplained;
+	}
+
+	@Override
+	protected void measureStep(MeasurementBuffer measurement) {
+		super.measureStep(measurement);
+		final int stepReasons = Math.max(0, getStepReasonCount());
+		asExpl += getStepExplained();
+		traced += stepTraced;
+		reasons += stepReasons;
+		measurement.put("Traced", stepTraced);
+		measurement.put("Reasons", stepReasons);
+	}
+
+	@Override
+	public Map<String, Object> getTestResults() {
+		final Map<String, Object> results = super.getTestResults();
+		results.put("Oracle", getOracleName());
+		results.put("ASs", automatics == null ? 0 : automatics.size());
+		results.put("ASs Ex", asExpl);
+		results.put("ASs Traced", traced);
+		results.put("ASs/s", asExpl / (Math.max(1L, getTestDuration()) / 1e9));
+		results.put("Avg Reasons", (double) reasons / Math.max(1, asExpl));
+		return results;
+	}
+
+	/**
+	 * Runs the tests.
+	 * 
+	 * @param args unused
+	 */
+	public static void main(String[] args) {
+		final ShrinkingStrategy strategy = ShrinkingStrategy.QUICKXPLAIN;
+		final List<Test> tests = new LinkedList<>();
+		tests.add(new BatchedConfigurationExplanationTest("SortingLine", "model", "00012", strategy, ITERATIONS));
+		tests.add(new BatchedConfigurationExplanationTest("PPU", "model", "00006", strategy, ITERATIONS));
+		tests.add(new BatchedConfigurationExplanationTest("Violet", "model", "00033", strategy, ITERATIONS));
+		tests.add(new BatchedConfigurationExplanationTest("uClibc", "model", "00019", strategy, ITERATIONS));
+		tests.add(new BatchedConfigurationExplanationTest("E-Shop", "model", "00042", strategy, ITERATIONS));
+		tests.add(new BatchedConfigurationExplanationTest("WaterlooGenerated", "model", "00270", strategy, ITERATIONS));
+		tests.add(new BatchedConfigurationExplanationTest("Busybox_1.18.0", "model", "00102", strategy, ITERATIONS));
+		tests.add(new BatchedConfigurationExplanationTest("XSEngine", "model", "00167", strategy, ITERATIONS));
+		tests.add(new BatchedConfigurationExplanationTest("uClibc-Distribution", "model", "01337", strategy, ITERATIONS));
+		tests.add(new BatchedConfigurationExplanationTest("Automotive01", "model", "02017", strategy, ITERATIONS));
+		tests.add(new BatchedConfigurationExplanationTest("PROFilE-ERP-System", "model", "10001", strategy, ITERATIONS));
+		tests.add(new BatchedConfigurationExplanationTest("PROFilE-E-Agribusiness", "model", "34819", strategy, ITERATIONS));
+		new TestRunner().run(tests);
+	}
+}
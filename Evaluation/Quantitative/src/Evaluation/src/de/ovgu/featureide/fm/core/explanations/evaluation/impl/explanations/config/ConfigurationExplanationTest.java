@@ -15,7 +15,9 @@ import de.ovgu.featureide.fm.core.explanations.config.impl.ltms.LtmsConfiguratio
 import de.ovgu.featureide.fm.core.explanations.config.impl.mus.MusConfigurationExplanationCreatorFactory;
 import de.ovgu.featureide.fm.core.explanations.evaluation.Test;
 import de.ovgu.featureide.fm.core.explanations.evaluation.TestRunner;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.MeasurementBuffer;
 import de.ovgu.featureide.fm.core.explanations.evaluation.impl.resources.ConfigurationTest;
+import de.ovgu.featureide.fm.core.explanations.evaluation.jfr.FlightRecorderEvents;
 
 public class ConfigurationExplanationTest extends ConfigurationTest<Explanation<?>> {
 
@@ -34,6 +36,12 @@ public class ConfigurationExplanationTest extends ConfigurationTest<Explanation<
 
 	/** Iterates over feature selections. */
 	private Iterator<SelectableFeature> si;
+	/** The feature selection to explain in the current step. */
+	private SelectableFeature subject;
+	/** Whether the explanation creator has already computed an explanation. */
+	private boolean warm;
+	/** Whether the current step is the first explanation of the creator. */
+	private boolean coldStep;
 
 	/** The number of automatic selections found. */
 	private int ass;
@@ -66,12 +74,8 @@ public class ConfigurationExplanationTest extends ConfigurationTest<Explanation<
 				getIterations());
 	}
 
-	/**
-	 * Returns the name of the oracle.
-	 * 
-	 * @return the oracle name; not null
-	 */
-	private String getOracleName() {
+	@Override
+	protected String getOracleName() {
 		if (factory instanceof LtmsConfigurationExplanationCreatorFactory) {
 			return "LTMS";
 		} else if (factory instanceof MusConfigurationExplanationCreatorFactory) {
@@ -86,9 +90,14 @@ public class ConfigurationExplanationTest extends ConfigurationTest<Explanation<
 	@Override
 	protected void runBeforeTest() {
 		super.runBeforeTest();
+		startPhase("Creators");
 		asc = factory.getAutomaticSelectionExplanationCreator();
+		final Object event = FlightRecorderEvents.beginPhase();
 		asc.setFeatureModel(getFeatureModel());
 		asc.setConfiguration(getConfiguration());
+		FlightRecorderEvents.endPhase(event, "Set Model", getConfigurationName(), getOracleName(), -1L);
+		stopPhase();
+		warm = false;
 	}
 
 	@Override
@@ -108,7 +117,12 @@ public class ConfigurationExplanationTest extends ConfigurationTest<Explanation<
 			case SELECTED:
 			case UNSELECTED:
 				ass++;
+				subject = s;
+				final Object event = FlightRecorderEvents.beginPhase();
 				asc.setSubject(s);
+				FlightRecorderEvents.endPhase(event, "Set Subject", s, getOracleName(), -1L);
+				coldStep = !warm;
+				warm = true;
 				return true;
 			case UNDEFINED:
 				continue;
@@ -124,16 +138,33 @@ public class ConfigurationExplanationTest extends ConfigurationTest<Explanation<
 		return asc.getExplanation();
 	}
 
+	@Override
+	protected boolean isColdStep() {
+		return coldStep;
+	}
+
+	@Override
+	protected Object getStepSubject() {
+		return subject;
+	}
+
+	@Override
+	protected int getStepReasonCount() {
+		final Explanation<?> explanation = getResult();
+		return explanation == null ? -1 : explanation.getReasonCount();
+	}
+
 	@Override
 	protected void runAfterTest() {
 		super.runAfterTest();
 		asc = null;
 		si = null;
+		subject = null;
 	}
 
 	@Override
-	protected Map<String, Object> getStepMeasurement() {
-		final Map<String, Object> measurement = super.getStepMeasurement();
+	protected void measureStep(MeasurementBuffer measurement) {
+		super.measureStep(measurement);
 		final Explanation<?> explanation = getResult();
 		final int reasons;
 		final int explanations;
@@ -148,7 +179,6 @@ public class ConfigurationExplanationTest extends ConfigurationTest<Explanation<
 		}
 		measurement.put("Reasons", reasons);
 		measurement.put("Explanations", explanations);
-		return measurement;
 	}
 
 	@Override
@@ -157,6 +187,7 @@ public class ConfigurationExplanationTest extends ConfigurationTest<Explanation<
 		results.put("Oracle", getOracleName());
 		results.put("ASs", ass);
 		results.put("ASs Ex", asExpl);
+		results.put("ASs/s", asExpl / (Math.max(1L, getTestDuration()) / 1e9));
 		results.put("Avg Reasons", (double) reasons / Math.max(1, asExpl));
 		return results;
 	}
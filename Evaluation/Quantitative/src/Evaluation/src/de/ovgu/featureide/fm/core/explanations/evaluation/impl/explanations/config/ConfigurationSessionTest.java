@@ -0,0 +1,312 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.config;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import de.ovgu.featureide.fm.core.base.IFeature;
+import de.ovgu.featureide.fm.core.configuration.Configuration;
+import de.ovgu.featureide.fm.core.configuration.SelectableFeature;
+import de.ovgu.featureide.fm.core.configuration.Selection;
+import de.ovgu.featureide.fm.core.explanations.evaluation.Test;
+import de.ovgu.featureide.fm.core.explanations.evaluation.TestRunner;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.MeasurementBuffer;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.resources.FeatureModelTest;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ConfigurationSession;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ShrinkingStrategy;
+import de.ovgu.featureide.fm.core.io.manager.ConfigurationManager;
+
+/**
+ * <p>
+ * A test replaying the configurations of a project as clicks in an interactive {@link ConfigurationSession configuration session}.
+ * The configurations are visited in order of their names.
+ * To get from one configuration to the next, the manual selections not in the next configuration are deselected first.
+ * Then, the manual selections of the next configuration are selected unless they are already selected automatically.
+ * </p>
+ * 
+ * <p>
+ * Each step is one click followed by explaining every automatic selection, as an editor would after each click.
+ * Besides time, this measures the percentiles of the per-click latency.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ConfigurationSessionTest extends FeatureModelTest<Integer> {
+
+	/**
+	 * A single click in a configuration session.
+	 * 
+	 * @author Timo G&uuml;nther
+	 */
+	private static class Click {
+
+		/** The clicked feature. */
+		private final IFeature feature;
+		/** The new manual selection of the feature. */
+		private final Selection selection;
+
+		/**
+		 * Constructs a new instance of this class.
+		 * 
+		 * @param feature the clicked feature; not null
+		 * @param selection the new manual selection of the feature; not null
+		 */
+		public Click(IFeature feature, Selection selection) {
+			this.feature = feature;
+			this.selection = selection;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s=%s", feature.getName(), selection);
+		}
+	}
+
+	/** The strategy used to shrink unsatisfiable subsets. */
+	private final ShrinkingStrategy strategy;
+	/** The maximum number of configurations to replay. */
+	private final int configLimit;
+
+	/** The manual selections of each configuration to replay. */
+	private List<Map<IFeature, Selection>> configs;
+	/** The session of the current iteration. */
+	private ConfigurationSession session;
+	/** The index of the next configuration to replay. */
+	private int configIndex;
+	/** The clicks left until the current configuration is reached. */
+	private LinkedList<Click> clicks;
+	/** The click of the current step. */
+	private Click click;
+
+	/** The number of clicks replayed. */
+	private int clickCount;
+	/** The number of deselecting clicks replayed. */
+	private int deselects;
+	/** The duration of each measured click. */
+	private List<Long> latencies;
+	/** The number of satisfiability checks done by the session before the current iteration. */
+	private long satCallsBefore;
+	/** The total number of satisfiability checks done in all iterations. */
+	private long satCalls;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param strategy the strategy used to shrink unsatisfiable subsets; not null
+	 * @param configLimit the maximum number of configurations to replay
+	 * @param iterations number of iterations to run
+	 */
+	protected ConfigurationSessionTest(String projectName, String fmName, ShrinkingStrategy strategy, int configLimit, int iterations) {
+		super(projectName, fmName, iterations);
+		this.strategy = strategy;
+		this.configLimit = configLimit;
+	}
+
+	@Override
+	public String getName() {
+		return String.format("%s_%s_%s_%d",
+				getProjectName(),
+				getFeatureModelName(),
+				getOracleName(),
+				getIterations());
+	}
+
+	@Override
+	protected String getOracleName() {
+		return "session-" + strategy;
+	}
+
+	@Override
+	protected void runBeforeTest() {
+		super.runBeforeTest();
+		startPhase("Config Load");
+		configs = new ArrayList<>();
+		final File[] configFiles = new File(getProjectDir(), "configs").listFiles();
+		if (configFiles != null) {
+			Arrays.sort(configFiles);
+			for (final File configFile : configFiles) {
+				if (configs.size() >= configLimit) {
+					break;
+				}
+				if (!configFile.getName().endsWith(".config")) {
+					continue;
+				}
+				Configuration config = new Configuration(getFeatureModel());
+				config = ConfigurationManager.load(Paths.get(configFile.getPath()), config).getObject();
+				final Map<IFeature, Selection> selections = new LinkedHashMap<>();
+				for (final SelectableFeature s : config.getFeatures()) {
+					if (s.getManual() != Selection.UNDEFINED) {
+						selections.put(s.getFeature(), s.getManual());
+					}
+				}
+				configs.add(selections);
+			}
+		}
+		stopPhase();
+		latencies = new ArrayList<>();
+	}
+
+	@Override
+	protected void runBeforeIterations() {
+		super.runBeforeIterations();
+		clickCount = 0;
+		deselects = 0;
+		satCalls = 0L;
+		latencies.clear();
+	}
+
+	@Override
+	protected void runBeforeIteration() {
+		super.runBeforeIteration();
+		session = new ConfigurationSession(getFeatureModel(), strategy);
+		satCallsBefore = session.getSatCalls();
+		configIndex = 0;
+		clicks = new LinkedList<>();
+	}
+
+	@Override
+	protected boolean hasNextStep() {
+		while (true) {
+			while (!clicks.isEmpty()) {
+				final Click c = clicks.removeFirst();
+				if (c.selection == Selection.UNDEFINED || session.getAutomatic(c.feature) == Selection.UNDEFINED) {
+					click = c;
+					return true;
+				}
+			}
+			if (configIndex >= configs.size()) {
+				return false;
+			}
+			final Map<IFeature, Selection> target = configs.get(configIndex++);
+			for (final IFeature f : getFeatureModel().getFeatures()) {
+				final Selection current = session.getManual(f);
+				if (current != Selection.UNDEFINED && current != target.get(f)) {
+					clicks.add(new Click(f, Selection.UNDEFINED));
+				}
+			}
+			for (final Entry<IFeature, Selection> e : target.entrySet()) {
+				if (session.getManual(e.getKey()) != e.getValue()) {
+					clicks.add(new Click(e.getKey(), e.getValue()));
+				}
+			}
+		}
+	}
+
+	@Override
+	protected Integer runStep() {
+		if (click.selection == Selection.UNDEFINED) {
+			session.deselect(click.feature);
+		} else {
+			session.select(click.feature, click.selection == Selection.SELECTED);
+		}
+		final List<Integer> automatics = session.getAutomaticLiterals();
+		for (final int literal : automatics) {
+			session.getExplanation(literal);
+		}
+		return automatics.size();
+	}
+
+	@Override
+	protected Object getStepSubject() {
+		return click;
+	}
+
+	@Override
+	protected void runAfterStep() {
+		super.runAfterStep();
+		if (!isMeasuring()) {
+			return;
+		}
+		clickCount++;
+		if (click.selection == Selection.UNDEFINED) {
+			deselects++;
+		}
+		latencies.add(getStepDuration());
+	}
+
+	@Override
+	protected void runAfterIteration() {
+		super.runAfterIteration();
+		satCalls += session.getSatCalls() - satCallsBefore;
+		session = null;
+	}
+
+	@Override
+	protected void runAfterTest() {
+		super.runAfterTest();
+		configs = null;
+		clicks = null;
+		click = null;
+	}
+
+	@Override
+	protected void measureStep(MeasurementBuffer measurement) {
+		super.measureStep(measurement);
+		measurement.put("Click", click);
+	}
+
+	/**
+	 * Returns the given percentile of the measured click latencies using the nearest-rank method.
+	 * 
+	 * @param sorted the sorted latencies; not null
+	 * @param percentile the percentile; between 0 and 100
+	 * @return the latency at the percentile; 0 if there are none
+	 */
+	private static long getPercentile(List<Long> sorted, double percentile) {
+		if (sorted.isEmpty()) {
+			return 0L;
+		}
+		final int rank = (int) Math.ceil(percentile / 100 * sorted.size());
+		return sorted.get(Math.max(0, rank - 1));
+	}
+
+	@Override
+	public Map<String, Object> getTestResults() {
+		final Map<String, Object> results = super.getTestResults();
+		results.put("Oracle", getOracleName());
+		results.put("Configs", configs == null ? 0 : configs.size());
+		results.put("Clicks", clickCount);
+		results.put("Deselects", deselects);
+		final List<Long> sorted = new ArrayList<>(latencies);
+		Collections.sort(sorted);
+		results.put("P50", getPercentile(sorted, 50));
+		results.put("P90", getPercentile(sorted, 90));
+		results.put("P99", getPercentile(sorted, 99));
+		results.put("Max", getPercentile(sorted, 100));
+		results.put("SAT Calls", satCalls);
+		return results;
+	}
+
+	/**
+	 * Runs the tests.
+	 * 
+	 * @param args unused
+	 */
+	public static void main(String[] args) {
+		final ShrinkingStrategy strategy = ShrinkingStrategy.QUICKXPLAIN;
+		final int configLimit = 50;
+		final List<Test> tests = new LinkedList<>();
+		tests.add(new ConfigurationSessionTest("SortingLine", "model", strategy, configLimit, ITERATIONS));
+		tests.add(new ConfigurationSessionTest("PPU", "model", strategy, configLimit, ITERATIONS));
+		tests.add(new ConfigurationSessionTest("Violet", "model", strategy, configLimit, ITERATIONS));
+		tests.add(new ConfigurationSessionTest("uClibc", "model", strategy, configLimit, ITERATIONS));
+		tests.add(new ConfigurationSessionTest("E-Shop", "model", strategy, configLimit, ITERATIONS));
+		tests.add(new ConfigurationSessionTest("WaterlooGenerated", "model", strategy, configLimit, ITERATIONS));
+		tests.add(new ConfigurationSessionTest("Busybox_1.18.0", "model", strategy, configLimit, ITERATIONS));
+		tests.add(new ConfigurationSessionTest("XSEngine", "model", strategy, configLimit, ITERATIONS));
+		tests.add(new ConfigurationSessionTest("uClibc-Distribution", "model", strategy, configLimit, ITERATIONS));
+		tests.add(new ConfigurationSessionTest("Automotive01", "model", strategy, configLimit, ITERATIONS));
+		tests.add(new ConfigurationSessionTest("PROFilE-ERP-System", "model", strategy, configLimit, ITERATIONS));
+		tests.add(new ConfigurationSessionTest("PROFilE-E-Agribusiness", "model", strategy, configLimit, ITERATIONS));
+		new TestRunner().run(tests);
+	}
+}
@@ -0,0 +1,329 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.config;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.ovgu.featureide.fm.core.configuration.Configuration;
+import de.ovgu.featureide.fm.core.configuration.SelectableFeature;
+import de.ovgu.featureide.fm.core.explanations.evaluation.Test;
+import de.ovgu.featureide.fm.core.explanations.evaluation.TestRunner;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.MeasurementBuffer;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.resources.FeatureModelTest;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ConfigurationClusters;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ConfigurationCnf;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.FeatureModelCnf;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.MusOracle;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.Origin;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.SelectionExplanationCache;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.SelectionSet;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ShrinkingStrategy;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.UnitPropagator;
+import de.ovgu.featureide.fm.core.io.manager.ConfigurationManager;
+
+/**
+ * <p>
+ * A test explaining the automatic selections of all configurations of a project in one sweep.
+ * Each step explains all automatic selections of one configuration.
+ * Loading the configuration is not timed.
+ * </p>
+ * 
+ * <p>
+ * In clustered mode, the configurations are first {@link ConfigurationClusters deduplicated and clustered} by their manual selections.
+ * Each unique configuration is only explained once, and the configurations are visited so that neighbors differ as little as possible.
+ * Explanations are kept in a {@link SelectionExplanationCache cache} for the current cluster and reused whenever their manual selections carry over.
+ * Otherwise, every configuration is explained from scratch in the order of the files for comparison.
+ * </p>
+ * 
+ * <p>
+ * Besides time, this measures the share of requested explanations that did not have to be computed.
+ * Each configuration requests one explanation per automatic selection, so duplicate configurations count as often as they occur.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ConfigurationSweepTest extends FeatureModelTest<Integer> {
+
+	/** The largest share of differing manual selections between consecutive configurations of the same cluster. */
+	private static final double MAX_DISTANCE = 0.2;
+
+	/** Whether to deduplicate and cluster the configurations. */
+	private final boolean clustered;
+	/** The strategy used to shrink unsatisfiable subsets for automatic selections not found by unit propagation. */
+	private final ShrinkingStrategy strategy;
+
+	/** The configuration files in order of their names. */
+	private List<File> configFiles;
+	/** The first configuration file of each unique selection set in order of first occurrence. */
+	private List<File> uniqueFiles;
+	/** The selection set of each configuration file. */
+	private List<SelectionSet> sets;
+	/** The clusters; null if not clustered. */
+	private ConfigurationClusters clusters;
+	/** The number of configurations. */
+	private int configCount;
+	/** The number of unique configurations. */
+	private int uniqueCount;
+	/** The number of clusters; 0 if not clustered. */
+	private int clusterCount;
+
+	/** The cache for the current cluster; null if not clustered. */
+	private SelectionExplanationCache cache;
+	/** The position of the next configuration in the sweep. */
+	private int position;
+	/** The cluster of the current configuration; -1 if not clustered. */
+	private int cluster;
+	/** The configuration of the current step. */
+	private Configuration config;
+	/** The selection set of the current step. */
+	private SelectionSet set;
+	/** The number of configurations with the selection set of the current step. */
+	private int multiplicity;
+
+	/** The number of explanations requested in the most recent step. */
+	private int stepRequested;
+	/** The number of explanations computed in the most recent step. */
+	private int stepComputed;
+	/** The total number of explanations requested. */
+	private long requested;
+	/** The total number of explanations computed. */
+	private long computed;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param clustered whether to deduplicate and cluster the configurations
+	 * @param strategy the strategy used to shrink unsatisfiable subsets; not null
+	 * @param iterations number of iterations to run
+	 */
+	protected ConfigurationSweepTest(String projectName, String fmName, boolean clustered, ShrinkingStrategy strategy, int iterations) {
+		super(projectName, fmName, iterations);
+		this.clustered = clustered;
+		this.strategy = strategy;
+	}
+
+	@Override
+	public String getName() {
+		return String.format("%s_%s_%s_%s_%d",
+				getProjectName(),
+				getFeatureModelName(),
+				getModeName(),
+				strategy,
+				getIterations());
+	}
+
+	/**
+	 * Returns the name of the mode of this test.
+	 * 
+	 * @return the mode name; not null
+	 */
+	public String getModeName() {
+		return clustered ? "Clustered" : "Sequential";
+	}
+
+	@Override
+	protected String getOracleName() {
+		return "sweep-" + strategy;
+	}
+
+	@Override
+	protected void runBeforeTest() {
+		super.runBeforeTest();
+		startPhase("Config Load");
+		final FeatureModelCnf fmCnf = new FeatureModelCnf(getFeatureModel());
+		configFiles = new ArrayList<>();
+		sets = new ArrayList<>();
+		final Map<SelectionSet, File> firstFiles = new LinkedHashMap<>();
+		final File[] files = new File(getProjectDir(), "configs").listFiles();
+		if (files != null) {
+			Arrays.sort(files);
+			for (final File configFile : files) {
+				if (!configFile.getName().endsWith(".config")) {
+					continue;
+				}
+				final SelectionSet s = new SelectionSet(fmCnf, load(configFile));
+				configFiles.add(configFile);
+				sets.add(s);
+				if (!firstFiles.containsKey(s)) {
+					firstFiles.put(s, configFile);
+				}
+			}
+		}
+		uniqueFiles = new ArrayList<>(firstFiles.values());
+		configCount = configFiles.size();
+		uniqueCount = uniqueFiles.size();
+		stopPhase();
+		if (clustered) {
+			startPhase("Cluster");
+			clusters = new ConfigurationClusters(sets, MAX_DISTANCE);
+			stopPhase();
+			clusterCount = clusters.getClusterCount();
+		}
+	}
+
+	/**
+	 * Loads the given configuration.
+	 * 
+	 * @param configFile the configuration file; not null
+	 * @return the configuration; not null
+	 */
+	private Configuration load(File configFile) {
+		final Configuration c = new Configuration(getFeatureModel());
+		return ConfigurationManager.load(Paths.get(configFile.getPath()), c).getObject();
+	}
+
+	@Override
+	protected void runBeforeIterations() {
+		super.runBeforeIterations();
+		requested = 0L;
+		computed = 0L;
+	}
+
+	@Override
+	protected void runBeforeIteration() {
+		super.runBeforeIteration();
+		cache = clustered ? new SelectionExplanationCache() : null;
+		position = 0;
+		cluster = -1;
+	}
+
+	@Override
+	protected boolean hasNextStep() {
+		if (clustered) {
+			if (position >= clusters.getUniqueCount()) {
+				return false;
+			}
+			if (clusters.getCluster(position) != cluster) {
+				cluster = clusters.getCluster(position);
+				cache.clear();
+			}
+			set = clusters.getSet(position);
+			multiplicity = clusters.getMultiplicity(position);
+			config = load(uniqueFiles.get(clusters.getUniqueIndex(position)));
+		} else {
+			if (position >= configFiles.size()) {
+				return false;
+			}
+			set = sets.get(position);
+			multiplicity = 1;
+			config = load(configFiles.get(position));
+		}
+		position++;
+		return true;
+	}
+
+	@Override
+	protected Integer runStep() {
+		final ConfigurationCnf cnf = new ConfigurationCnf(config);
+		final UnitPropagator propagator = new UnitPropagator(cnf);
+		final boolean consistent = propagator.propagate();
+		MusOracle oracle = null;
+		int explained = 0;
+		stepRequested = 0;
+		stepComputed = 0;
+		for (final SelectableFeature s : config.getFeatures()) {
+			final int literal = cnf.getAutomaticLiteral(s);
+			if (literal == 0) {
+				continue;
+			}
+			stepRequested += multiplicity;
+			Set<Origin> explanation = cache == null ? null : cache.get(literal, set);
+			if (explanation == null) {
+				stepComputed++;
+				explanation = consistent ? propagator.explain(literal) : null;
+				if (explanation == null) {
+					if (oracle == null) {
+						oracle = new MusOracle(cnf);
+					}
+					explanation = oracle.getMinimalUnsatisfiableSubset(new int[] { -literal }, oracle.getOrigins(), strategy);
+				}
+				if (explanation != null && cache != null) {
+					cache.put(literal, explanation, cnf, set);
+				}
+			}
+			if (explanation != null) {
+				explained++;
+			}
+		}
+		return explained;
+	}
+
+	@Override
+	protected void runAfterTest() {
+		super.runAfterTest();
+		configFiles = null;
+		uniqueFiles = null;
+		sets = null;
+		clusters = null;
+		cache = null;
+		config = null;
+		set = null;
+	}
+
+	@Override
+	protected void measureStep(MeasurementBuffer measurement) {
+		super.measureStep(measurement);
+		requested += stepRequested;
+		computed += stepComputed;
+		measurement.put("Cluster", cluster);
+		measurement.put("Multiplicity", multiplicity);
+		measurement.put("Requested", stepRequested);
+		measurement.put("Computed", stepComputed);
+	}
+
+	/**
+	 * Returns the share of requested explanations that did not have to be computed.
+	 * 
+	 * @return the work saved between 0 and 1
+	 */
+	public double getWorkSaved() {
+		return requested == 0 ? 0 : 1 - (double) computed / requested;
+	}
+
+	@Override
+	public Map<String, Object> getTestResults() {
+		final Map<String, Object> results = super.getTestResults();
+		results.put("Mode", getModeName());
+		results.put("Configs", configCount);
+		results.put("Unique", uniqueCount);
+		results.put("Clusters", clusterCount);
+		results.put("Requested", requested);
+		results.put("Computed", computed);
+		results.put("Saved", getWorkSaved());
+		return results;
+	}
+
+	/**
+	 * Runs the tests.
+	 * 
+	 * @param args unused
+	 */
+	public static void main(String[] args) {
+		final ShrinkingStrategy strategy = ShrinkingStrategy.QUICKXPLAIN;
+		final List<Test> tests = new LinkedList<>();
+		for (final String projectName : Arrays.asList(
+				"SortingLine",
+				"PPU",
+				"Violet",
+				"uClibc",
+				"E-Shop",
+				"WaterlooGenerated",
+				"Busybox_1.18.0",
+				"XSEngine",
+				"uClibc-Distribution",
+				"Automotive01")) {
+			for (final boolean clustered : new boolean[] { true, false }) {
+				tests.add(new ConfigurationSweepTest(projectName, "model", clustered, strategy, ITERATIONS));
+			}
+		}
+		new TestRunner().run(tests);
+	}
+}
@@ -0,0 +1,102 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.fm;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import de.ovgu.featureide.fm.core.explanations.evaluation.Test;
+import de.ovgu.featureide.fm.core.explanations.evaluation.TestRunner;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.AtMostOneEncoding;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.FeatureModelCnf;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ShrinkingStrategy;
+
+/**
+ * <p>
+ * Tests explanations for feature model defects with alternative groups encoded using a given {@link AtMostOneEncoding encoding}.
+ * Each explanation is the set of origins of a single minimal unsatisfiable subset.
+ * Since auxiliary variables belong to the origin of their group, the explanations are the same for every encoding.
+ * </p>
+ * 
+ * <p>
+ * Besides time, this reports the number of clauses and auxiliary variables of the CNF.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class AtMostOneExplanationTest extends ShrinkingExplanationTest {
+
+	/** The encoding of alternative groups. */
+	private final AtMostOneEncoding atMostOneEncoding;
+
+	/** The number of clauses of the CNF. */
+	private int clauses;
+	/** The number of auxiliary variables of the CNF. */
+	private int auxiliaries;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param encoding the encoding of alternative groups; not null
+	 * @param strategy the strategy used to shrink unsatisfiable subsets; not null
+	 * @param iterations number of iterations to run
+	 */
+	public AtMostOneExplanationTest(String projectName, String fmName, AtMostOneEncoding encoding, ShrinkingStrategy strategy, int iterations) {
+		super(projectName, fmName, strategy, iterations);
+		this.atMostOneEncoding = encoding;
+	}
+
+	@Override
+	protected String getOracleName() {
+		return atMostOneEncoding.toString().toLowerCase() + "-" + super.getOracleName();
+	}
+
+	@Override
+	protected FeatureModelCnf createCnf() {
+		return new FeatureModelCnf(getFeatureModel(), getEncoding(), atMostOneEncoding, 1);
+	}
+
+	@Override
+	protected void runBeforeTest() {
+		super.runBeforeTest();
+		clauses = getCnf().getClauseCount();
+		auxiliaries = getCnf().getAuxiliaryCount();
+	}
+
+	@Override
+	public Map<String, Object> getTestResults() {
+		final Map<String, Object> results = super.getTestResults();
+		results.put("AMO Encoding", atMostOneEncoding);
+		results.put("Clauses", clauses);
+		results.put("Auxiliaries", auxiliaries);
+		return results;
+	}
+
+	/**
+	 * Runs the tests.
+	 * 
+	 * @param args unused
+	 */
+	public static void main(String[] args) {
+		final List<Test> tests = new LinkedList<>();
+		for (final String projectName : Arrays.asList(
+				"SortingLine",
+				"PPU",
+				"Violet",
+				"uClibc",
+				"E-Shop",
+				"UClibc-Base",
+				"WaterlooGenerated",
+				"Busybox_1.18.0",
+				"XSEngine",
+				"uClibc-Distribution",
+				"Automotive01")) {
+			for (final AtMostOneEncoding encoding : AtMostOneEncoding.values()) {
+				tests.add(new AtMostOneExplanationTest(projectName, "model", encoding, ShrinkingStrategy.QUICKXPLAIN, ITERATIONS));
+			}
+		}
+		new TestRunner().run(tests);
+	}
+}
@@ -0,0 +1,139 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.fm;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import de.ovgu.featureide.fm.core.explanations.evaluation.Test;
+import de.ovgu.featureide.fm.core.explanations.evaluation.TestRunner;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.MeasurementBuffer;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.resources.FeatureModelTest;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.CnfEncoding;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.FeatureModelCnf;
+
+/**
+ * <p>
+ * Tests converting a feature model to {@link FeatureModelCnf conjunctive normal form} using a given {@link CnfEncoding encoding}.
+ * Each iteration takes a single step, which converts the whole feature model.
+ * </p>
+ * 
+ * <p>
+ * Comparing different numbers of threads shows how well the conversion of constraints parallelizes.
+ * Besides time, this measures the number of clauses and variables of the result.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class CnfConversionTest extends FeatureModelTest<FeatureModelCnf> {
+
+	/** The encoding of constraints. */
+	private final CnfEncoding encoding;
+	/** The number of threads. */
+	private final int threads;
+
+	/** The number of clauses of the most recent result. */
+	private int clauses;
+	/** The number of variables of the most recent result. */
+	private int variables;
+	/** The number of auxiliary variables of the most recent result. */
+	private int auxiliaries;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param encoding the encoding of constraints; not null
+	 * @param threads the number of threads; positive
+	 * @param iterations number of iterations to run
+	 */
+	public CnfConversionTest(String projectName, String fmName, CnfEncoding encoding, int threads, int iterations) {
+		super(projectName, fmName, iterations);
+		this.encoding = encoding;
+		this.threads = threads;
+	}
+
+	@Override
+	public String getName() {
+		return String.format("%s_%s_%s_%d_%d",
+				getProjectName(),
+				getFeatureModelName(),
+				encoding,
+				threads,
+				getIterations());
+	}
+
+	@Override
+	protected boolean hasNextStep() {
+		return getStep() == 0;
+	}
+
+	@Override
+	protected FeatureModelCnf runStep() {
+		return new FeatureModelCnf(getFeatureModel(), encoding, threads);
+	}
+
+	@Override
+	protected void runAfterStep() {
+		final FeatureModelCnf cnf = getResult();
+		clauses = cnf.getClauseCount();
+		variables = cnf.getVariableCount();
+		auxiliaries = cnf.getAuxiliaryCount();
+		super.runAfterStep();
+	}
+
+	@Override
+	protected void measureStep(MeasurementBuffer measurement) {
+		super.measureStep(measurement);
+		measurement.put("Threads", threads);
+		measurement.put("Clauses", clauses);
+		measurement.put("Variables", variables);
+		measurement.put("Auxiliaries", auxiliaries);
+	}
+
+	@Override
+	protected Object getResultMeasurement() {
+		return clauses;
+	}
+
+	@Override
+	public Map<String, Object> getTestResults() {
+		final Map<String, Object> results = super.getTestResults();
+		results.put("Encoding", encoding);
+		results.put("Threads", threads);
+		results.put("Clauses", clauses);
+		results.put("Variables", variables);
+		results.put("Auxiliaries", auxiliaries);
+		return results;
+	}
+
+	/**
+	 * Runs the tests.
+	 * 
+	 * @param args unused
+	 */
+	public static void main(String[] args) {
+		final List<Test> tests = new LinkedList<>();
+		final int processors = Runtime.getRuntime().availableProcessors();
+		for (final String projectName : Arrays.asList(
+				"SortingLine",
+				"PPU",
+				"Violet",
+				"uClibc",
+				"E-Shop",
+				"UClibc-Base",
+				"WaterlooGenerated",
+				"Busybox_1.18.0",
+				"XSEngine",
+				"uClibc-Distribution",
+				"Automotive01")) {
+			for (final CnfEncoding encoding : CnfEncoding.values()) {
+				for (final int threads : new int[] { 1, processors }) {
+					tests.add(new CnfConversionTest(projectName, "model", encoding, threads, ITERATIONS));
+				}
+			}
+		}
+		new TestRunner().run(tests);
+	}
+}
@@ -0,0 +1,162 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.fm;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import de.ovgu.featureide.fm.core.explanations.evaluation.Test;
+import de.ovgu.featureide.fm.core.explanations.evaluation.TestRunner;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.MeasurementBuffer;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.resources.FeatureModelTest;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ComponentAnalyzer;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ComponentDecomposition;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.FeatureModelCnf;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ShrinkingStrategy;
+
+/**
+ * <p>
+ * Tests analyzing and explaining all defects of a feature model {@link ComponentAnalyzer one component at a time}.
+ * Each iteration takes a single step, which analyzes and explains the whole feature model.
+ * </p>
+ * 
+ * <p>
+ * Without decomposing, the whole feature model forms a single component for comparison.
+ * Comparing different numbers of threads shows how well the components parallelize.
+ * Besides time, this measures the number of satisfiability checks and defects found.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ComponentAnalysisTest extends FeatureModelTest<Boolean> {
+
+	/** Whether to decompose the feature model. */
+	private final boolean decomposed;
+	/** The number of threads. */
+	private final int threads;
+
+	/** The analyzer. */
+	private ComponentAnalyzer analyzer;
+
+	/** The number of satisfiability checks done in the most recent step. */
+	private long satCalls;
+	/** The number of dead features found in the most recent step. */
+	private int deadFeatures;
+	/** The number of false-optional features found in the most recent step. */
+	private int falseOptionalFeatures;
+	/** The number of redundant constraints found in the most recent step. */
+	private int redundantConstraints;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param decomposed whether to decompose the feature model
+	 * @param threads the number of threads; positive
+	 * @param iterations number of iterations to run
+	 */
+	public ComponentAnalysisTest(String projectName, String fmName, boolean decomposed, int threads, int iterations) {
+		super(projectName, fmName, iterations);
+		this.decomposed = decomposed;
+		this.threads = threads;
+	}
+
+	@Override
+	public String getName() {
+		return String.format("%s_%s_%s_%d_%d",
+				getProjectName(),
+				getFeatureModelName(),
+				decomposed ? "Decomposed" : "Monolithic",
+				threads,
+				getIterations());
+	}
+
+	@Override
+	protected void runBeforeTest() {
+		super.runBeforeTest();
+		startPhase("Decompose");
+		final ComponentDecomposition decomposition = new ComponentDecomposition(new FeatureModelCnf(getFeatureModel()), decomposed);
+		analyzer = new ComponentAnalyzer(decomposition, threads, ShrinkingStrategy.QUICKXPLAIN);
+		stopPhase();
+		if (decomposed) {
+			setComponentDecomposition(decomposition);
+		}
+	}
+
+	@Override
+	protected boolean hasNextStep() {
+		return getStep() == 0;
+	}
+
+	@Override
+	protected Boolean runStep() {
+		return analyzer.analyze();
+	}
+
+	@Override
+	protected void runAfterStep() {
+		satCalls = analyzer.getSatCalls();
+		deadFeatures = analyzer.getDeadFeatures().size();
+		falseOptionalFeatures = analyzer.getFalseOptionalFeatures().size();
+		redundantConstraints = analyzer.getRedundantConstraints().size();
+		super.runAfterStep();
+	}
+
+	@Override
+	protected void runAfterTest() {
+		super.runAfterTest();
+		analyzer = null;
+	}
+
+	@Override
+	protected void measureStep(MeasurementBuffer measurement) {
+		super.measureStep(measurement);
+		measurement.put("Threads", threads);
+		measurement.put("SAT Calls", satCalls);
+		measurement.put("DFs", deadFeatures);
+		measurement.put("FOFs", falseOptionalFeatures);
+		measurement.put("RCs", redundantConstraints);
+	}
+
+	@Override
+	public Map<String, Object> getTestResults() {
+		final Map<String, Object> results = super.getTestResults();
+		results.put("Decomposed", decomposed);
+		results.put("Threads", threads);
+		results.put("SAT Calls", satCalls);
+		results.put("DFs", deadFeatures);
+		results.put("FOFs", falseOptionalFeatures);
+		results.put("RCs", redundantConstraints);
+		return results;
+	}
+
+	/**
+	 * Runs the tests.
+	 * 
+	 * @param args unused
+	 */
+	public static void main(String[] args) {
+		final List<Test> tests = new LinkedList<>();
+		final int processors = Runtime.getRuntime().availableProcessors();
+		for (final String projectName : Arrays.asList(
+				"SortingLine",
+				"PPU",
+				"Violet",
+				"uClibc",
+				"E-Shop",
+				"UClibc-Base",
+				"WaterlooGenerated",
+				"Busybox_1.18.0",
+				"XSEngine",
+				"uClibc-Distribution",
+				"Automotive01")) {
+			for (final boolean decomposed : new boolean[] { true, false }) {
+				for (final int threads : new int[] { 1, processors }) {
+					tests.add(new ComponentAnalysisTest(projectName, "model", decomposed, threads, ITERATIONS));
+				}
+			}
+		}
+		new TestRunner().run(tests);
+	}
+}
@@ -0,0 +1,402 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.fm;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.ovgu.featureide.fm.core.base.IConstraint;
+import de.ovgu.featureide.fm.core.base.IFeature;
+import de.ovgu.featureide.fm.core.base.IFeatureModel;
+import de.ovgu.featureide.fm.core.explanations.Explanation;
+import de.ovgu.featureide.fm.core.explanations.evaluation.Test;
+import de.ovgu.featureide.fm.core.explanations.evaluation.TestRunner;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.MeasurementBuffer;
+import de.ovgu.featureide.fm.core.explanations.fm.DeadFeatureExplanationCreator;
+import de.ovgu.featureide.fm.core.explanations.fm.FalseOptionalFeatureExplanationCreator;
+import de.ovgu.featureide.fm.core.explanations.fm.FeatureModelExplanationCreator;
+import de.ovgu.featureide.fm.core.explanations.fm.FeatureModelExplanationCreatorFactory;
+import de.ovgu.featureide.fm.core.explanations.fm.RedundantConstraintExplanationCreator;
+import de.ovgu.featureide.fm.core.explanations.fm.impl.ltms.LtmsFeatureModelExplanationCreatorFactory;
+
+/**
+ * <p>
+ * Explains each defect with several oracles side by side and checks that their answers agree.
+ * This guards optimized oracles against silently changing the explanations.
+ * By default, this runs on the qualitative test models, which were built to contain each kind of defect.
+ * </p>
+ * 
+ * <p>
+ * Each step explains the same defect with every oracle and compares the sets of reasons.
+ * Since BCP is incomplete, the LTMS oracle may find no explanation or a different but overlapping one.
+ * Thus, an explanation of the LTMS oracle that is a subset or superset of another is accepted as well.
+ * Complete oracles must find exactly the same reasons.
+ * The latency of each oracle is measured separately.
+ * The defects the oracles disagree on are recorded with the test results.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class DifferentialExplanationTest extends FeatureModelDefectTest<Map<String, Explanation<?>>> {
+
+	/**
+	 * The agreement of the oracles on a single defect.
+	 */
+	public static enum Agreement {
+		/** All oracles found the same reasons. */
+		EQUAL,
+		/** The reasons of the incomplete oracles are subsets or supersets of those of the others. The complete oracles found the same reasons. */
+		SUBSET,
+		/** Only incomplete oracles found no explanation. The others agree. */
+		INCOMPLETE,
+		/** No oracle found an explanation. */
+		NONE,
+		/** The oracles contradict each other. */
+		DISAGREE
+	}
+
+	/**
+	 * An oracle explaining the defects.
+	 * 
+	 * @author Timo G&uuml;nther
+	 */
+	private static class Oracle {
+
+		/** The name of the oracle. */
+		private final String name;
+		/** Whether the oracle finds an explanation for every defect. */
+		private final boolean complete;
+		/** The explanation creator for dead features. */
+		private final DeadFeatureExplanationCreator dfc;
+		/** The explanation creator for false-optional features. */
+		private final FalseOptionalFeatureExplanationCreator fofc;
+		/** The explanation creator for redundant constraints. */
+		private final RedundantConstraintExplanationCreator rcc;
+		/** The explanation creator in use in the current step. */
+		private FeatureModelExplanationCreator<?, ?> creator;
+		/** The duration of the current step. */
+		private long stepDuration;
+		/** The total duration of all measured steps. */
+		private long duration;
+		/** The number of defects explained in all measured steps. */
+		private int explained;
+
+		/**
+		 * Constructs a new instance of this class.
+		 * 
+		 * @param factory the factory used to construct explanation creators; not null
+		 * @param fm the feature model; not null
+		 */
+		public Oracle(FeatureModelExplanationCreatorFactory factory, IFeatureModel fm) {
+			name = FeatureModelExplanationTest.getOracleName(factory);
+			complete = !(factory instanceof LtmsFeatureModelExplanationCreatorFactory);
+			dfc = factory.getDeadFeatureExplanationCreator();
+			fofc = factory.getFalseOptionalFeatureExplanationCreator();
+			rcc = factory.getRedundantConstraintExplanationCreator();
+			dfc.setFeatureModel(fm);
+			fofc.setFeatureModel(fm);
+			rcc.setFeatureModel(fm);
+		}
+
+		/**
+		 * Sets the defect to explain in the next step.
+		 * 
+		 * @param kind the kind of the defect; not null
+		 * @param subject the defective element; not null
+		 */
+		public void setDefect(DefectKind kind, Object subject) {
+			switch (kind) {
+			case VOID_FEATURE_MODEL:
+			case DEAD_FEATURE:
+				dfc.setSubject((IFeature) subject);
+				creator = dfc;
+				break;
+			case FALSE_OPTIONAL_FEATURE:
+				fofc.setSubject((IFeature) subject);
+				creator = fofc;
+				break;
+			case REDUNDANT_CONSTRAINT:
+				rcc.setSubject((IConstraint) subject);
+				creator = rcc;
+				break;
+			default:
+				throw new IllegalStateException("Unknown defect kind");
+			}
+		}
+
+		/**
+		 * Explains the current defect and measures the duration.
+		 * 
+		 * @return the explanation; null if none was found
+		 */
+		public Explanation<?> explain() {
+			final long start = System.nanoTime();
+			final Explanation<?> explanation = creator.getExplanation();
+			stepDuration = System.nanoTime() - start;
+			return explanation;
+		}
+	}
+
+	/** The default input directory containing the qualitative test models. */
+	private static final File QUALITATIVE_DIR = new File("../../../Qualitative/data");
+
+	/** The factories of the oracles to compare. */
+	private final List<FeatureModelExplanationCreatorFactory> factories;
+	/** The input directory containing the project. */
+	private final File inDir;
+
+	/** The oracles to compare. */
+	private List<Oracle> oracles;
+	/** The agreement in the current step. */
+	private Agreement agreement;
+	/** The number of measured steps with each agreement. */
+	private final Map<Agreement, Integer> agreements = new EnumMap<>(Agreement.class);
+	/** The defects the oracles contradicted each other on in the first measured iteration. */
+	private final List<String> disagreeingDefects = new ArrayList<>();
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param inDir the input directory containing the project; not null
+	 * @param factories the factories of the oracles to compare; not null
+	 * @param iterations number of iterations to run
+	 */
+	public DifferentialExplanationTest(String projectName, String fmName, File inDir, List<FeatureModelExplanationCreatorFactory> factories, int iterations) {
+		super(projectName, fmName, iterations);
+		this.inDir = inDir;
+		this.factories = factories;
+	}
+
+	@Override
+	public String getName() {
+		return String.format("%s_%s_%s_%d",
+				getProjectName(),
+				getFeatureModelName(),
+				getOracleName(),
+				getIterations());
+	}
+
+	@Override
+	protected String getOracleName() {
+		final StringBuilder sb = new StringBuilder();
+		for (final FeatureModelExplanationCreatorFactory factory : factories) {
+			if (sb.length() > 0) {
+				sb.append('-');
+			}
+			sb.append(FeatureModelExplanationTest.getOracleName(factory));
+		}
+		return sb.toString();
+	}
+
+	@Override
+	protected File getInDir() {
+		return inDir;
+	}
+
+	@Override
+	protected void runBeforeTest() {
+		super.runBeforeTest();
+		startPhase("Creators");
+		oracles = new ArrayList<>(factories.size());
+		for (final FeatureModelExplanationCreatorFactory factory : factories) {
+			oracles.add(new Oracle(factory, getFeatureModel()));
+		}
+		stopPhase();
+	}
+
+	@Override
+	protected void runBeforeIterations() {
+		super.runBeforeIterations();
+		for (final Agreement a : Agreement.values()) {
+			agreements.put(a, 0);
+		}
+		disagreeingDefects.clear();
+		for (final Oracle oracle : oracles) {
+			oracle.duration = 0L;
+			oracle.explained = 0;
+		}
+	}
+
+	@Override
+	protected void setDefect(DefectKind kind, Object subject) {
+		super.setDefect(kind, subject);
+		for (final Oracle oracle : oracles) {
+			oracle.setDefect(kind, subject);
+		}
+	}
+
+	@Override
+	protected Map<String, Explanation<?>> runStep() {
+		final Map<String, Explanation<?>> explanations = new LinkedHashMap<>();
+		for (final Oracle oracle : oracles) {
+			explanations.put(oracle.name, oracle.explain());
+		}
+		return explanations;
+	}
+
+	@Override
+	protected void runAfterStep() {
+		super.runAfterStep();
+		if (!isMeasuring()) {
+			return;
+		}
+		agreement = getAgreement(getResult());
+		agreements.put(agreement, agreements.get(agreement) + 1);
+		for (final Oracle oracle : oracles) {
+			oracle.duration += oracle.stepDuration;
+			if (getResult().get(oracle.name) != null) {
+				oracle.explained++;
+			}
+		}
+		if (agreement == Agreement.DISAGREE && getIteration() == 0) {
+			disagreeingDefects.add(getDefectKind().getAbbreviation() + " " + getDefectSubject());
+		}
+	}
+
+	/**
+	 * Returns the agreement of the oracles on the given explanations.
+	 * 
+	 * @param explanations the explanation of each oracle by its name; not null
+	 * @return the agreement; not null
+	 */
+	private Agreement getAgreement(Map<String, Explanation<?>> explanations) {
+		final List<Set<?>> reasons = new ArrayList<>(oracles.size());
+		final List<Oracle> explaining = new ArrayList<>(oracles.size());
+		boolean incomplete = false;
+		boolean missing = false;
+		for (final Oracle oracle : oracles) {
+			final Explanation<?> explanation = explanations.get(oracle.name);
+			if (explanation != null) {
+				reasons.add(new HashSet<>(explanation.getReasons()));
+				explaining.add(oracle);
+			} else if (oracle.complete) {
+				missing = true;
+			} else {
+				incomplete = true;
+			}
+		}
+		if (reasons.isEmpty()) {
+			return Agreement.NONE;
+		}
+		if (missing) {
+			return Agreement.DISAGREE;
+		}
+		Agreement agreement = Agreement.EQUAL;
+		for (int i = 0; i < reasons.size(); i++) {
+			for (int j = i + 1; j < reasons.size(); j++) {
+				final Set<?> a = reasons.get(i);
+				final Set<?> b = reasons.get(j);
+				if (a.equals(b)) {
+					continue;
+				}
+				if (explaining.get(i).complete && explaining.get(j).complete) {
+					return Agreement.DISAGREE;
+				}
+				if (!a.containsAll(b) && !b.containsAll(a)) {
+					return Agreement.DISAGREE;
+				}
+				agreement = Agreement.SUBSET;
+			}
+		}
+		return incomplete ? Agreement.INCOMPLETE : agreement;
+	}
+
+	@Override
+	protected void runAfterTest() {
+		super.runAfterTest();
+		for (final Oracle oracle : oracles) {
+			oracle.creator = null;
+		}
+	}
+
+	@Override
+	protected void measureStep(MeasurementBuffer measurement) {
+		super.measureStep(measurement);
+		measurement.put("Subject", getDefectSubject());
+		measurement.put("Agreement", agreement);
+		for (final Oracle oracle : oracles) {
+			measurement.put(oracle.name + " Duration", oracle.stepDuration);
+			final Explanation<?> explanation = getResult().get(oracle.name);
+			measurement.put(oracle.name + " Reasons", explanation == null ? -1 : explanation.getReasonCount());
+		}
+	}
+
+	@Override
+	protected Object getResultMeasurement() {
+		return agreement;
+	}
+
+	@Override
+	protected int getReasonCount(Map<String, Explanation<?>> result) {
+		for (final Explanation<?> explanation : result.values()) {
+			if (explanation != null) {
+				return explanation.getReasonCount();
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the number of measured steps where the oracles contradicted each other.
+	 * 
+	 * @return the number of disagreements
+	 */
+	public int getDisagreements() {
+		final Integer disagreements = agreements.get(Agreement.DISAGREE);
+		return disagreements == null ? 0 : disagreements;
+	}
+
+	@Override
+	public Map<String, Object> getTestResults() {
+		final Map<String, Object> results = super.getTestResults();
+		for (final Agreement a : Agreement.values()) {
+			final Integer count = agreements.get(a);
+			results.put(a.name().charAt(0) + a.name().substring(1).toLowerCase(), count == null ? 0 : count);
+		}
+		if (oracles != null) {
+			for (final Oracle oracle : oracles) {
+				results.put(oracle.name + " Ex", oracle.explained);
+				results.put(oracle.name + " Dur", oracle.duration);
+			}
+		}
+		results.put("Disagreeing Defects", disagreeingDefects.toString());
+		return results;
+	}
+
+	/**
+	 * Runs the tests on every qualitative test model.
+	 * Exits with 1 if the oracles disagreed on any defect.
+	 * 
+	 * @param args unused
+	 */
+	public static void main(String[] args) {
+		final List<FeatureModelExplanationCreatorFactory> factories = Arrays.asList(
+				FeatureModelExplanationTest.LTMS,
+				FeatureModelExplanationTest.MUS,
+				FeatureModelExplanationTest.COMPOSITE);
+		final List<DifferentialExplanationTest> tests = new LinkedList<>();
+		final File[] projectDirs = QUALITATIVE_DIR.listFiles();
+		if (projectDirs != null) {
+			Arrays.sort(projectDirs);
+			for (final File projectDir : projectDirs) {
+				if (new File(projectDir, "model.xml").isFile()) {
+					tests.add(new DifferentialExplanationTest(projectDir.getName(), "model", QUALITATIVE_DIR, factories, ITERATIONS));
+				}
+			}
+		}
+		new TestRunner().run(new ArrayList<Test>(tests));
+		for (final DifferentialExplanationTest test : tests) {
+			if (test.getDisagreements() > 0) {
+				System.exit(1);
+			}
+		}
+	}
+}
@@ -0,0 +1,317 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.fm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.prop4j.Implies;
+import org.prop4j.Literal;
+
+import de.ovgu.featureide.fm.core.base.IConstraint;
+import de.ovgu.featureide.fm.core.base.IFeature;
+import de.ovgu.featureide.fm.core.base.IFeatureModel;
+import de.ovgu.featureide.fm.core.base.impl.FMFactoryManager;
+import de.ovgu.featureide.fm.core.explanations.Explanation;
+import de.ovgu.featureide.fm.core.explanations.evaluation.Test;
+import de.ovgu.featureide.fm.core.explanations.evaluation.TestRunner;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.MeasurementBuffer;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.resources.FeatureModelTest;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ModelEdit;
+import de.ovgu.featureide.fm.core.explanations.fm.DeadFeatureExplanationCreator;
+import de.ovgu.featureide.fm.core.explanations.fm.FalseOptionalFeatureExplanationCreator;
+import de.ovgu.featureide.fm.core.explanations.fm.FeatureModelExplanationCreatorFactory;
+import de.ovgu.featureide.fm.core.explanations.fm.RedundantConstraintExplanationCreator;
+
+/**
+ * <p>
+ * Tests the latency of analyzing a feature model and explaining all of its defects after each edit.
+ * This resembles a user editing the feature model interactively.
+ * </p>
+ * 
+ * <p>
+ * Each step applies one random edit and then analyzes and explains the edited feature model.
+ * An edit either deletes an existing constraint, inserts a previously deleted one again or inserts a new implication between two random features.
+ * The edits are random but seeded so that every iteration and every oracle replays the same sequence.
+ * Applying the edit is not timed.
+ * The original constraints are restored in their original order after each iteration.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class EditReplayTest extends FeatureModelTest<Integer> {
+
+	/** The default number of edits per iteration. */
+	public static final int EDITS = 50;
+	/** The default seed. */
+	public static final long SEED = 0L;
+
+	/** The factory used to construct explanation creators. */
+	private final FeatureModelExplanationCreatorFactory factory;
+	/** The number of edits per iteration. */
+	private final int editCount;
+	/** The seed of the random edits. */
+	private final long seed;
+
+	/** The features to choose from when inserting new constraints. */
+	private List<IFeature> features;
+	/** The source of randomness for the edits. */
+	private Random random;
+	/** The constraints before the current iteration. */
+	private List<IConstraint> originalConstraints;
+	/** The edits applied in the current iteration. */
+	private List<ModelEdit> edits;
+	/** The constraints deleted in the current iteration and not inserted again yet. */
+	private List<IConstraint> deleted;
+	/** The edit of the current step. */
+	private ModelEdit edit;
+
+	/** The explanation creator for dead features. */
+	private DeadFeatureExplanationCreator dfc;
+	/** The explanation creator for false-optional features. */
+	private FalseOptionalFeatureExplanationCreator fofc;
+	/** The explanation creator for redundant constraints. */
+	private RedundantConstraintExplanationCreator rcc;
+
+	/** The number of defects found in the most recent step. */
+	private int stepDefects;
+	/** The number of reasons in all explanations of the most recent step. */
+	private int stepReasons;
+	/** The total number of defects found in all steps. */
+	private long defects;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param factory the factory used to construct explanation creators; not null
+	 * @param editCount the number of edits per iteration
+	 * @param seed the seed of the random edits
+	 * @param iterations number of iterations to run
+	 */
+	public EditReplayTest(String projectName, String fmName, FeatureModelExplanationCreatorFactory factory, int editCount, long seed, int iterations) {
+		super(projectName, fmName, iterations);
+		this.factory = factory;
+		this.editCount = editCount;
+		this.seed = seed;
+	}
+
+	@Override
+	public String getName() {
+		return String.format("%s_%s_%s_%d_%d_%d",
+				getProjectName(),
+				getFeatureModelName(),
+				getOracleName(),
+				editCount,
+				seed,
+				getIterations());
+	}
+
+	@Override
+	protected String getOracleName() {
+		return FeatureModelExplanationTest.getOracleName(factory);
+	}
+
+	@Override
+	protected void runBeforeTest() {
+		super.runBeforeTest();
+		final IFeatureModel fm = getFeatureModel();
+		features = new ArrayList<>();
+		for (final IFeature f : fm.getFeatures()) {
+			if (!f.getStructure().isRoot()) {
+				features.add(f);
+			}
+		}
+		dfc = factory.getDeadFeatureExplanationCreator();
+		fofc = factory.getFalseOptionalFeatureExplanationCreator();
+		rcc = factory.getRedundantConstraintExplanationCreator();
+	}
+
+	@Override
+	protected void runBeforeIterations() {
+		super.runBeforeIterations();
+		defects = 0L;
+	}
+
+	@Override
+	protected void runBeforeIteration() {
+		super.runBeforeIteration();
+		random = new Random(seed);
+		originalConstraints = new ArrayList<>(getFeatureModel().getConstraints());
+		edits = new ArrayList<>(editCount);
+		deleted = new ArrayList<>();
+	}
+
+	@Override
+	protected boolean hasNextStep() {
+		if (edits.size() >= editCount) {
+			return false;
+		}
+		edit = nextEdit();
+		return edit != null;
+	}
+
+	/**
+	 * Chooses the next edit at random.
+	 * 
+	 * @return the next edit; null if there is nothing to edit
+	 */
+	private ModelEdit nextEdit() {
+		final IFeatureModel fm = getFeatureModel();
+		final List<IConstraint> constraints = fm.getConstraints();
+		if (!constraints.isEmpty() && random.nextBoolean()) {
+			final IConstraint c = constraints.get(random.nextInt(constraints.size()));
+			deleted.add(c);
+			return ModelEdit.removeConstraint(c);
+		}
+		if (!deleted.isEmpty() && random.nextBoolean()) {
+			return ModelEdit.addConstraint(deleted.remove(random.nextInt(deleted.size())));
+		}
+		if (features.size() < 2) {
+			return null;
+		}
+		final IFeature a = features.get(random.nextInt(features.size()));
+		IFeature b;
+		do {
+			b = features.get(random.nextInt(features.size()));
+		} while (a == b);
+		final Implies node = new Implies(new Literal(a.getName(), random.nextBoolean()), new Literal(b.getName(), random.nextBoolean()));
+		return ModelEdit.addConstraint(FMFactoryManager.getFactory(fm).createConstraint(fm, node));
+	}
+
+	@Override
+	protected void runBeforeStep() {
+		edit.apply(getFeatureModel());
+		edits.add(edit);
+		super.runBeforeStep();
+	}
+
+	@Override
+	protected Integer runStep() {
+		final IFeatureModel fm = getFeatureModel();
+		final boolean valid = FeatureModelDefectTest.analyzeFeatureModel(fm);
+		dfc.setFeatureModel(fm);
+		fofc.setFeatureModel(fm);
+		rcc.setFeatureModel(fm);
+		stepDefects = 0;
+		stepReasons = 0;
+		if (!valid) {
+			dfc.setSubject(fm.getStructure().getRoot().getFeature());
+			addExplanation(dfc.getExplanation());
+			return stepDefects;
+		}
+		for (final IFeature f : fm.getFeatures()) {
+			switch (f.getProperty().getFeatureStatus()) {
+			case DEAD:
+				dfc.setSubject(f);
+				addExplanation(dfc.getExplanation());
+				break;
+			case FALSE_OPTIONAL:
+				fofc.setSubject(f);
+				addExplanation(fofc.getExplanation());
+				break;
+			default:
+				break;
+			}
+		}
+		for (final IConstraint c : fm.getConstraints()) {
+			switch (c.getConstraintAttribute()) {
+			case IMPLICIT:
+			case REDUNDANT:
+				rcc.setSubject(c);
+				addExplanation(rcc.getExplanation());
+				break;
+			default:
+				break;
+			}
+		}
+		return stepDefects;
+	}
+
+	/**
+	 * Counts the given explanation for the current step.
+	 * 
+	 * @param explanation the explanation; null if the defect could not be explained
+	 */
+	private void addExplanation(Explanation<?> explanation) {
+		stepDefects++;
+		if (explanation != null) {
+			stepReasons += explanation.getReasonCount();
+		}
+	}
+
+	@Override
+	protected void runAfterStep() {
+		defects += stepDefects;
+		super.runAfterStep();
+	}
+
+	@Override
+	protected void runAfterIteration() {
+		super.runAfterIteration();
+		final IFeatureModel fm = getFeatureModel();
+		for (final IConstraint c : new ArrayList<>(fm.getConstraints())) {
+			fm.removeConstraint(c);
+		}
+		for (final IConstraint c : originalConstraints) {
+			fm.addConstraint(c);
+		}
+		originalConstraints = null;
+		edits = null;
+		deleted = null;
+	}
+
+	@Override
+	protected void runAfterTest() {
+		super.runAfterTest();
+		features = null;
+		random = null;
+		edit = null;
+		dfc = null;
+		fofc = null;
+		rcc = null;
+	}
+
+	@Override
+	protected void measureStep(MeasurementBuffer measurement) {
+		super.measureStep(measurement);
+		measurement.put("Edit", edit.getKind());
+		measurement.put("Cs", getFeatureModel().getConstraintCount());
+		measurement.put("Defects", stepDefects);
+		measurement.put("Reasons", stepReasons);
+	}
+
+	@Override
+	public Map<String, Object> getTestResults() {
+		final Map<String, Object> results = super.getTestResults();
+		results.put("Oracle", getOracleName());
+		results.put("Edits", editCount);
+		results.put("Seed", seed);
+		results.put("Avg Defects", (double) defects / Math.max(1, getSteps()));
+		return results;
+	}
+
+	/**
+	 * Runs the tests.
+	 * 
+	 * @param args unused
+	 */
+	public static void main(String[] args) {
+		final List<FeatureModelExplanationCreatorFactory> factories = Arrays.asList(
+				FeatureModelExplanationTest.LTMS,
+				FeatureModelExplanationTest.MUS,
+				FeatureModelExplanationTest.COMPOSITE);
+		final List<Test> tests = new LinkedList<>();
+		for (final String projectName : Arrays.asList(
+				"uClibc",
+				"Busybox_1.18.0")) {
+			for (final FeatureModelExplanationCreatorFactory factory : factories) {
+				tests.add(new EditReplayTest(projectName, "model", factory, EDITS, SEED, ITERATIONS));
+			}
+		}
+		new TestRunner().run(tests);
+	}
+}
@@ -0,0 +1,383 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.fm;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import de.ovgu.featureide.fm.core.FeatureModelAnalyzer;
+import de.ovgu.featureide.fm.core.base.IConstraint;
+import de.ovgu.featureide.fm.core.base.IFeature;
+import de.ovgu.featureide.fm.core.base.IFeatureModel;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.MeasurementBuffer;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.resources.FeatureModelTest;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.FeatureModelCnf;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ParallelAnalyzer;
+
+/**
+ * A test that takes one step for each defect in a feature model.
+ * The defects are found by analyzing the feature model before the test starts.
+ * The analysis is timed as a separate phase.
+ * 
+ * @param <R> the type of the results of each step
+ * @author Timo G&uuml;nther
+ */
+public abstract class FeatureModelDefectTest<R> extends FeatureModelTest<R> {
+
+	/**
+	 * The kind of a defect in a feature model.
+	 */
+	public static enum DefectKind {
+		/** A void feature model. The subject is the root feature. */
+		VOID_FEATURE_MODEL("VFM"),
+		/** A dead feature. The subject is the feature. */
+		DEAD_FEATURE("DF"),
+		/** A false-optional feature. The subject is the feature. */
+		FALSE_OPTIONAL_FEATURE("FOF"),
+		/** A redundant constraint. The subject is the constraint. */
+		REDUNDANT_CONSTRAINT("RC");
+
+		/** The abbreviated name of this defect kind. */
+		private final String abbreviation;
+
+		/**
+		 * Constructs a new instance of this class.
+		 * 
+		 * @param abbreviation the abbreviated name of this defect kind; not null
+		 */
+		private DefectKind(String abbreviation) {
+			this.abbreviation = abbreviation;
+		}
+
+		/**
+		 * Returns the abbreviated name of this defect kind.
+		 * 
+		 * @return the abbreviated name; not null
+		 */
+		public String getAbbreviation() {
+			return abbreviation;
+		}
+	}
+
+	/** True to test void feature models. */
+	protected static final boolean TEST_VOID_FEATURE_MODELS = true;
+	/** True to test dead features. */
+	protected static final boolean TEST_DEAD_FEATURES = true;
+	/** True to test false-optional features. */
+	protected static final boolean TEST_FALSEOPTIONAL_FEATURES = true;
+	/** True to test redundant constraints. */
+	protected static final boolean TEST_REDUNDANT_CONSTRAINTS = true;
+
+	/** The number of threads used for analyzing the feature model; 1 to use the FeatureIDE analyzer. */
+	private final int analysisThreads;
+	/** Whether the feature model was found to be valid. */
+	private boolean valid;
+
+	/** Iterates over features in the feature model. */
+	private Iterator<IFeature> fi;
+	/** Iterates over constraints in the feature model. */
+	private Iterator<IConstraint> ci;
+
+	/** The kind of the defect in the current step. */
+	private DefectKind defectKind;
+	/** The defective element in the current step. */
+	private Object defectSubject;
+
+	/** The number of void feature models found. */
+	private int vfms;
+	/** The number of void feature models explained. */
+	private int vfmsExpl;
+	/** The number of dead features found. */
+	private int dfs;
+	/** The number of dead features explained. */
+	private int dfsExpl;
+	/** The number of false-optional features found. */
+	private int fofs;
+	/** The number of false-optional features explained. */
+	private int fofsExpl;
+	/** The number of redundant constraints found. */
+	private int rcs;
+	/** The number of redundant constraints explained. */
+	private int rcsExpl;
+
+	/** The total number of reasons of all found explanations. */
+	private int reasons;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param iterations number of iterations to run
+	 */
+	protected FeatureModelDefectTest(String projectName, String fmName, int iterations) {
+		this(projectName, fmName, 1, iterations);
+	}
+
+	/**
+	 * Constructs a new instance of this class.
+	 * With a single analysis thread, the FeatureIDE analyzer is used.
+	 * With several threads, the {@link ParallelAnalyzer parallel analyzer} is used.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param analysisThreads the number of threads used for analyzing the feature model; at least 1
+	 * @param iterations number of iterations to run
+	 */
+	protected FeatureModelDefectTest(String projectName, String fmName, int analysisThreads, int iterations) {
+		super(projectName, fmName, iterations);
+		this.analysisThreads = analysisThreads;
+	}
+
+	/**
+	 * Returns the kind of the defect in the current step.
+	 * 
+	 * @return the defect kind
+	 */
+	protected DefectKind getDefectKind() {
+		return defectKind;
+	}
+
+	/**
+	 * Returns the defective element in the current step.
+	 * This is either an {@link IFeature} or an {@link IConstraint} depending on the {@link #getDefectKind() defect kind}.
+	 * 
+	 * @return the defect subject
+	 */
+	protected Object getDefectSubject() {
+		return defectSubject;
+	}
+
+	/**
+	 * Returns the number of threads used for analyzing the feature model.
+	 * 
+	 * @return the number of analysis threads
+	 */
+	public int getAnalysisThreads() {
+		return analysisThreads;
+	}
+
+	@Override
+	protected void runBeforeTest() {
+		super.runBeforeTest();
+		startPhase("Analysis");
+		valid = analyzeFeatureModel(getFeatureModel(), analysisThreads);
+		stopPhase();
+	}
+
+	/**
+	 * Analyzes the given feature model for the defects to test using the FeatureIDE analyzer.
+	 * Afterwards, the defects are stored in the feature status and the constraint attributes.
+	 * 
+	 * @param fm the feature model to analyze; not null
+	 * @return true iff the feature model is valid
+	 */
+	protected static boolean analyzeFeatureModel(IFeatureModel fm) {
+		return analyzeFeatureModel(fm, 1);
+	}
+
+	/**
+	 * Analyzes the given feature model for the defects to test.
+	 * Afterwards, the defects are stored in the feature status and the constraint attributes.
+	 * 
+	 * @param fm the feature model to analyze; not null
+	 * @param threads the number of threads; 1 to use the FeatureIDE analyzer
+	 * @return true iff the feature model is valid
+	 */
+	@SuppressWarnings("unused")
+	public static boolean analyzeFeatureModel(IFeatureModel fm, int threads) {
+		if (threads > 1) {
+			return new ParallelAnalyzer(new FeatureModelCnf(fm), threads).analyze();
+		}
+		final FeatureModelAnalyzer a = fm.getAnalyser();
+		a.calculateFeatures = TEST_VOID_FEATURE_MODELS || TEST_DEAD_FEATURES || TEST_FALSEOPTIONAL_FEATURES || TEST_REDUNDANT_CONSTRAINTS;
+		a.calculateConstraints = TEST_REDUNDANT_CONSTRAINTS;
+		a.calculateDeadConstraints = TEST_VOID_FEATURE_MODELS || TEST_DEAD_FEATURES;
+		a.calculateFOConstraints = TEST_FALSEOPTIONAL_FEATURES;
+		a.calculateRedundantConstraints = TEST_REDUNDANT_CONSTRAINTS;
+		a.calculateTautologyConstraints = TEST_REDUNDANT_CONSTRAINTS;
+		a.analyzeFeatureModel(null);
+		return a.valid();
+	}
+
+	@Override
+	protected void runBeforeIterations() {
+		super.runBeforeIterations();
+		vfms = 0;
+		vfmsExpl = 0;
+		dfs = 0;
+		dfsExpl = 0;
+		fofs = 0;
+		fofsExpl = 0;
+		rcs = 0;
+		rcsExpl = 0;
+		reasons = 0;
+	}
+
+	@Override
+	protected void runBeforeIteration() {
+		super.runBeforeIteration();
+		final IFeatureModel fm = getFeatureModel();
+		fi = fm.getFeatures().iterator();
+		ci = fm.getConstraints().iterator();
+	}
+
+	@Override
+	protected boolean hasNextStep() {
+		while (fi.hasNext()) {
+			final IFeature f = fi.next();
+			if (!valid) {
+				if (f.getStructure().isRoot()) {
+					setDefect(DefectKind.VOID_FEATURE_MODEL, f);
+					if (TEST_VOID_FEATURE_MODELS) {
+						vfms++;
+						return true;
+					}
+				} else {
+					continue;
+				}
+			}
+			switch (f.getProperty().getFeatureStatus()) {
+			case DEAD:
+				setDefect(DefectKind.DEAD_FEATURE, f);
+				if (TEST_DEAD_FEATURES) {
+					dfs++;
+					return true;
+				}
+				break;
+			case FALSE_OPTIONAL:
+				setDefect(DefectKind.FALSE_OPTIONAL_FEATURE, f);
+				if (TEST_FALSEOPTIONAL_FEATURES) {
+					fofs++;
+					return true;
+				}
+				break;
+			default:
+				break;
+			}
+		}
+		while (ci.hasNext()) {
+			final IConstraint c = ci.next();
+			switch (c.getConstraintAttribute()) {
+			case IMPLICIT:
+			case REDUNDANT:
+				setDefect(DefectKind.REDUNDANT_CONSTRAINT, c);
+				if (TEST_REDUNDANT_CONSTRAINTS) {
+					rcs++;
+					return true;
+				}
+			default:
+				break;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sets the defect to handle in the next step.
+	 * Subclasses may override this to prepare the state for the next step.
+	 * 
+	 * @param kind the kind of the defect; not null
+	 * @param subject the defective element; not null
+	 */
+	protected void setDefect(DefectKind kind, Object subject) {
+		defectKind = kind;
+		defectSubject = subject;
+	}
+
+	@Override
+	protected Object getStepSubject() {
+		return defectSubject;
+	}
+
+	@Override
+	protected int getStepReasonCount() {
+		final R result = getResult();
+		return result == null ? -1 : getReasonCount(result);
+	}
+
+	@Override
+	protected void runAfterTest() {
+		super.runAfterTest();
+		fi = null;
+		ci = null;
+		defectKind = null;
+		defectSubject = null;
+	}
+
+	/**
+	 * Returns the number of reasons in the given step result.
+	 * Returns a negative number if the result does not constitute an explanation.
+	 * 
+	 * @param result the step result; not null
+	 * @return the number of reasons; negative if not explained
+	 */
+	protected abstract int getReasonCount(R result);
+
+	/**
+	 * Returns the number of alternative explanations in the given step result.
+	 * 
+	 * @param result the step result; not null
+	 * @return the number of explanations
+	 */
+	protected int getExplanationCount(R result) {
+		return 1;
+	}
+
+	@Override
+	protected void measureStep(MeasurementBuffer measurement) {
+		super.measureStep(measurement);
+		measurement.put("Kind", getDefectKind());
+		final R result = getResult();
+		int reasons = result == null ? -1 : getReasonCount(result);
+		final int explanations;
+		if (reasons < 0) {
+			reasons = 0;
+			explanations = 0;
+		} else {
+			switch (getDefectKind()) {
+			case VOID_FEATURE_MODEL:
+				vfmsExpl++;
+				break;
+			case DEAD_FEATURE:
+				dfsExpl++;
+				break;
+			case FALSE_OPTIONAL_FEATURE:
+				fofsExpl++;
+				break;
+			case REDUNDANT_CONSTRAINT:
+				rcsExpl++;
+				break;
+			default:
+				throw new IllegalStateException("Unknown defect kind");
+			}
+			explanations = getExplanationCount(result);
+			this.reasons += reasons;
+		}
+		measurement.put("Reasons", reasons);
+		measurement.put("Explanations", explanations);
+	}
+
+	/**
+	 * Returns the name of the oracle used to explain the defects.
+	 * 
+	 * @return the oracle name; not null
+	 */
+	@Override
+	protected abstract String getOracleName();
+
+	@Override
+	public Map<String, Object> getTestResults() {
+		final Map<String, Object> results = super.getTestResults();
+		results.put("Oracle", getOracleName());
+		results.put("Analysis Threads", analysisThreads);
+		results.put("VFMs", vfms);
+		results.put("VFMs Ex", vfmsExpl);
+		results.put("DFs", dfs);
+		results.put("DFs Ex", dfsExpl);
+		results.put("FOFs", fofs);
+		results.put("FOFs Ex", fofsExpl);
+		results.put("RCs", rcs);
+		results.put("RCs Ex", rcsExpl);
+		results.put("Avg Reasons", (double) reasons / Math.max(1, vfmsExpl + dfsExpl + fofsExpl + rcsExpl));
+		return results;
+	}
+}
@@ -1,53 +1,50 @@
 package de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.fm;
 
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
-import de.ovgu.featureide.fm.core.FeatureModelAnalyzer;
 import de.ovgu.featureide.fm.core.base.IConstraint;
 import de.ovgu.featureide.fm.core.base.IFeature;
 import de.ovgu.featureide.fm.core.base.IFeatureModel;
 import de.ovgu.featureide.fm.core.explanations.Explanation;
 import de.ovgu.featureide.fm.core.explanations.evaluation.Test;
 import de.ovgu.featureide.fm.core.explanations.evaluation.TestRunner;
-import de.ovgu.featureide.fm.core.explanations.evaluation.impl.resources.FeatureModelTest;
-import de.ovgu.featureide.fm.core.explanations.fm.DeadFeatureExplanation;
+import de.ovgu.featureide.fm.core.explanations.evaluation.jfr.FlightRecorderEvents;
 import de.ovgu.featureide.fm.core.explanations.fm.DeadFeatureExplanationCreator;
-import de.ovgu.featureide.fm.core.explanations.fm.FalseOptionalFeatureExplanation;
 import de.ovgu.featureide.fm.core.explanations.fm.FalseOptionalFeatureExplanationCreator;
 import de.ovgu.featureide.fm.core.explanations.fm.FeatureModelExplanationCreator;
 import de.ovgu.featureide.fm.core.explanations.fm.FeatureModelExplanationCreatorFactory;
-import de.ovgu.featureide.fm.core.explanations.fm.RedundantConstraintExplanation;
 import de.ovgu.featureide.fm.core.explanations.fm.RedundantConstraintExplanationCreator;
 import de.ovgu.featureide.fm.core.explanations.fm.impl.composite.CompositeFeatureModelExplanationCreatorFactory;
 import de.ovgu.featureide.fm.core.explanations.fm.impl.ltms.LtmsFeatureModelExplanationCreatorFactory;
 import de.ovgu.featureide.fm.core.explanations.fm.impl.mus.MusFeatureModelExplanationCreatorFactory;
 
 /**
+ * <p>
  * Tests explanations for feature model defects.
+ * </p>
+ * 
+ * <p>
+ * Besides the steps, the untimed calls into the explanation creators are recorded as {@link FlightRecorderEvents flight recorder phases}:
+ * setting the feature model and setting the subject.
+ * The step event of the first explanation of each creator is marked as cold
+ * since it includes any lazy preparation of the creator's oracle, such as building its clauses.
+ * </p>
  * 
  * @author Timo G&uuml;nther
  */
-public class FeatureModelExplanationTest extends FeatureModelTest<Explanation<?>> {
-
-	/** True to test void feature models. */
-	private static final boolean TEST_VOID_FEATURE_MODELS = true;
-	/** True to test dead features. */
-	private static final boolean TEST_DEAD_FEATURES = true;
-	/** True to test false-optional features. */
-	private static final boolean TEST_FALSEOPTIONAL_FEATURES = true;
-	/** True to test redundant constraints. */
-	private static final boolean TEST_REDUNDANT_CONSTRAINTS = true;
+public class FeatureModelExplanationTest extends FeatureModelDefectTest<Explanation<?>> {
 
 	/** The LTMS factory. */
-	private static final FeatureModelExplanationCreatorFactory LTMS = new LtmsFeatureModelExplanationCreatorFactory();
+	static final FeatureModelExplanationCreatorFactory LTMS = new LtmsFeatureModelExplanationCreatorFactory();
 	/** The MUS factory */
-	private static final FeatureModelExplanationCreatorFactory MUS = new MusFeatureModelExplanationCreatorFactory();
+	static final FeatureModelExplanationCreatorFactory MUS = new MusFeatureModelExplanationCreatorFactory();
 	/** The composite factory. */
-	private static final FeatureModelExplanationCreatorFactory COMPOSITE = new CompositeFeatureModelExplanationCreatorFactory();
+	static final FeatureModelExplanationCreatorFactory COMPOSITE = new CompositeFeatureModelExplanationCreatorFactory();
 
 	/** The factory used to construct explanation creators. */
 	private final FeatureModelExplanationCreatorFactory factory;
@@ -60,31 +57,10 @@ public class FeatureModelExplanationTest extends FeatureModelTest<Explanation<?>
 	private RedundantConstraintExplanationCreator rcc;
 	/** The explanation creator in use in the current step. */
 	private FeatureModelExplanationCreator<?, ?> creator;
-	
-	/** Iterates over features in the feature model. */
-	private Iterator<IFeature> fi;
-	/** Iterates over constraints in the feature model. */
-	private Iterator<IConstraint> ci;
-
-	/** The number of void feature models found. */
-	private int vfms;
-	/** The number of void feature models explained. */
-	private int vfmsExpl;
-	/** The number of dead features found. */
-	private int dfs;
-	/** The number of dead features explained. */
-	private int dfsExpl;
-	/** The number of false-optional features found. */
-	private int fofs;
-	/** The number of false-optional features explained. */
-	private int fofsExpl;
-	/** The number of redundant constraints found. */
-	private int rcs;
-	/** The number of redundant constraints explained. */
-	private int rcsExpl;
-
-	/** The total number of reasons of all found explanations. */
-	private int reasons;
+	/** The explanation creators that have already computed an explanation. */
+	private final Set<FeatureModelExplanationCreator<?, ?>> warmCreators = new HashSet<>();
+	/** Whether the current step is the first explanation of its creator. */
+	private boolean coldStep;
 
 	/**
 	 * Constructs a new instance of this class.
@@ -95,25 +71,46 @@ public class FeatureModelExplanationTest extends FeatureModelTest<Explanation<?>
 	 * @param iterations number of iterations to run
 	 */
 	public FeatureModelExplanationTest(String projectName, String fmName, FeatureModelExplanationCreatorFactory factory, int iterations) {
-		super(projectName, fmName, iterations);
+		this(projectName, fmName, factory, 1, iterations);
+	}
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param factory the factory used to construct explanation creators; not null
+	 * @param analysisThreads the number of threads used for analyzing the feature model; at least 1
+	 * @param iterations number of iterations to run
+	 */
+	public FeatureModelExplanationTest(String projectName, String fmName, FeatureModelExplanationCreatorFactory factory, int analysisThreads,
+			int iterations) {
+		super(projectName, fmName, analysisThreads, iterations);
 		this.factory = factory;
 	}
 
 	@Override
 	public String getName() {
-		return String.format("%s_%s_%s_%d",
+		return String.format("%s_%s_%s_%d_%d",
 				getProjectName(),
 				getFeatureModelName(),
 				getOracleName(),
+				getAnalysisThreads(),
 				getIterations());
 	}
 
+	@Override
+	protected String getOracleName() {
+		return getOracleName(factory);
+	}
+
 	/**
-	 * Returns the name of the oracle.
+	 * Returns the name of the oracle used by the given factory.
 	 * 
+	 * @param factory the factory used to construct explanation creators; not null
 	 * @return the oracle name; not null
 	 */
-	private String getOracleName() {
+	static String getOracleName(FeatureModelExplanationCreatorFactory factory) {
 		if (factory instanceof LtmsFeatureModelExplanationCreatorFactory) {
 			return "LTMS";
 		} else if (factory instanceof MusFeatureModelExplanationCreatorFactory) {
@@ -125,102 +122,57 @@ public class FeatureModelExplanationTest extends FeatureModelTest<Explanation<?>
 		}
 	}
 
-	@SuppressWarnings("unused")
 	@Override
 	protected void runBeforeTest() {
 		super.runBeforeTest();
 		final IFeatureModel fm = getFeatureModel();
+		startPhase("Creators");
 		dfc = factory.getDeadFeatureExplanationCreator();
 		fofc = factory.getFalseOptionalFeatureExplanationCreator();
 		rcc = factory.getRedundantConstraintExplanationCreator();
-		dfc.setFeatureModel(fm);
-		fofc.setFeatureModel(fm);
-		rcc.setFeatureModel(fm);
-		final FeatureModelAnalyzer a = fm.getAnalyser();
-		a.calculateFeatures = TEST_VOID_FEATURE_MODELS || TEST_DEAD_FEATURES || TEST_FALSEOPTIONAL_FEATURES || TEST_REDUNDANT_CONSTRAINTS;
-		a.calculateConstraints = TEST_REDUNDANT_CONSTRAINTS;
-		a.calculateDeadConstraints = TEST_VOID_FEATURE_MODELS || TEST_DEAD_FEATURES;
-		a.calculateFOConstraints = TEST_FALSEOPTIONAL_FEATURES;
-		a.calculateRedundantConstraints = TEST_REDUNDANT_CONSTRAINTS;
-		a.calculateTautologyConstraints = TEST_REDUNDANT_CONSTRAINTS;
-		a.analyzeFeatureModel(null);
+		setFeatureModel(dfc, fm, "Dead Features");
+		setFeatureModel(fofc, fm, "False-Optional Features");
+		setFeatureModel(rcc, fm, "Redundant Constraints");
+		stopPhase();
+		warmCreators.clear();
 	}
 
-	@Override
-	protected void runBeforeIterations() {
-		super.runBeforeIterations();
-		vfms = 0;
-		vfmsExpl = 0;
-		dfs = 0;
-		dfsExpl = 0;
-		fofs = 0;
-		fofsExpl = 0;
-		rcs = 0;
-		rcsExpl = 0;
-		reasons = 0;
-	}
-
-	@Override
-	protected void runBeforeIteration() {
-		super.runBeforeIteration();
-		final IFeatureModel fm = getFeatureModel();
-		fi = fm.getFeatures().iterator();
-		ci = fm.getConstraints().iterator();
+	/**
+	 * Sets the feature model of the given explanation creator.
+	 * 
+	 * @param c the explanation creator; not null
+	 * @param fm the feature model; not null
+	 * @param kind the kind of defects explained by the creator; not null
+	 */
+	private void setFeatureModel(FeatureModelExplanationCreator<?, ?> c, IFeatureModel fm, String kind) {
+		final Object event = FlightRecorderEvents.beginPhase();
+		c.setFeatureModel(fm);
+		FlightRecorderEvents.endPhase(event, "Set Model", kind, getOracleName(), -1L);
 	}
 
 	@Override
-	protected boolean hasNextStep() {
-		while (fi.hasNext()) {
-			final IFeature f = fi.next();
-			if (!getFeatureModel().getAnalyser().valid()) {
-				if (f.getStructure().isRoot()) {
-					dfc.setSubject(f);
-					creator = dfc;
-					if (TEST_VOID_FEATURE_MODELS) {
-						vfms++;
-						return true;
-					}
-				} else {
-					continue;
-				}
-			}
-			switch (f.getProperty().getFeatureStatus()) {
-			case DEAD:
-				dfc.setSubject(f);
-				creator = dfc;
-				if (TEST_DEAD_FEATURES) {
-					dfs++;
-					return true;
-				}
-				break;
-			case FALSE_OPTIONAL:
-				fofc.setSubject(f);
-				creator = fofc;
-				if (TEST_FALSEOPTIONAL_FEATURES) {
-					fofs++;
-					return true;
-				}
-				break;
-			default:
-				break;
-			}
+	protected void setDefect(DefectKind kind, Object subject) {
+		super.setDefect(kind, subject);
+		final Object event = FlightRecorderEvents.beginPhase();
+		switch (kind) {
+		case VOID_FEATURE_MODEL:
+		case DEAD_FEATURE:
+			dfc.setSubject((IFeature) subject);
+			creator = dfc;
+			break;
+		case FALSE_OPTIONAL_FEATURE:
+			fofc.setSubject((IFeature) subject);
+			creator = fofc;
+			break;
+		case REDUNDANT_CONSTRAINT:
+			rcc.setSubject((IConstraint) subject);
+			creator = rcc;
+			break;
+		default:
+			throw new IllegalStateException("Unknown defect kind");
 		}
-		while (ci.hasNext()) {
-			final IConstraint c = ci.next();
-			switch (c.getConstraintAttribute()) {
-			case IMPLICIT:
-			case REDUNDANT:
-				rcc.setSubject(c);
-				creator = rcc;
-				if (TEST_REDUNDANT_CONSTRAINTS) {
-					rcs++;
-					return true;
-				}
-			default:
-				break;
-			}
-		}
-		return false;
+		FlightRecorderEvents.endPhase(event, "Set Subject", subject, getOracleName(), -1L);
+		coldStep = warmCreators.add(creator);
 	}
 
 	@Override
@@ -228,6 +180,11 @@ public class FeatureModelExplanationTest extends FeatureModelTest<Explanation<?>
 		return creator.getExplanation();
 	}
 
+	@Override
+	protected boolean isColdStep() {
+		return coldStep;
+	}
+
 	@Override
 	protected void runAfterTest() {
 		super.runAfterTest();
@@ -235,63 +192,31 @@ public class FeatureModelExplanationTest extends FeatureModelTest<Explanation<?>
 		fofc = null;
 		rcc = null;
 		creator = null;
-		fi = null;
-		ci = null;
+		warmCreators.clear();
 	}
 
 	@Override
-	protected Map<String, Object> getStepMeasurement() {
-		final Map<String, Object> measurement = super.getStepMeasurement();
-		final Explanation<?> explanation = getResult();
-		final int reasons;
-		final int explanations;
-		if (explanation == null) {
-			reasons = 0;
-			explanations = 0;
-		} else {
-			if (explanation instanceof DeadFeatureExplanation) {
-				if (((DeadFeatureExplanation) explanation).isVoid()) {
-					vfmsExpl++;
-				} else {
-					dfsExpl++;
-				}
-			} else if (explanation instanceof FalseOptionalFeatureExplanation) {
-				fofsExpl++;
-			} else if (explanation instanceof RedundantConstraintExplanation) {
-				rcsExpl++;
-			}
-			reasons = explanation.getReasonCount();
-			explanations = explanation.getExplanationCount();
-			this.reasons += reasons;
-		}
-		measurement.put("Reasons", reasons);
-		measurement.put("Explanations", explanations);
-		return measurement;
+	protected int getReasonCount(Explanation<?> result) {
+		return result.getReasonCount();
 	}
 
 	@Override
-	public Map<String, Object> getTestResults() {
-		final Map<String, Object> results = super.getTestResults();
-		results.put("Oracle", getOracleName());
-		results.put("VFMs", vfms);
-		results.put("VFMs Ex", vfmsExpl);
-		results.put("DFs", dfs);
-		results.put("DFs Ex", dfsExpl);
-		results.put("FOFs", fofs);
-		results.put("FOFs Ex", fofsExpl);
-		results.put("RCs", rcs);
-		results.put("RCs Ex", rcsExpl);
-		results.put("Avg Reasons", (double) reasons / Math.max(1, vfmsExpl + dfsExpl + fofsExpl + rcsExpl));
-		return results;
+	protected int getExplanationCount(Explanation<?> result) {
+		return result.getExplanationCount();
 	}
 
 	/**
 	 * Runs the tests.
+	 * Each factory is tested with the FeatureIDE analyzer.
+	 * The MUS factory is additionally tested with the parallel analyzer using several thread counts,
+	 * which only changes the timing of the analysis phase.
 	 * 
 	 * @param args unused
 	 */
 	public static void main(String[] args) {
 		final List<FeatureModelExplanationCreatorFactory> factories = Arrays.asList(LTMS, MUS, COMPOSITE);
+		final Set<Integer> analysisThreads = new TreeSet<>(Arrays.asList(2, 4, Runtime.getRuntime().availableProcessors()));
+		analysisThreads.remove(1);
 		final List<Test> tests = new LinkedList<>();
 		for (final String projectName : Arrays.asList(
 				"SortingLine",
@@ -308,6 +233,9 @@ public class FeatureModelExplanationTest extends FeatureModelTest<Explanation<?>
 			for (final FeatureModelExplanationCreatorFactory factory : factories) {
 				tests.add(new FeatureModelExplanationTest(projectName, "model", factory, ITERATIONS));
 			}
+			for (final int threads : analysisThreads) {
+				tests.add(new FeatureModelExplanationTest(projectName, "model", MUS, threads, ITERATIONS));
+			}
 		}
 		new TestRunner().run(tests);
 	}
@@ -0,0 +1,159 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.fm;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import de.ovgu.featureide.fm.core.explanations.evaluation.TestRunner;
+import de.ovgu.featureide.fm.core.explanations.evaluation.generator.FeatureModelGenerator;
+import de.ovgu.featureide.fm.core.explanations.fm.FeatureModelExplanationCreatorFactory;
+
+/**
+ * <p>
+ * Tests how explanations for feature model defects scale with the size of the feature model.
+ * The feature models are {@link FeatureModelGenerator generated} with increasing numbers of features.
+ * </p>
+ * 
+ * <p>
+ * After all tests have run, a power law <i>t = a * n<sup>b</sup></i> is fitted to the average step duration <i>t</i> of each oracle over the number of features <i>n</i>.
+ * The exponent <i>b</i> describes how the oracle scales.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class FeatureModelScalingTest extends FeatureModelExplanationTest {
+
+	/** The input directory containing the generated projects. */
+	private static final File IN_DIR = new File("generated");
+	/** The seed of the generated feature models. */
+	private static final long SEED = 0L;
+	/** The number of each kind of injected defects per feature. */
+	private static final double DEFECT_DENSITY = 0.01;
+
+	/** The number of features in the generated feature model. */
+	private final int featureCount;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param featureCount the number of features in the generated feature model
+	 * @param factory the factory used to construct explanation creators; not null
+	 * @param iterations number of iterations to run
+	 */
+	public FeatureModelScalingTest(int featureCount, FeatureModelExplanationCreatorFactory factory, int iterations) {
+		super(getProjectName(featureCount), "model", factory, iterations);
+		this.featureCount = featureCount;
+	}
+
+	/**
+	 * Returns the name of the generated project with the given number of features.
+	 * 
+	 * @param featureCount the number of features
+	 * @return the project name; not null
+	 */
+	private static String getProjectName(int featureCount) {
+		return String.format("Generated_%d", featureCount);
+	}
+
+	@Override
+	protected File getInDir() {
+		return IN_DIR;
+	}
+
+	/**
+	 * Returns the number of features in the generated feature model.
+	 * 
+	 * @return the number of features
+	 */
+	public int getFeatureCount() {
+		return featureCount;
+	}
+
+	@Override
+	public Map<String, Object> getTestResults() {
+		final Map<String, Object> results = super.getTestResults();
+		results.put("Size", featureCount);
+		return results;
+	}
+
+	/**
+	 * Generates the feature model with the given number of features unless it exists already.
+	 * 
+	 * @param featureCount the number of features
+	 */
+	private static void generate(int featureCount) {
+		final File file = new File(new File(IN_DIR, getProjectName(featureCount)), "model.xml");
+		if (file.exists()) {
+			return;
+		}
+		final FeatureModelGenerator generator = new FeatureModelGenerator();
+		generator.setFeatureCount(featureCount);
+		final int defects = (int) Math.ceil(DEFECT_DENSITY * featureCount);
+		generator.setDefects(defects, defects, defects);
+		generator.write(file, SEED);
+	}
+
+	/**
+	 * Fits a power law <i>y = a * x<sup>b</sup></i> to the given points using least squares on the logarithms.
+	 * 
+	 * @param xs the x values; not null; all positive
+	 * @param ys the y values; not null; all positive; same length as the x values
+	 * @return the coefficient <i>a</i> and the exponent <i>b</i>; not null
+	 */
+	static double[] fitPowerLaw(double[] xs, double[] ys) {
+		final int n = xs.length;
+		double sx = 0, sy = 0, sxx = 0, sxy = 0;
+		for (int i = 0; i < n; i++) {
+			final double x = Math.log(xs[i]);
+			final double y = Math.log(ys[i]);
+			sx += x;
+			sy += y;
+			sxx += x * x;
+			sxy += x * y;
+		}
+		final double denominator = n * sxx - sx * sx;
+		final double b = denominator == 0 ? 0 : (n * sxy - sx * sy) / denominator;
+		final double a = Math.exp((sy - b * sx) / n);
+		return new double[] { a, b };
+	}
+
+	/**
+	 * Runs the tests.
+	 * 
+	 * @param args unused
+	 */
+	public static void main(String[] args) {
+		final List<FeatureModelExplanationCreatorFactory> factories = Arrays.asList(LTMS, MUS, COMPOSITE);
+		final List<Integer> sizes = Arrays.asList(500, 1000, 2000, 4000, 8000, 16000);
+		final List<FeatureModelScalingTest> tests = new ArrayList<>();
+		for (final int size : sizes) {
+			generate(size);
+			for (final FeatureModelExplanationCreatorFactory factory : factories) {
+				tests.add(new FeatureModelScalingTest(size, factory, ITERATIONS));
+			}
+		}
+		new TestRunner().run(tests);
+		System.out.println();
+		for (final FeatureModelExplanationCreatorFactory factory : factories) {
+			final List<FeatureModelScalingTest> oracleTests = new ArrayList<>();
+			for (final FeatureModelScalingTest test : tests) {
+				if (test.getOracleName().equals(getOracleName(factory)) && test.getAverageStepDuration() > 0) {
+					oracleTests.add(test);
+				}
+			}
+			if (oracleTests.size() < 2) {
+				continue;
+			}
+			final double[] xs = new double[oracleTests.size()];
+			final double[] ys = new double[oracleTests.size()];
+			for (int i = 0; i < xs.length; i++) {
+				xs[i] = oracleTests.get(i).getFeatureCount();
+				ys[i] = oracleTests.get(i).getAverageStepDuration();
+			}
+			final double[] fit = fitPowerLaw(xs, ys);
+			System.out.println(String.format("%s: Avg St Dur = %.3f * n^%.3f", getOracleName(factory), fit[0], fit[1]));
+		}
+	}
+}
@@ -0,0 +1,271 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.fm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import de.ovgu.featureide.fm.core.base.IConstraint;
+import de.ovgu.featureide.fm.core.base.IFeature;
+import de.ovgu.featureide.fm.core.base.IFeatureModel;
+import de.ovgu.featureide.fm.core.base.impl.FMFactoryManager;
+import de.ovgu.featureide.fm.core.explanations.evaluation.Test;
+import de.ovgu.featureide.fm.core.explanations.evaluation.TestRunner;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.MeasurementBuffer;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.resources.FeatureModelTest;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.IncrementalAnalyzer;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ModelEdit;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ShrinkingStrategy;
+
+/**
+ * <p>
+ * Tests re-analyzing a feature model along with explaining its defects after single edits.
+ * Each step applies one edit and updates the analysis results.
+ * Applying the edit is not timed.
+ * </p>
+ * 
+ * <p>
+ * Every constraint is removed and then added again.
+ * Afterwards, a new optional feature is added below the root and then removed again.
+ * Thus, each iteration ends with the original feature model.
+ * </p>
+ * 
+ * <p>
+ * In incremental mode, the {@link IncrementalAnalyzer analyzer} only checks the elements affected by the edit.
+ * Otherwise, the feature model is analyzed from scratch after each edit for comparison.
+ * </p>
+ * 
+ * <p>
+ * In incremental mode, the defects found after each measured edit are also compared against those found by a fresh analyzer.
+ * This comparison runs after the step has been timed.
+ * Steps where they differ are counted as mismatches.
+ * The explanations themselves are not compared since a defect may have several minimal explanations.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class IncrementalAnalysisTest extends FeatureModelTest<IncrementalAnalyzer> {
+
+	/** The name of the feature added during the test. */
+	private static final String ADDED_FEATURE_NAME = "__IncrementalAnalysisTest__";
+
+	/** Whether to update the results incrementally. */
+	private final boolean incremental;
+	/** The strategy used to shrink unsatisfiable subsets. */
+	private final ShrinkingStrategy strategy;
+
+	/** The edits to apply in each iteration. */
+	private List<ModelEdit> edits;
+	/** The analyzer. */
+	private IncrementalAnalyzer analyzer;
+	/** The index of the next edit. */
+	private int editIndex;
+	/** The edit of the current step. */
+	private ModelEdit edit;
+
+	/** The number of satisfiability checks done by the analyzer before the current step. */
+	private long satCallsBefore;
+	/** The number of satisfiability checks done in the most recent step. */
+	private long stepSatCalls;
+	/** The total number of satisfiability checks done in all steps. */
+	private long satCalls;
+	/** The total number of elements checked in all steps. */
+	private long checks;
+	/** Whether the results of the most recent measured step differ from those of a fresh analysis. */
+	private boolean mismatch;
+	/** The number of measured steps whose results differed from those of a fresh analysis. */
+	private int mismatches;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param incremental whether to update the results incrementally
+	 * @param strategy the strategy used to shrink unsatisfiable subsets; not null
+	 * @param iterations number of iterations to run
+	 */
+	public IncrementalAnalysisTest(String projectName, String fmName, boolean incremental, ShrinkingStrategy strategy, int iterations) {
+		super(projectName, fmName, iterations);
+		this.incremental = incremental;
+		this.strategy = strategy;
+	}
+
+	@Override
+	public String getName() {
+		return String.format("%s_%s_%s_%s_%d",
+				getProjectName(),
+				getFeatureModelName(),
+				getModeName(),
+				strategy,
+				getIterations());
+	}
+
+	/**
+	 * Returns the name of the mode of this test.
+	 * 
+	 * @return the mode name; not null
+	 */
+	public String getModeName() {
+		return incremental ? "Incremental" : "Full";
+	}
+
+	@Override
+	protected void runBeforeTest() {
+		super.runBeforeTest();
+		final IFeatureModel fm = getFeatureModel();
+		edits = new ArrayList<>();
+		for (final IConstraint c : new ArrayList<>(fm.getConstraints())) {
+			final ModelEdit removal = ModelEdit.removeConstraint(c);
+			edits.add(removal);
+			edits.add(removal.getInverse());
+		}
+		final IFeature f = FMFactoryManager.getFactory(fm).createFeature(fm, ADDED_FEATURE_NAME);
+		final ModelEdit addition = ModelEdit.addFeature(f, fm.getStructure().getRoot().getFeature());
+		edits.add(addition);
+		edits.add(addition.getInverse());
+	}
+
+	@Override
+	protected void runBeforeIterations() {
+		super.runBeforeIterations();
+		satCalls = 0L;
+		checks = 0L;
+		mismatches = 0;
+	}
+
+	@Override
+	protected void runBeforeIteration() {
+		super.runBeforeIteration();
+		analyzer = new IncrementalAnalyzer(getFeatureModel(), strategy);
+		analyzer.analyze();
+		editIndex = 0;
+	}
+
+	@Override
+	protected boolean hasNextStep() {
+		if (editIndex >= edits.size()) {
+			return false;
+		}
+		edit = edits.get(editIndex++);
+		return true;
+	}
+
+	@Override
+	protected void runBeforeStep() {
+		edit.apply(getFeatureModel());
+		satCallsBefore = analyzer.getSatCalls();
+		super.runBeforeStep();
+	}
+
+	@Override
+	protected IncrementalAnalyzer runStep() {
+		if (incremental) {
+			analyzer.update(edit);
+		} else {
+			analyzer.analyze();
+		}
+		return analyzer;
+	}
+
+	@Override
+	protected void runAfterStep() {
+		stepSatCalls = analyzer.getSatCalls() - satCallsBefore;
+		satCalls += stepSatCalls;
+		checks += analyzer.getChecks();
+		super.runAfterStep();
+	}
+
+	/**
+	 * Returns whether the analyzer found the same defects as a fresh analysis of the feature model.
+	 * 
+	 * @return true iff the defects are the same
+	 */
+	private boolean matchesFullAnalysis() {
+		final IncrementalAnalyzer full = new IncrementalAnalyzer(getFeatureModel(), strategy);
+		full.analyze();
+		return analyzer.isVoid() == full.isVoid()
+				&& analyzer.getDeadFeatures().keySet().equals(full.getDeadFeatures().keySet())
+				&& analyzer.getFalseOptionalFeatures().keySet().equals(full.getFalseOptionalFeatures().keySet())
+				&& analyzer.getRedundantConstraints().keySet().equals(full.getRedundantConstraints().keySet());
+	}
+
+	@Override
+	protected void runAfterTest() {
+		super.runAfterTest();
+		edits = null;
+		analyzer = null;
+		edit = null;
+	}
+
+	@Override
+	protected void measureStep(MeasurementBuffer measurement) {
+		mismatch = incremental && !matchesFullAnalysis(); // the step has been timed already
+		if (mismatch) {
+			mismatches++;
+		}
+		super.measureStep(measurement);
+		measurement.put("Edit", edit.getKind());
+		measurement.put("Full", analyzer.isFullAnalysis() ? 1 : 0);
+		measurement.put("Checks", analyzer.getChecks());
+		measurement.put("SAT Calls", stepSatCalls);
+		measurement.put("Void", analyzer.isVoid() ? 1 : 0);
+		measurement.put("DFs", analyzer.getDeadFeatures().size());
+		measurement.put("FOFs", analyzer.getFalseOptionalFeatures().size());
+		measurement.put("RCs", analyzer.getRedundantConstraints().size());
+		measurement.put("Mismatch", mismatch ? 1 : 0);
+	}
+
+	@Override
+	public Map<String, Object> getTestResults() {
+		final Map<String, Object> results = super.getTestResults();
+		results.put("Mode", getModeName());
+		results.put("Strategy", strategy);
+		results.put("Avg Checks", (double) checks / Math.max(1, getSteps()));
+		results.put("Avg SAT Calls", (double) satCalls / Math.max(1, getSteps()));
+		results.put("Mismatches", mismatches);
+		return results;
+	}
+
+	/**
+	 * Returns the number of measured steps whose results differed from those of a fresh analysis.
+	 * 
+	 * @return the number of mismatches
+	 */
+	public int getMismatches() {
+		return mismatches;
+	}
+
+	/**
+	 * Runs the tests.
+	 * Exits with 1 if the incremental results differed from a fresh analysis after any edit.
+	 * 
+	 * @param args unused
+	 */
+	public static void main(String[] args) {
+		final List<IncrementalAnalysisTest> tests = new LinkedList<>();
+		for (final String projectName : Arrays.asList(
+				"SortingLine",
+				"PPU",
+				"Violet",
+				"uClibc",
+				"E-Shop",
+				"UClibc-Base",
+				"WaterlooGenerated",
+				"Busybox_1.18.0",
+				"XSEngine",
+				"uClibc-Distribution",
+				"Automotive01")) {
+			for (final boolean incremental : new boolean[] { true, false }) {
+				tests.add(new IncrementalAnalysisTest(projectName, "model", incremental, ShrinkingStrategy.QUICKXPLAIN, ITERATIONS));
+			}
+		}
+		new TestRunner().run(new ArrayList<Test>(tests));
+		for (final IncrementalAnalysisTest test : tests) {
+			if (test.getMismatches() > 0) {
+				System.exit(1);
+			}
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.fm;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import de.ovgu.featureide.fm.core.base.IFeature;
+import de.ovgu.featureide.fm.core.explanations.evaluation.Test;
+import de.ovgu.featureide.fm.core.explanations.evaluation.TestRunner;
+import de.ovgu.featureide.fm.core.explanations.evaluation.annotations.InvariantConditionExplainer;
+import de.ovgu.featureide.fm.core.explanations.evaluation.annotations.InvariantConditionExplainer.Report;
+import de.ovgu.featureide.fm.core.explanations.evaluation.annotations.PresenceCondition.Invariance;
+import de.ovgu.featureide.fm.core.explanations.evaluation.generator.AnnotatedSourceGenerator;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.MeasurementBuffer;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.resources.FeatureModelTest;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ShrinkingStrategy;
+
+/**
+ * <p>
+ * Tests finding and explaining the invariant presence conditions of a large annotated code base.
+ * The code base is {@link AnnotatedSourceGenerator generated} from the features of the feature model before the test.
+ * Each iteration takes a single step, which scans the whole code base and explains every unique invariant presence condition.
+ * </p>
+ * 
+ * <p>
+ * Besides the duration of the whole step, this measures the durations of scanning and explaining separately.
+ * Comparing different numbers of threads shows how well both passes parallelize.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class InvariantPresenceConditionTest extends FeatureModelTest<Report> {
+
+	/** The directory containing the generated code bases. */
+	private static final File GENERATED_DIR = new File("generated/annotated");
+	/** The seed of the generated code bases. */
+	private static final long SEED = 0L;
+
+	/** The number of threads. */
+	private final int threads;
+	/** The number of generated files. */
+	private final int fileCount;
+
+	/** The explainer. */
+	private InvariantConditionExplainer explainer;
+	/** The root of the generated code base. */
+	private File sourceDir;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param threads the number of threads; positive
+	 * @param fileCount the number of generated files; positive
+	 * @param iterations number of iterations to run
+	 */
+	public InvariantPresenceConditionTest(String projectName, String fmName, int threads, int fileCount, int iterations) {
+		super(projectName, fmName, iterations);
+		this.threads = threads;
+		this.fileCount = fileCount;
+	}
+
+	@Override
+	public String getName() {
+		return String.format("%s_%s_%d_%d_%d",
+				getProjectName(),
+				getFeatureModelName(),
+				threads,
+				fileCount,
+				getIterations());
+	}
+
+	@Override
+	protected void runBeforeTest() {
+		super.runBeforeTest();
+		sourceDir = new File(GENERATED_DIR, String.format("%s_%s_%d", getProjectName(), getFeatureModelName(), fileCount));
+		if (!sourceDir.exists()) {
+			startPhase("Generate");
+			final List<String> features = new ArrayList<>();
+			for (final IFeature f : getFeatureModel().getFeatures()) {
+				if (f.getName().matches("[A-Za-z_][A-Za-z0-9_]*")) {
+					features.add(f.getName());
+				}
+			}
+			final AnnotatedSourceGenerator generator = new AnnotatedSourceGenerator();
+			generator.setFileCount(fileCount);
+			generator.write(sourceDir, features, SEED);
+			stopPhase();
+		}
+		explainer = new InvariantConditionExplainer(getFeatureModel(), threads, ShrinkingStrategy.QUICKXPLAIN);
+	}
+
+	@Override
+	protected boolean hasNextStep() {
+		return getStep() == 0;
+	}
+
+	@Override
+	protected Report runStep() {
+		return explainer.explain(sourceDir);
+	}
+
+	@Override
+	protected void measureStep(MeasurementBuffer measurement) {
+		super.measureStep(measurement);
+		final Report report = getResult();
+		measurement.put("Threads", threads);
+		measurement.put("Files", report.getFileCount());
+		measurement.put("Annotations", report.getAnnotationCount());
+		measurement.put("Unique", report.getConditions().size());
+		measurement.put("Always True", report.getCount(Invariance.ALWAYS_TRUE));
+		measurement.put("Always False", report.getCount(Invariance.ALWAYS_FALSE));
+		measurement.put("Unknown", report.getCount(Invariance.UNKNOWN));
+		measurement.put("Scan Duration", report.getScanDuration());
+		measurement.put("Explain Duration", report.getExplainDuration());
+	}
+
+	@Override
+	protected void runAfterTest() {
+		super.runAfterTest();
+		explainer = null;
+	}
+
+	@Override
+	public Map<String, Object> getTestResults() {
+		final Map<String, Object> results = super.getTestResults();
+		results.put("Threads", threads);
+		final Report report = getResult();
+		if (report != null) {
+			results.put("Files", report.getFileCount());
+			results.put("Annotations", report.getAnnotationCount());
+			results.put("Unique", report.getConditions().size());
+			results.put("Invariant", report.getCount(Invariance.ALWAYS_TRUE) + report.getCount(Invariance.ALWAYS_FALSE));
+		}
+		return results;
+	}
+
+	/**
+	 * Runs the tests.
+	 * 
+	 * @param args unused
+	 */
+	public static void main(String[] args) {
+		final List<Test> tests = new LinkedList<>();
+		final int processors = Runtime.getRuntime().availableProcessors();
+		for (final String projectName : Arrays.asList(
+				"SortingLine",
+				"PPU",
+				"Violet",
+				"uClibc",
+				"E-Shop",
+				"Busybox_1.18.0",
+				"Automotive01")) {
+			for (final int threads : new int[] { 1, processors }) {
+				tests.add(new InvariantPresenceConditionTest(projectName, "model", threads, 2000, ITERATIONS));
+			}
+		}
+		new TestRunner().run(tests);
+	}
+}
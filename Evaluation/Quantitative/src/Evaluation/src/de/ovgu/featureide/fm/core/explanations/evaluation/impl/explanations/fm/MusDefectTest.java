@@ -0,0 +1,234 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.fm;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import de.ovgu.featureide.fm.core.base.IConstraint;
+import de.ovgu.featureide.fm.core.base.IFeature;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.MeasurementBuffer;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.CnfEncoding;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.FeatureModelCnf;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.MusOracle;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.Origin;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ShrinkingStrategy;
+
+/**
+ * A test explaining feature model defects using a {@link MusOracle MUS oracle} with a given {@link ShrinkingStrategy shrinking strategy}
+ * on a CNF whose constraints are converted using a given {@link CnfEncoding encoding}.
+ * Each defect is turned into a satisfiability query that is unsatisfiable because of the defect.
+ * Besides time, this measures the number of satisfiability checks needed in each step.
+ * 
+ * @param <R> the type of the results of each step
+ * @author Timo G&uuml;nther
+ */
+public abstract class MusDefectTest<R> extends FeatureModelDefectTest<R> {
+
+	/** The strategy used to shrink unsatisfiable subsets. */
+	private final ShrinkingStrategy strategy;
+	/** The encoding of constraints. */
+	private final CnfEncoding encoding;
+
+	/** The feature model in conjunctive normal form. */
+	private FeatureModelCnf cnf;
+	/** The oracle. */
+	private MusOracle oracle;
+
+	/** The assumptions of the satisfiability query explaining the current defect. */
+	private int[] assumptions;
+	/** The origins that may be part of the explanation for the current defect. */
+	private Collection<Origin> candidates;
+
+	/** The number of satisfiability checks done by the oracle before the current step. */
+	private long satCallsBefore;
+	/** The number of satisfiability checks done in the most recent step. */
+	private long stepSatCalls;
+	/** The total number of satisfiability checks done in all steps. */
+	private long satCalls;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param strategy the strategy used to shrink unsatisfiable subsets; not null
+	 * @param iterations number of iterations to run
+	 */
+	protected MusDefectTest(String projectName, String fmName, ShrinkingStrategy strategy, int iterations) {
+		this(projectName, fmName, CnfEncoding.DISTRIBUTIVE, strategy, iterations);
+	}
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param encoding the encoding of constraints; not null
+	 * @param strategy the strategy used to shrink unsatisfiable subsets; not null
+	 * @param iterations number of iterations to run
+	 */
+	protected MusDefectTest(String projectName, String fmName, CnfEncoding encoding, ShrinkingStrategy strategy, int iterations) {
+		super(projectName, fmName, iterations);
+		this.encoding = encoding;
+		this.strategy = strategy;
+	}
+
+	@Override
+	public String getName() {
+		return String.format("%s_%s_%s_%d",
+				getProjectName(),
+				getFeatureModelName(),
+				getOracleName(),
+				getIterations());
+	}
+
+	@Override
+	protected String getOracleName() {
+		return encoding == CnfEncoding.DISTRIBUTIVE ? strategy.toString() : encoding.toString().toLowerCase() + "-" + strategy;
+	}
+
+	/**
+	 * Returns the encoding of constraints.
+	 * 
+	 * @return the encoding; not null
+	 */
+	public CnfEncoding getEncoding() {
+		return encoding;
+	}
+
+	/**
+	 * Returns the shrinking strategy.
+	 * 
+	 * @return the shrinking strategy; not null
+	 */
+	public ShrinkingStrategy getStrategy() {
+		return strategy;
+	}
+
+	/**
+	 * Returns the feature model in conjunctive normal form.
+	 * The CNF is only set during test execution.
+	 * 
+	 * @return the CNF
+	 */
+	protected FeatureModelCnf getCnf() {
+		return cnf;
+	}
+
+	/**
+	 * Returns the oracle.
+	 * The oracle is only set during test execution.
+	 * 
+	 * @return the oracle
+	 */
+	protected MusOracle getOracle() {
+		return oracle;
+	}
+
+	/**
+	 * Returns the assumptions of the satisfiability query explaining the current defect.
+	 * 
+	 * @return the assumptions
+	 */
+	protected int[] getAssumptions() {
+		return assumptions;
+	}
+
+	/**
+	 * Returns the origins that may be part of the explanation for the current defect.
+	 * 
+	 * @return the candidate origins
+	 */
+	protected Collection<Origin> getCandidates() {
+		return candidates;
+	}
+
+	/**
+	 * Returns a new CNF of the feature model using the {@link #getEncoding() encoding}.
+	 * Called before the oracle is created.
+	 * 
+	 * @return the CNF; not null
+	 */
+	protected FeatureModelCnf createCnf() {
+		return new FeatureModelCnf(getFeatureModel(), encoding, 1);
+	}
+
+	@Override
+	protected void runBeforeTest() {
+		super.runBeforeTest();
+		startPhase("CNF");
+		cnf = createCnf();
+		startPhase("Oracle");
+		oracle = new MusOracle(cnf);
+		stopPhase();
+	}
+
+	@Override
+	protected void runBeforeIterations() {
+		super.runBeforeIterations();
+		satCalls = 0L;
+	}
+
+	@Override
+	protected void setDefect(DefectKind kind, Object subject) {
+		super.setDefect(kind, subject);
+		candidates = oracle.getOrigins();
+		switch (kind) {
+		case VOID_FEATURE_MODEL:
+			assumptions = new int[0];
+			break;
+		case DEAD_FEATURE:
+			assumptions = new int[] { cnf.getVariable((IFeature) subject) };
+			break;
+		case FALSE_OPTIONAL_FEATURE:
+			final IFeature f = (IFeature) subject;
+			final IFeature parent = f.getStructure().getParent().getFeature();
+			assumptions = new int[] { cnf.getVariable(parent), -cnf.getVariable(f) };
+			break;
+		case REDUNDANT_CONSTRAINT:
+			final Origin origin = cnf.getOrigin((IConstraint) subject);
+			assumptions = new int[] { oracle.getNegation(origin) };
+			candidates = new LinkedHashSet<>(candidates);
+			candidates.remove(origin);
+			break;
+		default:
+			throw new IllegalStateException("Unknown defect kind");
+		}
+	}
+
+	@Override
+	protected void runBeforeStep() {
+		satCallsBefore = oracle.getSatCalls();
+		super.runBeforeStep();
+	}
+
+	@Override
+	protected void runAfterStep() {
+		stepSatCalls = oracle.getSatCalls() - satCallsBefore;
+		satCalls += stepSatCalls;
+		super.runAfterStep();
+	}
+
+	@Override
+	protected void runAfterTest() {
+		super.runAfterTest();
+		cnf = null;
+		oracle = null;
+		assumptions = null;
+		candidates = null;
+	}
+
+	@Override
+	protected void measureStep(MeasurementBuffer measurement) {
+		super.measureStep(measurement);
+		measurement.put("SAT Calls", stepSatCalls);
+	}
+
+	@Override
+	public Map<String, Object> getTestResults() {
+		final Map<String, Object> results = super.getTestResults();
+		results.put("Encoding", encoding);
+		results.put("Avg SAT Calls", (double) satCalls / Math.max(1, getSteps()));
+		return results;
+	}
+}
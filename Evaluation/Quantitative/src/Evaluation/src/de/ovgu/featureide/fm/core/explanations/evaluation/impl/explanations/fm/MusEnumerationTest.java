@@ -0,0 +1,173 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.fm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.ovgu.featureide.fm.core.explanations.evaluation.Test;
+import de.ovgu.featureide.fm.core.explanations.evaluation.TestRunner;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.MeasurementBuffer;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.Origin;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ShrinkingStrategy;
+
+/**
+ * <p>
+ * Tests the lazy enumeration of all minimal explanations for feature model defects.
+ * Each step enumerates the explanations for one defect until there are no more or the maximum is reached.
+ * </p>
+ * 
+ * <p>
+ * Besides the duration of the whole step, this measures the time until the first explanation is available
+ * and the average time needed for each additional explanation.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class MusEnumerationTest extends MusDefectTest<List<Set<Origin>>> {
+
+	/** The default maximum number of explanations to enumerate for each defect. */
+	public static final int MAX_EXPLANATIONS = 10;
+
+	/** The maximum number of explanations to enumerate for each defect. */
+	private final int maxExplanations;
+
+	/** The time when the first explanation of the most recent step was found. */
+	private long firstTime;
+	/** The time when the last explanation of the most recent step was found. */
+	private long lastTime;
+	/** The duration until the first explanation of the most recent step was found. */
+	private long firstDuration;
+	/** The average duration needed for each additional explanation in the most recent step. */
+	private long nextDuration;
+	/** The total duration until the first explanation over all steps. */
+	private long firstDurations;
+	/** The total duration needed for additional explanations over all steps. */
+	private long nextDurations;
+	/** The total number of additional explanations over all steps. */
+	private int nextExplanations;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param strategy the strategy used to shrink unsatisfiable subsets; not null
+	 * @param maxExplanations the maximum number of explanations to enumerate for each defect; positive
+	 * @param iterations number of iterations to run
+	 */
+	public MusEnumerationTest(String projectName, String fmName, ShrinkingStrategy strategy, int maxExplanations, int iterations) {
+		super(projectName, fmName, strategy, iterations);
+		this.maxExplanations = maxExplanations;
+	}
+
+	/**
+	 * Returns the maximum number of explanations to enumerate for each defect.
+	 * 
+	 * @return the maximum number of explanations
+	 */
+	public int getMaxExplanations() {
+		return maxExplanations;
+	}
+
+	@Override
+	protected void runBeforeIterations() {
+		super.runBeforeIterations();
+		firstDurations = 0L;
+		nextDurations = 0L;
+		nextExplanations = 0;
+	}
+
+	@Override
+	protected List<Set<Origin>> runStep() {
+		final Iterator<Set<Origin>> it = getOracle().getMinimalUnsatisfiableSubsets(getAssumptions(), getCandidates(), getStrategy());
+		final List<Set<Origin>> explanations = new ArrayList<>();
+		while (explanations.size() < maxExplanations && it.hasNext()) {
+			explanations.add(it.next());
+			lastTime = System.nanoTime();
+			if (explanations.size() == 1) {
+				firstTime = lastTime;
+			}
+		}
+		return explanations;
+	}
+
+	@Override
+	protected void runAfterStep() {
+		final int explanations = getResult().size();
+		if (explanations == 0) {
+			firstDuration = 0L;
+			nextDuration = 0L;
+		} else {
+			firstDuration = firstTime - getStepStartTime();
+			firstDurations += firstDuration;
+			nextDuration = (lastTime - firstTime) / Math.max(1, explanations - 1);
+			nextDurations += lastTime - firstTime;
+			nextExplanations += explanations - 1;
+		}
+		super.runAfterStep();
+	}
+
+	@Override
+	protected int getReasonCount(List<Set<Origin>> result) {
+		if (result.isEmpty()) {
+			return -1;
+		}
+		final Set<Origin> reasons = new HashSet<>();
+		for (final Set<Origin> explanation : result) {
+			reasons.addAll(explanation);
+		}
+		return reasons.size();
+	}
+
+	@Override
+	protected int getExplanationCount(List<Set<Origin>> result) {
+		return result.size();
+	}
+
+	@Override
+	protected void measureStep(MeasurementBuffer measurement) {
+		super.measureStep(measurement);
+		measurement.put("First Duration", firstDuration);
+		measurement.put("Next Duration", nextDuration);
+	}
+
+	@Override
+	public Map<String, Object> getTestResults() {
+		final Map<String, Object> results = super.getTestResults();
+		results.put("Avg First Dur", firstDurations / Math.max(1, getSteps()));
+		results.put("Avg Next Dur", nextDurations / Math.max(1, nextExplanations));
+		return results;
+	}
+
+	/**
+	 * Runs the tests.
+	 * 
+	 * @param args unused
+	 */
+	public static void main(String[] args) {
+		final List<ShrinkingStrategy> strategies = Arrays.asList(ShrinkingStrategy.DELETION, ShrinkingStrategy.QUICKXPLAIN);
+		final List<Test> tests = new LinkedList<>();
+		for (final String projectName : Arrays.asList(
+				"SortingLine",
+				"PPU",
+				"Violet",
+				"uClibc",
+				"E-Shop",
+				"UClibc-Base",
+				"WaterlooGenerated",
+				"Busybox_1.18.0",
+				"XSEngine",
+				"uClibc-Distribution",
+				"Automotive01")) {
+			for (final ShrinkingStrategy strategy : strategies) {
+				tests.add(new MusEnumerationTest(projectName, "model", strategy, MAX_EXPLANATIONS, ITERATIONS));
+			}
+		}
+		new TestRunner().run(tests);
+	}
+}
@@ -0,0 +1,85 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.fm;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import de.ovgu.featureide.fm.core.explanations.evaluation.Test;
+import de.ovgu.featureide.fm.core.explanations.evaluation.TestRunner;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.CnfEncoding;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.Origin;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ShrinkingStrategy;
+
+/**
+ * Tests explanations for feature model defects using different {@link ShrinkingStrategy shrinking strategies} and {@link CnfEncoding constraint encodings}.
+ * Each explanation is the set of origins of a single minimal unsatisfiable subset.
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ShrinkingExplanationTest extends MusDefectTest<Set<Origin>> {
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param strategy the strategy used to shrink unsatisfiable subsets; not null
+	 * @param iterations number of iterations to run
+	 */
+	public ShrinkingExplanationTest(String projectName, String fmName, ShrinkingStrategy strategy, int iterations) {
+		super(projectName, fmName, strategy, iterations);
+	}
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param encoding the encoding of constraints; not null
+	 * @param strategy the strategy used to shrink unsatisfiable subsets; not null
+	 * @param iterations number of iterations to run
+	 */
+	public ShrinkingExplanationTest(String projectName, String fmName, CnfEncoding encoding, ShrinkingStrategy strategy, int iterations) {
+		super(projectName, fmName, encoding, strategy, iterations);
+	}
+
+	@Override
+	protected Set<Origin> runStep() {
+		return getOracle().getMinimalUnsatisfiableSubset(getAssumptions(), getCandidates(), getStrategy());
+	}
+
+	@Override
+	protected int getReasonCount(Set<Origin> result) {
+		return result.size();
+	}
+
+	/**
+	 * Runs the tests.
+	 * 
+	 * @param args unused
+	 */
+	public static void main(String[] args) {
+		final List<ShrinkingStrategy> strategies = Arrays.asList(ShrinkingStrategy.values());
+		final List<Test> tests = new LinkedList<>();
+		for (final String projectName : Arrays.asList(
+				"SortingLine",
+				"PPU",
+				"Violet",
+				"uClibc",
+				"E-Shop",
+				"UClibc-Base",
+				"WaterlooGenerated",
+				"Busybox_1.18.0",
+				"XSEngine",
+				"uClibc-Distribution",
+				"Automotive01")) {
+			for (final CnfEncoding encoding : CnfEncoding.values()) {
+				for (final ShrinkingStrategy strategy : strategies) {
+					tests.add(new ShrinkingExplanationTest(projectName, "model", encoding, strategy, ITERATIONS));
+				}
+			}
+		}
+		new TestRunner().run(tests);
+	}
+}
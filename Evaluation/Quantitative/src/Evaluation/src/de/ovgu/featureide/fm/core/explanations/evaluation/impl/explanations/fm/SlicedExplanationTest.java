@@ -0,0 +1,202 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.fm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.ovgu.featureide.fm.core.base.IConstraint;
+import de.ovgu.featureide.fm.core.base.IFeature;
+import de.ovgu.featureide.fm.core.explanations.evaluation.Test;
+import de.ovgu.featureide.fm.core.explanations.evaluation.TestRunner;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.MeasurementBuffer;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ModelSlicer;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.Origin;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ShrinkingStrategy;
+
+/**
+ * <p>
+ * Tests explaining feature model defects on a {@link ModelSlicer slice} of the feature model.
+ * Each step first slices the formula down to the cone of influence of the defect's subject
+ * and then computes a minimal unsatisfiable subset of the slice only.
+ * </p>
+ * 
+ * <p>
+ * The slice is first limited to a few hops from the subject.
+ * If that slice turns out satisfiable, the whole cone of influence is tried, and then the whole formula.
+ * Without slicing, the whole formula is used right away for comparison.
+ * Besides time, this measures the size of the slice used in each step and how often it had to be enlarged.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class SlicedExplanationTest extends MusDefectTest<Set<Origin>> {
+
+	/** The maximum number of hops from the subject in the first slice. */
+	private static final int RADIUS = 2;
+
+	/** Whether to slice the formula. */
+	private final boolean sliced;
+
+	/** The slicer. */
+	private ModelSlicer slicer;
+
+	/** The number of candidates in the slice used in the most recent step. */
+	private int sliceSize;
+	/** The number of times the slice had to be enlarged in the most recent step. */
+	private int enlargements;
+	/** The total number of candidates over all slices used. */
+	private long sliceSizes;
+	/** The total number of candidates over all steps. */
+	private long candidateSizes;
+	/** The number of steps that had to fall back to the whole formula. */
+	private int fallbacks;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param projectName the name of the project; not null
+	 * @param fmName the name of the feature model; not null
+	 * @param strategy the strategy used to shrink unsatisfiable subsets; not null
+	 * @param sliced whether to slice the formula
+	 * @param iterations number of iterations to run
+	 */
+	public SlicedExplanationTest(String projectName, String fmName, ShrinkingStrategy strategy, boolean sliced, int iterations) {
+		super(projectName, fmName, strategy, iterations);
+		this.sliced = sliced;
+	}
+
+	@Override
+	protected String getOracleName() {
+		return (sliced ? "sliced-" : "") + super.getOracleName();
+	}
+
+	@Override
+	protected void runBeforeTest() {
+		super.runBeforeTest();
+		if (sliced) {
+			startPhase("Slicer");
+			slicer = new ModelSlicer(getCnf());
+			stopPhase();
+		}
+	}
+
+	@Override
+	protected void runBeforeIterations() {
+		super.runBeforeIterations();
+		sliceSizes = 0L;
+		candidateSizes = 0L;
+		fallbacks = 0;
+	}
+
+	@Override
+	protected Set<Origin> runStep() {
+		final Collection<Origin> candidates = getCandidates();
+		enlargements = 0;
+		if (sliced) {
+			final List<Integer> seeds = getSeeds();
+			for (final int radius : new int[] { RADIUS, Integer.MAX_VALUE }) {
+				final Collection<Origin> slice = slicer.slice(seeds, candidates, radius);
+				if (slice.size() < candidates.size()) {
+					final Set<Origin> explanation = getOracle().getMinimalUnsatisfiableSubset(getAssumptions(), slice, getStrategy());
+					if (explanation != null) {
+						sliceSize = slice.size();
+						return explanation;
+					}
+				}
+				enlargements++;
+			}
+		}
+		sliceSize = candidates.size();
+		return getOracle().getMinimalUnsatisfiableSubset(getAssumptions(), candidates, getStrategy());
+	}
+
+	/**
+	 * Returns the variables of the subject of the current defect.
+	 * 
+	 * @return the seed variables of the slice; not null
+	 */
+	private List<Integer> getSeeds() {
+		final List<Integer> seeds = new ArrayList<>();
+		final Object subject = getDefectSubject();
+		switch (getDefectKind()) {
+		case VOID_FEATURE_MODEL:
+		case DEAD_FEATURE:
+			seeds.add(getCnf().getVariable((IFeature) subject));
+			break;
+		case FALSE_OPTIONAL_FEATURE:
+			final IFeature f = (IFeature) subject;
+			seeds.add(getCnf().getVariable(f));
+			seeds.add(getCnf().getVariable(f.getStructure().getParent().getFeature()));
+			break;
+		case REDUNDANT_CONSTRAINT:
+			seeds.addAll(slicer.getVariables(getCnf().getOrigin((IConstraint) subject)));
+			break;
+		default:
+			throw new IllegalStateException("Unknown defect kind");
+		}
+		return seeds;
+	}
+
+	@Override
+	protected int getReasonCount(Set<Origin> result) {
+		return result.size();
+	}
+
+	@Override
+	protected void runAfterTest() {
+		super.runAfterTest();
+		slicer = null;
+	}
+
+	@Override
+	protected void measureStep(MeasurementBuffer measurement) {
+		super.measureStep(measurement);
+		final int candidates = getCandidates().size();
+		sliceSizes += sliceSize;
+		candidateSizes += candidates;
+		if (sliced && sliceSize == candidates) {
+			fallbacks++;
+		}
+		measurement.put("Candidates", candidates);
+		measurement.put("Slice", sliceSize);
+		measurement.put("Enlargements", enlargements);
+	}
+
+	@Override
+	public Map<String, Object> getTestResults() {
+		final Map<String, Object> results = super.getTestResults();
+		results.put("Avg Slice", (double) sliceSizes / Math.max(1L, candidateSizes));
+		results.put("Fallbacks", fallbacks);
+		return results;
+	}
+
+	/**
+	 * Runs the tests.
+	 * 
+	 * @param args unused
+	 */
+	public static void main(String[] args) {
+		final List<Test> tests = new LinkedList<>();
+		for (final String projectName : Arrays.asList(
+				"SortingLine",
+				"PPU",
+				"Violet",
+				"uClibc",
+				"E-Shop",
+				"UClibc-Base",
+				"WaterlooGenerated",
+				"Busybox_1.18.0",
+				"XSEngine",
+				"uClibc-Distribution",
+				"Automotive01")) {
+			for (final boolean sliced : new boolean[] { true, false }) {
+				tests.add(new SlicedExplanationTest(projectName, "model", ShrinkingStrategy.QUICKXPLAIN, sliced, ITERATIONS));
+			}
+		}
+		new TestRunner().run(tests);
+	}
+}
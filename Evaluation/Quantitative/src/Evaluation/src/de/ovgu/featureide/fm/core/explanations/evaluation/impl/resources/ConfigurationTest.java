@@ -5,10 +5,15 @@ import java.nio.file.Paths;
 import java.util.Map;
 
 import de.ovgu.featureide.fm.core.configuration.Configuration;
+import de.ovgu.featureide.fm.core.configuration.Selection;
+import de.ovgu.featureide.fm.core.explanations.evaluation.archive.ConfigurationArchive;
 import de.ovgu.featureide.fm.core.io.manager.ConfigurationManager;
 
 /**
  * A test involving a {@link Configuration configuration}.
+ * If the project has a {@link ConfigurationArchive configuration archive} containing the configuration, it is read from there.
+ * Like the configuration reader, this sets all manual selections before propagating them once.
+ * Otherwise, or if the archive was written for different features or cannot be read, the configuration file is parsed.
  * 
  * @param <R> the type of the results of each step
  * @author Timo G&uuml;nther
@@ -58,8 +63,30 @@ public abstract class ConfigurationTest<R> extends FeatureModelTest<R> {
 		super.runBeforeTest();
 		final File configDir = new File(getProjectDir(), "configs");
 		final File configFile = new File(configDir, getConfigurationName() + ".config");
-		config = new Configuration(getFeatureModel());
-		config = ConfigurationManager.load(Paths.get(configFile.getPath()), config).getObject();
+		final File archiveFile = new File(getProjectDir(), ConfigurationArchive.FILE_NAME);
+		startPhase("Config Load");
+		config = null;
+		if (archiveFile.exists()) {
+			try (ConfigurationArchive archive = new ConfigurationArchive(archiveFile)) {
+				final int k = archive.indexOf(getConfigurationName());
+				if (k >= 0 && archive.matches(getFeatureModel())) {
+					config = new Configuration(getFeatureModel());
+					config.setPropagate(false);
+					for (final String name : archive.getSelectedNames(k)) {
+						config.setManual(name, Selection.SELECTED);
+					}
+					config.setPropagate(true);
+					config.update();
+				}
+			} catch (IllegalArgumentException | IllegalStateException e) {
+				config = null;
+			}
+		}
+		if (config == null) {
+			config = new Configuration(getFeatureModel());
+			config = ConfigurationManager.load(Paths.get(configFile.getPath()), config).getObject();
+		}
+		stopPhase();
 	}
 
 	@Override
@@ -2,13 +2,26 @@ package de.ovgu.featureide.fm.core.explanations.evaluation.impl.resources;
 
 import java.io.File;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.Map;
 
 import de.ovgu.featureide.fm.core.base.IFeatureModel;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ComponentDecomposition;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ComponentDecomposition.Component;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.FeatureModelCnf;
 import de.ovgu.featureide.fm.core.io.manager.FeatureModelManager;
 
 /**
+ * <p>
  * A test involving a {@link IFeatureModel feature model}.
+ * </p>
+ * 
+ * <p>
+ * Besides the size of the feature model, the results include the sizes of its {@link ComponentDecomposition independent components}.
+ * They are computed after the test has run, outside of any phase, so they neither add to the setup duration nor to the heap usage of the phases.
+ * Tests that decompose the feature model anyway can {@link #setComponentDecomposition(ComponentDecomposition) pass on their decomposition} instead.
+ * The sizes count features only, not auxiliary variables of the CNF.
+ * </p>
  * 
  * @param <R> the type of the results of each step
  * @author Timo G&uuml;nther
@@ -24,6 +37,14 @@ public abstract class FeatureModelTest<R> extends ProjectTest<R> {
 	private int fs;
 	/** The number of constraints in the feature model. */
 	private int cs;
+	/** The number of features in the core of the feature model. */
+	private int core;
+	/** The number of independent components of the feature model below the core. */
+	private int components;
+	/** The number of features in the largest component, not counting auxiliary variables. */
+	private int maxComponent;
+	/** The decomposition of the feature model set by the test; null to decompose after the test. */
+	private ComponentDecomposition decomposition;
 
 	/**
 	 * Constructs a new instance of this class.
@@ -70,13 +91,65 @@ public abstract class FeatureModelTest<R> extends ProjectTest<R> {
 	@Override
 	protected void runBeforeTest() {
 		super.runBeforeTest();
+		startPhase("FM Load");
 		fm = getFeatureModel(getProjectName());
+		stopPhase();
 		fs = fm.getNumberOfFeatures();
 		cs = fm.getConstraintCount();
+		decomposition = null;
+	}
+
+	/**
+	 * Sets the decomposition of the feature model the component sizes are computed from.
+	 * This saves decomposing the feature model again after the test.
+	 * 
+	 * @param decomposition the decomposition of the whole feature model into components; not null
+	 */
+	protected void setComponentDecomposition(ComponentDecomposition decomposition) {
+		this.decomposition = decomposition;
+	}
+
+	/**
+	 * Computes the sizes of the components of the feature model.
+	 * The feature model is decomposed unless the test set a decomposition.
+	 */
+	private void measureComponents() {
+		if (decomposition == null) {
+			if (fm == null) {
+				return;
+			}
+			decomposition = new ComponentDecomposition(new FeatureModelCnf(fm));
+		}
+		final FeatureModelCnf cnf = decomposition.getCnf();
+		core = getFeatureCount(cnf, decomposition.getCore().getVariables());
+		components = decomposition.getComponents().size();
+		maxComponent = 0;
+		for (final Component component : decomposition.getComponents()) {
+			maxComponent = Math.max(maxComponent, getFeatureCount(cnf, component.getVariables()));
+		}
+		decomposition = null;
+	}
+
+	/**
+	 * Returns the number of the given variables that stand for features.
+	 * 
+	 * @param cnf the CNF; not null
+	 * @param variables the variables; not null
+	 * @return the number of features
+	 */
+	private static int getFeatureCount(FeatureModelCnf cnf, List<Integer> variables) {
+		int count = 0;
+		for (final int variable : variables) {
+			if (!cnf.isAuxiliary(variable)) {
+				count++;
+			}
+		}
+		return count;
 	}
 
 	@Override
 	protected void runAfterTest() {
+		measureComponents();
 		super.runAfterTest();
 		fm = null;
 	}
@@ -87,6 +160,9 @@ public abstract class FeatureModelTest<R> extends ProjectTest<R> {
 		results.put("FM", getFeatureModelName());
 		results.put("Fs", fs);
 		results.put("Cs", cs);
+		results.put("Core", core);
+		results.put("Components", components);
+		results.put("Max Component", maxComponent);
 		return results;
 	}
 }
@@ -1,12 +1,26 @@
 package de.ovgu.featureide.fm.core.explanations.evaluation.impl.resources;
 
 import java.io.File;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import de.ovgu.featureide.fm.core.explanations.evaluation.impl.TimingTest;
+import de.ovgu.featureide.fm.core.explanations.evaluation.jfr.FlightRecorderEvents;
+import de.ovgu.featureide.fm.core.explanations.evaluation.profiling.HeapPeakMonitor;
 
 /**
+ * <p>
  * A test using a project as input.
+ * </p>
+ * 
+ * <p>
+ * Preparing the test, such as loading and analyzing the inputs, can be divided into named phases.
+ * Unlike the steps, the phases are only run once per test.
+ * The duration and the peak heap usage of each phase are reported in the test results.
+ * The peak heap usage is the {@link HeapPeakMonitor peak of the total heap usage} during the phase.
+ * Since the heap is shared by the whole process, it includes uncollected garbage and the allocations of other threads.
+ * </p>
  * 
  * @param <R> the type of the results of each step
  * @author Timo G&uuml;nther
@@ -19,6 +33,19 @@ public abstract class ProjectTest<R> extends TimingTest<R> {
 	/** The name of the project. */
 	private final String projectName;
 
+	/** The duration of each finished phase by name. */
+	private final Map<String, Long> phaseDurations = new LinkedHashMap<>();
+	/** The peak heap usage during each finished phase by name. */
+	private final Map<String, Long> phaseHeaps = new LinkedHashMap<>();
+	/** Tracks the peak heap usage during each phase; listens to garbage collections for the whole test. */
+	private final HeapPeakMonitor heapMonitor = new HeapPeakMonitor();
+	/** The name of the current phase; null if there is none. */
+	private String phase;
+	/** The time when the current phase started. */
+	private long phaseStartTime;
+	/** The flight recorder event of the current phase; null if disabled. */
+	private Object phaseEvent;
+
 	/**
 	 * Constructs a new instance of this class.
 	 * 
@@ -67,10 +94,87 @@ public abstract class ProjectTest<R> extends TimingTest<R> {
 		return new File(getInDir(), projectName);
 	}
 
+	/**
+	 * Starts the phase with the given name.
+	 * Stops the current phase first if there is one.
+	 * 
+	 * @param name the name of the phase; not null
+	 */
+	protected void startPhase(String name) {
+		if (phase != null) {
+			stopPhase();
+		}
+		heapMonitor.startPhase();
+		phase = name;
+		phaseEvent = FlightRecorderEvents.beginPhase();
+		phaseStartTime = System.nanoTime();
+	}
+
+	/**
+	 * Stops the current phase.
+	 * The peak heap usage is the peak of the process-wide total heap usage during the phase.
+	 */
+	protected void stopPhase() {
+		final long duration = System.nanoTime() - phaseStartTime;
+		FlightRecorderEvents.endPhase(phaseEvent, phase, -1L);
+		phaseEvent = null;
+		final long heap = heapMonitor.stopPhase();
+		phaseDurations.put(phase, duration);
+		phaseHeaps.put(phase, heap);
+		phase = null;
+	}
+
+	/**
+	 * Returns the duration of the finished phase with the given name.
+	 * 
+	 * @param name the name of the phase; not null
+	 * @return the phase duration; -1 if there is no such phase
+	 */
+	public long getPhaseDuration(String name) {
+		final Long duration = phaseDurations.get(name);
+		return duration == null ? -1L : duration;
+	}
+
+	/**
+	 * Returns the total duration of all finished phases.
+	 * 
+	 * @return the total phase duration
+	 */
+	public long getTotalPhaseDuration() {
+		long total = 0L;
+		for (final long duration : phaseDurations.values()) {
+			total += duration;
+		}
+		return total;
+	}
+
+	@Override
+	public void run() {
+		heapMonitor.start();
+		try {
+			super.run();
+		} finally {
+			heapMonitor.stop();
+		}
+	}
+
+	@Override
+	protected void runBeforeTest() {
+		phaseDurations.clear();
+		phaseHeaps.clear();
+		phase = null;
+		super.runBeforeTest();
+	}
+
 	@Override
 	public Map<String, Object> getTestResults() {
 		final Map<String, Object> results = super.getTestResults();
 		results.put("Project", getProjectName());
+		for (final Entry<String, Long> e : phaseDurations.entrySet()) {
+			results.put(e.getKey() + " Dur", e.getValue());
+			results.put(e.getKey() + " Heap", phaseHeaps.get(e.getKey()));
+		}
+		results.put("Setup Dur", getTotalPhaseDuration());
 		return results;
 	}
 }
@@ -0,0 +1,116 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.jfr;
+
+/**
+ * <p>
+ * Emits Java Flight Recorder events for the steps of the tests and for the phases within.
+ * A run can then be recorded with flight recording enabled and analyzed offline, for example with Java Mission Control.
+ * </p>
+ * 
+ * <p>
+ * Java 7 has no public event API.
+ * Instead, the event types are defined at run time through the <code>jdk.jfr</code> API of newer virtual machines, accessed only by reflection.
+ * On virtual machines without that API, all methods silently do nothing.
+ * </p>
+ * 
+ * <p>
+ * Events are passed around as opaque handles so that callers never refer to the flight recorder API themselves.
+ * The values of an event are only computed if the event is actually written.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public final class FlightRecorderEvents {
+
+	/** The producer; null if the flight recorder API is not available. */
+	private static final FlightRecorderProducer PRODUCER = createProducer();
+
+	/**
+	 * Constructs a new instance of this class.
+	 */
+	private FlightRecorderEvents() {}
+
+	/**
+	 * Creates the producer.
+	 * 
+	 * @return the producer; null if the flight recorder API is not available
+	 */
+	private static FlightRecorderProducer createProducer() {
+		try {
+			return new FlightRecorderProducer();
+		} catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns true iff events are emitted.
+	 * 
+	 * @return true iff enabled
+	 */
+	public static boolean isEnabled() {
+		return PRODUCER != null;
+	}
+
+	/**
+	 * Begins a step event.
+	 * 
+	 * @return the event handle; null if disabled
+	 */
+	public static Object beginStep() {
+		return PRODUCER == null ? null : PRODUCER.beginStep();
+	}
+
+	/**
+	 * Ends the given step event.
+	 * 
+	 * @param event the event handle; null if disabled
+	 * @param test the name of the test
+	 * @param step the step number within the iteration
+	 * @param subject the subject of the step; null if unknown
+	 * @param oracle the name of the oracle; null if unknown
+	 * @param reasons the number of reasons in the result; negative if not explained
+	 * @param cold whether the step included lazy preparations, such as building the clauses of an oracle
+	 */
+	public static void endStep(Object event, String test, int step, Object subject, String oracle, int reasons, boolean cold) {
+		if (event == null) {
+			return;
+		}
+		PRODUCER.endStep(event, test, step, subject, oracle, reasons, cold);
+	}
+
+	/**
+	 * Begins a phase event.
+	 * 
+	 * @return the event handle; null if disabled
+	 */
+	public static Object beginPhase() {
+		return PRODUCER == null ? null : PRODUCER.beginPhase();
+	}
+
+	/**
+	 * Ends the given phase event.
+	 * 
+	 * @param event the event handle; null if disabled
+	 * @param phase the name of the phase
+	 * @param satCalls the number of satisfiability checks done during the phase; negative if unknown
+	 */
+	public static void endPhase(Object event, String phase, long satCalls) {
+		endPhase(event, phase, null, null, satCalls);
+	}
+
+	/**
+	 * Ends the given phase event.
+	 * 
+	 * @param event the event handle; null if disabled
+	 * @param phase the name of the phase
+	 * @param subject the subject of the phase; null if unknown
+	 * @param oracle the name of the oracle; null if unknown
+	 * @param satCalls the number of satisfiability checks done during the phase; negative if unknown
+	 */
+	public static void endPhase(Object event, String phase, Object subject, String oracle, long satCalls) {
+		if (event == null) {
+			return;
+		}
+		PRODUCER.endPhase(event, phase, subject, oracle, satCalls);
+	}
+}
@@ -0,0 +1,180 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.jfr;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Defines the event types with the flight recorder and creates events of them.
+ * </p>
+ * 
+ * <p>
+ * The event types are defined at run time using <code>jdk.jfr.EventFactory</code>.
+ * The flight recorder API is only accessed by reflection, so this compiles and loads on any virtual machine.
+ * Constructing an instance fails if the API is not available.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ * @see FlightRecorderEvents
+ */
+class FlightRecorderProducer {
+
+	/** The fields of the step event type in order. */
+	private static final String[] STEP_FIELDS = { "test", "step", "subject", "oracle", "reasons", "cold" };
+	/** The fields of the phase event type in order. */
+	private static final String[] PHASE_FIELDS = { "phase", "subject", "oracle", "satCalls" };
+
+	/** The factory of step events. */
+	private final Object stepFactory;
+	/** The factory of phase events. */
+	private final Object phaseFactory;
+	/** The method creating a new event from a factory. */
+	private final Method newEvent;
+	/** The method beginning the timing of an event. */
+	private final Method begin;
+	/** The method ending the timing of an event. */
+	private final Method end;
+	/** The method returning whether an event would be written. */
+	private final Method shouldCommit;
+	/** The method setting a field of an event by its index. */
+	private final Method set;
+	/** The method writing an event. */
+	private final Method commit;
+
+	/**
+	 * Constructs a new instance of this class and defines the event types.
+	 * 
+	 * @throws ReflectiveOperationException if the flight recorder API is not available
+	 */
+	FlightRecorderProducer() throws ReflectiveOperationException {
+		final Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+		final Class<?> eventClass = Class.forName("jdk.jfr.Event");
+		stepFactory = createFactory(factoryClass, "Step", "A single step of an evaluation test.",
+				STEP_FIELDS, new Class<?>[] { String.class, int.class, String.class, String.class, int.class, boolean.class });
+		phaseFactory = createFactory(factoryClass, "Phase", "A phase of preparing a test or of computing an explanation.",
+				PHASE_FIELDS, new Class<?>[] { String.class, String.class, String.class, long.class });
+		newEvent = factoryClass.getMethod("newEvent");
+		begin = eventClass.getMethod("begin");
+		end = eventClass.getMethod("end");
+		shouldCommit = eventClass.getMethod("shouldCommit");
+		set = eventClass.getMethod("set", int.class, Object.class);
+		commit = eventClass.getMethod("commit");
+	}
+
+	/**
+	 * Defines a new event type.
+	 * 
+	 * @param factoryClass the class of event factories; not null
+	 * @param name the name of the event type; not null
+	 * @param description the description of the event type; not null
+	 * @param fields the names of the fields; not null
+	 * @param types the types of the fields; not null
+	 * @return the event factory; not null
+	 * @throws ReflectiveOperationException if the flight recorder API is not available
+	 */
+	private static Object createFactory(Class<?> factoryClass, String name, String description, String[] fields, Class<?>[] types)
+			throws ReflectiveOperationException {
+		final Class<?> annotationClass = Class.forName("jdk.jfr.AnnotationElement");
+		final Class<?> valueClass = Class.forName("jdk.jfr.ValueDescriptor");
+		final Constructor<?> newAnnotation = annotationClass.getConstructor(Class.class, Object.class);
+		final Constructor<?> newValue = valueClass.getConstructor(Class.class, String.class);
+		final List<Object> annotations = Arrays.asList(
+				newAnnotation.newInstance(Class.forName("jdk.jfr.Name"), "de.ovgu.featureide.evaluation." + name),
+				newAnnotation.newInstance(Class.forName("jdk.jfr.Label"), name),
+				newAnnotation.newInstance(Class.forName("jdk.jfr.Description"), description),
+				newAnnotation.newInstance(Class.forName("jdk.jfr.Category"), new String[] { "FeatureIDE", "Evaluation" }),
+				newAnnotation.newInstance(Class.forName("jdk.jfr.StackTrace"), false));
+		final List<Object> values = new ArrayList<>(fields.length);
+		for (int i = 0; i < fields.length; i++) {
+			values.add(newValue.newInstance(types[i], fields[i]));
+		}
+		return factoryClass.getMethod("create", List.class, List.class).invoke(null, annotations, values);
+	}
+
+	/**
+	 * Begins a new step event.
+	 * 
+	 * @return the event; not null
+	 */
+	Object beginStep() {
+		return begin(stepFactory);
+	}
+
+	/**
+	 * Ends and commits the given step event.
+	 * 
+	 * @param event the event; not null
+	 * @param test the name of the test
+	 * @param step the step number within the iteration
+	 * @param subject the subject of the step; null if unknown
+	 * @param oracle the name of the oracle
+	 * @param reasons the number of reasons in the result
+	 * @param cold whether the step included lazy preparations
+	 */
+	void endStep(Object event, String test, int step, Object subject, String oracle, int reasons, boolean cold) {
+		end(event, test, step, subject == null ? null : String.valueOf(subject), oracle, reasons, cold);
+	}
+
+	/**
+	 * Begins a new phase event.
+	 * 
+	 * @return the event; not null
+	 */
+	Object beginPhase() {
+		return begin(phaseFactory);
+	}
+
+	/**
+	 * Ends and commits the given phase event.
+	 * 
+	 * @param event the event; not null
+	 * @param phase the name of the phase
+	 * @param subject the subject of the phase; null if unknown
+	 * @param oracle the name of the oracle; null if unknown
+	 * @param satCalls the number of satisfiability checks done during the phase
+	 */
+	void endPhase(Object event, String phase, Object subject, String oracle, long satCalls) {
+		end(event, phase, subject == null ? null : String.valueOf(subject), oracle, satCalls);
+	}
+
+	/**
+	 * Creates and begins a new event.
+	 * 
+	 * @param factory the event factory; not null
+	 * @return the event; not null
+	 */
+	private Object begin(Object factory) {
+		try {
+			final Object event = newEvent.invoke(factory);
+			begin.invoke(event);
+			return event;
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Ends the given event and commits it with the given values if it is to be written.
+	 * The values are only set if the event is actually written.
+	 * 
+	 * @param event the event; not null
+	 * @param values the values of the fields in order; not null
+	 */
+	private void end(Object event, Object... values) {
+		try {
+			end.invoke(event);
+			if ((Boolean) shouldCommit.invoke(event)) {
+				for (int i = 0; i < values.length; i++) {
+					set.invoke(event, i, values[i]);
+				}
+				commit.invoke(event);
+			}
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
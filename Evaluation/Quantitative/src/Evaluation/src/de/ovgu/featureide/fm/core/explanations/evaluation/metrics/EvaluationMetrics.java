@@ -0,0 +1,257 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * <p>
+ * Live metrics of a running evaluation.
+ * The tests feed the metrics from their step hooks.
+ * The metrics can be read through JMX once {@link #register() registered} or through a {@link PrometheusEndpoint Prometheus endpoint}.
+ * </p>
+ * 
+ * <p>
+ * Updating the metrics only involves atomic counters and volatile fields.
+ * Anything more expensive, such as converting the current subject to a string, is deferred until the metrics are read.
+ * When tests run in parallel, the current test and subject are those of whichever test updated them last.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class EvaluationMetrics implements EvaluationMetricsMBean {
+
+	/** The name of the MBean. */
+	public static final String OBJECT_NAME = "de.ovgu.featureide.fm.core.explanations.evaluation:type=EvaluationMetrics";
+
+	/** The singleton instance. */
+	private static final EvaluationMetrics INSTANCE = new EvaluationMetrics();
+
+	/** The number of tests started. */
+	private final AtomicLong testsStarted = new AtomicLong();
+	/** The number of tests finished. */
+	private final AtomicLong testsFinished = new AtomicLong();
+	/** The number of steps completed. */
+	private final AtomicLong stepsCompleted = new AtomicLong();
+	/** The total duration of all timed steps. */
+	private final AtomicLong stepDurationTotal = new AtomicLong();
+	/** The longest duration of any timed step. */
+	private final AtomicLong stepDurationMax = new AtomicLong();
+
+	/** The number of tests waiting to be run. */
+	private volatile int queueDepth;
+	/** The progress of the current test; null if there is none. */
+	private volatile TestProgress currentTest;
+	/** The subject of the most recent step. */
+	private volatile Object currentSubject;
+
+	/** Whether this has been registered as an MBean. */
+	private boolean registered;
+
+	/**
+	 * The progress of a single test.
+	 * The fields are replaced at once by replacing the whole object, so readers never see a mix of two tests.
+	 */
+	private static class TestProgress {
+
+		/** The start time while no step has started yet. */
+		private static final long NOT_STARTED = Long.MIN_VALUE;
+
+		/** The name of the test. */
+		private final String name;
+		/** The time when the first step of the test started; {@link #NOT_STARTED} if none has. */
+		private final AtomicLong startTime = new AtomicLong(NOT_STARTED);
+		/** The number of steps of the test completed so far. */
+		private final AtomicLong steps = new AtomicLong();
+
+		/**
+		 * Constructs a new instance of this class.
+		 * 
+		 * @param name the name of the test; not null
+		 */
+		public TestProgress(String name) {
+			this.name = name;
+		}
+	}
+
+	/**
+	 * Returns the singleton instance.
+	 * 
+	 * @return the instance; not null
+	 */
+	public static EvaluationMetrics getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Constructs a new instance of this class.
+	 */
+	private EvaluationMetrics() {}
+
+	/**
+	 * Registers this as an MBean with the platform MBean server unless already done.
+	 */
+	public synchronized void register() {
+		if (registered) {
+			return;
+		}
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			server.registerMBean(this, new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			throw new IllegalStateException(e);
+		}
+		registered = true;
+	}
+
+	/**
+	 * Called when a test starts.
+	 * 
+	 * @param name the name of the test; not null
+	 */
+	public void testStarted(String name) {
+		testsStarted.incrementAndGet();
+		currentTest = new TestProgress(name);
+		currentSubject = null;
+	}
+
+	/**
+	 * Called when a test finishes.
+	 */
+	public void testFinished() {
+		testsFinished.incrementAndGet();
+		currentTest = null;
+		currentSubject = null;
+	}
+
+	/**
+	 * Sets the number of tests waiting to be run.
+	 * 
+	 * @param queueDepth the queue depth
+	 */
+	public void setQueueDepth(int queueDepth) {
+		this.queueDepth = queueDepth;
+	}
+
+	/**
+	 * Called when a step starts.
+	 * The first step of a test starts the clock of the {@link #getExplanationsPerSecond() explanation rate}.
+	 */
+	public void stepStarted() {
+		final TestProgress test = currentTest;
+		if (test != null && test.startTime.get() == TestProgress.NOT_STARTED) {
+			test.startTime.compareAndSet(TestProgress.NOT_STARTED, System.nanoTime());
+		}
+	}
+
+	/**
+	 * Called when a step is completed.
+	 * 
+	 * @param subject the subject of the step; null if unknown
+	 */
+	public void stepCompleted(Object subject) {
+		stepsCompleted.incrementAndGet();
+		final TestProgress test = currentTest;
+		if (test != null) {
+			test.steps.incrementAndGet();
+		}
+		currentSubject = subject;
+	}
+
+	/**
+	 * Records the duration of a timed step.
+	 * 
+	 * @param duration the step duration in nanoseconds
+	 */
+	public void addStepDuration(long duration) {
+		stepDurationTotal.addAndGet(duration);
+		long max;
+		while (duration > (max = stepDurationMax.get())) {
+			if (stepDurationMax.compareAndSet(max, duration)) {
+				break;
+			}
+		}
+	}
+
+	@Override
+	public long getTestsStarted() {
+		return testsStarted.get();
+	}
+
+	@Override
+	public long getTestsFinished() {
+		return testsFinished.get();
+	}
+
+	@Override
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	@Override
+	public long getStepsCompleted() {
+		return stepsCompleted.get();
+	}
+
+	@Override
+	public long getStepDurationTotal() {
+		return stepDurationTotal.get();
+	}
+
+	@Override
+	public long getStepDurationMax() {
+		return stepDurationMax.get();
+	}
+
+	@Override
+	public double getExplanationsPerSecond() {
+		final TestProgress test = currentTest;
+		if (test == null) {
+			return 0.0;
+		}
+		final long startTime = test.startTime.get();
+		if (startTime == TestProgress.NOT_STARTED) {
+			return 0.0;
+		}
+		final long elapsed = System.nanoTime() - startTime;
+		if (elapsed <= 0) {
+			return 0.0;
+		}
+		return test.steps.get() * 1e9 / elapsed;
+	}
+
+	@Override
+	public String getCurrentTest() {
+		final TestProgress test = currentTest;
+		return test == null ? null : test.name;
+	}
+
+	@Override
+	public String getCurrentSubject() {
+		final Object subject = currentSubject;
+		return subject == null ? null : String.valueOf(subject);
+	}
+
+	@Override
+	public long getHeapUsed() {
+		return getMemory().getHeapMemoryUsage().getUsed();
+	}
+
+	@Override
+	public long getHeapMax() {
+		return getMemory().getHeapMemoryUsage().getMax();
+	}
+
+	/**
+	 * Returns the memory MXBean.
+	 * 
+	 * @return the memory MXBean; not null
+	 */
+	private static MemoryMXBean getMemory() {
+		return ManagementFactory.getMemoryMXBean();
+	}
+}
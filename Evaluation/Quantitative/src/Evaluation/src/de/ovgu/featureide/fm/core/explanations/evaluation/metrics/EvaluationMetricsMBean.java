@@ -0,0 +1,88 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.metrics;
+
+/**
+ * The management interface of the {@link EvaluationMetrics evaluation metrics}.
+ * 
+ * @author Timo G&uuml;nther
+ */
+public interface EvaluationMetricsMBean {
+
+	/**
+	 * Returns the number of tests started.
+	 * 
+	 * @return the number of started tests
+	 */
+	public long getTestsStarted();
+
+	/**
+	 * Returns the number of tests finished.
+	 * 
+	 * @return the number of finished tests
+	 */
+	public long getTestsFinished();
+
+	/**
+	 * Returns the number of tests waiting to be run.
+	 * 
+	 * @return the queue depth
+	 */
+	public int getQueueDepth();
+
+	/**
+	 * Returns the number of steps completed in all tests.
+	 * 
+	 * @return the number of completed steps
+	 */
+	public long getStepsCompleted();
+
+	/**
+	 * Returns the total duration of all timed steps in nanoseconds.
+	 * 
+	 * @return the total step duration
+	 */
+	public long getStepDurationTotal();
+
+	/**
+	 * Returns the longest duration of any timed step in nanoseconds.
+	 * 
+	 * @return the maximum step duration
+	 */
+	public long getStepDurationMax();
+
+	/**
+	 * Returns the number of steps completed per second since the first step of the current test started.
+	 * The setup of the test before its first step is not included.
+	 * Each step typically yields one explanation.
+	 * 
+	 * @return the explanations per second
+	 */
+	public double getExplanationsPerSecond();
+
+	/**
+	 * Returns the name of the current test.
+	 * 
+	 * @return the test name; null if no test is running
+	 */
+	public String getCurrentTest();
+
+	/**
+	 * Returns the subject of the most recent step.
+	 * 
+	 * @return the subject; null if unknown
+	 */
+	public String getCurrentSubject();
+
+	/**
+	 * Returns the used heap memory in bytes.
+	 * 
+	 * @return the used heap memory
+	 */
+	public long getHeapUsed();
+
+	/**
+	 * Returns the maximum heap memory in bytes.
+	 * 
+	 * @return the maximum heap memory; -1 if undefined
+	 */
+	public long getHeapMax();
+}
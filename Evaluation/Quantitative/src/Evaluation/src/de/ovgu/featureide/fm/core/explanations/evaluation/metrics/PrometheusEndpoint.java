@@ -0,0 +1,152 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the {@link EvaluationMetrics evaluation metrics} over HTTP in the Prometheus text format.
+ * The endpoint only listens on the loopback interface.
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class PrometheusEndpoint {
+
+	/** The path of the metrics. */
+	public static final String PATH = "/metrics";
+	/** The prefix of all metric names. */
+	private static final String PREFIX = "featureide_evaluation_";
+
+	/** The metrics to serve. */
+	private final EvaluationMetrics metrics;
+	/** The port to listen on. */
+	private final int port;
+
+	/** The server; null if not started. */
+	private volatile HttpServer server;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param metrics the metrics to serve; not null
+	 * @param port the port to listen on; 0 for any free port
+	 */
+	public PrometheusEndpoint(EvaluationMetrics metrics, int port) {
+		this.metrics = metrics;
+		this.port = port;
+	}
+
+	/**
+	 * Starts serving the metrics.
+	 * The server is started from a daemon thread so that its dispatcher thread is a daemon as well and does not keep the evaluation alive.
+	 */
+	public synchronized void start() {
+		if (server != null) {
+			return;
+		}
+		final HttpServer created;
+		try {
+			created = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		server = created;
+		created.createContext(PATH, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				final byte[] body = format().getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			}
+		});
+		final Thread t = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				created.start();
+			}
+		}, "PrometheusEndpoint");
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/**
+	 * Stops serving the metrics.
+	 */
+	public synchronized void stop() {
+		if (server == null) {
+			return;
+		}
+		server.stop(0);
+		server = null;
+	}
+
+	/**
+	 * Returns the port the server listens on.
+	 * 
+	 * @return the port; -1 if not started
+	 */
+	public synchronized int getPort() {
+		return server == null ? -1 : server.getAddress().getPort();
+	}
+
+	/**
+	 * Returns the metrics in the Prometheus text format.
+	 * 
+	 * @return the formatted metrics; not null
+	 */
+	public String format() {
+		final StringBuilder sb = new StringBuilder();
+		append(sb, "tests_started_total", "counter", "Number of tests started.", metrics.getTestsStarted());
+		append(sb, "tests_finished_total", "counter", "Number of tests finished.", metrics.getTestsFinished());
+		append(sb, "queue_depth", "gauge", "Number of tests waiting to be run.", metrics.getQueueDepth());
+		append(sb, "steps_completed_total", "counter", "Number of steps completed.", metrics.getStepsCompleted());
+		append(sb, "step_duration_seconds_total", "counter", "Total duration of all timed steps.", metrics.getStepDurationTotal() / 1e9);
+		append(sb, "step_duration_seconds_max", "gauge", "Longest duration of any timed step.", metrics.getStepDurationMax() / 1e9);
+		append(sb, "explanations_per_second", "gauge", "Steps completed per second since the first step of the current test.", metrics.getExplanationsPerSecond());
+		append(sb, "heap_used_bytes", "gauge", "Used heap memory.", metrics.getHeapUsed());
+		append(sb, "heap_max_bytes", "gauge", "Maximum heap memory.", metrics.getHeapMax());
+		final String test = metrics.getCurrentTest();
+		if (test != null) {
+			final String subject = metrics.getCurrentSubject();
+			final String labels = String.format("test=\"%s\",subject=\"%s\"", escape(test), escape(subject == null ? "" : subject));
+			sb.append("# HELP ").append(PREFIX).append("current_info The current test and subject.\n");
+			sb.append("# TYPE ").append(PREFIX).append("current_info gauge\n");
+			sb.append(PREFIX).append("current_info{").append(labels).append("} 1\n");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Appends a metric without labels.
+	 * 
+	 * @param sb the builder to append to; not null
+	 * @param name the name of the metric without the prefix; not null
+	 * @param type the type of the metric; not null
+	 * @param help the description of the metric; not null
+	 * @param value the value of the metric; not null
+	 */
+	private static void append(StringBuilder sb, String name, String type, String help, Number value) {
+		sb.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+		sb.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+		sb.append(PREFIX).append(name).append(' ').append(value).append('\n');
+	}
+
+	/**
+	 * Escapes the given label value.
+	 * 
+	 * @param value the label value; not null
+	 * @return the escaped label value; not null
+	 */
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
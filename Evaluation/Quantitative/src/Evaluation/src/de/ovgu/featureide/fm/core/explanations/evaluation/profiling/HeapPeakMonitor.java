@@ -0,0 +1,191 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.profiling;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+/**
+ * <p>
+ * Tracks the peak of the total heap usage during each phase between {@link #startPhase() startPhase} and {@link #stopPhase() stopPhase}.
+ * The garbage collection listener is registered once between {@link #start() start} and {@link #stop() stop},
+ * so that phases can follow each other without registering and removing listeners in between.
+ * </p>
+ * 
+ * <p>
+ * The heap usage is sampled when a phase starts and stops and right before each garbage collection.
+ * The garbage collectors report the usage of all heap memory pools at the same instant, so each sample is a consistent total.
+ * Since the heap only shrinks by collecting garbage, the usage right before a collection is a local maximum.
+ * Unlike summing the peaks of the individual memory pools, this does not add up peaks reached at different times.
+ * </p>
+ * 
+ * <p>
+ * The notifications are sent asynchronously, possibly after the phase of the collection has already ended.
+ * Each collection is thus attributed to a phase by its start time as reported by the collector rather than by the time its notification arrives.
+ * Collections whose notifications are still pending when a phase stops are covered by the final sample only.
+ * </p>
+ * 
+ * <p>
+ * The heap is shared by the whole process.
+ * Thus, the peak includes garbage not collected yet as well as the allocations of all other threads.
+ * The notifications are read from the open data of the standard <code>com.sun.management</code> garbage collection notification,
+ * so this compiles without vendor-specific classes.
+ * Virtual machines not sending these notifications only sample when phases start and stop.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class HeapPeakMonitor implements NotificationListener {
+
+	/** The type of the notification sent after each garbage collection. */
+	private static final String GC_NOTIFICATION = "com.sun.management.gc.notification";
+	/** The phase start time while no phase is in progress. */
+	private static final long NO_PHASE = Long.MAX_VALUE;
+
+	/** The names of the heap memory pools. */
+	private final Set<String> heapPools = new HashSet<>();
+	/** The peak of the total heap usage in bytes since the current phase started. */
+	private final AtomicLong peak = new AtomicLong();
+	/** The uptime of the virtual machine in milliseconds when the current phase started; {@link #NO_PHASE} if there is none. */
+	private volatile long phaseStart = NO_PHASE;
+	/** Whether the listener is registered. */
+	private boolean started;
+
+	/**
+	 * Constructs a new instance of this class.
+	 */
+	public HeapPeakMonitor() {
+		for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				heapPools.add(pool.getName());
+			}
+		}
+	}
+
+	/**
+	 * Starts listening to garbage collections.
+	 * Does nothing if already started.
+	 */
+	public void start() {
+		if (started) {
+			return;
+		}
+		for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			if (gc instanceof NotificationEmitter) {
+				((NotificationEmitter) gc).addNotificationListener(this, null, null);
+			}
+		}
+		started = true;
+	}
+
+	/**
+	 * Stops listening to garbage collections.
+	 * Does nothing if not started.
+	 */
+	public void stop() {
+		if (!started) {
+			return;
+		}
+		for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			if (gc instanceof NotificationEmitter) {
+				try {
+					((NotificationEmitter) gc).removeNotificationListener(this);
+				} catch (ListenerNotFoundException e) {
+					// the collector was added while listening
+				}
+			}
+		}
+		started = false;
+	}
+
+	/**
+	 * Starts a phase.
+	 * Only collections starting from now on count towards its peak.
+	 */
+	public void startPhase() {
+		peak.set(getHeapUsed());
+		phaseStart = getUptime();
+	}
+
+	/**
+	 * Stops the current phase.
+	 * 
+	 * @return the peak of the total heap usage in bytes during the phase
+	 */
+	public long stopPhase() {
+		update(getHeapUsed());
+		phaseStart = NO_PHASE;
+		return peak.get();
+	}
+
+	/**
+	 * Returns the peak of the total heap usage in bytes since the current phase started.
+	 * 
+	 * @return the peak heap usage
+	 */
+	public long getPeak() {
+		return peak.get();
+	}
+
+	@Override
+	public void handleNotification(Notification notification, Object handback) {
+		if (!GC_NOTIFICATION.equals(notification.getType()) || !(notification.getUserData() instanceof CompositeData)) {
+			return;
+		}
+		final CompositeData gcInfo = (CompositeData) ((CompositeData) notification.getUserData()).get("gcInfo");
+		if ((Long) gcInfo.get("startTime") < phaseStart) {
+			return;
+		}
+		final TabularData before = (TabularData) gcInfo.get("memoryUsageBeforeGc");
+		long used = 0L;
+		for (final Object row : before.values()) {
+			final CompositeData entry = (CompositeData) row;
+			if (heapPools.contains(entry.get("key"))) {
+				used += MemoryUsage.from((CompositeData) entry.get("value")).getUsed();
+			}
+		}
+		update(used);
+	}
+
+	/**
+	 * Raises the peak to the given heap usage if it is higher.
+	 * 
+	 * @param used the total heap usage in bytes
+	 */
+	private void update(long used) {
+		long current;
+		do {
+			current = peak.get();
+		} while (used > current && !peak.compareAndSet(current, used));
+	}
+
+	/**
+	 * Returns the current total heap usage.
+	 * 
+	 * @return the used heap memory in bytes
+	 */
+	private static long getHeapUsed() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * Returns the uptime of the virtual machine.
+	 * This is the clock of the start times reported by the garbage collectors.
+	 * 
+	 * @return the uptime in milliseconds
+	 */
+	private static long getUptime() {
+		return ManagementFactory.getRuntimeMXBean().getUptime();
+	}
+}
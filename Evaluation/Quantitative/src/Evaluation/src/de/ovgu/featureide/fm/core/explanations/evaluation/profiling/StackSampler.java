@@ -0,0 +1,221 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.profiling;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * Periodically samples the stack trace of a single thread and aggregates the samples in collapsed-stack format.
+ * Each line of that format contains the frames of a stack from the root to the leaf, separated by semicolons, followed by the number of samples of that stack.
+ * Tools such as <code>flamegraph.pl</code> turn this into a flame graph.
+ * </p>
+ * 
+ * <p>
+ * Sampling only uses the {@link ThreadMXBean} and thus works on any virtual machine.
+ * Unlike a native profiler, it can only take samples at safepoints, which biases the samples towards some frames.
+ * The samples count wall-clock time, including time spent waiting.
+ * </p>
+ * 
+ * <p>
+ * Samples are only recorded while the sampled thread has {@link #resume() resumed} sampling.
+ * This lets a test restrict the samples to the measured parts of its execution.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class StackSampler implements Runnable {
+
+	/** The samplers of all sampled threads. */
+	private static final Map<Thread, StackSampler> SAMPLERS = new ConcurrentHashMap<>();
+
+	/** The thread to sample. */
+	private final Thread target;
+	/** The time between two samples in milliseconds. */
+	private final long interval;
+	/** The thread management interface. */
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	/** The number of samples of each collapsed stack. */
+	private final Map<String, Long> stacks = new HashMap<>();
+
+	/** The thread taking the samples; null if not started. */
+	private Thread sampler;
+	/** Whether samples are currently recorded. */
+	private volatile boolean active;
+	/** Whether sampling has been stopped. */
+	private volatile boolean stopped;
+	/** The number of samples recorded. */
+	private long samples;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param target the thread to sample; not null
+	 * @param interval the time between two samples in milliseconds; positive
+	 */
+	public StackSampler(Thread target, long interval) {
+		if (interval <= 0) {
+			throw new IllegalArgumentException("Interval must be positive");
+		}
+		this.target = target;
+		this.interval = interval;
+	}
+
+	/**
+	 * Returns the sampler of the given thread.
+	 * 
+	 * @param thread the sampled thread; not null
+	 * @return the sampler; null if the thread is not sampled
+	 */
+	public static StackSampler get(Thread thread) {
+		return SAMPLERS.get(thread);
+	}
+
+	/**
+	 * Starts recording samples of the current thread.
+	 * Does nothing if the current thread is not sampled.
+	 */
+	public static void resume() {
+		final StackSampler s = SAMPLERS.get(Thread.currentThread());
+		if (s != null) {
+			s.active = true;
+		}
+	}
+
+	/**
+	 * Stops recording samples of the current thread.
+	 * Does nothing if the current thread is not sampled.
+	 */
+	public static void pause() {
+		final StackSampler s = SAMPLERS.get(Thread.currentThread());
+		if (s != null) {
+			s.active = false;
+		}
+	}
+
+	/**
+	 * Starts sampling.
+	 * Must be called before the target thread would first {@link #resume() resume} sampling.
+	 */
+	public synchronized void start() {
+		if (sampler != null) {
+			return;
+		}
+		SAMPLERS.put(target, this);
+		sampler = new Thread(this, "StackSampler-" + target.getName());
+		sampler.setDaemon(true);
+		sampler.start();
+	}
+
+	/**
+	 * Stops sampling and waits for the sampling thread to end.
+	 */
+	public void stop() {
+		final Thread t;
+		synchronized (this) {
+			if (sampler == null || stopped) {
+				return;
+			}
+			stopped = true;
+			active = false;
+			SAMPLERS.remove(target);
+			t = sampler;
+		}
+		t.interrupt();
+		try {
+			t.join();
+		} catch (InterruptedException e) {}
+	}
+
+	@Override
+	public void run() {
+		while (!stopped) {
+			try {
+				Thread.sleep(interval);
+			} catch (InterruptedException e) {
+				break;
+			}
+			if (!active) {
+				continue;
+			}
+			final ThreadInfo info = threads.getThreadInfo(target.getId(), Integer.MAX_VALUE);
+			if (info == null || !active) {
+				continue;
+			}
+			record(info.getStackTrace());
+		}
+	}
+
+	/**
+	 * Records a sample of the given stack.
+	 * 
+	 * @param trace the stack trace with the leaf first; not null
+	 */
+	private synchronized void record(StackTraceElement[] trace) {
+		if (trace.length == 0) {
+			return;
+		}
+		final StringBuilder sb = new StringBuilder();
+		for (int i = trace.length - 1; i >= 0; i--) {
+			if (sb.length() > 0) {
+				sb.append(';');
+			}
+			sb.append(trace[i].getClassName()).append('.').append(trace[i].getMethodName());
+		}
+		final String stack = sb.toString();
+		final Long count = stacks.get(stack);
+		stacks.put(stack, count == null ? 1L : count + 1L);
+		samples++;
+	}
+
+	/**
+	 * Returns the number of samples recorded so far.
+	 * 
+	 * @return the number of samples
+	 */
+	public synchronized long getSampleCount() {
+		return samples;
+	}
+
+	/**
+	 * Returns the samples recorded so far in collapsed-stack format.
+	 * The stacks are sorted so that the output is stable.
+	 * 
+	 * @return the collapsed stacks, one per line; not null
+	 */
+	public synchronized List<String> getCollapsedStacks() {
+		final List<String> lines = new ArrayList<>(stacks.size());
+		for (final Entry<String, Long> e : stacks.entrySet()) {
+			lines.add(e.getKey() + " " + e.getValue());
+		}
+		Collections.sort(lines);
+		return lines;
+	}
+
+	/**
+	 * Writes the samples recorded so far in collapsed-stack format to the given file.
+	 * 
+	 * @param file the file to write to; not null
+	 */
+	public void write(File file) {
+		final List<String> lines = getCollapsedStacks();
+		file.getAbsoluteFile().getParentFile().mkdirs();
+		try (PrintWriter out = new PrintWriter(file)) {
+			for (final String line : lines) {
+				out.println(line);
+			}
+		} catch (FileNotFoundException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.results;
+
+import java.util.Arrays;
+
+/**
+ * Summary statistics of a sample of numbers.
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class Aggregate {
+
+	/** The values in ascending order. */
+	private final double[] sorted;
+	/** The sum of the values. */
+	private final double sum;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param values the values; not null
+	 */
+	public Aggregate(double[] values) {
+		sorted = values.clone();
+		Arrays.sort(sorted);
+		double sum = 0;
+		for (final double value : sorted) {
+			sum += value;
+		}
+		this.sum = sum;
+	}
+
+	/**
+	 * Returns the number of values.
+	 * 
+	 * @return the count
+	 */
+	public int getCount() {
+		return sorted.length;
+	}
+
+	/**
+	 * Returns the sum of the values.
+	 * 
+	 * @return the sum
+	 */
+	public double getSum() {
+		return sum;
+	}
+
+	/**
+	 * Returns the arithmetic mean of the values.
+	 * 
+	 * @return the mean; NaN if there are no values
+	 */
+	public double getMean() {
+		return sorted.length == 0 ? Double.NaN : sum / sorted.length;
+	}
+
+	/**
+	 * Returns the smallest value.
+	 * 
+	 * @return the minimum; NaN if there are no values
+	 */
+	public double getMin() {
+		return sorted.length == 0 ? Double.NaN : sorted[0];
+	}
+
+	/**
+	 * Returns the greatest value.
+	 * 
+	 * @return the maximum; NaN if there are no values
+	 */
+	public double getMax() {
+		return sorted.length == 0 ? Double.NaN : sorted[sorted.length - 1];
+	}
+
+	/**
+	 * Returns the median of the values.
+	 * 
+	 * @return the median; NaN if there are no values
+	 */
+	public double getMedian() {
+		if (sorted.length == 0) {
+			return Double.NaN;
+		}
+		final int mid = sorted.length / 2;
+		return sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2;
+	}
+
+	/**
+	 * Returns the given percentile of the values using the nearest-rank method.
+	 * 
+	 * @param percentile the percentile; between 0 and 100
+	 * @return the value at the percentile; NaN if there are no values
+	 */
+	public double getPercentile(double percentile) {
+		if (sorted.length == 0) {
+			return Double.NaN;
+		}
+		final int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+		return sorted[Math.max(0, rank - 1)];
+	}
+
+	@Override
+	public String toString() {
+		return String.format("n=%d, median=%.3f, p90=%.3f, p99=%.3f, mean=%.3f", getCount(), getMedian(), getPercentile(90), getPercentile(99), getMean());
+	}
+}
@@ -0,0 +1,133 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.results;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * <p>
+ * The Mann-Whitney U test of whether two samples come from the same distribution.
+ * Unlike a t-test, this makes no assumption about the distribution, which suits skewed step durations.
+ * </p>
+ * 
+ * <p>
+ * The p-value is two-sided and uses the normal approximation with a correction for ties.
+ * This is accurate for the sample sizes of an evaluation run, where each sample has many steps.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class MannWhitney {
+
+	/** The U statistic of the first sample. */
+	private final double u;
+	/** The standard score of the U statistic. */
+	private final double z;
+	/** The two-sided p-value. */
+	private final double p;
+
+	/**
+	 * Constructs a new instance of this class and runs the test.
+	 * 
+	 * @param a the first sample; not null
+	 * @param b the second sample; not null
+	 */
+	public MannWhitney(double[] a, double[] b) {
+		final int n1 = a.length;
+		final int n2 = b.length;
+		if (n1 == 0 || n2 == 0) {
+			u = Double.NaN;
+			z = Double.NaN;
+			p = Double.NaN;
+			return;
+		}
+		final int n = n1 + n2;
+		final double[] values = new double[n];
+		final boolean[] first = new boolean[n];
+		final Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = i < n1 ? a[i] : b[i - n1];
+			first[i] = i < n1;
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer i, Integer j) {
+				return Double.compare(values[i], values[j]);
+			}
+		});
+
+		double rankSum = 0;
+		double ties = 0;
+		for (int i = 0; i < n;) {
+			int j = i + 1;
+			while (j < n && values[order[j]] == values[order[i]]) {
+				j++;
+			}
+			final double rank = (i + 1 + j) / 2.0; // average of the ranks i+1 to j
+			for (int k = i; k < j; k++) {
+				if (first[order[k]]) {
+					rankSum += rank;
+				}
+			}
+			final double t = j - i;
+			ties += t * t * t - t;
+			i = j;
+		}
+		u = rankSum - n1 * (n1 + 1) / 2.0;
+		final double mean = (double) n1 * n2 / 2;
+		final double variance = (double) n1 * n2 / 12 * ((n + 1) - ties / ((double) n * (n - 1)));
+		if (variance <= 0) {
+			z = 0;
+			p = 1;
+			return;
+		}
+		final double diff = u - mean;
+		z = (diff - Math.signum(diff) * 0.5) / Math.sqrt(variance); // continuity correction
+		p = Math.min(1, erfc(Math.abs(z) / Math.sqrt(2)));
+	}
+
+	/**
+	 * Returns the U statistic of the first sample.
+	 * 
+	 * @return the U statistic; NaN if a sample is empty
+	 */
+	public double getU() {
+		return u;
+	}
+
+	/**
+	 * Returns the standard score of the U statistic.
+	 * Positive values mean that the first sample tends to be greater.
+	 * 
+	 * @return the standard score; NaN if a sample is empty
+	 */
+	public double getZ() {
+		return z;
+	}
+
+	/**
+	 * Returns the two-sided p-value.
+	 * 
+	 * @return the p-value; NaN if a sample is empty
+	 */
+	public double getP() {
+		return p;
+	}
+
+	/**
+	 * Returns the complementary error function of the given value.
+	 * This uses a Chebyshev approximation with a relative error below 1.2e-7.
+	 * 
+	 * @param x the value
+	 * @return the complementary error function
+	 */
+	private static double erfc(double x) {
+		final double z = Math.abs(x);
+		final double t = 1 / (1 + 0.5 * z);
+		final double ans = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+				+ t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+						+ t * (-0.82215223 + t * 0.17087277)))))))));
+		return x >= 0 ? ans : 2 - ans;
+	}
+}
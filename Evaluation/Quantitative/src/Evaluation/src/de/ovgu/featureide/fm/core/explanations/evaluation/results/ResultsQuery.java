@@ -0,0 +1,503 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.results;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * <p>
+ * Queries a file written by a {@link ResultsStore results store}.
+ * </p>
+ * 
+ * <p>
+ * Opening the file only reads the test records and the headers of the step records.
+ * This builds an index from each test to the location of each of its columns.
+ * A query then only reads the columns it needs.
+ * Tests are selected and grouped by their results, such as <code>Project</code> and <code>Oracle</code>.
+ * </p>
+ * 
+ * <p>
+ * By default, only the records of the latest run are queried.
+ * If all runs are queried and a test was stored several times, its step measurements accumulate and its latest results are used.
+ * If the last record is incomplete, for example because the run was interrupted while writing it, it is ignored.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ResultsQuery implements Closeable {
+
+	/**
+	 * The location of a column of a chunk of step measurements.
+	 */
+	private static class ColumnRef {
+
+		/** The type of the column. */
+		private final byte type;
+		/** The number of rows. */
+		private final int rows;
+		/** The position of the data in the file. */
+		private final long position;
+		/** The length of the data in bytes. */
+		private final int length;
+
+		/**
+		 * Constructs a new instance of this class.
+		 * 
+		 * @param type the type of the column
+		 * @param rows the number of rows
+		 * @param position the position of the data in the file
+		 * @param length the length of the data in bytes
+		 */
+		public ColumnRef(byte type, int rows, long position, int length) {
+			this.type = type;
+			this.rows = rows;
+			this.position = position;
+			this.length = length;
+		}
+	}
+
+	/** The run to query the latest run. */
+	public static final long LATEST_RUN = -1L;
+	/** The run to query all runs. */
+	public static final long ALL_RUNS = -2L;
+
+	/** The channel of the file. */
+	private final FileChannel channel;
+	/** The ids of all runs in the file in ascending order. */
+	private final TreeSet<Long> runs = new TreeSet<>();
+	/** The queried run; {@link #ALL_RUNS} for all runs. */
+	private final long run;
+	/** The results of each test by its key. */
+	private final Map<String, Map<String, String>> tests = new LinkedHashMap<>();
+	/** The locations of each column of each test by its key and the column name. */
+	private final Map<String, Map<String, List<ColumnRef>>> columns = new LinkedHashMap<>();
+
+	/**
+	 * Constructs a new instance of this class and indexes the latest run in the given file.
+	 * 
+	 * @param file the file written by a results store; not null
+	 */
+	public ResultsQuery(File file) {
+		this(file, LATEST_RUN);
+	}
+
+	/**
+	 * Constructs a new instance of this class and indexes the given run in the given file.
+	 * 
+	 * @param file the file written by a results store; not null
+	 * @param run the id of the run to query, {@link #LATEST_RUN} or {@link #ALL_RUNS}
+	 */
+	public ResultsQuery(File file, long run) {
+		try {
+			channel = new RandomAccessFile(file, "r").getChannel();
+			collectRuns();
+			this.run = run == LATEST_RUN ? (runs.isEmpty() ? ALL_RUNS : runs.last()) : run;
+			index();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Collects the ids of all runs in the file.
+	 * 
+	 * @throws IOException if reading fails
+	 */
+	private void collectRuns() throws IOException {
+		final long size = channel.size();
+		long position = 0;
+		while (position + 5 <= size) {
+			final ByteBuffer header = read(position, 5);
+			header.get();
+			final int length = header.getInt();
+			final long payload = position + 5;
+			if (length < 8 || payload + length > size) {
+				break; // incomplete record
+			}
+			runs.add(readLong(payload));
+			position = payload + length;
+		}
+	}
+
+	/**
+	 * Reads the test records and the headers of the step records.
+	 * 
+	 * @throws IOException if reading fails
+	 */
+	private void index() throws IOException {
+		final long size = channel.size();
+		long position = 0;
+		while (position + 5 <= size) {
+			final ByteBuffer header = read(position, 5);
+			final byte kind = header.get();
+			final int length = header.getInt();
+			final long payload = position + 5;
+			if (length < 8 || payload + length > size) {
+				break; // incomplete record
+			}
+			if (run == ALL_RUNS || readLong(payload) == run) {
+				try {
+					if (kind == ResultsStore.TEST) {
+						indexTest(read(payload + 8, length - 8));
+					} else if (kind == ResultsStore.STEPS) {
+						indexSteps(payload + 8);
+					}
+				} catch (EOFException e) {
+					break; // incomplete record
+				}
+			}
+			position = payload + length;
+		}
+	}
+
+	/**
+	 * Indexes a test record.
+	 * 
+	 * @param payload the payload of the record; not null
+	 */
+	private void indexTest(ByteBuffer payload) {
+		final String test = readString(payload);
+		final int count = payload.getInt();
+		final Map<String, String> results = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++) {
+			final String key = readString(payload);
+			results.put(key, readString(payload));
+		}
+		tests.put(test, results);
+	}
+
+	/**
+	 * Indexes a steps record.
+	 * 
+	 * @param position the position of the payload of the record
+	 * @throws IOException if reading fails
+	 */
+	private void indexSteps(long position) throws IOException {
+		final String test = readString(position);
+		position += 4 + readInt(position);
+		final int rows = readInt(position);
+		final int count = readInt(position + 4);
+		position += 8;
+		final List<String> names = new ArrayList<>(count);
+		final byte[] types = new byte[count];
+		for (int i = 0; i < count; i++) {
+			final String name = readString(position);
+			position += 4 + readInt(position);
+			names.add(name);
+			types[i] = read(position, 1).get();
+			position++;
+		}
+		Map<String, List<ColumnRef>> testColumns = columns.get(test);
+		if (testColumns == null) {
+			testColumns = new LinkedHashMap<>();
+			columns.put(test, testColumns);
+		}
+		for (int i = 0; i < count; i++) {
+			final int length = readInt(position);
+			position += 4;
+			List<ColumnRef> refs = testColumns.get(names.get(i));
+			if (refs == null) {
+				refs = new ArrayList<>();
+				testColumns.put(names.get(i), refs);
+			}
+			refs.add(new ColumnRef(types[i], rows, position, length));
+			position += length;
+		}
+	}
+
+	/**
+	 * Reads the given number of bytes at the given position.
+	 * 
+	 * @param position the position in the file
+	 * @param length the number of bytes
+	 * @return the bytes; not null
+	 * @throws IOException if reading fails
+	 */
+	private ByteBuffer read(long position, int length) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException();
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Reads a long at the given position.
+	 * 
+	 * @param position the position in the file
+	 * @return the long
+	 * @throws IOException if reading fails
+	 */
+	private long readLong(long position) throws IOException {
+		return read(position, 8).getLong();
+	}
+
+	/**
+	 * Reads an integer at the given position.
+	 * 
+	 * @param position the position in the file
+	 * @return the integer
+	 * @throws IOException if reading fails
+	 */
+	private int readInt(long position) throws IOException {
+		return read(position, 4).getInt();
+	}
+
+	/**
+	 * Reads a string at the given position.
+	 * 
+	 * @param position the position in the file
+	 * @return the string; not null
+	 * @throws IOException if reading fails
+	 */
+	private String readString(long position) throws IOException {
+		return readString(read(position + 4, readInt(position)), readInt(position));
+	}
+
+	/**
+	 * Reads a string from the given buffer.
+	 * 
+	 * @param buffer the buffer; not null
+	 * @return the string; not null
+	 */
+	private static String readString(ByteBuffer buffer) {
+		return readString(buffer, buffer.getInt());
+	}
+
+	/**
+	 * Reads a string of the given length from the given buffer.
+	 * 
+	 * @param buffer the buffer; not null
+	 * @param length the length of the string in bytes
+	 * @return the string; not null
+	 */
+	private static String readString(ByteBuffer buffer, int length) {
+		final byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the ids of all runs in the file.
+	 * 
+	 * @return the run ids in ascending order; not null
+	 */
+	public Set<Long> getRuns() {
+		return Collections.unmodifiableSet(runs);
+	}
+
+	/**
+	 * Returns the queried run.
+	 * 
+	 * @return the run id; {@link #ALL_RUNS} if all runs are queried
+	 */
+	public long getRun() {
+		return run;
+	}
+
+	/**
+	 * Returns the keys of all tests of the queried run.
+	 * 
+	 * @return the test keys; not null
+	 */
+	public Set<String> getTests() {
+		return Collections.unmodifiableSet(tests.keySet());
+	}
+
+	/**
+	 * Returns the results of the given test.
+	 * 
+	 * @param test the key of the test; not null
+	 * @return the results; empty if unknown
+	 */
+	public Map<String, String> getResults(String test) {
+		final Map<String, String> results = tests.get(test);
+		return results == null ? Collections.<String, String> emptyMap() : Collections.unmodifiableMap(results);
+	}
+
+	/**
+	 * Returns all numeric values of the given column of the given test.
+	 * Empty cells are left out.
+	 * 
+	 * @param test the key of the test; not null
+	 * @param column the name of the column; not null
+	 * @return the values; empty if unknown
+	 * @throws IllegalArgumentException if the column is not numeric
+	 */
+	public double[] getValues(String test, String column) throws IllegalArgumentException {
+		final Map<String, List<ColumnRef>> testColumns = columns.get(test);
+		final List<ColumnRef> refs = testColumns == null ? null : testColumns.get(column);
+		if (refs == null) {
+			return new double[0];
+		}
+		int rows = 0;
+		for (final ColumnRef ref : refs) {
+			rows += ref.rows;
+		}
+		final double[] values = new double[rows];
+		int n = 0;
+		try {
+			for (final ColumnRef ref : refs) {
+				final ByteBuffer data = read(ref.position, ref.length);
+				for (int row = 0; row < ref.rows; row++) {
+					switch (ref.type) {
+					case ResultsStore.LONG:
+						final long l = data.getLong();
+						if (l != Long.MIN_VALUE) {
+							values[n++] = l;
+						}
+						break;
+					case ResultsStore.DOUBLE:
+						final double d = data.getDouble();
+						if (!Double.isNaN(d)) {
+							values[n++] = d;
+						}
+						break;
+					default:
+						throw new IllegalArgumentException("Column is not numeric: " + column);
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return n == values.length ? values : Arrays.copyOf(values, n);
+	}
+
+	/**
+	 * Aggregates the given column over all tests, grouped by the given results.
+	 * 
+	 * @param column the name of the column; not null
+	 * @param filter the results the tests must have; not null
+	 * @param groupBy the names of the results to group by; not null
+	 * @return the aggregate of each group by the values of the results grouped by; not null
+	 */
+	public Map<List<String>, Aggregate> aggregate(String column, Map<String, String> filter, String... groupBy) {
+		final Map<List<String>, List<double[]>> groups = new LinkedHashMap<>();
+		for (final Entry<String, Map<String, String>> e : tests.entrySet()) {
+			if (!matches(e.getValue(), filter)) {
+				continue;
+			}
+			final List<String> key = new ArrayList<>(groupBy.length);
+			for (final String g : groupBy) {
+				final String value = e.getValue().get(g);
+				key.add(value == null ? "" : value);
+			}
+			List<double[]> group = groups.get(key);
+			if (group == null) {
+				group = new ArrayList<>();
+				groups.put(key, group);
+			}
+			group.add(getValues(e.getKey(), column));
+		}
+		final Map<List<String>, Aggregate> aggregates = new LinkedHashMap<>();
+		for (final Entry<List<String>, List<double[]>> e : groups.entrySet()) {
+			int size = 0;
+			for (final double[] values : e.getValue()) {
+				size += values.length;
+			}
+			final double[] all = new double[size];
+			int n = 0;
+			for (final double[] values : e.getValue()) {
+				System.arraycopy(values, 0, all, n, values.length);
+				n += values.length;
+			}
+			aggregates.put(e.getKey(), new Aggregate(all));
+		}
+		return aggregates;
+	}
+
+	/**
+	 * <p>
+	 * Returns the speedup of each value of the given result over the given baseline value by the median of the given column.
+	 * For example, this compares the oracles of each project by the step duration.
+	 * </p>
+	 * 
+	 * <p>
+	 * The speedup is the median of the baseline divided by the median of the other value.
+	 * Values greater than one mean faster than the baseline if the column is a duration.
+	 * </p>
+	 * 
+	 * @param column the name of the column; not null
+	 * @param compared the name of the result to compare; not null
+	 * @param baseline the value of the compared result to compare against; not null
+	 * @param groupBy the names of the results to group by; not null
+	 * @return the speedup by the values of the results grouped by followed by the value of the compared result; not null
+	 */
+	public Map<List<String>, Double> speedup(String column, String compared, String baseline, String... groupBy) {
+		final String[] keys = Arrays.copyOf(groupBy, groupBy.length + 1);
+		keys[groupBy.length] = compared;
+		final Map<List<String>, Aggregate> aggregates = aggregate(column, Collections.<String, String> emptyMap(), keys);
+		final Map<List<String>, Double> speedups = new LinkedHashMap<>();
+		for (final Entry<List<String>, Aggregate> e : aggregates.entrySet()) {
+			final List<String> baselineKey = new ArrayList<>(e.getKey());
+			baselineKey.set(groupBy.length, baseline);
+			final Aggregate base = aggregates.get(baselineKey);
+			if (base == null) {
+				continue;
+			}
+			speedups.put(e.getKey(), base.getMedian() / e.getValue().getMedian());
+		}
+		return speedups;
+	}
+
+	/**
+	 * Returns true iff the given results have all the given values.
+	 * 
+	 * @param results the results; not null
+	 * @param filter the values the results must have; not null
+	 * @return true iff matching
+	 */
+	private static boolean matches(Map<String, String> results, Map<String, String> filter) {
+		for (final Entry<String, String> e : filter.entrySet()) {
+			if (!e.getValue().equals(results.get(e.getKey()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Prints the aggregates of a column grouped by results.
+	 * The arguments are the file, the column, and the results to group by.
+	 * By default, this prints the step durations by project and oracle.
+	 * 
+	 * @param args the file, column, and results to group by
+	 */
+	public static void main(String[] args) {
+		final File file = new File(args.length > 0 ? args[0] : "results/results.store");
+		final String column = args.length > 1 ? args[1] : "Duration";
+		final String[] groupBy = args.length > 2 ? Arrays.copyOfRange(args, 2, args.length) : new String[] { "Project", "Oracle" };
+		try (ResultsQuery query = new ResultsQuery(file)) {
+			for (final Entry<List<String>, Aggregate> e : query.aggregate(column, Collections.<String, String> emptyMap(), groupBy).entrySet()) {
+				System.out.println(String.format("%s: %s", e.getKey(), e.getValue()));
+			}
+		}
+	}
+}
@@ -0,0 +1,308 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.results;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.ovgu.featureide.fm.core.explanations.evaluation.Test;
+
+/**
+ * <p>
+ * Appends the results of tests to a single binary file.
+ * The file can then be queried using {@link ResultsQuery}.
+ * </p>
+ * 
+ * <p>
+ * The file is a sequence of records.
+ * Each record starts with its kind and the length of its payload, so readers can skip records they do not need.
+ * Each payload starts with the {@link #getRunId() run id} of the store that wrote it.
+ * A {@link #STEPS steps record} holds a chunk of step measurements of one test column by column.
+ * Each column starts with the length of its data, so readers can skip columns they do not need.
+ * A {@link #TEST test record} holds the results of one test, such as its project and oracle.
+ * Records are only ever appended, so the results of several runs accumulate in the same file.
+ * The run id tells them apart.
+ * </p>
+ * 
+ * <p>
+ * Test threads {@link #attach(Thread) attached} to a store find it using {@link #get(Thread)}.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ResultsStore implements Closeable {
+
+	/** The kind of a record holding step measurements. */
+	public static final byte STEPS = 'S';
+	/** The kind of a record holding test results. */
+	public static final byte TEST = 'T';
+
+	/** The type of a column of integral numbers. */
+	public static final byte LONG = 'J';
+	/** The type of a column of floating point numbers. */
+	public static final byte DOUBLE = 'D';
+	/** The type of a column of strings. */
+	public static final byte STRING = 'S';
+
+	/** The stores of all attached threads. */
+	private static final Map<Thread, ResultsStore> STORES = new ConcurrentHashMap<>();
+
+	/** The file. */
+	private final File file;
+	/** The output stream appending to the file. */
+	private final DataOutputStream out;
+	/** The id of the run of this store. */
+	private final long runId;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * The file is created if it does not exist yet.
+	 * The run id is the current time in milliseconds.
+	 * 
+	 * @param file the file to append to; not null
+	 */
+	public ResultsStore(File file) {
+		this.file = file;
+		this.runId = System.currentTimeMillis();
+		final File dir = file.getAbsoluteFile().getParentFile();
+		if (dir != null) {
+			dir.mkdirs();
+		}
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Returns the store the given thread is attached to.
+	 * 
+	 * @param thread the thread; not null
+	 * @return the store; null if not attached
+	 */
+	public static ResultsStore get(Thread thread) {
+		return STORES.get(thread);
+	}
+
+	/**
+	 * Returns the key identifying the given test in the store.
+	 * This is the simple name of its class and its name.
+	 * 
+	 * @param test the test; not null
+	 * @return the key; not null
+	 */
+	public static String getKey(Test test) {
+		return String.format("%s/%s", test.getClass().getSimpleName(), test.getName());
+	}
+
+	/**
+	 * Returns the file.
+	 * 
+	 * @return the file; not null
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the id of the run of this store.
+	 * Later runs have greater ids.
+	 * 
+	 * @return the run id; positive
+	 */
+	public long getRunId() {
+		return runId;
+	}
+
+	/**
+	 * Attaches the given thread to this store.
+	 * 
+	 * @param thread the thread; not null
+	 */
+	public void attach(Thread thread) {
+		STORES.put(thread, this);
+	}
+
+	/**
+	 * Detaches the given thread from this store.
+	 * 
+	 * @param thread the thread; not null
+	 */
+	public void detach(Thread thread) {
+		STORES.remove(thread);
+	}
+
+	/**
+	 * Appends a chunk of step measurements.
+	 * Each column is either a <code>long[]</code>, a <code>double[]</code>, or a <code>String[]</code>.
+	 * 
+	 * @param test the key of the test; not null
+	 * @param names the name of each column; not null
+	 * @param columns the values of each column; not null
+	 * @param rows the number of rows in each column
+	 */
+	public void appendSteps(String test, List<String> names, List<Object> columns, int rows) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream payload = new DataOutputStream(bytes);
+		try {
+			payload.writeLong(runId);
+			writeString(payload, test);
+			payload.writeInt(rows);
+			payload.writeInt(names.size());
+			for (int i = 0; i < names.size(); i++) {
+				writeString(payload, names.get(i));
+				payload.writeByte(getType(columns.get(i)));
+			}
+			final ByteArrayOutputStream columnBytes = new ByteArrayOutputStream();
+			final DataOutputStream columnOut = new DataOutputStream(columnBytes);
+			for (final Object column : columns) {
+				columnBytes.reset();
+				writeColumn(columnOut, column, rows);
+				payload.writeInt(columnBytes.size());
+				columnBytes.writeTo(payload);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		append(STEPS, bytes);
+	}
+
+	/**
+	 * Appends the results of a test.
+	 * 
+	 * @param test the key of the test; not null
+	 * @param results the results of the test; not null
+	 */
+	public void appendTest(String test, Map<String, Object> results) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream payload = new DataOutputStream(bytes);
+		try {
+			payload.writeLong(runId);
+			writeString(payload, test);
+			payload.writeInt(results.size());
+			for (final Entry<String, Object> e : results.entrySet()) {
+				writeString(payload, e.getKey());
+				writeString(payload, String.valueOf(e.getValue()));
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		append(TEST, bytes);
+	}
+
+	/**
+	 * Returns the type of the given column.
+	 * 
+	 * @param column the values of the column; not null
+	 * @return the type
+	 */
+	private static byte getType(Object column) {
+		if (column instanceof long[]) {
+			return LONG;
+		} else if (column instanceof double[]) {
+			return DOUBLE;
+		} else if (column instanceof String[]) {
+			return STRING;
+		} else {
+			throw new IllegalArgumentException("Unknown column type");
+		}
+	}
+
+	/**
+	 * Writes the data of the given column.
+	 * Strings are written as a dictionary followed by the index of each value.
+	 * 
+	 * @param out the output; not null
+	 * @param column the values of the column; not null
+	 * @param rows the number of rows
+	 * @throws IOException if writing fails
+	 */
+	private static void writeColumn(DataOutputStream out, Object column, int rows) throws IOException {
+		switch (getType(column)) {
+		case LONG:
+			final long[] longs = (long[]) column;
+			for (int row = 0; row < rows; row++) {
+				out.writeLong(longs[row]);
+			}
+			break;
+		case DOUBLE:
+			final double[] doubles = (double[]) column;
+			for (int row = 0; row < rows; row++) {
+				out.writeDouble(doubles[row]);
+			}
+			break;
+		case STRING:
+			final String[] strings = (String[]) column;
+			final Map<String, Integer> indexes = new LinkedHashMap<>();
+			final int[] rowIndexes = new int[rows];
+			for (int row = 0; row < rows; row++) {
+				Integer index = indexes.get(strings[row]);
+				if (index == null) {
+					index = indexes.size();
+					indexes.put(strings[row], index);
+				}
+				rowIndexes[row] = index;
+			}
+			out.writeInt(indexes.size());
+			for (final String s : indexes.keySet()) {
+				writeString(out, s);
+			}
+			for (final int index : rowIndexes) {
+				out.writeInt(index);
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown column type");
+		}
+	}
+
+	/**
+	 * Writes the given string as its length in bytes followed by its UTF-8 encoding.
+	 * Unlike {@link DataOutputStream#writeUTF(String)}, this is not limited in length.
+	 * 
+	 * @param out the output; not null
+	 * @param s the string; not null
+	 * @throws IOException if writing fails
+	 */
+	static void writeString(DataOutputStream out, String s) throws IOException {
+		final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Appends a record.
+	 * 
+	 * @param kind the kind of the record
+	 * @param payload the payload of the record; not null
+	 */
+	private synchronized void append(byte kind, ByteArrayOutputStream payload) {
+		try {
+			out.writeByte(kind);
+			out.writeInt(payload.size());
+			payload.writeTo(out);
+			out.flush();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		try {
+			out.close();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
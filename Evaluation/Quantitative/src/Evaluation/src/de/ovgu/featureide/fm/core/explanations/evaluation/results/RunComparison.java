@@ -0,0 +1,442 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.results;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * <p>
+ * Compares the step durations of two evaluation runs to detect performance regressions.
+ * Each run is a directory of step measurements as written by the measuring tests.
+ * The steps of each test are grouped by their <code>Kind</code> column if present, such as the kind of defect explained.
+ * The test is identified by the path of its file, which contains the class, project, and oracle.
+ * </p>
+ * 
+ * <p>
+ * Each group is compared using the {@link MannWhitney Mann-Whitney U test}.
+ * A group is a regression if the difference is significant and the median grew by more than the threshold.
+ * It is an improvement if the difference is significant and the median shrank by more than the threshold.
+ * Thus, neither noise nor tiny but significant shifts in large samples are reported.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class RunComparison {
+
+	/** The default significance level. */
+	public static final double ALPHA = 0.01;
+	/** The default minimal relative change of the median. */
+	public static final double THRESHOLD = 0.05;
+	/** The name of the column containing the step durations. */
+	private static final String DURATION = "Duration";
+	/** The name of the column containing the kind of each step. */
+	private static final String KIND = "Kind";
+
+	/**
+	 * The verdict of a comparison.
+	 */
+	public static enum Verdict {
+		/** No significant change. */
+		UNCHANGED,
+		/** Significantly slower. */
+		REGRESSION,
+		/** Significantly faster. */
+		IMPROVEMENT,
+		/** Only in the old run. */
+		MISSING,
+		/** Only in the new run. */
+		ADDED
+	}
+
+	/**
+	 * The comparison of a group of steps.
+	 */
+	public static class Comparison {
+
+		/** The test. */
+		private final String test;
+		/** The kind of the steps. */
+		private final String kind;
+		/** The durations of the old run; null if missing. */
+		private final Aggregate before;
+		/** The durations of the new run; null if missing. */
+		private final Aggregate after;
+		/** The statistical test; null if a run is missing. */
+		private final MannWhitney mannWhitney;
+		/** The verdict. */
+		private final Verdict verdict;
+
+		/**
+		 * Constructs a new instance of this class.
+		 * 
+		 * @param test the test; not null
+		 * @param kind the kind of the steps; not null
+		 * @param before the durations of the old run; null if missing
+		 * @param after the durations of the new run; null if missing
+		 * @param mannWhitney the statistical test; null if a run is missing
+		 * @param verdict the verdict; not null
+		 */
+		public Comparison(String test, String kind, Aggregate before, Aggregate after, MannWhitney mannWhitney, Verdict verdict) {
+			this.test = test;
+			this.kind = kind;
+			this.before = before;
+			this.after = after;
+			this.mannWhitney = mannWhitney;
+			this.verdict = verdict;
+		}
+
+		/**
+		 * Returns the test.
+		 * 
+		 * @return the test; not null
+		 */
+		public String getTest() {
+			return test;
+		}
+
+		/**
+		 * Returns the kind of the steps.
+		 * 
+		 * @return the kind; empty if the steps have no kind
+		 */
+		public String getKind() {
+			return kind;
+		}
+
+		/**
+		 * Returns the durations of the old run.
+		 * 
+		 * @return the durations; null if missing
+		 */
+		public Aggregate getBefore() {
+			return before;
+		}
+
+		/**
+		 * Returns the durations of the new run.
+		 * 
+		 * @return the durations; null if missing
+		 */
+		public Aggregate getAfter() {
+			return after;
+		}
+
+		/**
+		 * Returns the statistical test.
+		 * 
+		 * @return the statistical test; null if a run is missing
+		 */
+		public MannWhitney getMannWhitney() {
+			return mannWhitney;
+		}
+
+		/**
+		 * Returns the verdict.
+		 * 
+		 * @return the verdict; not null
+		 */
+		public Verdict getVerdict() {
+			return verdict;
+		}
+
+		/**
+		 * Returns the ratio of the new median to the old median.
+		 * 
+		 * @return the ratio; NaN if a run is missing
+		 */
+		public double getRatio() {
+			if (before == null || after == null) {
+				return Double.NaN;
+			}
+			return after.getMedian() / before.getMedian();
+		}
+	}
+
+	/**
+	 * A growing sample of numbers.
+	 */
+	private static class Sample {
+
+		/** The values. */
+		private double[] values = new double[64];
+		/** The number of values. */
+		private int size;
+
+		/**
+		 * Adds a value.
+		 * 
+		 * @param value the value
+		 */
+		public void add(double value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		/**
+		 * Returns the values.
+		 * 
+		 * @return the values; not null
+		 */
+		public double[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+
+	/** The significance level. */
+	private final double alpha;
+	/** The minimal relative change of the median. */
+	private final double threshold;
+
+	/**
+	 * Constructs a new instance of this class with the default significance level and threshold.
+	 */
+	public RunComparison() {
+		this(ALPHA, THRESHOLD);
+	}
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param alpha the significance level; between 0 and 1
+	 * @param threshold the minimal relative change of the median; nonnegative
+	 */
+	public RunComparison(double alpha, double threshold) {
+		this.alpha = alpha;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Compares the given runs.
+	 * 
+	 * @param before the directory of the old run; not null
+	 * @param after the directory of the new run; not null
+	 * @return the comparison of each group of steps; not null
+	 */
+	public List<Comparison> compare(File before, File after) {
+		final Map<List<String>, Sample> beforeSamples = readRun(before);
+		final Map<List<String>, Sample> afterSamples = readRun(after);
+		final Set<List<String>> keys = new LinkedHashSet<>(beforeSamples.keySet());
+		keys.addAll(afterSamples.keySet());
+		final List<Comparison> comparisons = new ArrayList<>(keys.size());
+		for (final List<String> key : keys) {
+			final Sample b = beforeSamples.get(key);
+			final Sample a = afterSamples.get(key);
+			if (a == null) {
+				comparisons.add(new Comparison(key.get(0), key.get(1), new Aggregate(b.toArray()), null, null, Verdict.MISSING));
+				continue;
+			}
+			if (b == null) {
+				comparisons.add(new Comparison(key.get(0), key.get(1), null, new Aggregate(a.toArray()), null, Verdict.ADDED));
+				continue;
+			}
+			final double[] bs = b.toArray();
+			final double[] as = a.toArray();
+			final MannWhitney mannWhitney = new MannWhitney(as, bs);
+			final Aggregate beforeAggregate = new Aggregate(bs);
+			final Aggregate afterAggregate = new Aggregate(as);
+			final double ratio = afterAggregate.getMedian() / beforeAggregate.getMedian();
+			Verdict verdict = Verdict.UNCHANGED;
+			if (mannWhitney.getP() < alpha) {
+				if (mannWhitney.getZ() > 0 && ratio > 1 + threshold) {
+					verdict = Verdict.REGRESSION;
+				} else if (mannWhitney.getZ() < 0 && ratio < 1 - threshold) {
+					verdict = Verdict.IMPROVEMENT;
+				}
+			}
+			comparisons.add(new Comparison(key.get(0), key.get(1), beforeAggregate, afterAggregate, mannWhitney, verdict));
+		}
+		return comparisons;
+	}
+
+	/**
+	 * Reads the step durations of a run grouped by test and kind.
+	 * 
+	 * @param dir the directory of the run; not null
+	 * @return the durations by test and kind in order; not null
+	 */
+	private static Map<List<String>, Sample> readRun(File dir) {
+		final Map<List<String>, Sample> samples = new TreeMap<>(new Comparator<List<String>>() {
+
+			@Override
+			public int compare(List<String> a, List<String> b) {
+				final int c = a.get(0).compareTo(b.get(0));
+				return c != 0 ? c : a.get(1).compareTo(b.get(1));
+			}
+		});
+		final List<File> files = new ArrayList<>();
+		listCsvFiles(dir, files);
+		final String root = dir.getAbsolutePath();
+		for (final File file : files) {
+			String test = file.getAbsolutePath().substring(root.length() + 1).replace(File.separatorChar, '/');
+			test = test.substring(0, test.length() - ".csv".length());
+			try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+				String line = in.readLine();
+				if (line == null) {
+					continue;
+				}
+				final List<String> header = parseCsv(line);
+				final int duration = header.indexOf(DURATION);
+				final int kind = header.indexOf(KIND);
+				if (duration < 0) {
+					continue;
+				}
+				while ((line = in.readLine()) != null) {
+					final List<String> row = parseCsv(line);
+					if (duration >= row.size() || row.get(duration).isEmpty()) {
+						continue;
+					}
+					final List<String> key = Arrays.asList(test, kind < 0 || kind >= row.size() ? "" : row.get(kind));
+					Sample sample = samples.get(key);
+					if (sample == null) {
+						sample = new Sample();
+						samples.put(key, sample);
+					}
+					sample.add(Double.parseDouble(row.get(duration)));
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return samples;
+	}
+
+	/**
+	 * Adds all files of comma-separated values in the given directory and its subdirectories.
+	 * 
+	 * @param dir the directory; not null
+	 * @param files the list to add to; not null
+	 */
+	private static void listCsvFiles(File dir, List<File> files) {
+		final File[] children = dir.listFiles();
+		if (children == null) {
+			return;
+		}
+		Arrays.sort(children);
+		for (final File child : children) {
+			if (child.isDirectory()) {
+				listCsvFiles(child, files);
+			} else if (child.getName().endsWith(".csv")) {
+				files.add(child);
+			}
+		}
+	}
+
+	/**
+	 * Parses a line of comma-separated values as written by the measuring tests.
+	 * Values may be quoted, with backslashes escaping quotes and backslashes.
+	 * 
+	 * @param line the line; not null
+	 * @return the values; not null
+	 */
+	static List<String> parseCsv(String line) {
+		final List<String> values = new ArrayList<>();
+		final StringBuilder sb = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			final char c = line.charAt(i);
+			if (quoted) {
+				if (c == '\\' && i + 1 < line.length()) {
+					sb.append(line.charAt(++i));
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					sb.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				values.add(sb.toString());
+				sb.setLength(0);
+			} else {
+				sb.append(c);
+			}
+		}
+		values.add(sb.toString());
+		return values;
+	}
+
+	/**
+	 * Writes the given comparisons as comma-separated values.
+	 * 
+	 * @param comparisons the comparisons; not null
+	 * @param out the output; not null
+	 */
+	public static void writeReport(List<Comparison> comparisons, PrintWriter out) {
+		out.println("\"Test\",\"Kind\",\"Verdict\",\"Before N\",\"After N\",\"Before Median\",\"After Median\",\"Ratio\",\"U\",\"Z\",\"P\"");
+		for (final Comparison c : comparisons) {
+			final MannWhitney m = c.getMannWhitney();
+			out.println(String.format("\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%s\"",
+					c.getTest().replace("\\", "\\\\").replace("\"", "\\\""),
+					c.getKind().replace("\\", "\\\\").replace("\"", "\\\""),
+					c.getVerdict(),
+					c.getBefore() == null ? "" : c.getBefore().getCount(),
+					c.getAfter() == null ? "" : c.getAfter().getCount(),
+					c.getBefore() == null ? "" : c.getBefore().getMedian(),
+					c.getAfter() == null ? "" : c.getAfter().getMedian(),
+					Double.isNaN(c.getRatio()) ? "" : c.getRatio(),
+					m == null ? "" : m.getU(),
+					m == null ? "" : m.getZ(),
+					m == null ? "" : m.getP()));
+		}
+		out.flush();
+	}
+
+	/**
+	 * <p>
+	 * Compares two runs and writes the report.
+	 * The arguments are the directory of the old run, the directory of the new run, and optionally the report file, the significance level, and the threshold.
+	 * Without a report file, the report is written to the standard output.
+	 * </p>
+	 * 
+	 * <p>
+	 * Exits with 1 if there is a regression, with 2 on invalid arguments, and with 0 otherwise.
+	 * </p>
+	 * 
+	 * @param args the arguments
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.err.println("Usage: RunComparison <old results dir> <new results dir> [report file] [alpha] [threshold]");
+			System.exit(2);
+		}
+		final File before = new File(args[0]);
+		final File after = new File(args[1]);
+		if (!before.isDirectory() || !after.isDirectory()) {
+			System.err.println("Not a directory: " + (before.isDirectory() ? after : before));
+			System.exit(2);
+		}
+		final double alpha = args.length > 3 ? Double.parseDouble(args[3]) : ALPHA;
+		final double threshold = args.length > 4 ? Double.parseDouble(args[4]) : THRESHOLD;
+		final List<Comparison> comparisons = new RunComparison(alpha, threshold).compare(before, after);
+		try (PrintWriter out = args.length > 2 && !args[2].equals("-")
+				? new PrintWriter(new FileWriter(args[2]))
+				: new PrintWriter(new OutputStreamWriter(System.out))) {
+			writeReport(comparisons, out);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		final Map<Verdict, Integer> counts = new TreeMap<>();
+		for (final Verdict verdict : Verdict.values()) {
+			counts.put(verdict, 0);
+		}
+		for (final Comparison c : comparisons) {
+			counts.put(c.getVerdict(), counts.get(c.getVerdict()) + 1);
+		}
+		System.err.println(counts);
+		System.exit(counts.get(Verdict.REGRESSION) > 0 ? 1 : 0);
+	}
+}
@@ -0,0 +1,188 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Converts the constraint that at most one of some literals holds to clauses using a given {@link AtMostOneEncoding encoding}.
+ * Auxiliary variables are numbered consecutively after a given variable.
+ * The caller has to reserve them afterwards using {@link #getAuxiliaryCount()}.
+ * </p>
+ * 
+ * <p>
+ * Every encoding is exact on the given literals:
+ * an assignment of them extends to an assignment of the auxiliary variables satisfying the clauses iff at most one of them holds.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class AtMostOneEncoder {
+
+	/** The number of literals up to which the pairwise encoding is used regardless of the encoding. */
+	public static final int PAIRWISE_LIMIT = 3;
+	/** The number of literals controlled by each commander variable. */
+	private static final int COMMANDER_GROUP_SIZE = 3;
+
+	/** The encoding. */
+	private final AtMostOneEncoding encoding;
+	/** The variable after which auxiliary variables are numbered. */
+	private final int lastVariable;
+	/** The number of auxiliary variables introduced so far. */
+	private int auxiliaryCount;
+	/** The clauses of the constraint being encoded. */
+	private List<int[]> clauses;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param encoding the encoding; not null
+	 * @param lastVariable the variable after which auxiliary variables are numbered; not negative
+	 */
+	public AtMostOneEncoder(AtMostOneEncoding encoding, int lastVariable) {
+		this.encoding = encoding;
+		this.lastVariable = lastVariable;
+	}
+
+	/**
+	 * Returns the encoding.
+	 * 
+	 * @return the encoding; not null
+	 */
+	public AtMostOneEncoding getEncoding() {
+		return encoding;
+	}
+
+	/**
+	 * Returns the number of auxiliary variables introduced by all constraints encoded so far.
+	 * 
+	 * @return the number of auxiliary variables
+	 */
+	public int getAuxiliaryCount() {
+		return auxiliaryCount;
+	}
+
+	/**
+	 * Returns the clauses enforcing that at most one of the given literals holds.
+	 * 
+	 * @param literals the literals; not null
+	 * @return the clauses; not null
+	 */
+	public int[][] encode(int[] literals) {
+		clauses = new ArrayList<>();
+		if (literals.length <= PAIRWISE_LIMIT) {
+			addPairwise(literals);
+		} else {
+			switch (encoding) {
+			case PAIRWISE:
+				addPairwise(literals);
+				break;
+			case SEQUENTIAL_COUNTER:
+				addSequentialCounter(literals);
+				break;
+			case COMMANDER:
+				addCommander(literals);
+				break;
+			case BINARY:
+				addBinary(literals);
+				break;
+			default:
+				throw new IllegalStateException("Unknown encoding");
+			}
+		}
+		final int[][] result = clauses.toArray(new int[clauses.size()][]);
+		clauses = null;
+		return result;
+	}
+
+	/**
+	 * Adds a clause for each pair of the given literals.
+	 * 
+	 * @param literals the literals; not null
+	 */
+	private void addPairwise(int[] literals) {
+		for (int i = 0; i < literals.length; i++) {
+			for (int j = i + 1; j < literals.length; j++) {
+				clauses.add(new int[] { -literals[i], -literals[j] });
+			}
+		}
+	}
+
+	/**
+	 * Adds the clauses of the sequential counter.
+	 * Auxiliary variable <i>s<sub>i</sub></i> holds if one of the first <i>i</i> literals holds.
+	 * 
+	 * @param literals the literals; not null
+	 */
+	private void addSequentialCounter(int[] literals) {
+		final int n = literals.length;
+		int previous = newAuxiliary();
+		clauses.add(new int[] { -literals[0], previous });
+		for (int i = 1; i < n - 1; i++) {
+			final int current = newAuxiliary();
+			clauses.add(new int[] { -literals[i], current });
+			clauses.add(new int[] { -previous, current });
+			clauses.add(new int[] { -literals[i], -previous });
+			previous = current;
+		}
+		clauses.add(new int[] { -literals[n - 1], -previous });
+	}
+
+	/**
+	 * Adds the clauses of the commander encoding.
+	 * Each literal of a subgroup implies the commander of the subgroup.
+	 * At most one literal of each subgroup holds, and at most one commander holds.
+	 * 
+	 * @param literals the literals; not null
+	 */
+	private void addCommander(int[] literals) {
+		if (literals.length <= PAIRWISE_LIMIT) {
+			addPairwise(literals);
+			return;
+		}
+		final int[] commanders = new int[(literals.length + COMMANDER_GROUP_SIZE - 1) / COMMANDER_GROUP_SIZE];
+		for (int k = 0; k < commanders.length; k++) {
+			final int[] group = Arrays.copyOfRange(literals, k * COMMANDER_GROUP_SIZE, Math.min(literals.length, (k + 1) * COMMANDER_GROUP_SIZE));
+			if (group.length == 1) {
+				commanders[k] = group[0];
+				continue;
+			}
+			final int commander = newAuxiliary();
+			for (final int literal : group) {
+				clauses.add(new int[] { -literal, commander });
+			}
+			addPairwise(group);
+			commanders[k] = commander;
+		}
+		addCommander(commanders);
+	}
+
+	/**
+	 * Adds the clauses of the binary encoding.
+	 * Each literal implies the bit pattern of its index.
+	 * 
+	 * @param literals the literals; not null
+	 */
+	private void addBinary(int[] literals) {
+		final int bitCount = 32 - Integer.numberOfLeadingZeros(literals.length - 1);
+		final int[] bits = new int[bitCount];
+		for (int j = 0; j < bitCount; j++) {
+			bits[j] = newAuxiliary();
+		}
+		for (int i = 0; i < literals.length; i++) {
+			for (int j = 0; j < bitCount; j++) {
+				clauses.add(new int[] { -literals[i], (i >>> j & 1) == 1 ? bits[j] : -bits[j] });
+			}
+		}
+	}
+
+	/**
+	 * Returns a new auxiliary variable.
+	 * 
+	 * @return the auxiliary variable; positive
+	 */
+	private int newAuxiliary() {
+		return lastVariable + ++auxiliaryCount;
+	}
+}
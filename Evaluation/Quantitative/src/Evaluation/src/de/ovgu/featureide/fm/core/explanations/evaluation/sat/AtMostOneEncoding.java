@@ -0,0 +1,34 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+/**
+ * The way the children of alternative groups are restricted to at most one selection.
+ * The encodings trade the number of clauses against the number of auxiliary variables.
+ * Groups with at most {@link AtMostOneEncoder#PAIRWISE_LIMIT} children are always encoded pairwise.
+ * 
+ * @author Timo G&uuml;nther
+ * @see {@link AtMostOneEncoder}
+ */
+public enum AtMostOneEncoding {
+
+	/**
+	 * Forbids each pair of children.
+	 * Needs no auxiliary variables.
+	 * The number of clauses grows quadratically in the size of the group.
+	 */
+	PAIRWISE,
+	/**
+	 * Counts the children selected so far using one auxiliary variable per child (Sinz).
+	 * Needs about 3<i>n</i> clauses.
+	 */
+	SEQUENTIAL_COUNTER,
+	/**
+	 * Splits the children into small subgroups, each with a commander variable, and restricts the commanders recursively (Klieber and Kwon).
+	 * Needs about <i>n</i>/2 auxiliary variables and 3<i>n</i> clauses.
+	 */
+	COMMANDER,
+	/**
+	 * Assigns each child a distinct bit pattern over logarithmically many auxiliary variables (Frisch et al.).
+	 * Needs about <i>n</i> log <i>n</i> clauses.
+	 */
+	BINARY
+}
@@ -0,0 +1,149 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * <p>
+ * Computes the backbone of a feature model under the manual selections of a partial configuration.
+ * The backbone consists of the literals that are true in every model, i.e., the automatic selections.
+ * </p>
+ * 
+ * <p>
+ * The backbone is extracted iteratively and guided by models.
+ * The literals of an initial model are the candidates.
+ * Each candidate is checked by assuming its negation.
+ * If that is unsatisfiable, the candidate belongs to the backbone.
+ * Otherwise, the new model rules out every candidate it disagrees with without checking it.
+ * All checks use the same incremental solver with the manual selections as assumptions, so the solver is reused across configurations.
+ * </p>
+ * 
+ * <p>
+ * For comparison, the backbone can also be computed {@link #getBackboneByFeature(int[]) per feature},
+ * which checks both selection states of each undecided feature.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class BackboneExtractor {
+
+	/** The CNF of the feature model. */
+	private final FeatureModelCnf cnf;
+	/** The oracle. */
+	private final MusOracle oracle;
+	/** The origins of the feature model. */
+	private final Collection<Origin> origins;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param cnf the CNF of the feature model; not null
+	 */
+	public BackboneExtractor(FeatureModelCnf cnf) {
+		this.cnf = cnf;
+		oracle = new MusOracle(cnf);
+		origins = oracle.getOrigins();
+	}
+
+	/**
+	 * Returns the number of satisfiability checks done so far.
+	 * 
+	 * @return the number of satisfiability checks
+	 */
+	public long getSatCalls() {
+		return oracle.getSatCalls();
+	}
+
+	/**
+	 * Returns the literals implied by the feature model and the given manual selections using model-guided backbone extraction.
+	 * 
+	 * @param selections the literals of the manual selections; not null
+	 * @return the implied literals of the feature variables not selected manually in ascending order of their variables; null if the selections are contradictory
+	 */
+	public int[] getBackbone(int[] selections) {
+		if (!oracle.isSatisfiable(selections, origins)) {
+			return null;
+		}
+		final int variableCount = cnf.getVariableCount();
+		final boolean[] decided = getDecided(selections);
+		final int[] candidates = new int[variableCount + 1];
+		int[] model = oracle.getModel();
+		for (int variable = 1; variable <= variableCount; variable++) {
+			if (!decided[variable]) {
+				candidates[variable] = model[variable - 1];
+			}
+		}
+		final int[] assumptions = Arrays.copyOf(selections, selections.length + 1);
+		final int[] backbone = new int[variableCount];
+		int size = 0;
+		for (int variable = 1; variable <= variableCount; variable++) {
+			final int candidate = candidates[variable];
+			if (candidate == 0) {
+				continue;
+			}
+			assumptions[assumptions.length - 1] = -candidate;
+			if (oracle.isSatisfiable(assumptions, origins)) {
+				model = oracle.getModel();
+				for (int other = variable + 1; other <= variableCount; other++) {
+					if (candidates[other] != 0 && model[other - 1] != candidates[other]) {
+						candidates[other] = 0;
+					}
+				}
+			} else {
+				backbone[size++] = candidate;
+			}
+		}
+		return Arrays.copyOf(backbone, size);
+	}
+
+	/**
+	 * Returns the literals implied by the feature model and the given manual selections by checking each undecided feature on its own.
+	 * 
+	 * @param selections the literals of the manual selections; not null
+	 * @return the implied literals of the feature variables not selected manually in ascending order of their variables; null if the selections are contradictory
+	 */
+	public int[] getBackboneByFeature(int[] selections) {
+		if (!oracle.isSatisfiable(selections, origins)) {
+			return null;
+		}
+		final int variableCount = cnf.getVariableCount();
+		final boolean[] decided = getDecided(selections);
+		final int[] assumptions = Arrays.copyOf(selections, selections.length + 1);
+		final int[] backbone = new int[variableCount];
+		int size = 0;
+		for (int variable = 1; variable <= variableCount; variable++) {
+			if (decided[variable]) {
+				continue;
+			}
+			assumptions[assumptions.length - 1] = variable;
+			if (!oracle.isSatisfiable(assumptions, origins)) {
+				backbone[size++] = -variable;
+				continue;
+			}
+			assumptions[assumptions.length - 1] = -variable;
+			if (!oracle.isSatisfiable(assumptions, origins)) {
+				backbone[size++] = variable;
+			}
+		}
+		return Arrays.copyOf(backbone, size);
+	}
+
+	/**
+	 * Returns which variables are selected manually or auxiliary.
+	 * Auxiliary variables do not belong to features and are thus never part of the backbone.
+	 * 
+	 * @param selections the literals of the manual selections; not null
+	 * @return whether each variable is excluded from the backbone, indexed by variable; not null
+	 */
+	private boolean[] getDecided(int[] selections) {
+		final int variableCount = cnf.getVariableCount();
+		final boolean[] decided = new boolean[variableCount + 1];
+		for (int variable = 1; variable <= variableCount; variable++) {
+			decided[variable] = cnf.isAuxiliary(variable);
+		}
+		for (final int literal : selections) {
+			decided[Math.abs(literal)] = true;
+		}
+		return decided;
+	}
+}
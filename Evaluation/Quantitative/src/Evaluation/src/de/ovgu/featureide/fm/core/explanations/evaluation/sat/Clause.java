@@ -0,0 +1,52 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import java.util.Arrays;
+
+/**
+ * A disjunction of literals in DIMACS notation.
+ * Each clause remembers the {@link Origin origin} it was derived from.
+ * 
+ * @author Timo G&uuml;nther
+ */
+public final class Clause {
+
+	/** The literals of this clause. */
+	private final int[] literals;
+	/** The origin of this clause. */
+	private final Origin origin;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param origin the origin of this clause; not null
+	 * @param literals the literals of this clause; not null
+	 */
+	public Clause(Origin origin, int... literals) {
+		this.origin = origin;
+		this.literals = literals;
+	}
+
+	/**
+	 * Returns the literals of this clause.
+	 * The returned array must not be modified.
+	 * 
+	 * @return the literals; not null
+	 */
+	public int[] getLiterals() {
+		return literals;
+	}
+
+	/**
+	 * Returns the origin of this clause.
+	 * 
+	 * @return the origin; not null
+	 */
+	public Origin getOrigin() {
+		return origin;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s%s", Arrays.toString(literals), origin);
+	}
+}
@@ -0,0 +1,30 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+/**
+ * The way cross-tree constraints are converted to conjunctive normal form.
+ * The encodings trade the number of clauses against the number of auxiliary variables.
+ * 
+ * @author Timo G&uuml;nther
+ * @see {@link ConstraintEncoder}
+ */
+public enum CnfEncoding {
+
+	/**
+	 * Applies the distributive law.
+	 * Needs no auxiliary variables.
+	 * The number of clauses may grow exponentially in the size of the constraint.
+	 */
+	DISTRIBUTIVE,
+	/**
+	 * Introduces an auxiliary variable equivalent to each compound subformula (Tseitin).
+	 * The number of clauses grows linearly in the size of the constraint.
+	 * Each assignment of the features extends to exactly one assignment of the auxiliary variables.
+	 */
+	TSEITIN,
+	/**
+	 * Introduces an auxiliary variable for each compound subformula but only encodes the implications needed by the polarity of its occurrence (Plaisted-Greenbaum).
+	 * Needs about half the clauses of {@link #TSEITIN}.
+	 * The result is only equisatisfiable.
+	 */
+	PLAISTED_GREENBAUM
+}
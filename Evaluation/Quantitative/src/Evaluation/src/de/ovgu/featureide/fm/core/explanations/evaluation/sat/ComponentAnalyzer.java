@@ -0,0 +1,321 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.ovgu.featureide.fm.core.base.IConstraint;
+import de.ovgu.featureide.fm.core.base.IFeature;
+import de.ovgu.featureide.fm.core.base.IFeatureModel;
+import de.ovgu.featureide.fm.core.explanations.evaluation.sat.ComponentDecomposition.Component;
+
+/**
+ * <p>
+ * Finds void feature models, dead features, false-optional features and redundant constraints along with their explanations
+ * one {@link ComponentDecomposition component} at a time.
+ * </p>
+ * 
+ * <p>
+ * Each component is analyzed by a task of its own on one of several threads.
+ * The task uses its own {@link MusOracle oracle} containing only the core origins and the origins of the component.
+ * Another task analyzes the core origins alone, which covers the constraints only referring to core features.
+ * Within a task, the models found by satisfiable checks rule out further defects without checking them.
+ * The results are merged in the order of the components so that they do not depend on the scheduling.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ComponentAnalyzer {
+
+	/**
+	 * The results of analyzing one component.
+	 */
+	private static class Result {
+
+		/** The explanation for the component being unsatisfiable; null if satisfiable. */
+		private Set<Origin> voidExplanation;
+		/** The explanation of each dead feature. */
+		private final Map<IFeature, Set<Origin>> deadFeatures = new LinkedHashMap<>();
+		/** The explanation of each false-optional feature. */
+		private final Map<IFeature, Set<Origin>> falseOptionalFeatures = new LinkedHashMap<>();
+		/** The explanation of each redundant constraint. */
+		private final Map<IConstraint, Set<Origin>> redundantConstraints = new LinkedHashMap<>();
+	}
+
+	/** The decomposition. */
+	private final ComponentDecomposition decomposition;
+	/** The number of threads. */
+	private final int threads;
+	/** The strategy used to shrink unsatisfiable subsets. */
+	private final ShrinkingStrategy strategy;
+
+	/** The features of each component in the order of the feature model. */
+	private final List<List<IFeature>> features = new ArrayList<>();
+	/** The constraints of each component in the order of the feature model; the constraints of the core come last. */
+	private final List<List<IConstraint>> constraints = new ArrayList<>();
+
+	/** The explanation for the feature model being void; null if the feature model is not void. */
+	private Set<Origin> voidExplanation;
+	/** The explanation of each dead feature. */
+	private final Map<IFeature, Set<Origin>> deadFeatures = new LinkedHashMap<>();
+	/** The explanation of each false-optional feature. */
+	private final Map<IFeature, Set<Origin>> falseOptionalFeatures = new LinkedHashMap<>();
+	/** The explanation of each redundant constraint. */
+	private final Map<IConstraint, Set<Origin>> redundantConstraints = new LinkedHashMap<>();
+	/** The number of satisfiability checks done by all tasks. */
+	private final AtomicLong satCalls = new AtomicLong();
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param decomposition the decomposition of the feature model; not null
+	 * @param threads the number of threads; at least 1
+	 * @param strategy the strategy used to shrink unsatisfiable subsets; not null
+	 */
+	public ComponentAnalyzer(ComponentDecomposition decomposition, int threads, ShrinkingStrategy strategy) {
+		this.decomposition = decomposition;
+		this.threads = threads;
+		this.strategy = strategy;
+		final FeatureModelCnf cnf = decomposition.getCnf();
+		final IFeatureModel fm = cnf.getFeatureModel();
+		final List<Component> components = decomposition.getComponents();
+		final Map<Component, Integer> indices = new LinkedHashMap<>();
+		for (int i = 0; i <= components.size(); i++) {
+			if (i < components.size()) {
+				indices.put(components.get(i), i);
+			}
+			features.add(new ArrayList<IFeature>());
+			constraints.add(new ArrayList<IConstraint>());
+		}
+		for (final IFeature f : fm.getFeatures()) {
+			final Component component = decomposition.getComponent(cnf.getVariable(f));
+			if (component != null) {
+				features.get(indices.get(component)).add(f);
+			}
+		}
+		for (final IConstraint c : fm.getConstraints()) {
+			final Component component = decomposition.getComponent(cnf.getOrigin(c));
+			constraints.get(component == null ? components.size() : indices.get(component)).add(c);
+		}
+	}
+
+	/**
+	 * Returns the decomposition.
+	 * 
+	 * @return the decomposition; not null
+	 */
+	public ComponentDecomposition getDecomposition() {
+		return decomposition;
+	}
+
+	/**
+	 * Returns the number of threads.
+	 * 
+	 * @return the number of threads
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Returns true iff the feature model was found to be valid.
+	 * 
+	 * @return true iff valid
+	 */
+	public boolean isValid() {
+		return voidExplanation == null;
+	}
+
+	/**
+	 * Returns the explanation for the feature model being void.
+	 * 
+	 * @return the explanation; null if the feature model is not void
+	 */
+	public Set<Origin> getVoidExplanation() {
+		return voidExplanation;
+	}
+
+	/**
+	 * Returns the dead features found along with their explanations.
+	 * 
+	 * @return the dead features; not null
+	 */
+	public Map<IFeature, Set<Origin>> getDeadFeatures() {
+		return Collections.unmodifiableMap(deadFeatures);
+	}
+
+	/**
+	 * Returns the false-optional features found along with their explanations.
+	 * 
+	 * @return the false-optional features; not null
+	 */
+	public Map<IFeature, Set<Origin>> getFalseOptionalFeatures() {
+		return Collections.unmodifiableMap(falseOptionalFeatures);
+	}
+
+	/**
+	 * Returns the redundant constraints found along with their explanations.
+	 * 
+	 * @return the redundant constraints; not null
+	 */
+	public Map<IConstraint, Set<Origin>> getRedundantConstraints() {
+		return Collections.unmodifiableMap(redundantConstraints);
+	}
+
+	/**
+	 * Returns the number of satisfiability checks done by the most recent analysis.
+	 * 
+	 * @return the number of satisfiability checks
+	 */
+	public long getSatCalls() {
+		return satCalls.get();
+	}
+
+	/**
+	 * Analyzes and explains all components.
+	 * If any component is unsatisfiable, the feature model is void, and only that is reported.
+	 * 
+	 * @return true iff the feature model is valid
+	 */
+	public boolean analyze() {
+		voidExplanation = null;
+		deadFeatures.clear();
+		falseOptionalFeatures.clear();
+		redundantConstraints.clear();
+		satCalls.set(0L);
+		final List<Component> components = decomposition.getComponents();
+		final List<Future<Result>> futures = new ArrayList<>();
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (int i = 0; i <= components.size(); i++) {
+				final Component component = i < components.size() ? components.get(i) : null;
+				final int index = i;
+				futures.add(executor.submit(new Callable<Result>() {
+					@Override
+					public Result call() {
+						return analyze(component, features.get(index), constraints.get(index));
+					}
+				}));
+			}
+			final List<Result> results = new ArrayList<>(futures.size());
+			for (final Future<Result> future : futures) {
+				results.add(future.get());
+			}
+			for (final Result result : results) {
+				if (result.voidExplanation != null) {
+					voidExplanation = result.voidExplanation;
+					return false;
+				}
+			}
+			for (final Result result : results) {
+				deadFeatures.putAll(result.deadFeatures);
+				falseOptionalFeatures.putAll(result.falseOptionalFeatures);
+				redundantConstraints.putAll(result.redundantConstraints);
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			executor.shutdown();
+		}
+		return true;
+	}
+
+	/**
+	 * Analyzes and explains the given component.
+	 * Runs in a worker thread.
+	 * 
+	 * @param component the component; null for the core alone
+	 * @param componentFeatures the features of the component; not null
+	 * @param componentConstraints the constraints of the component; not null
+	 * @return the results; not null
+	 */
+	private Result analyze(Component component, List<IFeature> componentFeatures, List<IConstraint> componentConstraints) {
+		final FeatureModelCnf cnf = decomposition.getCnf();
+		final List<Origin> enabled = new ArrayList<>(decomposition.getCore().getOrigins());
+		if (component != null) {
+			enabled.addAll(component.getOrigins());
+		}
+		final MusOracle oracle = new MusOracle(cnf, enabled);
+		final Result result = new Result();
+		try {
+			result.voidExplanation = oracle.getMinimalUnsatisfiableSubset(new int[0], enabled, strategy);
+			if (result.voidExplanation != null) {
+				return result;
+			}
+			final Set<Integer> seenSelected = new LinkedHashSet<>();
+			final Set<Integer> seenOptional = new LinkedHashSet<>();
+			see(oracle, componentFeatures, seenSelected, seenOptional);
+			for (final IFeature f : componentFeatures) {
+				final int variable = cnf.getVariable(f);
+				if (seenSelected.contains(variable)) {
+					continue;
+				}
+				final Set<Origin> explanation = oracle.getMinimalUnsatisfiableSubset(new int[] { variable }, enabled, strategy);
+				if (explanation == null) {
+					see(oracle, componentFeatures, seenSelected, seenOptional);
+				} else {
+					result.deadFeatures.put(f, explanation);
+				}
+			}
+			for (final IFeature f : componentFeatures) {
+				final int variable = cnf.getVariable(f);
+				if (!FeatureModelCnf.isOptional(f) || result.deadFeatures.containsKey(f) || seenOptional.contains(variable)) {
+					continue;
+				}
+				final int parent = cnf.getVariable(f.getStructure().getParent().getFeature());
+				final Set<Origin> explanation = oracle.getMinimalUnsatisfiableSubset(new int[] { parent, -variable }, enabled, strategy);
+				if (explanation == null) {
+					see(oracle, componentFeatures, seenSelected, seenOptional);
+				} else {
+					result.falseOptionalFeatures.put(f, explanation);
+				}
+			}
+			for (final IConstraint c : componentConstraints) {
+				final Origin origin = cnf.getOrigin(c);
+				if (cnf.getClauses(origin).isEmpty()) {
+					continue;
+				}
+				final List<Origin> candidates = new ArrayList<>(enabled);
+				candidates.remove(origin);
+				final Set<Origin> explanation = oracle.getMinimalUnsatisfiableSubset(new int[] { oracle.getNegation(origin) }, candidates, strategy);
+				if (explanation != null) {
+					result.redundantConstraints.put(c, explanation);
+				}
+			}
+			return result;
+		} finally {
+			satCalls.addAndGet(oracle.getSatCalls());
+		}
+	}
+
+	/**
+	 * Remembers which of the given features are selected and which are deselected while their parent is selected in the most recent model of the given oracle.
+	 * The oracle only contains the variables of the core and of one component, so the model is queried by variable.
+	 * 
+	 * @param oracle the oracle that has just found a model; not null
+	 * @param componentFeatures the features of the component; not null
+	 * @param seenSelected the selected variables to add to; not null
+	 * @param seenOptional the deselected variables with a selected parent to add to; not null
+	 */
+	private void see(MusOracle oracle, List<IFeature> componentFeatures, Set<Integer> seenSelected, Set<Integer> seenOptional) {
+		final FeatureModelCnf cnf = decomposition.getCnf();
+		for (final IFeature f : componentFeatures) {
+			final int variable = cnf.getVariable(f);
+			if (oracle.isTrue(variable)) {
+				seenSelected.add(variable);
+			} else if (!f.getStructure().isRoot() && oracle.isTrue(cnf.getVariable(f.getStructure().getParent().getFeature()))) {
+				seenOptional.add(variable);
+			}
+		}
+	}
+}
@@ -0,0 +1,301 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import de.ovgu.featureide.fm.core.base.IFeatureStructure;
+
+/**
+ * <p>
+ * Partitions a feature model in conjunctive normal form into independent components.
+ * </p>
+ * 
+ * <p>
+ * The core consists of the root feature and, recursively, the mandatory children of core features in and-groups.
+ * Unless the feature model is void, each core feature is selected in every configuration and thus acts like a constant.
+ * The remaining variables are partitioned using union-find:
+ * the non-core variables of each origin, whether from a tree edge, a group or a cross-tree constraint, end up in the same component.
+ * Hence, the subtrees below core features in and-groups fall apart into components unless cross-tree constraints connect them.
+ * </p>
+ * 
+ * <p>
+ * Each component consists of its variables and the origins containing them.
+ * The origins containing only core variables form the core origins.
+ * The core origins together with the origins of one component are satisfiable if and only if they are satisfiable together with all other origins,
+ * provided that the core origins and every other component are satisfiable as well.
+ * Thus, each component can be analyzed and explained on its own along with the core origins.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ComponentDecomposition {
+
+	/**
+	 * A set of variables and the origins containing them.
+	 */
+	public static class Component {
+
+		/** The variables in ascending order. */
+		private final List<Integer> variables = new ArrayList<>();
+		/** The origins in the order of the CNF. */
+		private final List<Origin> origins = new ArrayList<>();
+
+		/**
+		 * Returns the variables of this component.
+		 * 
+		 * @return the variables in ascending order; not null
+		 */
+		public List<Integer> getVariables() {
+			return Collections.unmodifiableList(variables);
+		}
+
+		/**
+		 * Returns the origins of this component.
+		 * 
+		 * @return the origins in the order of the CNF; not null
+		 */
+		public List<Origin> getOrigins() {
+			return Collections.unmodifiableList(origins);
+		}
+	}
+
+	/** The CNF. */
+	private final FeatureModelCnf cnf;
+	/** Whether each variable belongs to the core, indexed by variable. */
+	private final boolean[] core;
+	/** The union-find parent of each variable, indexed by variable. */
+	private final int[] parents;
+	/** The core origins. */
+	private final Component coreComponent = new Component();
+	/** The components in the order of their smallest variable. */
+	private final List<Component> components = new ArrayList<>();
+	/** The index of the component of each variable, indexed by variable; -1 for core variables. */
+	private final int[] componentIndices;
+	/** The index of the component of each origin; absent for core origins. */
+	private final Map<Origin, Integer> originIndices = new HashMap<>();
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param cnf the CNF; not null
+	 */
+	public ComponentDecomposition(FeatureModelCnf cnf) {
+		this(cnf, true);
+	}
+
+	/**
+	 * Constructs a new instance of this class.
+	 * Without decomposing, there is no core and all variables end up in a single component,
+	 * which is useful for comparison.
+	 * 
+	 * @param cnf the CNF; not null
+	 * @param decompose whether to decompose below the core
+	 */
+	public ComponentDecomposition(FeatureModelCnf cnf, boolean decompose) {
+		this.cnf = cnf;
+		final int variableCount = cnf.getVariableCount();
+		core = new boolean[variableCount + 1];
+		parents = new int[variableCount + 1];
+		for (int variable = 1; variable <= variableCount; variable++) {
+			parents[variable] = variable;
+		}
+		final IFeatureStructure root = cnf.getFeatureModel().getStructure().getRoot();
+		if (decompose && root != null) {
+			markCore(root);
+		}
+		for (final Origin origin : cnf.getOrigins()) {
+			int first = 0;
+			for (final Clause clause : cnf.getClauses(origin)) {
+				for (final int literal : clause.getLiterals()) {
+					final int variable = Math.abs(literal);
+					if (core[variable]) {
+						continue;
+					}
+					if (first == 0) {
+						first = variable;
+					} else {
+						union(first, variable);
+					}
+				}
+			}
+		}
+		componentIndices = new int[variableCount + 1];
+		final Map<Integer, Integer> rootIndices = new HashMap<>();
+		for (int variable = 1; variable <= variableCount; variable++) {
+			if (core[variable]) {
+				componentIndices[variable] = -1;
+				continue;
+			}
+			final int representative = find(variable);
+			Integer index = rootIndices.get(representative);
+			if (index == null) {
+				index = components.size();
+				rootIndices.put(representative, index);
+				components.add(new Component());
+			}
+			componentIndices[variable] = index;
+			components.get(index).variables.add(variable);
+		}
+		for (final Origin origin : cnf.getOrigins()) {
+			final int index = getComponentIndex(origin);
+			if (index < 0) {
+				coreComponent.origins.add(origin);
+			} else {
+				originIndices.put(origin, index);
+				components.get(index).origins.add(origin);
+			}
+		}
+	}
+
+	/**
+	 * Marks the given feature and its mandatory children in and-groups as core recursively.
+	 * 
+	 * @param s the core feature structure; not null
+	 */
+	private void markCore(IFeatureStructure s) {
+		final LinkedList<IFeatureStructure> pending = new LinkedList<>();
+		pending.add(s);
+		while (!pending.isEmpty()) {
+			final IFeatureStructure current = pending.removeFirst();
+			final int variable = cnf.getVariable(current.getFeature());
+			core[variable] = true;
+			coreComponent.variables.add(variable);
+			if (current.isAnd()) {
+				for (final IFeatureStructure child : current.getChildren()) {
+					if (child.isMandatory()) {
+						pending.add(child);
+					}
+				}
+			}
+		}
+		Collections.sort(coreComponent.variables);
+	}
+
+	/**
+	 * Returns the index of the component containing the first non-core variable of the given origin.
+	 * 
+	 * @param origin the origin; not null
+	 * @return the index of the component; -1 if the origin only contains core variables
+	 */
+	private int getComponentIndex(Origin origin) {
+		for (final Clause clause : cnf.getClauses(origin)) {
+			for (final int literal : clause.getLiterals()) {
+				final int variable = Math.abs(literal);
+				if (!core[variable]) {
+					return componentIndices[variable];
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the representative of the set containing the given variable.
+	 * Compresses the path along the way.
+	 * 
+	 * @param variable the variable; positive
+	 * @return the representative; positive
+	 */
+	private int find(int variable) {
+		int representative = variable;
+		while (parents[representative] != representative) {
+			representative = parents[representative];
+		}
+		while (parents[variable] != representative) {
+			final int next = parents[variable];
+			parents[variable] = representative;
+			variable = next;
+		}
+		return representative;
+	}
+
+	/**
+	 * Merges the sets containing the given variables.
+	 * 
+	 * @param a a variable; positive
+	 * @param b another variable; positive
+	 */
+	private void union(int a, int b) {
+		final int ra = find(a);
+		final int rb = find(b);
+		if (ra != rb) {
+			parents[Math.max(ra, rb)] = Math.min(ra, rb);
+		}
+	}
+
+	/**
+	 * Returns the CNF.
+	 * 
+	 * @return the CNF; not null
+	 */
+	public FeatureModelCnf getCnf() {
+		return cnf;
+	}
+
+	/**
+	 * Returns the core variables and the core origins.
+	 * 
+	 * @return the core; not null
+	 */
+	public Component getCore() {
+		return coreComponent;
+	}
+
+	/**
+	 * Returns true iff the given variable belongs to the core.
+	 * 
+	 * @param variable the variable; positive
+	 * @return true iff core
+	 */
+	public boolean isCore(int variable) {
+		return core[variable];
+	}
+
+	/**
+	 * Returns the components.
+	 * 
+	 * @return the components in the order of their smallest variable; not null
+	 */
+	public List<Component> getComponents() {
+		return Collections.unmodifiableList(components);
+	}
+
+	/**
+	 * Returns the component containing the given variable.
+	 * 
+	 * @param variable the variable; positive
+	 * @return the component; null for core variables
+	 */
+	public Component getComponent(int variable) {
+		final int index = componentIndices[variable];
+		return index < 0 ? null : components.get(index);
+	}
+
+	/**
+	 * Returns the component containing the given origin.
+	 * 
+	 * @param origin the origin; not null
+	 * @return the component; null for core origins
+	 */
+	public Component getComponent(Origin origin) {
+		final Integer index = originIndices.get(origin);
+		return index == null ? null : components.get(index);
+	}
+
+	/**
+	 * Returns the number of variables in the largest component.
+	 * 
+	 * @return the size of the largest component; 0 if there are no components
+	 */
+	public int getMaxComponentSize() {
+		int max = 0;
+		for (final Component component : components) {
+			max = Math.max(max, component.variables.size());
+		}
+		return max;
+	}
+}
@@ -0,0 +1,166 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Deduplicates and clusters configurations by their {@link SelectionSet manual selections}.
+ * Configurations with equal manual selections are combined into one.
+ * The remaining unique configurations are put into an order in which each one is followed by its nearest unvisited neighbor.
+ * </p>
+ * 
+ * <p>
+ * A new cluster starts whenever the nearest neighbor differs in more than a given share of its manual selections.
+ * Within a cluster, consecutive configurations share most of their manual selections,
+ * so results derived from the shared selections can be reused for the next configuration.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ConfigurationClusters {
+
+	/** The unique selection sets in order of their first occurrence. */
+	private final List<SelectionSet> uniques;
+	/** The number of configurations with each unique selection set. */
+	private final int[] multiplicities;
+	/** The indexes of the unique selection sets in sweep order. */
+	private final int[] order;
+	/** The cluster of each position in the sweep order. */
+	private final int[] clusters;
+	/** The number of clusters. */
+	private final int clusterCount;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param sets the selection sets of all configurations; not null
+	 * @param maxDistance the largest share of differing manual selections between consecutive configurations of the same cluster between 0 and 1
+	 */
+	public ConfigurationClusters(List<SelectionSet> sets, double maxDistance) {
+		final Map<SelectionSet, Integer> counts = new LinkedHashMap<>();
+		for (final SelectionSet set : sets) {
+			final Integer count = counts.get(set);
+			counts.put(set, count == null ? 1 : count + 1);
+		}
+		uniques = new ArrayList<>(counts.keySet());
+		multiplicities = new int[uniques.size()];
+		int i = 0;
+		for (final int count : counts.values()) {
+			multiplicities[i++] = count;
+		}
+		order = new int[uniques.size()];
+		clusters = new int[uniques.size()];
+		clusterCount = sweep(maxDistance);
+	}
+
+	/**
+	 * Orders the unique selection sets by repeatedly visiting the nearest unvisited one.
+	 * Each cluster starts with the smallest unvisited selection set.
+	 * 
+	 * @param maxDistance the largest share of differing manual selections within a cluster
+	 * @return the number of clusters
+	 */
+	private int sweep(double maxDistance) {
+		final int n = uniques.size();
+		final boolean[] visited = new boolean[n];
+		int cluster = -1;
+		int current = -1;
+		for (int position = 0; position < n; position++) {
+			int next = -1;
+			if (current >= 0) {
+				int nearest = Integer.MAX_VALUE;
+				for (int j = 0; j < n; j++) {
+					if (!visited[j]) {
+						final int distance = uniques.get(current).getDistance(uniques.get(j));
+						if (distance < nearest) {
+							nearest = distance;
+							next = j;
+						}
+					}
+				}
+				final int size = Math.max(uniques.get(current).size(), uniques.get(next).size());
+				if (nearest > maxDistance * size) {
+					next = -1;
+				}
+			}
+			if (next < 0) {
+				int smallest = Integer.MAX_VALUE;
+				for (int j = 0; j < n; j++) {
+					if (!visited[j] && uniques.get(j).size() < smallest) {
+						smallest = uniques.get(j).size();
+						next = j;
+					}
+				}
+				cluster++;
+			}
+			visited[next] = true;
+			order[position] = next;
+			clusters[position] = cluster;
+			current = next;
+		}
+		return cluster + 1;
+	}
+
+	/**
+	 * Returns the unique selection set at the given position in the sweep order.
+	 * 
+	 * @param position the position in the sweep order
+	 * @return the selection set; not null
+	 */
+	public SelectionSet getSet(int position) {
+		return uniques.get(order[position]);
+	}
+
+	/**
+	 * Returns the index of the unique selection set at the given position in the sweep order.
+	 * Unique selection sets are indexed in order of their first occurrence.
+	 * 
+	 * @param position the position in the sweep order
+	 * @return the index of the unique selection set
+	 */
+	public int getUniqueIndex(int position) {
+		return order[position];
+	}
+
+	/**
+	 * Returns the number of configurations with the unique selection set at the given position in the sweep order.
+	 * 
+	 * @param position the position in the sweep order
+	 * @return the multiplicity; positive
+	 */
+	public int getMultiplicity(int position) {
+		return multiplicities[order[position]];
+	}
+
+	/**
+	 * Returns the cluster of the unique selection set at the given position in the sweep order.
+	 * Clusters are numbered consecutively in sweep order starting at 0.
+	 * 
+	 * @param position the position in the sweep order
+	 * @return the cluster
+	 */
+	public int getCluster(int position) {
+		return clusters[position];
+	}
+
+	/**
+	 * Returns the number of unique selection sets.
+	 * 
+	 * @return the number of unique configurations
+	 */
+	public int getUniqueCount() {
+		return uniques.size();
+	}
+
+	/**
+	 * Returns the number of clusters.
+	 * 
+	 * @return the number of clusters
+	 */
+	public int getClusterCount() {
+		return clusterCount;
+	}
+}
@@ -0,0 +1,81 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import de.ovgu.featureide.fm.core.configuration.Configuration;
+import de.ovgu.featureide.fm.core.configuration.SelectableFeature;
+
+/**
+ * A configuration in conjunctive normal form.
+ * This is the CNF of its feature model plus one unit clause for each manual selection.
+ * Each manual selection has its own {@link Origin.Kind#SELECTION selection origin}.
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ConfigurationCnf extends FeatureModelCnf {
+
+	/** The configuration. */
+	private final Configuration config;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param config the configuration to encode; not null
+	 */
+	public ConfigurationCnf(Configuration config) {
+		super(config.getFeatureModel());
+		this.config = config;
+		for (final SelectableFeature s : config.getFeatures()) {
+			final int variable = getVariable(s.getFeature());
+			switch (s.getManual()) {
+			case SELECTED:
+				addClause(getOrigin(s), variable);
+				break;
+			case UNSELECTED:
+				addClause(getOrigin(s), -variable);
+				break;
+			case UNDEFINED:
+				break;
+			default:
+				throw new IllegalStateException("Unknown selection state");
+			}
+		}
+	}
+
+	/**
+	 * Returns the encoded configuration.
+	 * 
+	 * @return the configuration; not null
+	 */
+	public Configuration getConfiguration() {
+		return config;
+	}
+
+	/**
+	 * Returns the origin of the manual selection of the given feature.
+	 * 
+	 * @param s the feature selection; not null
+	 * @return the origin; not null
+	 */
+	public Origin getOrigin(SelectableFeature s) {
+		return new Origin(Origin.Kind.SELECTION, s.getFeature());
+	}
+
+	/**
+	 * Returns the literal of the automatic selection of the given feature.
+	 * 
+	 * @param s the feature selection; not null
+	 * @return the literal; 0 if the feature is not automatically selected or unselected
+	 */
+	public int getAutomaticLiteral(SelectableFeature s) {
+		final int variable = getVariable(s.getFeature());
+		switch (s.getAutomatic()) {
+		case SELECTED:
+			return variable;
+		case UNSELECTED:
+			return -variable;
+		case UNDEFINED:
+			return 0;
+		default:
+			throw new IllegalStateException("Unknown selection state");
+		}
+	}
+}
@@ -0,0 +1,337 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import de.ovgu.featureide.fm.core.base.IFeature;
+import de.ovgu.featureide.fm.core.base.IFeatureModel;
+import de.ovgu.featureide.fm.core.configuration.Selection;
+
+/**
+ * <p>
+ * An interactive configuration session in which a user selects and deselects features one at a time.
+ * After each change, the automatic selections are updated incrementally and can be explained.
+ * </p>
+ * 
+ * <p>
+ * Each manual selection is a decision of a {@link UnitPropagator unit propagator}.
+ * Selecting a feature only propagates the consequences of the new decision.
+ * Deselecting a feature backtracks to the decision level of its selection and then redoes all later selections.
+ * </p>
+ * 
+ * <p>
+ * Unit propagation alone may miss automatic selections.
+ * These are found using the incremental solver of a {@link MusOracle MUS oracle}, which stays warm throughout the session.
+ * Since selecting a feature only strengthens the formula, automatic selections found before are kept and only the remaining features are checked.
+ * Likewise, since deselecting a feature only weakens the formula, features known to be free stay free.
+ * </p>
+ * 
+ * <p>
+ * Explanations are cached.
+ * On deselection, only the cached explanations containing the deselected feature are discarded.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ConfigurationSession {
+
+	/** The CNF of the feature model and the manual selections. */
+	private final SessionCnf cnf;
+	/** The propagator. */
+	private final UnitPropagator propagator;
+	/** The oracle. */
+	private final MusOracle oracle;
+	/** The strategy used to shrink unsatisfiable subsets. */
+	private final ShrinkingStrategy strategy;
+
+	/** The literals of the manual selections by variable in the order they were made. */
+	private final Map<Integer, Integer> manual = new LinkedHashMap<>();
+	/** The literals of the automatic selections not found by unit propagation by variable. */
+	private final Map<Integer, Integer> implied = new HashMap<>();
+	/** Whether each variable is known to be neither selected nor unselected automatically. */
+	private final boolean[] free;
+	/** The cached explanation of each automatic selection by literal. */
+	private final Map<Integer, Set<Origin>> explanations = new HashMap<>();
+
+	/**
+	 * Constructs a new instance of this class.
+	 * The session starts without any manual selections.
+	 * 
+	 * @param fm the feature model to configure; not null
+	 * @param strategy the strategy used to shrink unsatisfiable subsets; not null
+	 */
+	public ConfigurationSession(IFeatureModel fm, ShrinkingStrategy strategy) {
+		this.strategy = strategy;
+		cnf = new SessionCnf(fm);
+		propagator = new UnitPropagator(cnf);
+		oracle = new MusOracle(cnf);
+		free = new boolean[cnf.getVariableCount() + 1];
+		propagator.propagate();
+		update(true);
+	}
+
+	/**
+	 * Returns the CNF.
+	 * 
+	 * @return the CNF; not null
+	 */
+	public FeatureModelCnf getCnf() {
+		return cnf;
+	}
+
+	/**
+	 * Returns the number of satisfiability checks done so far.
+	 * 
+	 * @return the number of satisfiability checks
+	 */
+	public long getSatCalls() {
+		return oracle.getSatCalls();
+	}
+
+	/**
+	 * Returns the manual selection of the given feature.
+	 * 
+	 * @param f the feature; not null
+	 * @return the manual selection; not null
+	 */
+	public Selection getManual(IFeature f) {
+		return toSelection(manual.get(cnf.getVariable(f)));
+	}
+
+	/**
+	 * Returns the automatic selection of the given feature.
+	 * Features selected manually are never selected automatically.
+	 * 
+	 * @param f the feature; not null
+	 * @return the automatic selection; not null
+	 */
+	public Selection getAutomatic(IFeature f) {
+		return toSelection(getAutomaticLiteral(cnf.getVariable(f)));
+	}
+
+	/**
+	 * Returns the literals of all automatic selections.
+	 * 
+	 * @return the automatic literals; not null
+	 */
+	public List<Integer> getAutomaticLiterals() {
+		final List<Integer> literals = new ArrayList<>();
+		for (int variable = 1; variable < free.length; variable++) {
+			final Integer literal = getAutomaticLiteral(variable);
+			if (literal != null) {
+				literals.add(literal);
+			}
+		}
+		return literals;
+	}
+
+	/**
+	 * Returns the literal of the automatic selection of the given variable.
+	 * 
+	 * @param variable the variable; positive
+	 * @return the literal; null if not selected automatically
+	 */
+	private Integer getAutomaticLiteral(int variable) {
+		if (manual.containsKey(variable)) {
+			return null;
+		}
+		final int value = propagator.getValue(variable);
+		if (value != 0) {
+			return value > 0 ? variable : -variable;
+		}
+		return implied.get(variable);
+	}
+
+	/**
+	 * Returns the given literal as a selection.
+	 * 
+	 * @param literal the literal; null if undefined
+	 * @return the selection; not null
+	 */
+	private static Selection toSelection(Integer literal) {
+		if (literal == null) {
+			return Selection.UNDEFINED;
+		}
+		return literal > 0 ? Selection.SELECTED : Selection.UNSELECTED;
+	}
+
+	/**
+	 * Manually selects or unselects the given feature.
+	 * 
+	 * @param f the feature; not null
+	 * @param selected true to select the feature; false to unselect it
+	 * @throws IllegalArgumentException if the feature is already selected manually or automatically
+	 */
+	public void select(IFeature f, boolean selected) throws IllegalArgumentException {
+		final int variable = cnf.getVariable(f);
+		if (manual.containsKey(variable) || getAutomaticLiteral(variable) != null) {
+			throw new IllegalArgumentException("Feature already selected: " + f.getName());
+		}
+		final int literal = selected ? variable : -variable;
+		final Origin origin = cnf.setSelection(f, literal);
+		oracle.addOrigin(origin);
+		manual.put(variable, literal);
+		propagator.decide(literal, origin);
+		update(true);
+	}
+
+	/**
+	 * Takes back the manual selection of the given feature.
+	 * 
+	 * @param f the feature; not null
+	 * @throws IllegalArgumentException if the feature is not selected manually
+	 */
+	public void deselect(IFeature f) throws IllegalArgumentException {
+		final int variable = cnf.getVariable(f);
+		if (!manual.containsKey(variable)) {
+			throw new IllegalArgumentException("Feature not selected: " + f.getName());
+		}
+		final Origin origin = cnf.setSelection(f, 0);
+		oracle.removeOrigin(origin);
+		int level = 0;
+		for (final int v : manual.keySet()) {
+			if (v == variable) {
+				break;
+			}
+			level++;
+		}
+		manual.remove(variable);
+		propagator.backtrack(level);
+		int i = 0;
+		for (final int literal : manual.values()) {
+			if (i++ >= level) {
+				propagator.decide(literal, cnf.getSelectionOrigin(Math.abs(literal)));
+			}
+		}
+		for (final Iterator<Set<Origin>> it = explanations.values().iterator(); it.hasNext();) {
+			if (it.next().contains(origin)) {
+				it.remove();
+			}
+		}
+		update(false);
+	}
+
+	/**
+	 * Returns an explanation for the automatic selection of the given feature.
+	 * 
+	 * @param f the feature; not null
+	 * @return the origins of the explanation; null if the feature is not selected automatically
+	 */
+	public Set<Origin> getExplanation(IFeature f) {
+		final Integer literal = getAutomaticLiteral(cnf.getVariable(f));
+		return literal == null ? null : getExplanation(literal);
+	}
+
+	/**
+	 * Returns an explanation for the given automatic selection.
+	 * 
+	 * @param literal the literal of the automatic selection; not 0
+	 * @return the origins of the explanation; not null
+	 */
+	public Set<Origin> getExplanation(int literal) {
+		Set<Origin> explanation = explanations.get(literal);
+		if (explanation != null) {
+			return explanation;
+		}
+		explanation = propagator.explain(literal);
+		if (explanation == null) {
+			explanation = oracle.getMinimalUnsatisfiableSubset(new int[] { -literal }, oracle.getOrigins(), strategy);
+		}
+		explanations.put(literal, explanation);
+		return explanation;
+	}
+
+	/**
+	 * Updates the automatic selections not found by unit propagation.
+	 * 
+	 * @param strengthened true if the formula has been strengthened; false if it has been weakened
+	 */
+	private void update(boolean strengthened) {
+		if (strengthened) {
+			Arrays.fill(free, false);
+			for (final Iterator<Entry<Integer, Integer>> it = implied.entrySet().iterator(); it.hasNext();) {
+				if (propagator.getValue(it.next().getKey()) != 0) {
+					it.remove();
+				}
+			}
+		} else {
+			implied.clear();
+		}
+		final List<Integer> candidates = new ArrayList<>();
+		for (int variable = 1; variable < free.length; variable++) {
+			if (propagator.getValue(variable) == 0 && !free[variable] && !implied.containsKey(variable)) {
+				candidates.add(variable);
+			}
+		}
+		if (candidates.isEmpty() || !oracle.isSatisfiable(new int[0], oracle.getOrigins())) {
+			return;
+		}
+		final int[] reference = oracle.getModel().clone();
+		for (final int variable : candidates) {
+			if (free[variable]) {
+				continue;
+			}
+			final int literal = reference[variable - 1] > 0 ? variable : -variable;
+			if (oracle.isSatisfiable(new int[] { -literal }, oracle.getOrigins())) {
+				final int[] model = oracle.getModel();
+				for (int v = 1; v < free.length; v++) {
+					if (model[v - 1] != reference[v - 1]) {
+						free[v] = true;
+					}
+				}
+			} else {
+				implied.put(variable, literal);
+			}
+		}
+	}
+
+	/**
+	 * The CNF of a feature model with changing manual selections.
+	 * 
+	 * @author Timo G&uuml;nther
+	 */
+	private static class SessionCnf extends FeatureModelCnf {
+
+		/**
+		 * Constructs a new instance of this class.
+		 * 
+		 * @param fm the feature model to encode; not null
+		 */
+		public SessionCnf(IFeatureModel fm) {
+			super(fm);
+		}
+
+		/**
+		 * Returns the origin of the manual selection of the feature with the given variable.
+		 * 
+		 * @param variable the variable; positive
+		 * @return the origin; not null
+		 */
+		public Origin getSelectionOrigin(int variable) {
+			return new Origin(Origin.Kind.SELECTION, getFeatureModel().getFeature(getName(variable)));
+		}
+
+		/**
+		 * Replaces the manual selection of the given feature.
+		 * 
+		 * @param f the feature; not null
+		 * @param literal the literal of the new selection; 0 to remove the selection
+		 * @return the origin of the selection; not null
+		 */
+		public Origin setSelection(IFeature f, int literal) {
+			final Origin origin = new Origin(Origin.Kind.SELECTION, f);
+			removeClauses(origin);
+			if (literal != 0) {
+				addClause(origin, literal);
+			}
+			return origin;
+		}
+	}
+}
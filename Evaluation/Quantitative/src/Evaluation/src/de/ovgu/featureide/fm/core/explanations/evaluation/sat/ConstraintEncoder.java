@@ -0,0 +1,269 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.prop4j.And;
+import org.prop4j.Equals;
+import org.prop4j.Implies;
+import org.prop4j.Literal;
+import org.prop4j.Node;
+import org.prop4j.Not;
+import org.prop4j.Or;
+
+/**
+ * <p>
+ * Converts propositional formulas to clauses using a given {@link CnfEncoding encoding}.
+ * </p>
+ * 
+ * <p>
+ * Except for {@link CnfEncoding#DISTRIBUTIVE}, the conjuncts of the formula that already are clauses are added as they are.
+ * Every other conjunct is replaced by a literal defined by auxiliary clauses.
+ * Auxiliary variables are numbered consecutively after a given variable.
+ * The caller has to reserve them afterwards using {@link #getAuxiliaryCount()}.
+ * </p>
+ * 
+ * <p>
+ * Instances are not thread-safe, but any number of instances may encode in parallel.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public abstract class ConstraintEncoder {
+
+	/** The encoding. */
+	private final CnfEncoding encoding;
+	/** The variable after which auxiliary variables are numbered. */
+	private final int lastVariable;
+	/** The number of auxiliary variables introduced so far. */
+	private int auxiliaryCount;
+	/** The clauses of the formula being encoded. */
+	private List<int[]> clauses;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param encoding the encoding; not null
+	 * @param lastVariable the variable after which auxiliary variables are numbered; not negative
+	 */
+	protected ConstraintEncoder(CnfEncoding encoding, int lastVariable) {
+		this.encoding = encoding;
+		this.lastVariable = lastVariable;
+	}
+
+	/**
+	 * Returns the variable of the feature with the given name.
+	 * 
+	 * @param name the feature name; not null
+	 * @return the variable; positive
+	 * @throws IllegalArgumentException if there is no such feature
+	 */
+	protected abstract int getVariable(String name) throws IllegalArgumentException;
+
+	/**
+	 * Returns the encoding.
+	 * 
+	 * @return the encoding; not null
+	 */
+	public CnfEncoding getEncoding() {
+		return encoding;
+	}
+
+	/**
+	 * Returns the number of auxiliary variables introduced by all formulas encoded so far.
+	 * 
+	 * @return the number of auxiliary variables
+	 */
+	public int getAuxiliaryCount() {
+		return auxiliaryCount;
+	}
+
+	/**
+	 * Returns the clauses of the given formula.
+	 * 
+	 * @param node the formula; not null
+	 * @return the clauses; not null
+	 * @throws IllegalArgumentException if the formula refers to an unknown feature
+	 */
+	public int[][] encode(Node node) throws IllegalArgumentException {
+		clauses = new ArrayList<>();
+		if (encoding == CnfEncoding.DISTRIBUTIVE) {
+			for (final Node clause : node.toRegularCNF().getChildren()) {
+				final Node[] children = clause.getChildren();
+				final int[] literals = new int[children.length];
+				for (int i = 0; i < children.length; i++) {
+					literals[i] = getLiteral((Literal) children[i]);
+				}
+				clauses.add(literals);
+			}
+		} else {
+			addConjuncts(node);
+		}
+		final int[][] result = clauses.toArray(new int[clauses.size()][]);
+		clauses = null;
+		return result;
+	}
+
+	/**
+	 * Adds the conjuncts of the given formula.
+	 * 
+	 * @param node the formula; not null
+	 */
+	private void addConjuncts(Node node) {
+		if (node instanceof And) {
+			for (final Node child : node.getChildren()) {
+				addConjuncts(child);
+			}
+			return;
+		}
+		final int[] clause = getClause(node);
+		if (clause != null) {
+			clauses.add(clause);
+		} else {
+			clauses.add(new int[] { define(node, true, encoding == CnfEncoding.TSEITIN) });
+		}
+	}
+
+	/**
+	 * Returns the given formula as a clause if it is one.
+	 * 
+	 * @param node the formula; not null
+	 * @return the literals of the clause; null if the formula is not a clause
+	 */
+	private int[] getClause(Node node) {
+		final int literal = getSimpleLiteral(node);
+		if (literal != 0) {
+			return new int[] { literal };
+		}
+		final Node[] children = node.getChildren();
+		final int[] literals = new int[children.length];
+		if (node instanceof Or) {
+			for (int i = 0; i < children.length; i++) {
+				literals[i] = getSimpleLiteral(children[i]);
+				if (literals[i] == 0) {
+					return null;
+				}
+			}
+			return literals;
+		}
+		if (node instanceof Implies) {
+			literals[0] = -getSimpleLiteral(children[0]);
+			literals[1] = getSimpleLiteral(children[1]);
+			return literals[0] == 0 || literals[1] == 0 ? null : literals;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the literal of the given formula if it is a possibly negated variable.
+	 * 
+	 * @param node the formula; not null
+	 * @return the literal; 0 if the formula is compound
+	 */
+	private int getSimpleLiteral(Node node) {
+		if (node instanceof Literal) {
+			return getLiteral((Literal) node);
+		}
+		if (node instanceof Not && node.getChildren()[0] instanceof Literal) {
+			return -getLiteral((Literal) node.getChildren()[0]);
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the literal of the given prop4j literal.
+	 * 
+	 * @param l the prop4j literal; not null
+	 * @return the literal; not 0
+	 */
+	private int getLiteral(Literal l) {
+		final int variable = getVariable(String.valueOf(l.var));
+		return l.positive ? variable : -variable;
+	}
+
+	/**
+	 * Returns a literal representing the given formula and adds the clauses defining it.
+	 * 
+	 * @param node the formula; not null
+	 * @param positive whether the literal has to imply the formula
+	 * @param negative whether the formula has to imply the literal
+	 * @return the literal; not 0
+	 */
+	private int define(Node node, boolean positive, boolean negative) {
+		if (node instanceof Literal) {
+			return getLiteral((Literal) node);
+		}
+		final Node[] children = node.getChildren();
+		if (node instanceof Not) {
+			return -define(children[0], negative, positive);
+		}
+		if ((node instanceof And || node instanceof Or) && children.length == 1) {
+			return define(children[0], positive, negative);
+		}
+		if (node instanceof And) {
+			final int[] literals = new int[children.length];
+			for (int i = 0; i < children.length; i++) {
+				literals[i] = -define(children[i], positive, negative);
+			}
+			return -defineOr(literals, negative, positive);
+		}
+		if (node instanceof Or) {
+			final int[] literals = new int[children.length];
+			for (int i = 0; i < children.length; i++) {
+				literals[i] = define(children[i], positive, negative);
+			}
+			return defineOr(literals, positive, negative);
+		}
+		if (node instanceof Implies) {
+			return defineOr(new int[] { -define(children[0], negative, positive), define(children[1], positive, negative) }, positive, negative);
+		}
+		if (node instanceof Equals) {
+			final int a = define(children[0], true, true);
+			final int b = define(children[1], true, true);
+			final int x = newAuxiliary();
+			if (positive) {
+				clauses.add(new int[] { -x, -a, b });
+				clauses.add(new int[] { -x, a, -b });
+			}
+			if (negative) {
+				clauses.add(new int[] { x, a, b });
+				clauses.add(new int[] { x, -a, -b });
+			}
+			return x;
+		}
+		return define(node.toRegularCNF(), positive, negative);
+	}
+
+	/**
+	 * Returns a new auxiliary variable representing the disjunction of the given literals and adds the clauses defining it.
+	 * 
+	 * @param literals the literals of the disjunction; not null
+	 * @param positive whether the variable has to imply the disjunction
+	 * @param negative whether the disjunction has to imply the variable
+	 * @return the auxiliary variable; positive
+	 */
+	private int defineOr(int[] literals, boolean positive, boolean negative) {
+		final int x = newAuxiliary();
+		if (positive) {
+			final int[] clause = new int[literals.length + 1];
+			clause[0] = -x;
+			System.arraycopy(literals, 0, clause, 1, literals.length);
+			clauses.add(clause);
+		}
+		if (negative) {
+			for (final int literal : literals) {
+				clauses.add(new int[] { x, -literal });
+			}
+		}
+		return x;
+	}
+
+	/**
+	 * Returns a new auxiliary variable.
+	 * 
+	 * @return the auxiliary variable; positive
+	 */
+	private int newAuxiliary() {
+		return lastVariable + ++auxiliaryCount;
+	}
+}
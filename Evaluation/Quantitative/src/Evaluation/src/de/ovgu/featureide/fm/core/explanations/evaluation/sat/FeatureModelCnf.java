@@ -0,0 +1,514 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.prop4j.And;
+import org.prop4j.AtMost;
+import org.prop4j.Literal;
+import org.prop4j.Node;
+import org.prop4j.Not;
+import org.prop4j.Or;
+
+import de.ovgu.featureide.fm.core.base.IConstraint;
+import de.ovgu.featureide.fm.core.base.IFeature;
+import de.ovgu.featureide.fm.core.base.IFeatureModel;
+import de.ovgu.featureide.fm.core.base.IFeatureStructure;
+
+/**
+ * <p>
+ * A feature model in conjunctive normal form.
+ * Each feature is mapped to a variable.
+ * Each clause is tagged with the {@link Origin origin} in the feature model it was derived from.
+ * </p>
+ * 
+ * <p>
+ * Variables are numbered starting at 1 as in DIMACS.
+ * The features come first.
+ * Depending on the {@link CnfEncoding encoding} of the constraints and the {@link AtMostOneEncoding encoding} of alternative groups,
+ * auxiliary variables follow.
+ * Auxiliary variables have no feature name and belong to the origin whose clauses introduced them.
+ * Since explanations consist of origins, auxiliary variables never show up as reasons.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class FeatureModelCnf {
+
+	/** The feature model. */
+	private final IFeatureModel fm;
+
+	/** The variable of each feature by the feature name. */
+	private final Map<String, Integer> variables = new LinkedHashMap<>();
+	/** The feature name of each variable minus one; null for auxiliary variables. */
+	private final List<String> names = new ArrayList<>();
+	/** The clauses of each origin. */
+	private final Map<Origin, List<Clause>> clauses = new LinkedHashMap<>();
+	/** The number of clauses. */
+	private int clauseCount;
+	/** The encoding of constraints. */
+	private final CnfEncoding encoding;
+	/** The encoding of alternative groups. */
+	private final AtMostOneEncoding atMostOneEncoding;
+	/** The formula of each origin whose clauses introduced auxiliary variables. */
+	private final Map<Origin, Node> auxiliaryNodes = new LinkedHashMap<>();
+	/** The number of auxiliary variables. */
+	private int auxiliaryCount;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * The constraints are converted using the distributive law.
+	 * 
+	 * @param fm the feature model to encode; not null
+	 */
+	public FeatureModelCnf(IFeatureModel fm) {
+		this(fm, CnfEncoding.DISTRIBUTIVE, 1);
+	}
+
+	/**
+	 * Constructs a new instance of this class.
+	 * With more than one thread, the constraints are converted in parallel.
+	 * The result does not depend on the number of threads.
+	 * 
+	 * @param fm the feature model to encode; not null
+	 * @param encoding the encoding of constraints; not null
+	 * @param threads the number of threads converting constraints; at least 1
+	 */
+	public FeatureModelCnf(IFeatureModel fm, CnfEncoding encoding, int threads) {
+		this(fm, encoding, AtMostOneEncoding.PAIRWISE, threads);
+	}
+
+	/**
+	 * Constructs a new instance of this class.
+	 * With more than one thread, the constraints are converted in parallel.
+	 * The result does not depend on the number of threads.
+	 * 
+	 * @param fm the feature model to encode; not null
+	 * @param encoding the encoding of constraints; not null
+	 * @param atMostOneEncoding the encoding of alternative groups; not null
+	 * @param threads the number of threads converting constraints; at least 1
+	 */
+	public FeatureModelCnf(IFeatureModel fm, CnfEncoding encoding, AtMostOneEncoding atMostOneEncoding, int threads) {
+		this.fm = fm;
+		this.encoding = encoding;
+		this.atMostOneEncoding = atMostOneEncoding;
+		for (final IFeature f : fm.getFeatures()) {
+			addVariable(f.getName());
+		}
+		final IFeatureStructure root = fm.getStructure().getRoot();
+		if (root != null) {
+			addClause(new Origin(Origin.Kind.ROOT, root.getFeature()), getVariable(root.getFeature()));
+			addStructure(root);
+		}
+		if (threads > 1) {
+			addConstraints(fm.getConstraints(), threads);
+		} else {
+			for (final IConstraint c : fm.getConstraints()) {
+				addConstraint(c);
+			}
+		}
+	}
+
+	/**
+	 * Returns the encoded feature model.
+	 * 
+	 * @return the feature model; not null
+	 */
+	public IFeatureModel getFeatureModel() {
+		return fm;
+	}
+
+	/**
+	 * Returns the encoding of constraints.
+	 * 
+	 * @return the encoding; not null
+	 */
+	public CnfEncoding getEncoding() {
+		return encoding;
+	}
+
+	/**
+	 * Returns the encoding of alternative groups.
+	 * 
+	 * @return the encoding; not null
+	 */
+	public AtMostOneEncoding getAtMostOneEncoding() {
+		return atMostOneEncoding;
+	}
+
+	/**
+	 * Returns the number of variables.
+	 * This includes auxiliary variables.
+	 * 
+	 * @return the number of variables
+	 */
+	public int getVariableCount() {
+		return names.size();
+	}
+
+	/**
+	 * Returns the variable of the feature with the given name.
+	 * 
+	 * @param name the name of the feature; not null
+	 * @return the variable; positive
+	 * @throws IllegalArgumentException if there is no such feature
+	 */
+	public int getVariable(String name) throws IllegalArgumentException {
+		final Integer variable = variables.get(name);
+		if (variable == null) {
+			throw new IllegalArgumentException("Unknown feature: " + name);
+		}
+		return variable;
+	}
+
+	/**
+	 * Returns the variable of the given feature.
+	 * 
+	 * @param f the feature; not null
+	 * @return the variable; positive
+	 * @throws IllegalArgumentException if there is no such feature
+	 */
+	public int getVariable(IFeature f) throws IllegalArgumentException {
+		return getVariable(f.getName());
+	}
+
+	/**
+	 * Returns the name of the feature the given variable belongs to.
+	 * 
+	 * @param variable the variable; positive
+	 * @return the feature name; null for auxiliary variables
+	 */
+	public String getName(int variable) {
+		return names.get(variable - 1);
+	}
+
+	/**
+	 * Returns true iff the given variable is auxiliary, i.e., does not belong to a feature.
+	 * 
+	 * @param variable the variable; positive
+	 * @return true iff auxiliary
+	 */
+	public boolean isAuxiliary(int variable) {
+		return names.get(variable - 1) == null;
+	}
+
+	/**
+	 * Returns the number of auxiliary variables.
+	 * 
+	 * @return the number of auxiliary variables
+	 */
+	public int getAuxiliaryCount() {
+		return auxiliaryCount;
+	}
+
+	/**
+	 * Returns the formula of the given origin if its clauses introduced auxiliary variables.
+	 * The clauses of such an origin cannot simply be negated clause by clause.
+	 * 
+	 * @param origin the origin; not null
+	 * @return the formula; null if the clauses of the origin do not contain auxiliary variables
+	 */
+	public Node getAuxiliaryNode(Origin origin) {
+		return auxiliaryNodes.get(origin);
+	}
+
+	/**
+	 * Returns all origins in the order they were added.
+	 * 
+	 * @return all origins; not null
+	 */
+	public Collection<Origin> getOrigins() {
+		return Collections.unmodifiableSet(clauses.keySet());
+	}
+
+	/**
+	 * Returns the clauses of the given origin.
+	 * 
+	 * @param origin the origin; not null
+	 * @return the clauses of the origin; empty if the origin is unknown
+	 */
+	public List<Clause> getClauses(Origin origin) {
+		final List<Clause> originClauses = clauses.get(origin);
+		return originClauses == null ? Collections.<Clause> emptyList() : Collections.unmodifiableList(originClauses);
+	}
+
+	/**
+	 * Returns the origin of the given constraint.
+	 * 
+	 * @param c the constraint; not null
+	 * @return the origin; not null
+	 */
+	public Origin getOrigin(IConstraint c) {
+		return new Origin(Origin.Kind.CONSTRAINT, c);
+	}
+
+	/**
+	 * Returns the number of clauses.
+	 * 
+	 * @return the number of clauses
+	 */
+	public int getClauseCount() {
+		return clauseCount;
+	}
+
+	/**
+	 * Returns true iff the given feature is optional.
+	 * A feature is optional if it is not the root and not a mandatory child of an and-group.
+	 * 
+	 * @param f the feature; not null
+	 * @return true iff optional
+	 */
+	public static boolean isOptional(IFeature f) {
+		final IFeatureStructure s = f.getStructure();
+		return !s.isRoot() && !(s.getParent().isAnd() && s.isMandatory());
+	}
+
+	/**
+	 * Adds a new variable for the feature with the given name.
+	 * 
+	 * @param name the feature name; not null
+	 * @return the new variable
+	 */
+	private int addVariable(String name) {
+		names.add(name);
+		final int variable = names.size();
+		variables.put(name, variable);
+		return variable;
+	}
+
+	/**
+	 * Adds a clause.
+	 * 
+	 * @param origin the origin of the clause; not null
+	 * @param literals the literals of the clause; not null
+	 */
+	protected void addClause(Origin origin, int... literals) {
+		List<Clause> originClauses = clauses.get(origin);
+		if (originClauses == null) {
+			originClauses = new ArrayList<>(1);
+			clauses.put(origin, originClauses);
+		}
+		originClauses.add(new Clause(origin, literals));
+		clauseCount++;
+	}
+
+	/**
+	 * Adds the clauses for the children of the given feature structure recursively.
+	 * 
+	 * @param parent the parent feature structure; not null
+	 */
+	private void addStructure(IFeatureStructure parent) {
+		final List<IFeatureStructure> children = parent.getChildren();
+		if (children.isEmpty()) {
+			return;
+		}
+		final int p = getVariable(parent.getFeature());
+		final int[] group = new int[children.size() + 1];
+		group[0] = -p;
+		int i = 1;
+		for (final IFeatureStructure child : children) {
+			final int c = getVariable(child.getFeature());
+			final Origin origin = new Origin(Origin.Kind.CHILD, child.getFeature());
+			addClause(origin, -c, p);
+			if (parent.isAnd() && child.isMandatory()) {
+				addClause(origin, -p, c);
+			}
+			group[i++] = c;
+			addStructure(child);
+		}
+		if (parent.isOr() || parent.isAlternative()) {
+			final Origin origin = new Origin(Origin.Kind.GROUP, parent.getFeature());
+			addClause(origin, group);
+			if (parent.isAlternative()) {
+				addAtMostOne(origin, parent, Arrays.copyOfRange(group, 1, group.length));
+			}
+		}
+	}
+
+	/**
+	 * Adds the clauses enforcing that at most one child of the given alternative group is selected.
+	 * Any auxiliary variables belong to the origin of the group,
+	 * so explanations still name the group itself.
+	 * 
+	 * @param origin the origin of the group; not null
+	 * @param parent the parent feature structure of the group; not null
+	 * @param children the variables of the children; not null
+	 */
+	private void addAtMostOne(Origin origin, IFeatureStructure parent, int[] children) {
+		final int lastVariable = getVariableCount();
+		final AtMostOneEncoder encoder = new AtMostOneEncoder(atMostOneEncoding, lastVariable);
+		final int[][] encoded = encoder.encode(children);
+		final int auxiliaries = encoder.getAuxiliaryCount();
+		addEncoded(origin, auxiliaries > 0 ? getGroupNode(parent) : null, encoded, lastVariable, auxiliaries);
+	}
+
+	/**
+	 * Returns the formula of the given alternative group.
+	 * 
+	 * @param parent the parent feature structure of the group; not null
+	 * @return the formula; not null
+	 */
+	private static Node getGroupNode(IFeatureStructure parent) {
+		final List<IFeatureStructure> children = parent.getChildren();
+		final Node[] disjuncts = new Node[children.size() + 1];
+		disjuncts[0] = new Not(new Literal(parent.getFeature().getName()));
+		final Node[] literals = new Node[children.size()];
+		for (int i = 0; i < literals.length; i++) {
+			literals[i] = new Literal(children.get(i).getFeature().getName());
+			disjuncts[i + 1] = literals[i];
+		}
+		return new And(new Or(disjuncts), new AtMost(1, literals));
+	}
+
+	/**
+	 * Adds the clauses for the given constraint.
+	 * The constraint may only refer to features already known.
+	 * 
+	 * @param c the constraint; not null
+	 * @return the origin of the new clauses; not null
+	 * @throws IllegalArgumentException if the constraint refers to an unknown feature
+	 */
+	public Origin addConstraint(IConstraint c) throws IllegalArgumentException {
+		final Origin origin = getOrigin(c);
+		addNode(origin, c.getNode());
+		return origin;
+	}
+
+	/**
+	 * Adds the clauses for the given constraints.
+	 * The constraints are converted in parallel and added in the given order.
+	 * 
+	 * @param constraints the constraints; not null
+	 * @param threads the number of threads; at least 1
+	 * @throws IllegalArgumentException if a constraint refers to an unknown feature
+	 */
+	private void addConstraints(List<IConstraint> constraints, int threads) throws IllegalArgumentException {
+		final int lastVariable = getVariableCount();
+		final List<ConstraintEncoder> encoders = new ArrayList<>(constraints.size());
+		final List<Future<int[][]>> encoded = new ArrayList<>(constraints.size());
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (final IConstraint c : constraints) {
+				final ConstraintEncoder encoder = newEncoder(lastVariable);
+				encoders.add(encoder);
+				encoded.add(executor.submit(new Callable<int[][]>() {
+					@Override
+					public int[][] call() {
+						return encoder.encode(c.getNode());
+					}
+				}));
+			}
+			for (int i = 0; i < constraints.size(); i++) {
+				final IConstraint c = constraints.get(i);
+				final int[][] constraintClauses = encoded.get(i).get();
+				addEncoded(getOrigin(c), c.getNode(), constraintClauses, lastVariable, encoders.get(i).getAuxiliaryCount());
+			}
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IllegalArgumentException) {
+				throw (IllegalArgumentException) e.getCause();
+			}
+			throw new IllegalStateException(e);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Adds the clauses for the given propositional formula.
+	 * No clauses are added if the formula refers to an unknown feature.
+	 * 
+	 * @param origin the origin of the new clauses; not null
+	 * @param node the formula; not null
+	 * @throws IllegalArgumentException if the formula refers to an unknown feature
+	 */
+	protected void addNode(Origin origin, Node node) throws IllegalArgumentException {
+		final int lastVariable = getVariableCount();
+		final ConstraintEncoder encoder = newEncoder(lastVariable);
+		addEncoded(origin, node, encoder.encode(node), lastVariable, encoder.getAuxiliaryCount());
+	}
+
+	/**
+	 * Returns a new encoder numbering auxiliary variables after the given variable.
+	 * 
+	 * @param lastVariable the variable after which auxiliary variables are numbered
+	 * @return the encoder; not null
+	 */
+	private ConstraintEncoder newEncoder(int lastVariable) {
+		return new ConstraintEncoder(encoding, lastVariable) {
+			@Override
+			protected int getVariable(String name) throws IllegalArgumentException {
+				return FeatureModelCnf.this.getVariable(name);
+			}
+		};
+	}
+
+	/**
+	 * Adds the given encoded clauses.
+	 * Their auxiliary variables are renumbered to follow the current variables.
+	 * 
+	 * @param origin the origin of the new clauses; not null
+	 * @param node the formula of the origin; may be null if there are no auxiliary variables
+	 * @param encoded the clauses; not null
+	 * @param lastVariable the variable after which the auxiliary variables of the clauses are numbered
+	 * @param auxiliaries the number of auxiliary variables of the clauses
+	 */
+	private void addEncoded(Origin origin, Node node, int[][] encoded, int lastVariable, int auxiliaries) {
+		final int offset = getVariableCount() - lastVariable;
+		for (int i = 0; i < auxiliaries; i++) {
+			names.add(null);
+		}
+		auxiliaryCount += auxiliaries;
+		if (auxiliaries > 0) {
+			auxiliaryNodes.put(origin, node);
+		}
+		for (final int[] literals : encoded) {
+			if (offset != 0) {
+				for (int i = 0; i < literals.length; i++) {
+					final int variable = Math.abs(literals[i]);
+					if (variable > lastVariable) {
+						literals[i] = literals[i] > 0 ? variable + offset : -(variable + offset);
+					}
+				}
+			}
+			addClause(origin, literals);
+		}
+	}
+
+	/**
+	 * Removes the clauses for the given constraint.
+	 * 
+	 * @param c the constraint; not null
+	 * @return the origin of the removed clauses; not null
+	 */
+	public Origin removeConstraint(IConstraint c) {
+		final Origin origin = getOrigin(c);
+		removeClauses(origin);
+		return origin;
+	}
+
+	/**
+	 * Removes the clauses of the given origin.
+	 * Its auxiliary variables remain but are no longer constrained.
+	 * 
+	 * @param origin the origin; not null
+	 */
+	protected void removeClauses(Origin origin) {
+		auxiliaryNodes.remove(origin);
+		final List<Clause> originClauses = clauses.remove(origin);
+		if (originClauses != null) {
+			clauseCount -= originClauses.size();
+		}
+	}
+}
@@ -0,0 +1,491 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import de.ovgu.featureide.fm.core.base.IConstraint;
+import de.ovgu.featureide.fm.core.base.IFeature;
+import de.ovgu.featureide.fm.core.base.IFeatureModel;
+import de.ovgu.featureide.fm.core.base.IFeatureStructure;
+
+/**
+ * <p>
+ * Finds void feature models, dead features, false-optional features and redundant constraints along with their explanations.
+ * After the initial analysis, the results can be updated incrementally after each {@link ModelEdit edit} of the feature model.
+ * </p>
+ * 
+ * <p>
+ * An update only checks the elements whose status may have changed.
+ * Adding a constraint strengthens the formula.
+ * Thus, defects found earlier persist, and their explanations remain minimal unsatisfiable subsets.
+ * Only elements without a defect need to be checked again.
+ * Removing a constraint weakens the formula.
+ * Thus, no new defects can arise, and a defect persists if its explanation does not contain the removed constraint.
+ * Only the defects whose explanation contains the removed constraint need to be checked again.
+ * Adding or removing an optional or mandatory leaf feature below an and-group does not affect the other features.
+ * Other feature edits fall back to a full analysis.
+ * </p>
+ * 
+ * <p>
+ * Any model found along the way is used to rule out defects without checking them.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class IncrementalAnalyzer {
+
+	/** The feature model to analyze. */
+	private final IFeatureModel fm;
+	/** The strategy used to shrink unsatisfiable subsets. */
+	private final ShrinkingStrategy strategy;
+
+	/** The feature model in conjunctive normal form. */
+	private FeatureModelCnf cnf;
+	/** The oracle. */
+	private MusOracle oracle;
+	/** The number of satisfiability checks done by previous oracles. */
+	private long previousSatCalls;
+
+	/** The explanation for the feature model being void; null if the feature model is not void. */
+	private Set<Origin> voidExplanation;
+	/** The explanation of each dead feature. */
+	private final Map<IFeature, Set<Origin>> deadFeatures = new LinkedHashMap<>();
+	/** The explanation of each false-optional feature. */
+	private final Map<IFeature, Set<Origin>> falseOptionalFeatures = new LinkedHashMap<>();
+	/** The explanation of each redundant constraint. */
+	private final Map<IConstraint, Set<Origin>> redundantConstraints = new LinkedHashMap<>();
+
+	/** The variables that are selected in any model found during the current update. */
+	private final Set<Integer> seenSelected = new LinkedHashSet<>();
+	/** The variables that are unselected while their parent is selected in any model found during the current update. */
+	private final Set<Integer> seenOptional = new LinkedHashSet<>();
+
+	/** The number of elements checked during the most recent analysis or update. */
+	private int checks;
+	/** Whether the most recent update fell back to a full analysis. */
+	private boolean fullAnalysis;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param fm the feature model to analyze; not null
+	 * @param strategy the strategy used to shrink unsatisfiable subsets; not null
+	 */
+	public IncrementalAnalyzer(IFeatureModel fm, ShrinkingStrategy strategy) {
+		this.fm = fm;
+		this.strategy = strategy;
+	}
+
+	/**
+	 * Returns the analyzed feature model.
+	 * 
+	 * @return the feature model; not null
+	 */
+	public IFeatureModel getFeatureModel() {
+		return fm;
+	}
+
+	/**
+	 * Returns true iff the feature model is void.
+	 * 
+	 * @return true iff void
+	 */
+	public boolean isVoid() {
+		return voidExplanation != null;
+	}
+
+	/**
+	 * Returns the explanation for the feature model being void.
+	 * 
+	 * @return the explanation; null if the feature model is not void
+	 */
+	public Set<Origin> getVoidExplanation() {
+		return voidExplanation;
+	}
+
+	/**
+	 * Returns the dead features along with their explanations.
+	 * 
+	 * @return the dead features; not null
+	 */
+	public Map<IFeature, Set<Origin>> getDeadFeatures() {
+		return Collections.unmodifiableMap(deadFeatures);
+	}
+
+	/**
+	 * Returns the false-optional features along with their explanations.
+	 * 
+	 * @return the false-optional features; not null
+	 */
+	public Map<IFeature, Set<Origin>> getFalseOptionalFeatures() {
+		return Collections.unmodifiableMap(falseOptionalFeatures);
+	}
+
+	/**
+	 * Returns the redundant constraints along with their explanations.
+	 * 
+	 * @return the redundant constraints; not null
+	 */
+	public Map<IConstraint, Set<Origin>> getRedundantConstraints() {
+		return Collections.unmodifiableMap(redundantConstraints);
+	}
+
+	/**
+	 * Returns the number of elements checked during the most recent analysis or update.
+	 * 
+	 * @return the number of checked elements
+	 */
+	public int getChecks() {
+		return checks;
+	}
+
+	/**
+	 * Returns true iff the most recent update fell back to a full analysis.
+	 * 
+	 * @return true iff fell back to a full analysis
+	 */
+	public boolean isFullAnalysis() {
+		return fullAnalysis;
+	}
+
+	/**
+	 * Returns the number of satisfiability checks done so far.
+	 * 
+	 * @return the number of satisfiability checks
+	 */
+	public long getSatCalls() {
+		return previousSatCalls + (oracle == null ? 0L : oracle.getSatCalls());
+	}
+
+	/**
+	 * Analyzes the feature model from scratch.
+	 */
+	public void analyze() {
+		rebuild();
+		checks = 0;
+		fullAnalysis = true;
+		deadFeatures.clear();
+		falseOptionalFeatures.clear();
+		redundantConstraints.clear();
+		seenSelected.clear();
+		seenOptional.clear();
+		if (checkVoid()) {
+			return;
+		}
+		for (final IFeature f : fm.getFeatures()) {
+			checkDead(f);
+		}
+		for (final IFeature f : fm.getFeatures()) {
+			checkFalseOptional(f);
+		}
+		for (final IConstraint c : fm.getConstraints()) {
+			checkRedundant(c);
+		}
+	}
+
+	/**
+	 * Updates the results after the given edit.
+	 * The edit must already have been applied to the feature model.
+	 * 
+	 * @param edit the edit; not null
+	 */
+	public void update(ModelEdit edit) {
+		if (oracle == null) {
+			analyze();
+			return;
+		}
+		checks = 0;
+		fullAnalysis = false;
+		seenSelected.clear();
+		seenOptional.clear();
+		switch (edit.getKind()) {
+		case ADD_CONSTRAINT:
+			addConstraint((IConstraint) edit.getElement());
+			break;
+		case REMOVE_CONSTRAINT:
+			removeConstraint((IConstraint) edit.getElement());
+			break;
+		case ADD_FEATURE:
+			addFeature((IFeature) edit.getElement(), edit.getParent());
+			break;
+		case REMOVE_FEATURE:
+			removeFeature((IFeature) edit.getElement(), edit.getParent());
+			break;
+		default:
+			throw new IllegalStateException("Unknown edit kind");
+		}
+	}
+
+	/**
+	 * Updates the results after the given constraint was added.
+	 * 
+	 * @param c the added constraint; not null
+	 */
+	private void addConstraint(IConstraint c) {
+		oracle.addOrigin(cnf.addConstraint(c));
+		if (isVoid() || checkVoid()) {
+			return;
+		}
+		for (final IFeature f : fm.getFeatures()) {
+			if (!deadFeatures.containsKey(f)) {
+				checkDead(f);
+			}
+		}
+		falseOptionalFeatures.keySet().removeAll(deadFeatures.keySet());
+		for (final IFeature f : fm.getFeatures()) {
+			if (!falseOptionalFeatures.containsKey(f)) {
+				checkFalseOptional(f);
+			}
+		}
+		for (final IConstraint d : fm.getConstraints()) {
+			if (!redundantConstraints.containsKey(d)) {
+				checkRedundant(d);
+			}
+		}
+	}
+
+	/**
+	 * Updates the results after the given constraint was removed.
+	 * 
+	 * @param c the removed constraint; not null
+	 */
+	private void removeConstraint(IConstraint c) {
+		final Origin origin = cnf.removeConstraint(c);
+		oracle.removeOrigin(origin);
+		redundantConstraints.remove(c);
+		if (isVoid()) {
+			if (!voidExplanation.contains(origin)) {
+				return;
+			}
+			checks++;
+			voidExplanation = oracle.getMinimalUnsatisfiableSubset(new int[0], oracle.getOrigins(), strategy);
+			if (voidExplanation == null) {
+				analyze(); // no longer void
+			}
+			return;
+		}
+		final List<IFeature> undead = new ArrayList<>();
+		for (final Iterator<Entry<IFeature, Set<Origin>>> it = deadFeatures.entrySet().iterator(); it.hasNext();) {
+			final Entry<IFeature, Set<Origin>> e = it.next();
+			if (e.getValue().contains(origin)) {
+				checks++;
+				final Set<Origin> explanation = explainDead(e.getKey());
+				if (explanation == null) {
+					it.remove();
+					undead.add(e.getKey());
+				} else {
+					e.setValue(explanation);
+				}
+			}
+		}
+		for (final Iterator<Entry<IFeature, Set<Origin>>> it = falseOptionalFeatures.entrySet().iterator(); it.hasNext();) {
+			final Entry<IFeature, Set<Origin>> e = it.next();
+			if (e.getValue().contains(origin)) {
+				checks++;
+				final Set<Origin> explanation = explainFalseOptional(e.getKey());
+				if (explanation == null) {
+					it.remove();
+				} else {
+					e.setValue(explanation);
+				}
+			}
+		}
+		for (final IFeature f : undead) {
+			checkFalseOptional(f);
+		}
+		for (final Iterator<Entry<IConstraint, Set<Origin>>> it = redundantConstraints.entrySet().iterator(); it.hasNext();) {
+			final Entry<IConstraint, Set<Origin>> e = it.next();
+			if (e.getValue().contains(origin)) {
+				checks++;
+				final Set<Origin> explanation = explainRedundant(e.getKey());
+				if (explanation == null) {
+					it.remove();
+				} else {
+					e.setValue(explanation);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Updates the results after the given feature was added.
+	 * 
+	 * @param f the added feature; not null
+	 * @param parent the parent of the added feature; not null
+	 */
+	private void addFeature(IFeature f, IFeature parent) {
+		if (!parent.getStructure().isAnd()) {
+			analyze();
+			return;
+		}
+		rebuild();
+		if (isVoid()) {
+			return;
+		}
+		checkDead(f);
+		checkFalseOptional(f);
+	}
+
+	/**
+	 * Updates the results after the given feature was removed.
+	 * 
+	 * @param f the removed feature; not null
+	 * @param parent the former parent of the removed feature; not null
+	 */
+	private void removeFeature(IFeature f, IFeature parent) {
+		if (!parent.getStructure().isAnd()) {
+			analyze();
+			return;
+		}
+		rebuild();
+		deadFeatures.remove(f);
+		falseOptionalFeatures.remove(f);
+	}
+
+	/**
+	 * Encodes the feature model anew and constructs a new oracle for it.
+	 * This is needed whenever the features change.
+	 */
+	private void rebuild() {
+		if (oracle != null) {
+			previousSatCalls += oracle.getSatCalls();
+		}
+		cnf = new FeatureModelCnf(fm);
+		oracle = new MusOracle(cnf);
+	}
+
+	/**
+	 * Checks whether the feature model is void and updates the results accordingly.
+	 * 
+	 * @return true iff void
+	 */
+	private boolean checkVoid() {
+		checks++;
+		voidExplanation = oracle.getMinimalUnsatisfiableSubset(new int[0], oracle.getOrigins(), strategy);
+		if (voidExplanation == null) {
+			see(oracle.getModel());
+			return false;
+		}
+		deadFeatures.clear();
+		falseOptionalFeatures.clear();
+		redundantConstraints.clear();
+		return true;
+	}
+
+	/**
+	 * Checks whether the given feature is dead unless a model already ruled that out.
+	 * 
+	 * @param f the feature; not null
+	 */
+	private void checkDead(IFeature f) {
+		if (seenSelected.contains(cnf.getVariable(f))) {
+			return;
+		}
+		checks++;
+		final Set<Origin> explanation = explainDead(f);
+		if (explanation != null) {
+			deadFeatures.put(f, explanation);
+		}
+	}
+
+	/**
+	 * Checks whether the given feature is false-optional unless a model already ruled that out.
+	 * 
+	 * @param f the feature; not null
+	 */
+	private void checkFalseOptional(IFeature f) {
+		if (!FeatureModelCnf.isOptional(f) || deadFeatures.containsKey(f) || seenOptional.contains(cnf.getVariable(f))) {
+			return;
+		}
+		checks++;
+		final Set<Origin> explanation = explainFalseOptional(f);
+		if (explanation != null) {
+			falseOptionalFeatures.put(f, explanation);
+		}
+	}
+
+	/**
+	 * Checks whether the given constraint is redundant.
+	 * 
+	 * @param c the constraint; not null
+	 */
+	private void checkRedundant(IConstraint c) {
+		checks++;
+		final Set<Origin> explanation = explainRedundant(c);
+		if (explanation != null) {
+			redundantConstraints.put(c, explanation);
+		}
+	}
+
+	/**
+	 * Explains why the given feature is dead.
+	 * 
+	 * @param f the feature; not null
+	 * @return the explanation; null if the feature is not dead
+	 */
+	private Set<Origin> explainDead(IFeature f) {
+		final Set<Origin> explanation = oracle.getMinimalUnsatisfiableSubset(new int[] { cnf.getVariable(f) }, oracle.getOrigins(), strategy);
+		if (explanation == null) {
+			see(oracle.getModel());
+		}
+		return explanation;
+	}
+
+	/**
+	 * Explains why the given feature is false-optional.
+	 * 
+	 * @param f the feature; not null
+	 * @return the explanation; null if the feature is not false-optional
+	 */
+	private Set<Origin> explainFalseOptional(IFeature f) {
+		final IFeature parent = f.getStructure().getParent().getFeature();
+		final int[] assumptions = new int[] { cnf.getVariable(parent), -cnf.getVariable(f) };
+		final Set<Origin> explanation = oracle.getMinimalUnsatisfiableSubset(assumptions, oracle.getOrigins(), strategy);
+		if (explanation == null) {
+			see(oracle.getModel());
+		}
+		return explanation;
+	}
+
+	/**
+	 * Explains why the given constraint is redundant.
+	 * 
+	 * @param c the constraint; not null
+	 * @return the explanation; null if the constraint is not redundant
+	 */
+	private Set<Origin> explainRedundant(IConstraint c) {
+		final Origin origin = cnf.getOrigin(c);
+		final Collection<Origin> candidates = new LinkedHashSet<>(oracle.getOrigins());
+		candidates.remove(origin);
+		return oracle.getMinimalUnsatisfiableSubset(new int[] { oracle.getNegation(origin) }, candidates, strategy);
+	}
+
+	/**
+	 * Remembers which defects the given model of the whole feature model rules out.
+	 * 
+	 * @param model a model of the whole feature model; not null
+	 */
+	private void see(int[] model) {
+		for (final IFeature f : fm.getFeatures()) {
+			final int variable = cnf.getVariable(f);
+			if (model[variable - 1] <= 0) {
+				continue;
+			}
+			seenSelected.add(variable);
+			for (final IFeatureStructure child : f.getStructure().getChildren()) {
+				final int childVariable = cnf.getVariable(child.getFeature());
+				if (model[childVariable - 1] < 0) {
+					seenOptional.add(childVariable);
+				}
+			}
+		}
+	}
+}
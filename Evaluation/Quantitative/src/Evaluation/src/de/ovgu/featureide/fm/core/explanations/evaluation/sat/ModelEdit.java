@@ -0,0 +1,176 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import de.ovgu.featureide.fm.core.base.IConstraint;
+import de.ovgu.featureide.fm.core.base.IFeature;
+import de.ovgu.featureide.fm.core.base.IFeatureModel;
+
+/**
+ * A single edit of a feature model.
+ * Either adds or removes a constraint or a leaf feature.
+ * 
+ * @author Timo G&uuml;nther
+ */
+public final class ModelEdit {
+
+	/**
+	 * The kind of an edit.
+	 */
+	public static enum Kind {
+		/** Adds a constraint. The element is the constraint. */
+		ADD_CONSTRAINT,
+		/** Removes a constraint. The element is the constraint. */
+		REMOVE_CONSTRAINT,
+		/** Adds a leaf feature. The element is the feature. */
+		ADD_FEATURE,
+		/** Removes a leaf feature. The element is the feature. */
+		REMOVE_FEATURE
+	}
+
+	/** The kind of this edit. */
+	private final Kind kind;
+	/** The added or removed element. */
+	private final Object element;
+	/** The parent of the added or removed feature. */
+	private final IFeature parent;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param kind the kind of this edit; not null
+	 * @param element the added or removed element; not null
+	 * @param parent the parent of the added or removed feature; null for constraints
+	 */
+	private ModelEdit(Kind kind, Object element, IFeature parent) {
+		this.kind = kind;
+		this.element = element;
+		this.parent = parent;
+	}
+
+	/**
+	 * Returns an edit adding the given constraint.
+	 * 
+	 * @param c the constraint to add; not null
+	 * @return the edit; not null
+	 */
+	public static ModelEdit addConstraint(IConstraint c) {
+		return new ModelEdit(Kind.ADD_CONSTRAINT, c, null);
+	}
+
+	/**
+	 * Returns an edit removing the given constraint.
+	 * 
+	 * @param c the constraint to remove; not null
+	 * @return the edit; not null
+	 */
+	public static ModelEdit removeConstraint(IConstraint c) {
+		return new ModelEdit(Kind.REMOVE_CONSTRAINT, c, null);
+	}
+
+	/**
+	 * Returns an edit adding the given feature as the last child of the given parent.
+	 * 
+	 * @param f the feature to add; not null
+	 * @param parent the parent to add the feature to; not null
+	 * @return the edit; not null
+	 */
+	public static ModelEdit addFeature(IFeature f, IFeature parent) {
+		return new ModelEdit(Kind.ADD_FEATURE, f, parent);
+	}
+
+	/**
+	 * Returns an edit removing the given leaf feature.
+	 * 
+	 * @param f the feature to remove; not null
+	 * @return the edit; not null
+	 */
+	public static ModelEdit removeFeature(IFeature f) {
+		return new ModelEdit(Kind.REMOVE_FEATURE, f, f.getStructure().getParent().getFeature());
+	}
+
+	/**
+	 * Returns the kind of this edit.
+	 * 
+	 * @return the kind; not null
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * Returns the added or removed element.
+	 * This is either an {@link IConstraint} or an {@link IFeature} depending on the {@link #getKind() kind}.
+	 * 
+	 * @return the element; not null
+	 */
+	public Object getElement() {
+		return element;
+	}
+
+	/**
+	 * Returns the parent of the added or removed feature.
+	 * 
+	 * @return the parent; null for constraints
+	 */
+	public IFeature getParent() {
+		return parent;
+	}
+
+	/**
+	 * Returns the edit undoing this one.
+	 * 
+	 * @return the inverse edit; not null
+	 */
+	public ModelEdit getInverse() {
+		switch (kind) {
+		case ADD_CONSTRAINT:
+			return new ModelEdit(Kind.REMOVE_CONSTRAINT, element, null);
+		case REMOVE_CONSTRAINT:
+			return new ModelEdit(Kind.ADD_CONSTRAINT, element, null);
+		case ADD_FEATURE:
+			return new ModelEdit(Kind.REMOVE_FEATURE, element, parent);
+		case REMOVE_FEATURE:
+			return new ModelEdit(Kind.ADD_FEATURE, element, parent);
+		default:
+			throw new IllegalStateException("Unknown edit kind");
+		}
+	}
+
+	/**
+	 * Applies this edit to the given feature model.
+	 * A feature can only be removed while no constraint refers to it.
+	 * Such constraints have to be removed by separate edits beforehand.
+	 * 
+	 * @param fm the feature model to edit; not null
+	 * @throws IllegalStateException if the removed feature is still referred to by a constraint
+	 */
+	public void apply(IFeatureModel fm) {
+		switch (kind) {
+		case ADD_CONSTRAINT:
+			fm.addConstraint((IConstraint) element);
+			break;
+		case REMOVE_CONSTRAINT:
+			fm.removeConstraint((IConstraint) element);
+			break;
+		case ADD_FEATURE:
+			fm.addFeature((IFeature) element);
+			parent.getStructure().addChild(((IFeature) element).getStructure());
+			break;
+		case REMOVE_FEATURE:
+			for (final IConstraint c : fm.getConstraints()) {
+				if (c.getContainedFeatures().contains(element)) {
+					throw new IllegalStateException(String.format("Feature %s is still referred to by constraint %s", element, c));
+				}
+			}
+			parent.getStructure().removeChild(((IFeature) element).getStructure());
+			fm.deleteFeatureFromTable((IFeature) element);
+			break;
+		default:
+			throw new IllegalStateException("Unknown edit kind");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%s]", kind, element);
+	}
+}
@@ -0,0 +1,139 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import de.ovgu.featureide.fm.core.base.IFeature;
+
+/**
+ * <p>
+ * Slices a feature model in conjunctive normal form down to the origins that may influence a given subject.
+ * The slice is the cone of influence of the subject's variables in the graph connecting each variable to the origins whose clauses contain it.
+ * </p>
+ * 
+ * <p>
+ * The feature tree is followed upwards, towards mandatory children, and into groups, but not into optional children.
+ * An optional subtree can only influence its ancestors through cross-tree constraints, which are followed anyway.
+ * The cone may additionally be limited to a number of hops from the subject.
+ * </p>
+ * 
+ * <p>
+ * The slice is a heuristic.
+ * If the clauses of the slice are unsatisfiable under the assumptions of a query, every minimal unsatisfiable subset of the slice is one of the whole formula.
+ * If they are satisfiable, the caller has to fall back to a larger slice or the whole formula.
+ * Since the slice consists of the original origins, explanations need no mapping back.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ModelSlicer {
+
+	/** The CNF. */
+	private final FeatureModelCnf cnf;
+	/** The origins whose clauses contain each variable, indexed by variable. */
+	private final List<List<Origin>> occurrences;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * The CNF must not change afterwards.
+	 * 
+	 * @param cnf the CNF; not null
+	 */
+	public ModelSlicer(FeatureModelCnf cnf) {
+		this.cnf = cnf;
+		occurrences = new ArrayList<>(cnf.getVariableCount() + 1);
+		for (int variable = 0; variable <= cnf.getVariableCount(); variable++) {
+			occurrences.add(new ArrayList<Origin>(2));
+		}
+		for (final Origin origin : cnf.getOrigins()) {
+			for (final int variable : getVariables(origin)) {
+				occurrences.get(variable).add(origin);
+			}
+		}
+	}
+
+	/**
+	 * Returns the variables occurring in the clauses of the given origin.
+	 * 
+	 * @param origin the origin; not null
+	 * @return the variables; not null
+	 */
+	public Set<Integer> getVariables(Origin origin) {
+		final Set<Integer> variables = new LinkedHashSet<>();
+		for (final Clause clause : cnf.getClauses(origin)) {
+			for (final int literal : clause.getLiterals()) {
+				variables.add(Math.abs(literal));
+			}
+		}
+		return variables;
+	}
+
+	/**
+	 * Returns the candidates within the cone of influence of the given variables.
+	 * 
+	 * @param seeds the variables of the subject; not null
+	 * @param candidates the origins to slice; not null
+	 * @param radius the maximum number of hops from the seeds; {@link Integer#MAX_VALUE} for no limit
+	 * @return the candidates in the slice in their original order; not null
+	 */
+	public Collection<Origin> slice(Collection<Integer> seeds, Collection<Origin> candidates, int radius) {
+		final Set<Origin> allowed = candidates instanceof Set ? (Set<Origin>) candidates : new HashSet<>(candidates);
+		final Set<Origin> included = new HashSet<>();
+		final boolean[] visited = new boolean[cnf.getVariableCount() + 1];
+		final LinkedList<int[]> queue = new LinkedList<>();
+		for (final int seed : seeds) {
+			if (!visited[seed]) {
+				visited[seed] = true;
+				queue.add(new int[] { seed, 0 });
+			}
+		}
+		while (!queue.isEmpty()) {
+			final int[] entry = queue.removeFirst();
+			final int variable = entry[0];
+			final int depth = entry[1];
+			for (final Origin origin : occurrences.get(variable)) {
+				if (!allowed.contains(origin) || included.contains(origin) || !isFollowed(origin, variable)) {
+					continue;
+				}
+				included.add(origin);
+				if (depth >= radius) {
+					continue;
+				}
+				for (final int next : getVariables(origin)) {
+					if (!visited[next]) {
+						visited[next] = true;
+						queue.add(new int[] { next, depth + 1 });
+					}
+				}
+			}
+		}
+		final List<Origin> slice = new ArrayList<>(included.size());
+		for (final Origin origin : candidates) {
+			if (included.contains(origin)) {
+				slice.add(origin);
+			}
+		}
+		return slice;
+	}
+
+	/**
+	 * Returns true iff the given origin is followed from the given variable.
+	 * The relationship between an optional child and its parent is only followed from the child.
+	 * 
+	 * @param origin the origin; not null
+	 * @param variable the variable the origin is reached from; positive
+	 * @return true iff followed
+	 */
+	private boolean isFollowed(Origin origin, int variable) {
+		if (origin.getKind() != Origin.Kind.CHILD) {
+			return true;
+		}
+		final IFeature child = (IFeature) origin.getElement();
+		return cnf.getVariable(child) == variable || !FeatureModelCnf.isOptional(child);
+	}
+}
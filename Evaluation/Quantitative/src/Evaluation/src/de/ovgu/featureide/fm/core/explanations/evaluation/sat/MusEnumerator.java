@@ -0,0 +1,177 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.minisat.SolverFactory;
+import org.sat4j.minisat.core.Solver;
+import org.sat4j.minisat.orders.PositiveLiteralSelectionStrategy;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+/**
+ * <p>
+ * Enumerates all minimal unsatisfiable subsets (MUS) of a set of candidate origins lazily.
+ * </p>
+ * 
+ * <p>
+ * A second solver, the map, keeps track of the subsets of candidates not yet explored.
+ * Each model of the map is a seed.
+ * If the seed is unsatisfiable, it is shrunk to a MUS, and all supersets of that MUS are blocked.
+ * If the seed is satisfiable, it is grown to a maximal satisfiable subset, and all subsets of that are blocked.
+ * The map prefers large seeds so that the first MUS is found without growing:
+ * its solver picks the positive phase on decisions, and candidates that occur in no blocking clause yet are always part of the seed,
+ * as the solver does not assign variables it has never seen.
+ * Thus, the first seed consists of all candidates.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ * @see {@link MusOracle#getMinimalUnsatisfiableSubsets(int[], Collection, ShrinkingStrategy)}
+ */
+class MusEnumerator implements Iterator<Set<Origin>> {
+
+	/** The oracle used for checking seeds. */
+	private final MusOracle oracle;
+	/** Literals assumed to be true. */
+	private final int[] assumptions;
+	/** The origins to choose from. */
+	private final List<Origin> candidates;
+	/** The shrinking strategy. */
+	private final ShrinkingStrategy strategy;
+	/** The map of the unexplored subsets of the candidates. */
+	private final Solver<?> map;
+	/** The variable in the map of each candidate. */
+	private final Map<Origin, Integer> variables = new LinkedHashMap<>();
+	/** Whether each variable of the map occurs in a blocking clause, indexed by variable. */
+	private final boolean[] constrained;
+
+	/** The next MUS to return, if already computed. */
+	private Set<Origin> next;
+	/** Whether all subsets have been explored. */
+	private boolean exhausted;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param oracle the oracle used for checking seeds; not null
+	 * @param assumptions literals assumed to be true; not null
+	 * @param candidates origins to choose from; not null
+	 * @param strategy the shrinking strategy; not null
+	 */
+	MusEnumerator(MusOracle oracle, int[] assumptions, Collection<Origin> candidates, ShrinkingStrategy strategy) {
+		this.oracle = oracle;
+		this.assumptions = assumptions;
+		this.candidates = new ArrayList<>(candidates);
+		this.strategy = strategy;
+		map = (Solver<?>) SolverFactory.newDefault();
+		map.getOrder().setPhaseSelectionStrategy(new PositiveLiteralSelectionStrategy());
+		map.newVar(this.candidates.size());
+		constrained = new boolean[this.candidates.size() + 1];
+		int variable = 1;
+		for (final Origin candidate : this.candidates) {
+			variables.put(candidate, variable++);
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null && !exhausted) {
+			next = computeNext();
+			if (next == null) {
+				exhausted = true;
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public Set<Origin> next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		final Set<Origin> mus = next;
+		next = null;
+		return mus;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Explores seeds until the next MUS is found.
+	 * 
+	 * @return the next MUS; null if there is none
+	 */
+	private Set<Origin> computeNext() {
+		while (true) {
+			final boolean unexplored;
+			try {
+				unexplored = map.isSatisfiable();
+			} catch (TimeoutException e) {
+				throw new IllegalStateException(e);
+			}
+			if (!unexplored) {
+				return null;
+			}
+			final List<Origin> seed = new ArrayList<>();
+			for (final Origin candidate : candidates) {
+				final int variable = variables.get(candidate);
+				if (!constrained[variable] || map.model(variable)) {
+					seed.add(candidate);
+				}
+			}
+			final List<Origin> core = oracle.getCore(assumptions, seed);
+			if (core == null) {
+				final Set<Origin> mss = new HashSet<>(oracle.grow(assumptions, seed, candidates));
+				final VecInt blocking = new VecInt();
+				for (final Origin candidate : candidates) {
+					if (!mss.contains(candidate)) {
+						blocking.push(variables.get(candidate));
+					}
+				}
+				if (!block(blocking)) {
+					return null;
+				}
+			} else {
+				final Set<Origin> mus = oracle.shrink(assumptions, core, strategy);
+				final VecInt blocking = new VecInt(mus.size());
+				for (final Origin origin : mus) {
+					blocking.push(-variables.get(origin));
+				}
+				exhausted = !block(blocking);
+				return mus;
+			}
+		}
+	}
+
+	/**
+	 * Adds the given blocking clause to the map.
+	 * 
+	 * @param blocking the blocking clause; not null
+	 * @return false iff the map has become unsatisfiable
+	 */
+	private boolean block(VecInt blocking) {
+		if (blocking.isEmpty()) {
+			return false;
+		}
+		for (int i = 0; i < blocking.size(); i++) {
+			constrained[Math.abs(blocking.get(i))] = true;
+		}
+		try {
+			map.addClause(blocking);
+		} catch (ContradictionException e) {
+			return false;
+		}
+		return true;
+	}
+}
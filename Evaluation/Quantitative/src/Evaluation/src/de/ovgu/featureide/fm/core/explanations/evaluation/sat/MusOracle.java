@@ -0,0 +1,556 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.prop4j.Node;
+import org.prop4j.Not;
+import org.sat4j.core.VecInt;
+import org.sat4j.minisat.SolverFactory;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.IVecInt;
+import org.sat4j.specs.TimeoutException;
+
+import de.ovgu.featureide.fm.core.explanations.evaluation.jfr.FlightRecorderEvents;
+
+/**
+ * <p>
+ * Extracts minimal unsatisfiable subsets (MUS) of the origins of a {@link FeatureModelCnf CNF}.
+ * </p>
+ * 
+ * <p>
+ * Each origin is guarded by a selector variable.
+ * A clause only takes effect if the selector variable of its origin is assumed.
+ * This way, any subset of origins can be checked for satisfiability using the same incremental solver.
+ * The shrinking itself is done by one of several {@link ShrinkingStrategy strategies}.
+ * </p>
+ * 
+ * <p>
+ * Besides a single MUS, all MUSes can be enumerated lazily.
+ * See {@link #getMinimalUnsatisfiableSubsets(int[], Collection, ShrinkingStrategy)}.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class MusOracle {
+
+	/** The CNF. */
+	private final FeatureModelCnf cnf;
+	/** The solver. */
+	private final ISolver solver;
+	/** The selector variable of each origin. */
+	private final Map<Origin, Integer> selectors = new LinkedHashMap<>();
+	/** The origin of each selector variable. */
+	private final Map<Integer, Origin> origins = new HashMap<>();
+	/** The greatest variable in use. */
+	private int maxVariable;
+	/** The literal enforcing the negation of each origin. */
+	private final Map<Origin, Integer> negations = new LinkedHashMap<>();
+	/** The model found by the most recent satisfiability check that succeeded. */
+	private int[] model;
+	/** The number of satisfiability checks done by this oracle. */
+	private long satCalls;
+	/** The number of variables of the CNF when this oracle was constructed. */
+	private final int cnfVariableCount;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * All origins of the CNF are added.
+	 * 
+	 * @param cnf the CNF; not null
+	 */
+	public MusOracle(FeatureModelCnf cnf) {
+		this(cnf, cnf.getOrigins());
+	}
+
+	/**
+	 * Constructs a new instance of this class.
+	 * Only the given origins of the CNF are added.
+	 * 
+	 * @param cnf the CNF; not null
+	 * @param origins the origins to add; not null
+	 */
+	public MusOracle(FeatureModelCnf cnf, Collection<Origin> origins) {
+		this.cnf = cnf;
+		solver = SolverFactory.newDefault();
+		cnfVariableCount = cnf.getVariableCount();
+		maxVariable = cnfVariableCount;
+		solver.newVar(maxVariable + origins.size());
+		for (final Origin origin : origins) {
+			addOrigin(origin, ++maxVariable);
+		}
+	}
+
+	/**
+	 * Adds the given origin of the CNF.
+	 * This is needed for origins added to the CNF after this oracle was constructed.
+	 * The variables of the CNF must not have changed since.
+	 * Otherwise, new auxiliary variables of the CNF would collide with the selector variables of this oracle.
+	 * 
+	 * @param origin the origin to add; not null
+	 * @throws IllegalArgumentException if the origin has already been added
+	 * @throws IllegalStateException if the CNF has gained variables since this oracle was constructed
+	 */
+	public void addOrigin(Origin origin) throws IllegalArgumentException, IllegalStateException {
+		if (selectors.containsKey(origin)) {
+			throw new IllegalArgumentException("Origin already added: " + origin);
+		}
+		if (cnf.getVariableCount() != cnfVariableCount) {
+			throw new IllegalStateException("Variables of the CNF changed since the oracle was constructed");
+		}
+		addOrigin(origin, newVariable());
+	}
+
+	/**
+	 * Adds the given origin of the CNF guarded by the given selector variable.
+	 * 
+	 * @param origin the origin to add; not null
+	 * @param selector the selector variable; positive
+	 */
+	private void addOrigin(Origin origin, int selector) {
+		selectors.put(origin, selector);
+		origins.put(selector, origin);
+		for (final Clause clause : cnf.getClauses(origin)) {
+			addGuardedClause(selector, clause.getLiterals());
+		}
+	}
+
+	/**
+	 * Removes the given origin.
+	 * Its clauses are disabled permanently.
+	 * 
+	 * @param origin the origin to remove; not null
+	 * @throws IllegalArgumentException if the origin is unknown
+	 */
+	public void removeOrigin(Origin origin) throws IllegalArgumentException {
+		final Integer selector = selectors.remove(origin);
+		if (selector == null) {
+			throw new IllegalArgumentException("Unknown origin: " + origin);
+		}
+		origins.remove(selector);
+		try {
+			solver.addClause(new VecInt(new int[] { -selector }));
+		} catch (ContradictionException e) {
+			throw new IllegalStateException(e); // cannot happen as the selector is never assigned permanently
+		}
+	}
+
+	/**
+	 * Adds a clause that only takes effect if the given guard is assumed.
+	 * 
+	 * @param guard the guard variable; positive
+	 * @param literals the literals of the clause; not null
+	 */
+	private void addGuardedClause(int guard, int... literals) {
+		final int[] guarded = new int[literals.length + 1];
+		System.arraycopy(literals, 0, guarded, 0, literals.length);
+		guarded[literals.length] = -guard;
+		try {
+			solver.addClause(new VecInt(guarded));
+		} catch (ContradictionException e) {
+			throw new IllegalStateException(e); // cannot happen as the guard is unassigned
+		}
+	}
+
+	/**
+	 * Adds a new variable to the solver.
+	 * 
+	 * @return the new variable
+	 */
+	private int newVariable() {
+		solver.newVar(++maxVariable);
+		return maxVariable;
+	}
+
+	/**
+	 * Returns the CNF.
+	 * 
+	 * @return the CNF; not null
+	 */
+	public FeatureModelCnf getCnf() {
+		return cnf;
+	}
+
+	/**
+	 * Returns the origins added to this oracle.
+	 * 
+	 * @return the origins; not null
+	 */
+	public Collection<Origin> getOrigins() {
+		return selectors.keySet();
+	}
+
+	/**
+	 * Returns the model found by the most recent satisfiability check that succeeded.
+	 * The model also assigns the selector and auxiliary variables.
+	 * It assigns every variable of this oracle, so the literal of each variable is at the index of the variable minus one.
+	 * Variables that occur in no clause of this oracle are assigned false.
+	 * The returned array must not be modified.
+	 * 
+	 * @return the model in DIMACS notation; null if no check has succeeded yet
+	 */
+	public int[] getModel() {
+		return model;
+	}
+
+	/**
+	 * Returns true iff the given variable is true in the {@link #getModel() model} found by the most recent satisfiability check that succeeded.
+	 * 
+	 * @param variable the variable; positive
+	 * @return true iff true in the model
+	 * @throws IllegalStateException if no check has succeeded yet
+	 */
+	public boolean isTrue(int variable) throws IllegalStateException {
+		if (model == null) {
+			throw new IllegalStateException("No model yet");
+		}
+		return model[variable - 1] > 0;
+	}
+
+	/**
+	 * Returns the number of satisfiability checks done by this oracle so far.
+	 * 
+	 * @return the number of satisfiability checks
+	 */
+	public long getSatCalls() {
+		return satCalls;
+	}
+
+	/**
+	 * <p>
+	 * Returns a literal that enforces the negation of the clauses of the given origin when assumed.
+	 * The origin itself should then not be enabled.
+	 * </p>
+	 * 
+	 * <p>
+	 * The negation of a conjunction of several clauses is a disjunction.
+	 * It is encoded using one auxiliary variable per clause.
+	 * The auxiliary variables are never part of an explanation.
+	 * If the clauses of the origin contain auxiliary variables themselves,
+	 * the negated formula of the origin is encoded instead.
+	 * Unless the CNF uses another encoding with auxiliary variables, the negated formula is encoded using {@link CnfEncoding#PLAISTED_GREENBAUM},
+	 * as the distributive law may blow up the negation of an alternative group.
+	 * </p>
+	 * 
+	 * @param origin the origin to negate; not null
+	 * @return the literal enforcing the negation; positive
+	 */
+	public int getNegation(Origin origin) {
+		Integer negation = negations.get(origin);
+		if (negation != null) {
+			return negation;
+		}
+		negation = newVariable();
+		final Node node = cnf.getAuxiliaryNode(origin);
+		if (node != null) {
+			final CnfEncoding encoding = cnf.getEncoding() == CnfEncoding.DISTRIBUTIVE ? CnfEncoding.PLAISTED_GREENBAUM : cnf.getEncoding();
+			final ConstraintEncoder encoder = new ConstraintEncoder(encoding, maxVariable) {
+				@Override
+				protected int getVariable(String name) throws IllegalArgumentException {
+					return cnf.getVariable(name);
+				}
+			};
+			final int[][] negated = encoder.encode(new Not(node));
+			for (int i = 0; i < encoder.getAuxiliaryCount(); i++) {
+				newVariable();
+			}
+			for (final int[] literals : negated) {
+				addGuardedClause(negation, literals);
+			}
+			negations.put(origin, negation);
+			return negation;
+		}
+		final List<Clause> clauses = cnf.getClauses(origin);
+		final int[] falsified = new int[clauses.size()];
+		int i = 0;
+		for (final Clause clause : clauses) {
+			final int aux = newVariable();
+			for (final int literal : clause.getLiterals()) {
+				addGuardedClause(negation, -aux, -literal);
+			}
+			falsified[i++] = aux;
+		}
+		addGuardedClause(negation, falsified);
+		negations.put(origin, negation);
+		return negation;
+	}
+
+	/**
+	 * Returns true iff the clauses of the given origins are satisfiable under the given assumptions.
+	 * 
+	 * @param assumptions literals assumed to be true; not null
+	 * @param enabled origins whose clauses are in effect; not null
+	 * @return true iff satisfiable
+	 */
+	public boolean isSatisfiable(int[] assumptions, Collection<Origin> enabled) {
+		return getCore(assumptions, enabled) == null;
+	}
+
+	/**
+	 * Returns a minimal subset of the given candidate origins whose clauses are unsatisfiable under the given assumptions.
+	 * 
+	 * @param assumptions literals assumed to be true; not null
+	 * @param candidates origins to choose from; not null
+	 * @param strategy the shrinking strategy; not null
+	 * @return a minimal unsatisfiable subset of the candidates; null if the candidates are satisfiable
+	 */
+	public Set<Origin> getMinimalUnsatisfiableSubset(int[] assumptions, Collection<Origin> candidates, ShrinkingStrategy strategy) {
+		final Object event = FlightRecorderEvents.beginPhase();
+		final long satCallsBefore = satCalls;
+		final List<Origin> core = getCore(assumptions, candidates);
+		FlightRecorderEvents.endPhase(event, "Core", satCalls - satCallsBefore);
+		if (core == null) {
+			return null;
+		}
+		return shrink(assumptions, core, strategy);
+	}
+
+	/**
+	 * <p>
+	 * Returns an iterator over all minimal subsets of the given candidate origins whose clauses are unsatisfiable under the given assumptions.
+	 * </p>
+	 * 
+	 * <p>
+	 * The subsets are computed lazily.
+	 * Each call to {@link Iterator#next()} only does the work needed to find one more subset.
+	 * Subsets already found are excluded using blocking clauses.
+	 * </p>
+	 * 
+	 * @param assumptions literals assumed to be true; not null
+	 * @param candidates origins to choose from; not null
+	 * @param strategy the shrinking strategy; not null
+	 * @return an iterator over all minimal unsatisfiable subsets of the candidates; not null
+	 */
+	public Iterator<Set<Origin>> getMinimalUnsatisfiableSubsets(int[] assumptions, Collection<Origin> candidates, ShrinkingStrategy strategy) {
+		return new MusEnumerator(this, assumptions, candidates, strategy);
+	}
+
+	/**
+	 * Shrinks the given unsatisfiable origins to a minimal unsatisfiable subset.
+	 * 
+	 * @param assumptions literals assumed to be true; not null
+	 * @param core unsatisfiable origins; not null
+	 * @param strategy the shrinking strategy; not null
+	 * @return a minimal unsatisfiable subset; not null
+	 */
+	Set<Origin> shrink(int[] assumptions, List<Origin> core, ShrinkingStrategy strategy) {
+		final Object event = FlightRecorderEvents.beginPhase();
+		final long satCallsBefore = satCalls;
+		try {
+			switch (strategy) {
+			case CORE:
+				return new LinkedHashSet<>(core);
+			case DELETION:
+				return deletion(assumptions, core);
+			case QUICKXPLAIN:
+				return new LinkedHashSet<>(quickXplain(assumptions, new ArrayList<Origin>(0), false, core));
+			default:
+				throw new IllegalArgumentException("Unknown shrinking strategy");
+			}
+		} finally {
+			FlightRecorderEvents.endPhase(event, "Shrink", satCalls - satCallsBefore);
+		}
+	}
+
+	/**
+	 * Shrinks the given core by trying to remove one origin at a time.
+	 * Each time an origin turns out to be unnecessary, the core reported by the solver is used to trim the rest.
+	 * 
+	 * @param assumptions literals assumed to be true; not null
+	 * @param core unsatisfiable origins; not null
+	 * @return a minimal unsatisfiable subset; not null
+	 */
+	private Set<Origin> deletion(int[] assumptions, List<Origin> core) {
+		List<Origin> mus = core;
+		int i = 0;
+		while (i < mus.size()) {
+			final List<Origin> rest = new ArrayList<>(mus);
+			rest.remove(i);
+			final List<Origin> restCore = getCore(assumptions, rest);
+			if (restCore == null) {
+				i++; // necessary
+			} else {
+				mus = restCore; // the first i origins are necessary and thus part of any core
+			}
+		}
+		return new LinkedHashSet<>(mus);
+	}
+
+	/**
+	 * Shrinks the given origins using QuickXplain.
+	 * 
+	 * @param assumptions literals assumed to be true; not null
+	 * @param background origins known to be part of the result; not null
+	 * @param checkBackground whether the background may already be unsatisfiable on its own
+	 * @param origins origins to shrink; not null
+	 * @return the necessary origins among the given ones; not null
+	 */
+	private List<Origin> quickXplain(int[] assumptions, List<Origin> background, boolean checkBackground, List<Origin> origins) {
+		if (checkBackground && getCore(assumptions, background) != null) {
+			return new ArrayList<>(0);
+		}
+		if (origins.size() <= 1) {
+			return origins;
+		}
+		final int split = origins.size() / 2;
+		final List<Origin> first = origins.subList(0, split);
+		final List<Origin> second = origins.subList(split, origins.size());
+		final List<Origin> firstBackground = new ArrayList<>(background);
+		firstBackground.addAll(first);
+		final List<Origin> secondResult = quickXplain(assumptions, firstBackground, true, second);
+		final List<Origin> secondBackground = new ArrayList<>(background);
+		secondBackground.addAll(secondResult);
+		final List<Origin> firstResult = quickXplain(assumptions, secondBackground, !secondResult.isEmpty(), first);
+		final List<Origin> result = new ArrayList<>(firstResult);
+		result.addAll(secondResult);
+		return result;
+	}
+
+	/**
+	 * Extends the given satisfiable origins to a maximal satisfiable subset of the given candidates.
+	 * Candidates already satisfied by the current model are added without another satisfiability check.
+	 * For this to work, the most recent satisfiability check that succeeded must have been done on the seed.
+	 * 
+	 * @param assumptions literals assumed to be true; not null
+	 * @param seed satisfiable origins; not null
+	 * @param candidates origins to choose from; not null
+	 * @return a maximal satisfiable subset containing the seed; not null
+	 */
+	List<Origin> grow(int[] assumptions, Collection<Origin> seed, Collection<Origin> candidates) {
+		final Object event = FlightRecorderEvents.beginPhase();
+		final long satCallsBefore = satCalls;
+		try {
+			return doGrow(assumptions, seed, candidates);
+		} finally {
+			FlightRecorderEvents.endPhase(event, "Grow", satCalls - satCallsBefore);
+		}
+	}
+
+	/**
+	 * Grows the given satisfiable origins to a maximal satisfiable subset of the given candidates.
+	 * 
+	 * @param assumptions literals assumed to be true; not null
+	 * @param seed satisfiable origins; not null
+	 * @param candidates origins to choose from; not null
+	 * @return a maximal satisfiable subset containing the seed; not null
+	 * @see #grow(int[], Collection, Collection)
+	 */
+	private List<Origin> doGrow(int[] assumptions, Collection<Origin> seed, Collection<Origin> candidates) {
+		final List<Origin> mss = new ArrayList<>(seed);
+		final Set<Origin> contained = new HashSet<>(seed);
+		if (model == null && getCore(assumptions, mss) != null) { // no model yet
+			throw new IllegalArgumentException("Seed is unsatisfiable");
+		}
+		for (final Origin origin : candidates) {
+			if (contained.contains(origin)) {
+				continue;
+			}
+			mss.add(origin);
+			if (!isSatisfied(origin) && getCore(assumptions, mss) != null) {
+				mss.remove(mss.size() - 1);
+			}
+		}
+		return mss;
+	}
+
+	/**
+	 * Returns the model of the solver with every variable of this oracle assigned.
+	 * The solver leaves out variables that occur in no clause, so its model cannot be indexed by variable.
+	 * 
+	 * @return the model; not null
+	 */
+	private int[] getCompleteModel() {
+		final int[] complete = new int[maxVariable];
+		for (int variable = 1; variable <= maxVariable; variable++) {
+			complete[variable - 1] = -variable;
+		}
+		for (final int literal : solver.model()) {
+			complete[Math.abs(literal) - 1] = literal;
+		}
+		return complete;
+	}
+
+	/**
+	 * Returns true iff all clauses of the given origin are satisfied by the current model.
+	 * 
+	 * @param origin the origin; not null
+	 * @return true iff satisfied by the current model
+	 */
+	private boolean isSatisfied(Origin origin) {
+		for (final Clause clause : cnf.getClauses(origin)) {
+			boolean satisfied = false;
+			for (final int literal : clause.getLiterals()) {
+				final int i = Math.abs(literal) - 1;
+				if (model[i] == literal) {
+					satisfied = true;
+					break;
+				}
+			}
+			if (!satisfied) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks the clauses of the given origins for satisfiability under the given assumptions.
+	 * Returns an unsatisfiable core if they are unsatisfiable.
+	 * Otherwise, the model found is kept for {@link #grow(int[], Collection, Collection) growing}.
+	 * 
+	 * @param assumptions literals assumed to be true; not null
+	 * @param enabled origins whose clauses are in effect; not null
+	 * @return a subset of the enabled origins that is unsatisfiable in the order of the enabled origins; null if satisfiable
+	 */
+	List<Origin> getCore(int[] assumptions, Collection<Origin> enabled) {
+		final IVecInt assumps = new VecInt(assumptions.length + enabled.size());
+		for (final int assumption : assumptions) {
+			assumps.push(assumption);
+		}
+		for (final Origin origin : enabled) {
+			final Integer selector = selectors.get(origin);
+			if (selector == null) {
+				throw new IllegalArgumentException("Unknown origin: " + origin);
+			}
+			assumps.push(selector);
+		}
+		satCalls++;
+		final boolean satisfiable;
+		try {
+			satisfiable = solver.isSatisfiable(assumps);
+		} catch (TimeoutException e) {
+			throw new IllegalStateException(e);
+		}
+		if (satisfiable) {
+			model = getCompleteModel();
+			return null;
+		}
+		final IVecInt explanation = solver.unsatExplanation();
+		if (explanation == null) {
+			return new ArrayList<>(enabled);
+		}
+		final Set<Origin> involved = new HashSet<>();
+		for (int i = 0; i < explanation.size(); i++) {
+			final Origin origin = origins.get(Math.abs(explanation.get(i)));
+			if (origin != null) {
+				involved.add(origin);
+			}
+		}
+		final List<Origin> core = new ArrayList<>(involved.size());
+		for (final Origin origin : enabled) {
+			if (involved.contains(origin)) {
+				core.add(origin);
+			}
+		}
+		return core;
+	}
+}
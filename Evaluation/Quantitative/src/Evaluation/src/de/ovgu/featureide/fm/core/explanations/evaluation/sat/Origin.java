@@ -0,0 +1,85 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+/**
+ * The origin of a {@link Clause clause}.
+ * An origin is the smallest unit that can be a reason in an explanation.
+ * Several clauses may share the same origin.
+ * 
+ * @author Timo G&uuml;nther
+ */
+public final class Origin {
+
+	/**
+	 * The kind of an origin.
+	 */
+	public static enum Kind {
+		/** The root feature is selected. The element is the root feature. */
+		ROOT,
+		/** The relationship between a feature and its parent. The element is the child feature. */
+		CHILD,
+		/** The group of the children of a feature. The element is the parent feature. */
+		GROUP,
+		/** A cross-tree constraint. The element is the constraint. */
+		CONSTRAINT,
+		/** A selection made by the user in a configuration. The element is the selected or unselected feature. */
+		SELECTION,
+		/** An annotation in the source code. The element is the presence condition of the annotated block as written. */
+		PRESENCE_CONDITION
+	}
+
+	/** The kind of this origin. */
+	private final Kind kind;
+	/** The element of the feature model or configuration this originates from. */
+	private final Object element;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param kind the kind of this origin; not null
+	 * @param element the element this originates from; not null
+	 */
+	public Origin(Kind kind, Object element) {
+		this.kind = kind;
+		this.element = element;
+	}
+
+	/**
+	 * Returns the kind of this origin.
+	 * 
+	 * @return the kind; not null
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * Returns the element this originates from.
+	 * 
+	 * @return the element; not null
+	 */
+	public Object getElement() {
+		return element;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * kind.hashCode() + element.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		final Origin other = (Origin) obj;
+		return kind == other.kind && element.equals(other.element);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%s]", kind, element);
+	}
+}
@@ -0,0 +1,460 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.minisat.SolverFactory;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.TimeoutException;
+
+import de.ovgu.featureide.fm.core.ConstraintAttribute;
+import de.ovgu.featureide.fm.core.FeatureStatus;
+import de.ovgu.featureide.fm.core.base.IConstraint;
+import de.ovgu.featureide.fm.core.base.IFeature;
+import de.ovgu.featureide.fm.core.base.IFeatureModel;
+
+/**
+ * <p>
+ * Finds void feature models, dead features, false-optional features and redundant constraints using several threads.
+ * This is an alternative to {@link de.ovgu.featureide.fm.core.FeatureModelAnalyzer#analyzeFeatureModel(org.eclipse.core.runtime.IProgressMonitor)}.
+ * </p>
+ * 
+ * <p>
+ * The checks of the features and the constraints are independent of each other.
+ * They are partitioned into batches that are distributed among the threads.
+ * Each thread has its own solver loaded with the same CNF.
+ * The clauses of each constraint are guarded by a selector variable so that the same solver can check redundancy.
+ * Within a batch, the models found by satisfiable checks rule out further defects without checking them.
+ * </p>
+ * 
+ * <p>
+ * The results are written back to the feature status and the constraint attributes by the calling thread.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ParallelAnalyzer {
+
+	/** The number of batches per thread. More batches balance the load better. */
+	private static final int BATCHES_PER_THREAD = 4;
+
+	/**
+	 * A solver loaded with the CNF.
+	 * Each thread uses its own.
+	 */
+	private class Worker {
+
+		/** The solver. */
+		private final ISolver solver = SolverFactory.newDefault();
+		/** Whether the clauses are contradictory without any assumptions. */
+		private boolean contradiction;
+
+		/**
+		 * Constructs a new instance of this class.
+		 */
+		private Worker() {
+			solver.newVar(cnf.getVariableCount() + selectors.size());
+			for (final Origin origin : cnf.getOrigins()) {
+				final Integer selector = selectors.get(origin);
+				for (final Clause clause : cnf.getClauses(origin)) {
+					int[] literals = clause.getLiterals();
+					if (selector != null) {
+						literals = Arrays.copyOf(literals, literals.length + 1);
+						literals[literals.length - 1] = -selector;
+					}
+					try {
+						solver.addClause(new VecInt(literals));
+					} catch (ContradictionException e) {
+						contradiction = true;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Returns true iff the CNF is satisfiable under the given assumptions.
+		 * 
+		 * @param assumptions literals assumed to be true; not null
+		 * @return true iff satisfiable
+		 */
+		private boolean isSatisfiable(int[] assumptions) {
+			if (contradiction) {
+				return false;
+			}
+			try {
+				return solver.isSatisfiable(new VecInt(assumptions));
+			} catch (TimeoutException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/** The feature model in conjunctive normal form. */
+	private final FeatureModelCnf cnf;
+	/** The number of threads. */
+	private final int threads;
+	/** The selector variable of each constraint origin. */
+	private final Map<Origin, Integer> selectors = new LinkedHashMap<>();
+	/** The variable of the parent feature of each variable minus one; 0 for the root. */
+	private final int[] parents;
+	/** The solver of each thread. */
+	private final ThreadLocal<Worker> workers = new ThreadLocal<Worker>() {
+		@Override
+		protected Worker initialValue() {
+			return new Worker();
+		}
+	};
+
+	/** Whether the feature model is valid. */
+	private boolean valid;
+	/** The dead features. */
+	private final Set<IFeature> deadFeatures = new LinkedHashSet<>();
+	/** The false-optional features. */
+	private final Set<IFeature> falseOptionalFeatures = new LinkedHashSet<>();
+	/** The redundant constraints. */
+	private final Set<IConstraint> redundantConstraints = new LinkedHashSet<>();
+	/** The tautological constraints. */
+	private final Set<IConstraint> tautologicalConstraints = new LinkedHashSet<>();
+
+	/**
+	 * Constructs a new instance of this class.
+	 * Redundancy is checked clause by clause, so the CNF must not contain auxiliary variables.
+	 * 
+	 * @param cnf the feature model in conjunctive normal form; not null
+	 * @param threads the number of threads; at least 1
+	 * @throws IllegalArgumentException if the CNF contains auxiliary variables
+	 */
+	public ParallelAnalyzer(FeatureModelCnf cnf, int threads) throws IllegalArgumentException {
+		if (cnf.getAuxiliaryCount() > 0) {
+			throw new IllegalArgumentException("Auxiliary variables are not supported");
+		}
+		this.cnf = cnf;
+		this.threads = threads;
+		final IFeatureModel fm = cnf.getFeatureModel();
+		int selector = cnf.getVariableCount();
+		for (final IConstraint c : fm.getConstraints()) {
+			selectors.put(cnf.getOrigin(c), ++selector);
+		}
+		parents = new int[cnf.getVariableCount()];
+		for (final IFeature f : fm.getFeatures()) {
+			if (!f.getStructure().isRoot()) {
+				parents[cnf.getVariable(f) - 1] = cnf.getVariable(f.getStructure().getParent().getFeature());
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of threads.
+	 * 
+	 * @return the number of threads
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Returns true iff the feature model was found to be valid.
+	 * 
+	 * @return true iff valid
+	 */
+	public boolean isValid() {
+		return valid;
+	}
+
+	/**
+	 * Returns the dead features found.
+	 * 
+	 * @return the dead features; not null
+	 */
+	public Set<IFeature> getDeadFeatures() {
+		return Collections.unmodifiableSet(deadFeatures);
+	}
+
+	/**
+	 * Returns the false-optional features found.
+	 * 
+	 * @return the false-optional features; not null
+	 */
+	public Set<IFeature> getFalseOptionalFeatures() {
+		return Collections.unmodifiableSet(falseOptionalFeatures);
+	}
+
+	/**
+	 * Returns the redundant constraints found.
+	 * This excludes tautologies.
+	 * 
+	 * @return the redundant constraints; not null
+	 */
+	public Set<IConstraint> getRedundantConstraints() {
+		return Collections.unmodifiableSet(redundantConstraints);
+	}
+
+	/**
+	 * Returns the tautological constraints found.
+	 * 
+	 * @return the tautological constraints; not null
+	 */
+	public Set<IConstraint> getTautologicalConstraints() {
+		return Collections.unmodifiableSet(tautologicalConstraints);
+	}
+
+	/**
+	 * Analyzes the feature model and writes the results back to it.
+	 * 
+	 * @return true iff the feature model is valid
+	 */
+	public boolean analyze() {
+		deadFeatures.clear();
+		falseOptionalFeatures.clear();
+		redundantConstraints.clear();
+		tautologicalConstraints.clear();
+		final IFeatureModel fm = cnf.getFeatureModel();
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			valid = executor.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					return workers.get().isSatisfiable(getConstraintAssumptions(null));
+				}
+			}).get();
+			if (valid) {
+				final List<Future<Void>> futures = new ArrayList<>();
+				for (final List<IFeature> batch : partition(fm.getFeatures())) {
+					futures.add(executor.submit(new Callable<Void>() {
+						@Override
+						public Void call() {
+							analyzeFeatures(batch);
+							return null;
+						}
+					}));
+				}
+				for (final List<IConstraint> batch : partition(fm.getConstraints())) {
+					futures.add(executor.submit(new Callable<Void>() {
+						@Override
+						public Void call() {
+							analyzeConstraints(batch);
+							return null;
+						}
+					}));
+				}
+				for (final Future<Void> future : futures) {
+					future.get();
+				}
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			executor.shutdown();
+		}
+		writeBack(fm);
+		return valid;
+	}
+
+	/**
+	 * Merges the results of a batch of features.
+	 * 
+	 * @param dead the dead features of the batch; not null
+	 * @param falseOptional the false-optional features of the batch; not null
+	 */
+	private synchronized void mergeFeatures(Set<IFeature> dead, Set<IFeature> falseOptional) {
+		deadFeatures.addAll(dead);
+		falseOptionalFeatures.addAll(falseOptional);
+	}
+
+	/**
+	 * Merges the results of a batch of constraints.
+	 * 
+	 * @param redundant the redundant constraints of the batch; not null
+	 * @param tautological the tautological constraints of the batch; not null
+	 */
+	private synchronized void mergeConstraints(Set<IConstraint> redundant, Set<IConstraint> tautological) {
+		redundantConstraints.addAll(redundant);
+		tautologicalConstraints.addAll(tautological);
+	}
+
+	/**
+	 * Writes the results back to the feature status and the constraint attributes.
+	 * 
+	 * @param fm the feature model; not null
+	 */
+	private void writeBack(IFeatureModel fm) {
+		for (final IFeature f : fm.getFeatures()) {
+			final FeatureStatus status;
+			if (deadFeatures.contains(f)) {
+				status = FeatureStatus.DEAD;
+			} else if (falseOptionalFeatures.contains(f)) {
+				status = FeatureStatus.FALSE_OPTIONAL;
+			} else {
+				status = FeatureStatus.NORMAL;
+			}
+			f.getProperty().setFeatureStatus(status);
+		}
+		for (final IConstraint c : fm.getConstraints()) {
+			final ConstraintAttribute attribute;
+			if (tautologicalConstraints.contains(c)) {
+				attribute = ConstraintAttribute.TAUTOLOGY;
+			} else if (redundantConstraints.contains(c)) {
+				attribute = ConstraintAttribute.REDUNDANT;
+			} else {
+				attribute = ConstraintAttribute.NORMAL;
+			}
+			c.setConstraintAttribute(attribute, false);
+		}
+	}
+
+	/**
+	 * Partitions the given elements into batches.
+	 * 
+	 * @param elements the elements to partition; not null
+	 * @return the batches; not null
+	 */
+	private <T> List<List<T>> partition(Iterable<T> elements) {
+		final List<T> all = new ArrayList<>();
+		for (final T element : elements) {
+			all.add(element);
+		}
+		final int batchCount = threads * BATCHES_PER_THREAD;
+		final int batchSize = Math.max(1, (all.size() + batchCount - 1) / batchCount);
+		final List<List<T>> batches = new ArrayList<>();
+		for (int i = 0; i < all.size(); i += batchSize) {
+			batches.add(all.subList(i, Math.min(all.size(), i + batchSize)));
+		}
+		return batches;
+	}
+
+	/**
+	 * Checks the given features for being dead or false-optional.
+	 * Runs in a worker thread.
+	 * 
+	 * @param batch the features to check; not null
+	 */
+	private void analyzeFeatures(List<IFeature> batch) {
+		final Worker worker = workers.get();
+		final int[] constraintAssumptions = getConstraintAssumptions(null);
+		final Set<Integer> seenSelected = new LinkedHashSet<>();
+		final Set<Integer> seenOptional = new LinkedHashSet<>();
+		final Set<IFeature> dead = new LinkedHashSet<>();
+		final Set<IFeature> falseOptional = new LinkedHashSet<>();
+		for (final IFeature f : batch) {
+			final int variable = cnf.getVariable(f);
+			if (seenSelected.contains(variable)) {
+				continue;
+			}
+			if (worker.isSatisfiable(append(constraintAssumptions, variable))) {
+				see(worker, seenSelected, seenOptional);
+			} else {
+				dead.add(f);
+			}
+		}
+		for (final IFeature f : batch) {
+			final int variable = cnf.getVariable(f);
+			if (!FeatureModelCnf.isOptional(f) || dead.contains(f) || seenOptional.contains(variable)) {
+				continue;
+			}
+			if (worker.isSatisfiable(append(constraintAssumptions, parents[variable - 1], -variable))) {
+				see(worker, seenSelected, seenOptional);
+			} else {
+				falseOptional.add(f);
+			}
+		}
+		mergeFeatures(dead, falseOptional);
+	}
+
+	/**
+	 * Checks the given constraints for being redundant.
+	 * A constraint is redundant if each of its clauses is implied by the rest of the feature model.
+	 * A constraint without any clauses is a tautology.
+	 * Runs in a worker thread.
+	 * 
+	 * @param batch the constraints to check; not null
+	 */
+	private void analyzeConstraints(List<IConstraint> batch) {
+		final Worker worker = workers.get();
+		final Set<IConstraint> redundant = new LinkedHashSet<>();
+		final Set<IConstraint> tautological = new LinkedHashSet<>();
+		for (final IConstraint c : batch) {
+			final Origin origin = cnf.getOrigin(c);
+			final List<Clause> clauses = cnf.getClauses(origin);
+			if (clauses.isEmpty()) {
+				tautological.add(c);
+				continue;
+			}
+			final int[] constraintAssumptions = getConstraintAssumptions(origin);
+			boolean implied = true;
+			for (final Clause clause : clauses) {
+				final int[] literals = clause.getLiterals();
+				final int[] negated = new int[literals.length];
+				for (int i = 0; i < literals.length; i++) {
+					negated[i] = -literals[i];
+				}
+				if (worker.isSatisfiable(append(constraintAssumptions, negated))) {
+					implied = false;
+					break;
+				}
+			}
+			if (implied) {
+				redundant.add(c);
+			}
+		}
+		mergeConstraints(redundant, tautological);
+	}
+
+	/**
+	 * Returns the assumptions enabling all constraints but the given one.
+	 * 
+	 * @param disabled the origin of the constraint to disable; null to enable all constraints
+	 * @return the assumptions; not null
+	 */
+	private int[] getConstraintAssumptions(Origin disabled) {
+		final int[] assumptions = new int[selectors.size()];
+		int i = 0;
+		for (final Map.Entry<Origin, Integer> e : selectors.entrySet()) {
+			assumptions[i++] = e.getKey().equals(disabled) ? -e.getValue() : e.getValue();
+		}
+		return assumptions;
+	}
+
+	/**
+	 * Remembers which features are selected and which features are deselected while their parent is selected in the model of the given worker.
+	 * 
+	 * @param worker the worker that has just found a model; not null
+	 * @param seenSelected the selected variables to add to; not null
+	 * @param seenOptional the deselected variables with a selected parent to add to; not null
+	 */
+	private void see(Worker worker, Set<Integer> seenSelected, Set<Integer> seenOptional) {
+		final int[] model = worker.solver.model();
+		for (int variable = 1; variable <= parents.length; variable++) {
+			if (model[variable - 1] > 0) {
+				seenSelected.add(variable);
+			} else if (parents[variable - 1] != 0 && model[parents[variable - 1] - 1] > 0) {
+				seenOptional.add(variable);
+			}
+		}
+	}
+
+	/**
+	 * Returns the given assumptions with the given literals appended.
+	 * 
+	 * @param assumptions the assumptions; not null
+	 * @param literals the literals to append; not null
+	 * @return the extended assumptions; not null
+	 */
+	private static int[] append(int[] assumptions, int... literals) {
+		final int[] result = Arrays.copyOf(assumptions, assumptions.length + literals.length);
+		System.arraycopy(literals, 0, result, assumptions.length, literals.length);
+		return result;
+	}
+}
@@ -0,0 +1,51 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import org.prop4j.Node;
+
+import de.ovgu.featureide.fm.core.base.IFeatureModel;
+
+/**
+ * A feature model in conjunctive normal form extended by the presence conditions of annotated source code.
+ * Each presence condition has its own {@link Origin.Kind#PRESENCE_CONDITION presence condition origin}.
+ * Identical presence conditions share the same origin and are only encoded once.
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class PresenceConditionCnf extends FeatureModelCnf {
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param fm the feature model to encode; not null
+	 */
+	public PresenceConditionCnf(IFeatureModel fm) {
+		super(fm);
+	}
+
+	/**
+	 * Returns the origin of the given presence condition.
+	 * 
+	 * @param condition the presence condition as written; not null
+	 * @return the origin; not null
+	 */
+	public Origin getOrigin(String condition) {
+		return new Origin(Origin.Kind.PRESENCE_CONDITION, condition);
+	}
+
+	/**
+	 * Adds the clauses for the given presence condition unless it has already been added.
+	 * The presence condition may only refer to features of the feature model.
+	 * 
+	 * @param condition the presence condition as written; not null
+	 * @param node the parsed presence condition; not null
+	 * @return the origin of the presence condition; not null
+	 * @throws IllegalArgumentException if the presence condition refers to an unknown feature
+	 */
+	public Origin addCondition(String condition, Node node) throws IllegalArgumentException {
+		final Origin origin = getOrigin(condition);
+		if (getClauses(origin).isEmpty()) {
+			addNode(origin, node);
+		}
+		return origin;
+	}
+}
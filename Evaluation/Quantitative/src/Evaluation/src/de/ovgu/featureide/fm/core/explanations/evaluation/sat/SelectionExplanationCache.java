@@ -0,0 +1,129 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.ovgu.featureide.fm.core.base.IFeature;
+
+/**
+ * <p>
+ * Caches explanations of automatic selections across configurations of the same feature model.
+ * </p>
+ * 
+ * <p>
+ * An explanation consists of origins in the feature model and manual selections.
+ * It stays valid for every configuration that contains all of its manual selections:
+ * the origins still imply the automatic selection and are still minimal, since minimality only depends on the origins themselves.
+ * Each cached explanation therefore records the literals of the manual selections it needs.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class SelectionExplanationCache {
+
+	/**
+	 * A cached explanation along with the manual selections it needs.
+	 */
+	private static class Entry {
+
+		/** The origins of the explanation. */
+		private final Set<Origin> explanation;
+		/** The literals of the manual selections in the explanation. */
+		private final int[] required;
+
+		/**
+		 * Constructs a new instance of this class.
+		 * 
+		 * @param explanation the origins of the explanation; not null
+		 * @param required the literals of the manual selections in the explanation; not null
+		 */
+		private Entry(Set<Origin> explanation, int[] required) {
+			this.explanation = explanation;
+			this.required = required;
+		}
+	}
+
+	/** The cached explanations by the literal of the automatic selection. */
+	private final Map<Integer, List<Entry>> entries = new HashMap<>();
+	/** The number of explanations found in the cache. */
+	private long hits;
+	/** The number of explanations not found in the cache. */
+	private long misses;
+
+	/**
+	 * Returns a cached explanation of the given automatic selection that is valid for the given manual selections.
+	 * 
+	 * @param literal the literal of the automatic selection; not 0
+	 * @param selections the manual selections of the configuration; not null
+	 * @return the origins of the explanation; null if there is none
+	 */
+	public Set<Origin> get(int literal, SelectionSet selections) {
+		final List<Entry> literalEntries = entries.get(literal);
+		if (literalEntries != null) {
+			for (final Entry entry : literalEntries) {
+				if (selections.containsAll(entry.required)) {
+					hits++;
+					return entry.explanation;
+				}
+			}
+		}
+		misses++;
+		return null;
+	}
+
+	/**
+	 * Caches an explanation of the given automatic selection.
+	 * 
+	 * @param literal the literal of the automatic selection; not 0
+	 * @param explanation the origins of the explanation; not null
+	 * @param cnf the CNF of the feature model; not null
+	 * @param selections the manual selections of the configuration the explanation was found for; not null
+	 */
+	public void put(int literal, Set<Origin> explanation, FeatureModelCnf cnf, SelectionSet selections) {
+		final List<Integer> required = new ArrayList<>();
+		for (final Origin origin : explanation) {
+			if (origin.getKind() == Origin.Kind.SELECTION) {
+				required.add(selections.getLiteral(cnf.getVariable((IFeature) origin.getElement())));
+			}
+		}
+		final int[] literals = new int[required.size()];
+		for (int i = 0; i < literals.length; i++) {
+			literals[i] = required.get(i);
+		}
+		List<Entry> literalEntries = entries.get(literal);
+		if (literalEntries == null) {
+			literalEntries = new ArrayList<>(1);
+			entries.put(literal, literalEntries);
+		}
+		literalEntries.add(new Entry(explanation, literals));
+	}
+
+	/**
+	 * Removes all cached explanations.
+	 * The statistics are kept.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Returns the number of explanations found in the cache.
+	 * 
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of explanations not found in the cache.
+	 * 
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+		return misses;
+	}
+}
@@ -0,0 +1,157 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import java.util.BitSet;
+
+import de.ovgu.featureide.fm.core.configuration.Configuration;
+import de.ovgu.featureide.fm.core.configuration.SelectableFeature;
+
+/**
+ * <p>
+ * The manual selections of a configuration as a set of literals.
+ * Selected and unselected features are kept in separate bit sets indexed by variable.
+ * </p>
+ * 
+ * <p>
+ * Two configurations with the same manual selections have equal selection sets and the same automatic selections.
+ * The {@link #getDistance(SelectionSet) distance} between selection sets tells how similar two configurations are.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public final class SelectionSet {
+
+	/** The variables of the selected features. */
+	private final BitSet selected = new BitSet();
+	/** The variables of the unselected features. */
+	private final BitSet unselected = new BitSet();
+	/** The hash code. */
+	private final int hashCode;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param cnf the CNF of the feature model of the configuration; not null
+	 * @param config the configuration; not null
+	 * @throws IllegalArgumentException if the configuration contains an unknown feature
+	 */
+	public SelectionSet(FeatureModelCnf cnf, Configuration config) throws IllegalArgumentException {
+		for (final SelectableFeature s : config.getFeatures()) {
+			switch (s.getManual()) {
+			case SELECTED:
+				selected.set(cnf.getVariable(s.getFeature().getName()));
+				break;
+			case UNSELECTED:
+				unselected.set(cnf.getVariable(s.getFeature().getName()));
+				break;
+			case UNDEFINED:
+				break;
+			default:
+				throw new IllegalStateException("Unknown selection state");
+			}
+		}
+		hashCode = 31 * selected.hashCode() + unselected.hashCode();
+	}
+
+	/**
+	 * Returns the number of manual selections.
+	 * 
+	 * @return the number of literals
+	 */
+	public int size() {
+		return selected.cardinality() + unselected.cardinality();
+	}
+
+	/**
+	 * Returns true iff the given literal is a manual selection.
+	 * 
+	 * @param literal the literal; not 0
+	 * @return true iff contained
+	 */
+	public boolean contains(int literal) {
+		return literal > 0 ? selected.get(literal) : unselected.get(-literal);
+	}
+
+	/**
+	 * Returns true iff all given literals are manual selections.
+	 * 
+	 * @param literals the literals; not null
+	 * @return true iff all contained
+	 */
+	public boolean containsAll(int[] literals) {
+		for (final int literal : literals) {
+			if (!contains(literal)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the literals of all manual selections.
+	 * 
+	 * @return the literals in ascending order of their variables; not null
+	 */
+	public int[] getLiterals() {
+		final int[] literals = new int[size()];
+		int i = 0;
+		for (int variable = 1; variable < Math.max(selected.length(), unselected.length()); variable++) {
+			final int literal = getLiteral(variable);
+			if (literal != 0) {
+				literals[i++] = literal;
+			}
+		}
+		return literals;
+	}
+
+	/**
+	 * Returns the literal of the manual selection of the given variable.
+	 * 
+	 * @param variable the variable; positive
+	 * @return the literal; 0 if the variable is not selected manually
+	 */
+	public int getLiteral(int variable) {
+		if (selected.get(variable)) {
+			return variable;
+		}
+		if (unselected.get(variable)) {
+			return -variable;
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the number of literals contained in exactly one of this and the given selection set.
+	 * 
+	 * @param other the other selection set; not null
+	 * @return the distance; 0 iff equal
+	 */
+	public int getDistance(SelectionSet other) {
+		final BitSet s = (BitSet) selected.clone();
+		s.xor(other.selected);
+		final BitSet u = (BitSet) unselected.clone();
+		u.xor(other.unselected);
+		return s.cardinality() + u.cardinality();
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		final SelectionSet other = (SelectionSet) obj;
+		return hashCode == other.hashCode && selected.equals(other.selected) && unselected.equals(other.unselected);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("SelectionSet[+%s, -%s]", selected, unselected);
+	}
+}
@@ -0,0 +1,30 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+/**
+ * The strategy used to shrink an unsatisfiable subset of origins.
+ * The strategies trade the number of satisfiability checks against the minimality of the result.
+ * 
+ * @author Timo G&uuml;nther
+ * @see {@link MusOracle}
+ */
+public enum ShrinkingStrategy {
+
+	/**
+	 * Does not shrink at all.
+	 * Returns the unsatisfiable core reported by the solver after a single satisfiability check.
+	 * The result is not necessarily minimal.
+	 */
+	CORE,
+	/**
+	 * Removes one origin at a time and keeps it only if the rest becomes satisfiable.
+	 * Needs one satisfiability check per origin in the core.
+	 * The result is minimal.
+	 */
+	DELETION,
+	/**
+	 * Splits the origins in halves recursively and only descends into halves that contain a necessary origin (QuickXplain).
+	 * Needs a number of satisfiability checks logarithmic in the core size per origin in the result.
+	 * The result is minimal.
+	 */
+	QUICKXPLAIN
+}
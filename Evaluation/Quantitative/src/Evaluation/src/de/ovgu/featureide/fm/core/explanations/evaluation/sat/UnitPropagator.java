@@ -0,0 +1,334 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.sat;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>
+ * Propagates the unit clauses of a {@link FeatureModelCnf CNF} once and records the justification of every implied literal.
+ * The justification of a literal is the clause that became unit and thus forced it.
+ * Together, the justifications form an implication graph.
+ * </p>
+ * 
+ * <p>
+ * The explanation of an implied literal is the set of origins of all clauses reachable from it in the implication graph.
+ * All explanations are extracted from the same trace, so explaining many literals only costs a single propagation.
+ * The explanations are not necessarily minimal.
+ * </p>
+ * 
+ * <p>
+ * Besides the clauses, the propagator accepts decisions, each starting a new decision level.
+ * A decision is explained by its own origin, such as a manual selection.
+ * Backtracking to an earlier decision level undoes all assignments made since.
+ * This allows propagating incrementally as decisions are made and taken back.
+ * </p>
+ * 
+ * <p>
+ * Unit propagation is incomplete.
+ * A literal may be implied by the CNF without being propagated.
+ * Such literals have no justification and must be explained otherwise, for example using a {@link MusOracle}.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class UnitPropagator {
+
+	/** The CNF. */
+	private final FeatureModelCnf cnf;
+	/** All clauses. */
+	private final Clause[] clauses;
+	/** The indexes of the clauses containing each literal, indexed by {@link #index(int)}. */
+	private final int[][] occurrences;
+	/** The number of falsified literals in each clause. */
+	private final int[] falsified;
+	/** The value of each variable: 1 if true, -1 if false, 0 if unassigned. */
+	private final byte[] values;
+	/** The index of the clause justifying each variable; -1 if unassigned or decided. */
+	private final int[] reasons;
+	/** The origin of the decision assigning each variable; null if unassigned or propagated. */
+	private final Origin[] decisions;
+	/** The literals in the order they were assigned. */
+	private final int[] trail;
+	/** The number of literals assigned. */
+	private int assigned;
+	/** The number of assigned literals whose consequences have been propagated. */
+	private int head;
+	/** The number of literals assigned before each decision level. */
+	private final int[] levels;
+	/** The current decision level. */
+	private int level;
+	/** Whether the unit clauses have been propagated. */
+	private boolean initialized;
+	/** The index of the conflicting clause; -1 if there is no conflict. */
+	private int conflict = -1;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param cnf the CNF; not null
+	 */
+	public UnitPropagator(FeatureModelCnf cnf) {
+		this.cnf = cnf;
+		final List<Clause> all = new ArrayList<>(cnf.getClauseCount());
+		for (final Origin origin : cnf.getOrigins()) {
+			all.addAll(cnf.getClauses(origin));
+		}
+		clauses = all.toArray(new Clause[all.size()]);
+		final int variableCount = cnf.getVariableCount();
+		final int[] occurrenceCounts = new int[2 * variableCount + 2];
+		for (final Clause clause : clauses) {
+			for (final int literal : clause.getLiterals()) {
+				occurrenceCounts[index(literal)]++;
+			}
+		}
+		occurrences = new int[occurrenceCounts.length][];
+		for (int i = 0; i < occurrences.length; i++) {
+			occurrences[i] = new int[occurrenceCounts[i]];
+			occurrenceCounts[i] = 0;
+		}
+		for (int i = 0; i < clauses.length; i++) {
+			for (final int literal : clauses[i].getLiterals()) {
+				final int index = index(literal);
+				occurrences[index][occurrenceCounts[index]++] = i;
+			}
+		}
+		falsified = new int[clauses.length];
+		values = new byte[variableCount + 1];
+		reasons = new int[variableCount + 1];
+		for (int i = 0; i < reasons.length; i++) {
+			reasons[i] = -1;
+		}
+		decisions = new Origin[variableCount + 1];
+		trail = new int[variableCount];
+		levels = new int[variableCount + 1];
+	}
+
+	/**
+	 * Returns the index of the given literal in {@link #occurrences}.
+	 * 
+	 * @param literal the literal; not 0
+	 * @return the index
+	 */
+	private static int index(int literal) {
+		return literal > 0 ? 2 * literal : -2 * literal + 1;
+	}
+
+	/**
+	 * Returns the CNF.
+	 * 
+	 * @return the CNF; not null
+	 */
+	public FeatureModelCnf getCnf() {
+		return cnf;
+	}
+
+	/**
+	 * Propagates all unit clauses and decisions until a fixpoint or a conflict is reached.
+	 * 
+	 * @return true iff there is no conflict
+	 */
+	public boolean propagate() {
+		if (!initialized) {
+			initialized = true;
+			for (int i = 0; i < clauses.length; i++) {
+				final int[] literals = clauses[i].getLiterals();
+				if (literals.length == 0) {
+					conflict = i;
+					return false;
+				}
+				if (literals.length == 1 && !assign(literals[0], i)) {
+					return false;
+				}
+			}
+		}
+		while (conflict < 0 && head < assigned) {
+			final int literal = -trail[head++];
+			for (final int i : occurrences[index(literal)]) {
+				falsified[i]++; // counted even after a conflict so that backtracking can undo it
+				final int[] literals = clauses[i].getLiterals();
+				if (conflict >= 0 || falsified[i] < literals.length - 1) {
+					continue;
+				}
+				int unassigned = 0;
+				boolean satisfied = false;
+				for (final int l : literals) {
+					final int value = getValue(l);
+					if (value > 0) {
+						satisfied = true;
+						break;
+					} else if (value == 0) {
+						unassigned = l;
+					}
+				}
+				if (satisfied) {
+					continue;
+				}
+				if (unassigned == 0) {
+					conflict = i;
+				} else {
+					assign(unassigned, i);
+				}
+			}
+		}
+		return conflict < 0;
+	}
+
+	/**
+	 * Starts a new decision level by assigning the given literal and propagates its consequences.
+	 * 
+	 * @param literal the literal to make true; not 0
+	 * @param origin the origin of the decision; not null
+	 * @return true iff there is no conflict
+	 * @throws IllegalArgumentException if the literal is already assigned
+	 */
+	public boolean decide(int literal, Origin origin) throws IllegalArgumentException {
+		propagate();
+		if (getValue(literal) != 0) {
+			throw new IllegalArgumentException("Literal already assigned: " + literal);
+		}
+		levels[level++] = assigned;
+		assign(literal, -1);
+		decisions[Math.abs(literal)] = origin;
+		return propagate();
+	}
+
+	/**
+	 * Returns the current decision level.
+	 * This is the number of decisions in effect.
+	 * 
+	 * @return the decision level
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Undoes all decisions from the given decision level onwards along with their consequences.
+	 * Also clears any conflict.
+	 * 
+	 * @param level the decision level to return to; between 0 and the current decision level
+	 */
+	public void backtrack(int level) {
+		if (level >= this.level) {
+			return;
+		}
+		final int start = levels[level];
+		for (int i = assigned - 1; i >= start; i--) {
+			final int literal = trail[i];
+			if (i < head) {
+				for (final int c : occurrences[index(-literal)]) {
+					falsified[c]--;
+				}
+			}
+			final int variable = Math.abs(literal);
+			values[variable] = 0;
+			reasons[variable] = -1;
+			decisions[variable] = null;
+		}
+		assigned = start;
+		head = Math.min(head, start);
+		this.level = level;
+		conflict = -1;
+	}
+
+	/**
+	 * Assigns the given literal.
+	 * 
+	 * @param literal the literal to make true; not 0
+	 * @param reason the index of the clause justifying it; -1 for a decision
+	 * @return false iff the literal is already false
+	 */
+	private boolean assign(int literal, int reason) {
+		final int value = getValue(literal);
+		if (value > 0) {
+			return true;
+		}
+		if (value < 0) {
+			conflict = reason;
+			return false;
+		}
+		final int variable = Math.abs(literal);
+		values[variable] = (byte) (literal > 0 ? 1 : -1);
+		reasons[variable] = reason;
+		trail[assigned++] = literal;
+		return true;
+	}
+
+	/**
+	 * Returns the value of the given literal.
+	 * 
+	 * @param literal the literal; not 0
+	 * @return 1 if true, -1 if false, 0 if unassigned
+	 */
+	public int getValue(int literal) {
+		final int value = values[Math.abs(literal)];
+		return literal > 0 ? value : -value;
+	}
+
+	/**
+	 * Returns true iff propagation ended in a conflict.
+	 * 
+	 * @return true iff conflicting
+	 */
+	public boolean isConflicting() {
+		return conflict >= 0;
+	}
+
+	/**
+	 * Returns the number of literals assigned by propagation.
+	 * 
+	 * @return the number of assigned literals
+	 */
+	public int getAssignedCount() {
+		return assigned;
+	}
+
+	/**
+	 * Returns the clause justifying the given variable.
+	 * 
+	 * @param variable the variable; positive
+	 * @return the justifying clause; null if unassigned or decided
+	 */
+	public Clause getReason(int variable) {
+		final int reason = reasons[variable];
+		return reason < 0 ? null : clauses[reason];
+	}
+
+	/**
+	 * Returns the explanation of the given literal.
+	 * This is the set of origins of all clauses and decisions it was transitively derived from.
+	 * 
+	 * @param literal the literal to explain; not 0
+	 * @return the origins of the explanation; null if the literal was not propagated to true
+	 */
+	public Set<Origin> explain(int literal) {
+		if (getValue(literal) <= 0) {
+			return null;
+		}
+		final Set<Origin> explanation = new LinkedHashSet<>();
+		final boolean[] visited = new boolean[values.length];
+		final int[] stack = new int[values.length];
+		int size = 0;
+		stack[size++] = Math.abs(literal);
+		visited[Math.abs(literal)] = true;
+		while (size > 0) {
+			final int current = stack[--size];
+			if (decisions[current] != null) {
+				explanation.add(decisions[current]);
+				continue;
+			}
+			final Clause reason = clauses[reasons[current]];
+			explanation.add(reason.getOrigin());
+			for (final int l : reason.getLiterals()) {
+				final int variable = Math.abs(l);
+				if (!visited[variable]) {
+					visited[variable] = true;
+					stack[size++] = variable;
+				}
+			}
+		}
+		return explanation;
+	}
+}
@@ -0,0 +1,146 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import de.ovgu.featureide.fm.core.explanations.evaluation.server.ExplanationRequest.Priority;
+import de.ovgu.featureide.fm.core.explanations.evaluation.server.ExplanationRequest.Waiter;
+
+/**
+ * <p>
+ * A connection of a client to the {@link ExplanationServer explanation server}.
+ * Each line sent by the client is a request with tab-separated fields:
+ * </p>
+ * 
+ * <pre>
+ * EXPLAIN &lt;id&gt; &lt;priority&gt; &lt;project&gt; &lt;oracle&gt; &lt;kind&gt; &lt;subject&gt;
+ * DEFECTS &lt;id&gt; &lt;priority&gt; &lt;project&gt;
+ * STATS &lt;id&gt;
+ * </pre>
+ * 
+ * <p>
+ * The priority is either <code>INTERACTIVE</code> or <code>BULK</code>.
+ * The kind is the abbreviation of a defect kind, such as <code>DF</code>.
+ * The subject is the name of a feature or the index of a constraint.
+ * Each response is a line starting with the identifier of its request followed by <code>OK</code>, <code>NONE</code>, or <code>ERROR</code>.
+ * Requests may be pipelined, and responses may arrive out of order.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ClientConnection implements Runnable {
+
+	/** The server. */
+	private final ExplanationServer server;
+	/** The socket. */
+	private final Socket socket;
+	/** The output to the client. */
+	private final Writer out;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param server the server; not null
+	 * @param socket the socket; not null
+	 * @throws IOException if the socket cannot be read
+	 */
+	public ClientConnection(ExplanationServer server, Socket socket) throws IOException {
+		this.server = server;
+		this.socket = socket;
+		socket.setTcpNoDelay(true);
+		out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public void run() {
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				handle(line.split("\t", -1));
+			}
+		} catch (IOException e) {
+			// the client disconnected
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Handles a single request.
+	 * 
+	 * @param fields the fields of the request; not null
+	 */
+	private void handle(String[] fields) {
+		final String id = fields.length > 1 ? fields[1] : "";
+		try {
+			switch (fields[0]) {
+			case "EXPLAIN":
+				if (fields.length != 7) {
+					throw new IllegalArgumentException("Expected 7 fields");
+				}
+				submit(id, new ExplanationRequest(fields[3], fields[5], fields[6], fields[4], Priority.valueOf(fields[2])));
+				break;
+			case ExplanationRequest.DEFECTS:
+				if (fields.length != 4) {
+					throw new IllegalArgumentException("Expected 4 fields");
+				}
+				submit(id, new ExplanationRequest(fields[3], ExplanationRequest.DEFECTS, "", "", Priority.valueOf(fields[2])));
+				break;
+			case "STATS":
+				send(id, "OK\t" + server.getStatistics());
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown command: " + fields[0]);
+			}
+		} catch (IllegalArgumentException e) {
+			send(id, "ERROR\t" + e.getMessage());
+		}
+	}
+
+	/**
+	 * Submits the given request.
+	 * 
+	 * @param id the identifier chosen by the client; not null
+	 * @param request the request; not null
+	 */
+	private void submit(String id, ExplanationRequest request) {
+		server.getScheduler().submit(request, new Waiter(this, id));
+	}
+
+	/**
+	 * Sends a response to the client.
+	 * Responses of a closed connection are dropped.
+	 * 
+	 * @param id the identifier of the request; not null
+	 * @param response the response; not null
+	 */
+	public synchronized void send(String id, String response) {
+		if (socket.isClosed()) {
+			return;
+		}
+		try {
+			out.write(id);
+			out.write('\t');
+			out.write(response);
+			out.write('\n');
+			out.flush();
+		} catch (IOException e) {
+			close();
+		}
+	}
+
+	/**
+	 * Closes the connection.
+	 */
+	public synchronized void close() {
+		try {
+			socket.close();
+		} catch (IOException e) {}
+	}
+}
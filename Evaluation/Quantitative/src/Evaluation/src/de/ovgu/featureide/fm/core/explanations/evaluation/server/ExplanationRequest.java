@@ -0,0 +1,208 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * A request to the {@link ExplanationServer explanation server}.
+ * Identical requests are coalesced while in flight, so one request may have several waiting clients.
+ * </p>
+ * 
+ * <p>
+ * A request is identified by its project, command, subject, and oracle.
+ * The command is either the abbreviation of a defect kind to explain or {@link #DEFECTS} to list the defects.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ExplanationRequest {
+
+	/** The command listing the defects of a model. */
+	public static final String DEFECTS = "DEFECTS";
+
+	/**
+	 * The priority of a request.
+	 */
+	public static enum Priority {
+		/** A request a user is waiting for, such as from an editor. */
+		INTERACTIVE,
+		/** A request from a batch job. */
+		BULK
+	}
+
+	/**
+	 * A client waiting for the response to a request.
+	 * 
+	 * @author Timo G&uuml;nther
+	 */
+	public static class Waiter {
+
+		/** The connection to respond to. */
+		private final ClientConnection connection;
+		/** The identifier chosen by the client. */
+		private final String id;
+
+		/**
+		 * Constructs a new instance of this class.
+		 * 
+		 * @param connection the connection to respond to; not null
+		 * @param id the identifier chosen by the client; not null
+		 */
+		public Waiter(ClientConnection connection, String id) {
+			this.connection = connection;
+			this.id = id;
+		}
+
+		/**
+		 * Sends the given response to the client.
+		 * 
+		 * @param response the response; not null
+		 */
+		public void respond(String response) {
+			connection.send(id, response);
+		}
+	}
+
+	/** The name of the project. */
+	private final String project;
+	/** The command. */
+	private final String command;
+	/** The subject; empty if the command has none. */
+	private final String subject;
+	/** The name of the oracle; empty if the command needs none. */
+	private final String oracle;
+	/** The clients waiting for the response. Guarded by the scheduler. */
+	private final List<Waiter> waiters = new ArrayList<>();
+	/** The priority. Guarded by the scheduler. */
+	private Priority priority;
+	/** The order in which the request was submitted. */
+	private long sequence;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param project the name of the project; not null
+	 * @param command the command; not null
+	 * @param subject the subject; empty if the command has none
+	 * @param oracle the name of the oracle; empty if the command needs none
+	 * @param priority the priority; not null
+	 */
+	public ExplanationRequest(String project, String command, String subject, String oracle, Priority priority) {
+		this.project = project;
+		this.command = command;
+		this.subject = subject;
+		this.oracle = oracle;
+		this.priority = priority;
+	}
+
+	/**
+	 * Returns the name of the project.
+	 * 
+	 * @return the project name; not null
+	 */
+	public String getProject() {
+		return project;
+	}
+
+	/**
+	 * Returns the command.
+	 * 
+	 * @return the command; not null
+	 */
+	public String getCommand() {
+		return command;
+	}
+
+	/**
+	 * Returns the subject.
+	 * 
+	 * @return the subject; empty if the command has none
+	 */
+	public String getSubject() {
+		return subject;
+	}
+
+	/**
+	 * Returns the name of the oracle.
+	 * 
+	 * @return the oracle name; empty if the command needs none
+	 */
+	public String getOracle() {
+		return oracle;
+	}
+
+	/**
+	 * Returns the priority.
+	 * 
+	 * @return the priority; not null
+	 */
+	public Priority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Sets the priority.
+	 * 
+	 * @param priority the priority; not null
+	 */
+	void setPriority(Priority priority) {
+		this.priority = priority;
+	}
+
+	/**
+	 * Returns the order in which the request was submitted.
+	 * 
+	 * @return the sequence number
+	 */
+	long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Sets the order in which the request was submitted.
+	 * 
+	 * @param sequence the sequence number
+	 */
+	void setSequence(long sequence) {
+		this.sequence = sequence;
+	}
+
+	/**
+	 * Returns the clients waiting for the response.
+	 * 
+	 * @return the waiters; not null
+	 */
+	List<Waiter> getWaiters() {
+		return waiters;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = project.hashCode();
+		result = 31 * result + command.hashCode();
+		result = 31 * result + subject.hashCode();
+		result = 31 * result + oracle.hashCode();
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		final ExplanationRequest other = (ExplanationRequest) obj;
+		return project.equals(other.project)
+				&& command.equals(other.command)
+				&& subject.equals(other.subject)
+				&& oracle.equals(other.oracle);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s %s %s %s", project, command, subject, oracle);
+	}
+}
@@ -0,0 +1,260 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.server;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.ovgu.featureide.fm.core.explanations.evaluation.server.ExplanationRequest.Waiter;
+
+/**
+ * <p>
+ * A long-lived local server explaining feature model defects.
+ * Unlike the tests, which load and analyze a model for every run, the server keeps each model warm in a {@link ModelSession session}.
+ * Clients connect over a socket on the loopback interface and send requests as described in {@link ClientConnection}.
+ * </p>
+ * 
+ * <p>
+ * Requests are scheduled by a {@link RequestScheduler scheduler}.
+ * Identical in-flight requests are coalesced, requests for the same model are batched, and interactive requests take priority over bulk ones.
+ * The server can be benchmarked with the {@link LoadGenerator load generator}.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ExplanationServer implements Closeable {
+
+	/** The default port. */
+	public static final int PORT = 4242;
+	/** The default input directory containing the projects. */
+	private static final File IN_DIR = new File("../../data");
+	/** The default maximum number of requests per batch. */
+	private static final int MAX_BATCH = 64;
+
+	/** The directory containing the projects. */
+	private final File dataDir;
+	/** The port to listen on. */
+	private final int port;
+	/** The number of worker threads. */
+	private final int workers;
+	/** The scheduler. */
+	private final RequestScheduler scheduler = new RequestScheduler(MAX_BATCH);
+	/** The sessions of all loaded models by project name. */
+	private final Map<String, ModelSession> sessions = new ConcurrentHashMap<>();
+	/** The number of requests handled by a worker. */
+	private final AtomicLong handled = new AtomicLong();
+	/** The total duration of handling requests by the workers. */
+	private final AtomicLong handleDuration = new AtomicLong();
+	/** The worker threads. */
+	private final List<Thread> threads = new ArrayList<>();
+
+	/** The server socket; null if not started. */
+	private ServerSocket serverSocket;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param dataDir the directory containing the projects; not null
+	 * @param port the port to listen on; 0 for any free port
+	 * @param workers the number of worker threads; positive
+	 */
+	public ExplanationServer(File dataDir, int port, int workers) {
+		this.dataDir = dataDir;
+		this.port = port;
+		this.workers = workers;
+	}
+
+	/**
+	 * Returns the scheduler.
+	 * 
+	 * @return the scheduler; not null
+	 */
+	RequestScheduler getScheduler() {
+		return scheduler;
+	}
+
+	/**
+	 * Loads and analyzes the model of the given project in advance.
+	 * 
+	 * @param project the name of the project; not null
+	 * @return the session of the model; not null
+	 */
+	public ModelSession preload(String project) {
+		ModelSession session = sessions.get(project);
+		if (session == null) {
+			session = new ModelSession(dataDir, project, 1);
+			sessions.put(project, session);
+		}
+		return session;
+	}
+
+	/**
+	 * Starts listening and the worker threads.
+	 */
+	public synchronized void start() {
+		if (serverSocket != null) {
+			return;
+		}
+		try {
+			serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		for (int i = 0; i < workers; i++) {
+			final Thread t = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					work();
+				}
+			}, "ExplanationWorker-" + i);
+			t.setDaemon(true);
+			threads.add(t);
+			t.start();
+		}
+		final ServerSocket s = serverSocket;
+		final Thread acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				accept(s);
+			}
+		}, "ExplanationServer");
+		acceptor.setDaemon(true);
+		threads.add(acceptor);
+		acceptor.start();
+	}
+
+	/**
+	 * Accepts connections until the server socket is closed.
+	 * 
+	 * @param serverSocket the server socket; not null
+	 */
+	private void accept(ServerSocket serverSocket) {
+		while (!serverSocket.isClosed()) {
+			try {
+				final Socket socket = serverSocket.accept();
+				final Thread t = new Thread(new ClientConnection(this, socket), "ExplanationClient-" + socket.getPort());
+				t.setDaemon(true);
+				t.start();
+			} catch (IOException e) {
+				// the server socket was closed
+			}
+		}
+	}
+
+	/**
+	 * Runs batches of requests until the scheduler is closed.
+	 */
+	private void work() {
+		while (true) {
+			final List<ExplanationRequest> batch;
+			try {
+				batch = scheduler.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (batch == null) {
+				return;
+			}
+			final String project = batch.get(0).getProject();
+			try {
+				ModelSession session = null;
+				String error = null;
+				try {
+					session = preload(project);
+				} catch (RuntimeException e) {
+					error = String.valueOf(e.getMessage());
+				}
+				for (final ExplanationRequest request : batch) {
+					String response;
+					if (session == null) {
+						response = "ERROR\t" + error;
+					} else {
+						final long start = System.nanoTime();
+						try {
+							response = session.handle(request);
+						} catch (RuntimeException e) {
+							response = "ERROR\t" + e.getMessage();
+						}
+						handleDuration.addAndGet(System.nanoTime() - start);
+						handled.incrementAndGet();
+					}
+					for (final Waiter waiter : scheduler.complete(request)) {
+						waiter.respond(response);
+					}
+				}
+			} finally {
+				scheduler.release(project);
+			}
+		}
+	}
+
+	/**
+	 * Returns the port the server listens on.
+	 * 
+	 * @return the port; -1 if not started
+	 */
+	public synchronized int getPort() {
+		return serverSocket == null ? -1 : serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Returns the statistics of the server.
+	 * 
+	 * @return the statistics as tab-separated key-value pairs; not null
+	 */
+	public String getStatistics() {
+		return String.format("%s\thandled=%d\thandleNanos=%d\tmodels=%d",
+				scheduler.getStatistics(), handled.get(), handleDuration.get(), sessions.size());
+	}
+
+	/**
+	 * Stops listening and the worker threads.
+	 */
+	@Override
+	public synchronized void close() {
+		scheduler.close();
+		if (serverSocket != null) {
+			try {
+				serverSocket.close();
+			} catch (IOException e) {}
+			serverSocket = null;
+		}
+		threads.clear();
+	}
+
+	/**
+	 * Runs the server until the process is terminated.
+	 * The arguments are the port, the number of worker threads, and the projects to load in advance.
+	 * 
+	 * @param args the arguments
+	 */
+	public static void main(String[] args) {
+		final int port = args.length > 0 ? Integer.parseInt(args[0]) : PORT;
+		final int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		final ExplanationServer server = new ExplanationServer(IN_DIR, port, workers);
+		for (int i = 2; i < args.length; i++) {
+			final ModelSession session = server.preload(args[i]);
+			System.out.println(String.format("Loaded %s in %.3f s.", args[i], session.getLoadDuration() / 1e9));
+		}
+		server.start();
+		System.out.println(String.format("Listening on port %d with %d workers.", server.getPort(), workers));
+		final Object lock = new Object();
+		synchronized (lock) {
+			while (true) {
+				try {
+					lock.wait();
+				} catch (InterruptedException e) {
+					break;
+				}
+			}
+		}
+		server.close();
+	}
+}
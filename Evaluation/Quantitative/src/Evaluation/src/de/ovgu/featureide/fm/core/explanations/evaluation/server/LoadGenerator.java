@@ -0,0 +1,252 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import de.ovgu.featureide.fm.core.explanations.evaluation.results.Aggregate;
+import de.ovgu.featureide.fm.core.explanations.evaluation.server.ExplanationRequest.Priority;
+
+/**
+ * <p>
+ * Generates load on a local {@link ExplanationServer explanation server} and measures the latency.
+ * Each client sends one request at a time and waits for the response before sending the next one.
+ * Each request explains a random defect of the project, so concurrent clients may ask for the same defect and be coalesced.
+ * A share of the requests is interactive, the rest is bulk.
+ * </p>
+ * 
+ * <p>
+ * Afterwards, the latency percentiles of each priority, the throughput, and the statistics of the server are printed.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class LoadGenerator {
+
+	/**
+	 * A client connected to the server.
+	 * 
+	 * @author Timo G&uuml;nther
+	 */
+	private static class Client implements Closeable {
+
+		/** The socket. */
+		private final Socket socket;
+		/** The input from the server. */
+		private final BufferedReader in;
+		/** The output to the server. */
+		private final Writer out;
+		/** The identifier of the next request. */
+		private int nextId;
+
+		/**
+		 * Connects a new client.
+		 * 
+		 * @param port the port of the server
+		 * @throws IOException if connecting fails
+		 */
+		public Client(int port) throws IOException {
+			socket = new Socket(InetAddress.getLoopbackAddress(), port);
+			socket.setTcpNoDelay(true);
+			in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+		}
+
+		/**
+		 * Sends a request and waits for its response.
+		 * 
+		 * @param command the command; not null
+		 * @param fields the fields following the identifier; not null
+		 * @return the fields of the response following the identifier; not null
+		 * @throws IOException if the connection fails
+		 */
+		public String[] request(String command, String... fields) throws IOException {
+			final String id = String.valueOf(nextId++);
+			out.write(command);
+			out.write('\t');
+			out.write(id);
+			for (final String field : fields) {
+				out.write('\t');
+				out.write(field);
+			}
+			out.write('\n');
+			out.flush();
+			final String line = in.readLine();
+			if (line == null) {
+				throw new IOException("Connection closed");
+			}
+			final String[] response = line.split("\t", -1);
+			if (!response[0].equals(id)) {
+				throw new IOException("Unexpected response: " + line);
+			}
+			return Arrays.copyOfRange(response, 1, response.length);
+		}
+
+		@Override
+		public void close() throws IOException {
+			socket.close();
+		}
+	}
+
+	/** The port of the server. */
+	private final int port;
+	/** The name of the project. */
+	private final String project;
+	/** The name of the oracle. */
+	private final String oracle;
+	/** The number of concurrent clients. */
+	private final int clients;
+	/** The number of requests per client. */
+	private final int requests;
+	/** The share of interactive requests between 0 and 1. */
+	private final double interactiveShare;
+
+	/** The latency of each interactive request in nanoseconds. */
+	private final List<Long> interactiveLatencies = new ArrayList<>();
+	/** The latency of each bulk request in nanoseconds. */
+	private final List<Long> bulkLatencies = new ArrayList<>();
+	/** The number of failed requests. */
+	private int errors;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param port the port of the server
+	 * @param project the name of the project; not null
+	 * @param oracle the name of the oracle; not null
+	 * @param clients the number of concurrent clients; positive
+	 * @param requests the number of requests per client; positive
+	 * @param interactiveShare the share of interactive requests between 0 and 1
+	 */
+	public LoadGenerator(int port, String project, String oracle, int clients, int requests, double interactiveShare) {
+		this.port = port;
+		this.project = project;
+		this.oracle = oracle;
+		this.clients = clients;
+		this.requests = requests;
+		this.interactiveShare = interactiveShare;
+	}
+
+	/**
+	 * Generates the load and prints the results.
+	 * 
+	 * @throws IOException if the connection fails
+	 * @throws InterruptedException if interrupted while waiting for the clients
+	 */
+	public void run() throws IOException, InterruptedException {
+		final List<String[]> defects = new ArrayList<>();
+		try (Client client = new Client(port)) {
+			final String[] response = client.request(ExplanationRequest.DEFECTS, Priority.INTERACTIVE.name(), project);
+			if (!response[0].equals("OK")) {
+				throw new IOException(Arrays.toString(response));
+			}
+			for (int i = 1; i + 1 < response.length; i += 2) {
+				defects.add(new String[] { response[i], response[i + 1] });
+			}
+		}
+		if (defects.isEmpty()) {
+			System.out.println(String.format("%s has no defects.", project));
+			return;
+		}
+		final List<Thread> threads = new ArrayList<>(clients);
+		final long start = System.nanoTime();
+		for (int c = 0; c < clients; c++) {
+			final long seed = c;
+			final Thread t = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					runClient(defects, new Random(seed));
+				}
+			}, "LoadClient-" + c);
+			threads.add(t);
+			t.start();
+		}
+		for (final Thread t : threads) {
+			t.join();
+		}
+		final long duration = System.nanoTime() - start;
+		print(Priority.INTERACTIVE, interactiveLatencies);
+		print(Priority.BULK, bulkLatencies);
+		System.out.println(String.format("Throughput: %.1f requests/s, errors: %d", (interactiveLatencies.size() + bulkLatencies.size()) / (duration / 1e9), errors));
+		try (Client client = new Client(port)) {
+			System.out.println(Arrays.toString(client.request("STATS")));
+		}
+	}
+
+	/**
+	 * Sends the requests of a single client.
+	 * 
+	 * @param defects the defects to explain; not null
+	 * @param random the source of randomness; not null
+	 */
+	private void runClient(List<String[]> defects, Random random) {
+		final List<Long> interactive = new ArrayList<>();
+		final List<Long> bulk = new ArrayList<>();
+		int errors = 0;
+		try (Client client = new Client(port)) {
+			for (int i = 0; i < requests; i++) {
+				final String[] defect = defects.get(random.nextInt(defects.size()));
+				final Priority priority = random.nextDouble() < interactiveShare ? Priority.INTERACTIVE : Priority.BULK;
+				final long start = System.nanoTime();
+				final String[] response = client.request("EXPLAIN", priority.name(), project, oracle, defect[0], defect[1]);
+				final long latency = System.nanoTime() - start;
+				if (response[0].equals("ERROR")) {
+					errors++;
+				}
+				(priority == Priority.INTERACTIVE ? interactive : bulk).add(latency);
+			}
+		} catch (IOException e) {
+			errors++;
+		}
+		synchronized (this) {
+			interactiveLatencies.addAll(interactive);
+			bulkLatencies.addAll(bulk);
+			this.errors += errors;
+		}
+	}
+
+	/**
+	 * Prints the latency percentiles of the given priority.
+	 * 
+	 * @param priority the priority; not null
+	 * @param latencies the latencies in nanoseconds; not null
+	 */
+	private static void print(Priority priority, List<Long> latencies) {
+		final double[] values = new double[latencies.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = latencies.get(i) / 1e6;
+		}
+		final Aggregate a = new Aggregate(values);
+		System.out.println(String.format("%-11s n=%6d  p50=%8.3f ms  p90=%8.3f ms  p99=%8.3f ms  max=%8.3f ms",
+				priority, a.getCount(), a.getMedian(), a.getPercentile(90), a.getPercentile(99), a.getMax()));
+	}
+
+	/**
+	 * Generates load on a running server.
+	 * The arguments are the project, the oracle, the number of clients, the number of requests per client, the share of interactive requests, and the port.
+	 * 
+	 * @param args the arguments
+	 * @throws IOException if the connection fails
+	 * @throws InterruptedException if interrupted while waiting for the clients
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		final String project = args.length > 0 ? args[0] : "Automotive01";
+		final String oracle = args.length > 1 ? args[1] : "MUS";
+		final int clients = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+		final int requests = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+		final double interactiveShare = args.length > 4 ? Double.parseDouble(args[4]) : 0.2;
+		final int port = args.length > 5 ? Integer.parseInt(args[5]) : ExplanationServer.PORT;
+		new LoadGenerator(port, project, oracle, clients, requests, interactiveShare).run();
+	}
+}
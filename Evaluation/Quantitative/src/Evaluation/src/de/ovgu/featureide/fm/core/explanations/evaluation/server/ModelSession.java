@@ -0,0 +1,309 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.server;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.ovgu.featureide.fm.core.base.IConstraint;
+import de.ovgu.featureide.fm.core.base.IFeature;
+import de.ovgu.featureide.fm.core.base.IFeatureModel;
+import de.ovgu.featureide.fm.core.explanations.Explanation;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.fm.FeatureModelDefectTest;
+import de.ovgu.featureide.fm.core.explanations.evaluation.impl.explanations.fm.FeatureModelDefectTest.DefectKind;
+import de.ovgu.featureide.fm.core.explanations.fm.DeadFeatureExplanationCreator;
+import de.ovgu.featureide.fm.core.explanations.fm.FalseOptionalFeatureExplanationCreator;
+import de.ovgu.featureide.fm.core.explanations.fm.FeatureModelExplanationCreator;
+import de.ovgu.featureide.fm.core.explanations.fm.FeatureModelExplanationCreatorFactory;
+import de.ovgu.featureide.fm.core.explanations.fm.RedundantConstraintExplanationCreator;
+import de.ovgu.featureide.fm.core.explanations.fm.impl.composite.CompositeFeatureModelExplanationCreatorFactory;
+import de.ovgu.featureide.fm.core.explanations.fm.impl.ltms.LtmsFeatureModelExplanationCreatorFactory;
+import de.ovgu.featureide.fm.core.explanations.fm.impl.mus.MusFeatureModelExplanationCreatorFactory;
+import de.ovgu.featureide.fm.core.io.manager.FeatureModelManager;
+
+/**
+ * <p>
+ * A feature model kept warm by the {@link ExplanationServer explanation server}.
+ * The model is loaded and analyzed once.
+ * The explanation creators of each oracle are created on first use and reused afterwards.
+ * </p>
+ * 
+ * <p>
+ * Instances are not thread-safe.
+ * The {@link RequestScheduler scheduler} ensures that each session is only used by one worker at a time.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class ModelSession {
+
+	/**
+	 * The explanation creators of a single oracle.
+	 */
+	private static class Creators {
+
+		/** The explanation creator for dead features and void feature models. */
+		private final DeadFeatureExplanationCreator dfc;
+		/** The explanation creator for false-optional features. */
+		private final FalseOptionalFeatureExplanationCreator fofc;
+		/** The explanation creator for redundant constraints. */
+		private final RedundantConstraintExplanationCreator rcc;
+
+		/**
+		 * Constructs a new instance of this class.
+		 * 
+		 * @param factory the factory used to construct explanation creators; not null
+		 * @param fm the feature model; not null
+		 */
+		public Creators(FeatureModelExplanationCreatorFactory factory, IFeatureModel fm) {
+			dfc = factory.getDeadFeatureExplanationCreator();
+			fofc = factory.getFalseOptionalFeatureExplanationCreator();
+			rcc = factory.getRedundantConstraintExplanationCreator();
+			dfc.setFeatureModel(fm);
+			fofc.setFeatureModel(fm);
+			rcc.setFeatureModel(fm);
+		}
+	}
+
+	/** The name of the project. */
+	private final String project;
+	/** The feature model. */
+	private final IFeatureModel fm;
+	/** Whether the feature model is valid. */
+	private final boolean valid;
+	/** The duration of loading and analyzing the feature model. */
+	private final long loadDuration;
+	/** The creators of each oracle by its name. */
+	private final Map<String, Creators> creators = new HashMap<>();
+
+	/**
+	 * Loads and analyzes the feature model of the given project.
+	 * 
+	 * @param dataDir the directory containing the projects; not null
+	 * @param project the name of the project; not null
+	 * @param analysisThreads the number of threads used for analyzing the feature model
+	 */
+	public ModelSession(File dataDir, String project, int analysisThreads) {
+		this.project = project;
+		final long start = System.nanoTime();
+		final File file = new File(new File(dataDir, project), "model.xml");
+		if (!file.isFile()) {
+			throw new IllegalArgumentException("Unknown project: " + project);
+		}
+		fm = FeatureModelManager.load(Paths.get(file.getPath())).getObject();
+		valid = FeatureModelDefectTest.analyzeFeatureModel(fm, analysisThreads);
+		loadDuration = System.nanoTime() - start;
+	}
+
+	/**
+	 * Returns the name of the project.
+	 * 
+	 * @return the project name; not null
+	 */
+	public String getProject() {
+		return project;
+	}
+
+	/**
+	 * Returns the duration of loading and analyzing the feature model.
+	 * 
+	 * @return the load duration in nanoseconds
+	 */
+	public long getLoadDuration() {
+		return loadDuration;
+	}
+
+	/**
+	 * Handles the given request.
+	 * 
+	 * @param request the request; not null
+	 * @return the response without the identifier; not null
+	 * @throws IllegalArgumentException if the request is invalid
+	 */
+	public String handle(ExplanationRequest request) throws IllegalArgumentException {
+		if (ExplanationRequest.DEFECTS.equals(request.getCommand())) {
+			return getDefects();
+		}
+		final Explanation<?> explanation = explain(getDefectKind(request.getCommand()), request.getSubject(), request.getOracle());
+		if (explanation == null) {
+			return "NONE";
+		}
+		final StringBuilder sb = new StringBuilder("OK\t").append(explanation.getReasonCount());
+		for (final Object reason : explanation.getReasons()) {
+			sb.append('\t').append(String.valueOf(reason).replace('\t', ' ').replace('\n', ' '));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Lists the defects of the feature model as pairs of the abbreviated defect kind and the subject.
+	 * Constraints are identified by their index.
+	 * 
+	 * @return the response; not null
+	 */
+	private String getDefects() {
+		final StringBuilder sb = new StringBuilder("OK");
+		for (final IFeature f : fm.getFeatures()) {
+			if (!valid) {
+				if (f.getStructure().isRoot()) {
+					append(sb, DefectKind.VOID_FEATURE_MODEL, f.getName());
+				}
+				continue;
+			}
+			switch (f.getProperty().getFeatureStatus()) {
+			case DEAD:
+				append(sb, DefectKind.DEAD_FEATURE, f.getName());
+				break;
+			case FALSE_OPTIONAL:
+				append(sb, DefectKind.FALSE_OPTIONAL_FEATURE, f.getName());
+				break;
+			default:
+				break;
+			}
+		}
+		final List<IConstraint> constraints = new ArrayList<>(fm.getConstraints());
+		for (int i = 0; i < constraints.size(); i++) {
+			switch (constraints.get(i).getConstraintAttribute()) {
+			case IMPLICIT:
+			case REDUNDANT:
+				append(sb, DefectKind.REDUNDANT_CONSTRAINT, String.valueOf(i));
+				break;
+			default:
+				break;
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Appends a defect to the given response.
+	 * 
+	 * @param sb the response; not null
+	 * @param kind the kind of the defect; not null
+	 * @param subject the subject; not null
+	 */
+	private static void append(StringBuilder sb, DefectKind kind, String subject) {
+		sb.append('\t').append(kind.getAbbreviation()).append('\t').append(subject);
+	}
+
+	/**
+	 * Explains the given defect with the given oracle.
+	 * 
+	 * @param kind the kind of the defect; not null
+	 * @param subject the name of the feature or the index of the constraint; not null
+	 * @param oracle the name of the oracle; not null
+	 * @return the explanation; null if none was found
+	 * @throws IllegalArgumentException if the subject or the oracle is unknown
+	 */
+	private Explanation<?> explain(DefectKind kind, String subject, String oracle) throws IllegalArgumentException {
+		final Creators c = getCreators(oracle);
+		final FeatureModelExplanationCreator<?, ?> creator;
+		switch (kind) {
+		case VOID_FEATURE_MODEL:
+		case DEAD_FEATURE:
+			c.dfc.setSubject(getFeature(subject));
+			creator = c.dfc;
+			break;
+		case FALSE_OPTIONAL_FEATURE:
+			c.fofc.setSubject(getFeature(subject));
+			creator = c.fofc;
+			break;
+		case REDUNDANT_CONSTRAINT:
+			c.rcc.setSubject(getConstraint(subject));
+			creator = c.rcc;
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown defect kind");
+		}
+		return creator.getExplanation();
+	}
+
+	/**
+	 * Returns the creators of the given oracle.
+	 * 
+	 * @param oracle the name of the oracle; not null
+	 * @return the creators; not null
+	 * @throws IllegalArgumentException if the oracle is unknown
+	 */
+	private Creators getCreators(String oracle) throws IllegalArgumentException {
+		Creators c = creators.get(oracle);
+		if (c == null) {
+			c = new Creators(getFactory(oracle), fm);
+			creators.put(oracle, c);
+		}
+		return c;
+	}
+
+	/**
+	 * Returns the factory of the oracle with the given name.
+	 * 
+	 * @param oracle the name of the oracle; not null
+	 * @return the factory; not null
+	 * @throws IllegalArgumentException if the oracle is unknown
+	 */
+	private static FeatureModelExplanationCreatorFactory getFactory(String oracle) throws IllegalArgumentException {
+		switch (oracle) {
+		case "LTMS":
+			return new LtmsFeatureModelExplanationCreatorFactory();
+		case "MUS":
+			return new MusFeatureModelExplanationCreatorFactory();
+		case "composite":
+			return new CompositeFeatureModelExplanationCreatorFactory();
+		default:
+			throw new IllegalArgumentException("Unknown oracle: " + oracle);
+		}
+	}
+
+	/**
+	 * Returns the defect kind with the given abbreviation.
+	 * 
+	 * @param abbreviation the abbreviated name; not null
+	 * @return the defect kind; not null
+	 * @throws IllegalArgumentException if the defect kind is unknown
+	 */
+	private static DefectKind getDefectKind(String abbreviation) throws IllegalArgumentException {
+		for (final DefectKind kind : DefectKind.values()) {
+			if (kind.getAbbreviation().equals(abbreviation)) {
+				return kind;
+			}
+		}
+		throw new IllegalArgumentException("Unknown command: " + abbreviation);
+	}
+
+	/**
+	 * Returns the feature with the given name.
+	 * 
+	 * @param name the name of the feature; not null
+	 * @return the feature; not null
+	 * @throws IllegalArgumentException if the feature is unknown
+	 */
+	private IFeature getFeature(String name) throws IllegalArgumentException {
+		final IFeature f = fm.getFeature(name);
+		if (f == null) {
+			throw new IllegalArgumentException("Unknown feature: " + name);
+		}
+		return f;
+	}
+
+	/**
+	 * Returns the constraint with the given index.
+	 * 
+	 * @param index the index of the constraint; not null
+	 * @return the constraint; not null
+	 * @throws IllegalArgumentException if the constraint is unknown
+	 */
+	private IConstraint getConstraint(String index) throws IllegalArgumentException {
+		final int i;
+		try {
+			i = Integer.parseInt(index);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid constraint index: " + index);
+		}
+		if (i < 0 || i >= fm.getConstraintCount()) {
+			throw new IllegalArgumentException("Unknown constraint: " + index);
+		}
+		return fm.getConstraints().get(i);
+	}
+}
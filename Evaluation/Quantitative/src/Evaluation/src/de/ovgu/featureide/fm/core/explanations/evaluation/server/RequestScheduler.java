@@ -0,0 +1,222 @@
+package de.ovgu.featureide.fm.core.explanations.evaluation.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.ovgu.featureide.fm.core.explanations.evaluation.server.ExplanationRequest.Priority;
+import de.ovgu.featureide.fm.core.explanations.evaluation.server.ExplanationRequest.Waiter;
+
+/**
+ * <p>
+ * Schedules the requests of the {@link ExplanationServer explanation server}.
+ * </p>
+ * 
+ * <p>
+ * A request identical to one that is queued or running is coalesced with it instead of being queued again.
+ * Interactive requests are always taken before bulk requests.
+ * Coalescing an interactive request into a queued bulk request promotes it.
+ * Workers take requests in batches of the same model, so that each model is only used by one worker at a time.
+ * This lets the creators of a model be reused without synchronization.
+ * </p>
+ * 
+ * @author Timo G&uuml;nther
+ */
+public class RequestScheduler {
+
+	/** The maximum number of requests per batch. */
+	private final int maxBatch;
+
+	/** The queued interactive requests in order of submission. */
+	private final LinkedList<ExplanationRequest> interactive = new LinkedList<>();
+	/** The queued bulk requests in order of submission. */
+	private final LinkedList<ExplanationRequest> bulk = new LinkedList<>();
+	/** The queued or running requests. */
+	private final Map<ExplanationRequest, ExplanationRequest> inFlight = new HashMap<>();
+	/** The projects currently used by a worker. */
+	private final Set<String> busy = new HashSet<>();
+	/** Whether the scheduler has been closed. */
+	private boolean closed;
+
+	/** The number of submitted requests. */
+	private long submitted;
+	/** The number of requests coalesced with an identical one. */
+	private long coalesced;
+	/** The number of batches taken. */
+	private long batches;
+	/** The number of requests taken in batches. */
+	private long batched;
+
+	/**
+	 * Constructs a new instance of this class.
+	 * 
+	 * @param maxBatch the maximum number of requests per batch; positive
+	 */
+	public RequestScheduler(int maxBatch) {
+		this.maxBatch = maxBatch;
+	}
+
+	/**
+	 * Submits the given request for the given client.
+	 * 
+	 * @param request the request; not null
+	 * @param waiter the client waiting for the response; not null
+	 */
+	public synchronized void submit(ExplanationRequest request, Waiter waiter) {
+		if (closed) {
+			waiter.respond("ERROR\tServer closed");
+			return;
+		}
+		submitted++;
+		final ExplanationRequest existing = inFlight.get(request);
+		if (existing != null) {
+			coalesced++;
+			existing.getWaiters().add(waiter);
+			if (request.getPriority() == Priority.INTERACTIVE && existing.getPriority() == Priority.BULK && bulk.remove(existing)) {
+				existing.setPriority(Priority.INTERACTIVE);
+				insert(interactive, existing);
+				notifyAll();
+			}
+			return;
+		}
+		request.setSequence(submitted);
+		request.getWaiters().add(waiter);
+		inFlight.put(request, request);
+		(request.getPriority() == Priority.INTERACTIVE ? interactive : bulk).add(request);
+		notifyAll();
+	}
+
+	/**
+	 * Inserts the given request into the given queue in order of submission.
+	 * 
+	 * @param queue the queue; not null
+	 * @param request the request; not null
+	 */
+	private static void insert(LinkedList<ExplanationRequest> queue, ExplanationRequest request) {
+		int i = queue.size();
+		while (i > 0 && queue.get(i - 1).getSequence() > request.getSequence()) {
+			i--;
+		}
+		queue.add(i, request);
+	}
+
+	/**
+	 * Takes the next batch of requests.
+	 * The batch starts with the oldest interactive request of a model not in use, or the oldest bulk request if there is none.
+	 * It is filled with further requests of the same model, interactive ones first.
+	 * The model is in use until {@link #release(String) released}.
+	 * Blocks until a batch is available.
+	 * 
+	 * @return the batch; null if closed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public synchronized List<ExplanationRequest> take() throws InterruptedException {
+		while (true) {
+			if (closed) {
+				return null;
+			}
+			ExplanationRequest first = findAvailable(interactive);
+			if (first == null) {
+				first = findAvailable(bulk);
+			}
+			if (first != null) {
+				final String project = first.getProject();
+				final List<ExplanationRequest> batch = new ArrayList<>();
+				drain(interactive, project, batch);
+				drain(bulk, project, batch);
+				busy.add(project);
+				batches++;
+				batched += batch.size();
+				return batch;
+			}
+			wait();
+		}
+	}
+
+	/**
+	 * Returns the first request in the given queue whose model is not in use.
+	 * 
+	 * @param queue the queue; not null
+	 * @return the request; null if there is none
+	 */
+	private ExplanationRequest findAvailable(List<ExplanationRequest> queue) {
+		for (final ExplanationRequest request : queue) {
+			if (!busy.contains(request.getProject())) {
+				return request;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Moves the requests of the given project from the given queue to the given batch until it is full.
+	 * 
+	 * @param queue the queue; not null
+	 * @param project the name of the project; not null
+	 * @param batch the batch; not null
+	 */
+	private void drain(List<ExplanationRequest> queue, String project, List<ExplanationRequest> batch) {
+		for (final Iterator<ExplanationRequest> it = queue.iterator(); it.hasNext() && batch.size() < maxBatch;) {
+			final ExplanationRequest request = it.next();
+			if (request.getProject().equals(project)) {
+				it.remove();
+				batch.add(request);
+			}
+		}
+	}
+
+	/**
+	 * Completes the given request.
+	 * Identical requests submitted afterwards are run again.
+	 * 
+	 * @param request the request; not null
+	 * @return the clients waiting for the response; not null
+	 */
+	public synchronized List<Waiter> complete(ExplanationRequest request) {
+		inFlight.remove(request);
+		return new ArrayList<>(request.getWaiters());
+	}
+
+	/**
+	 * Releases the given model after running a batch of it.
+	 * 
+	 * @param project the name of the project; not null
+	 */
+	public synchronized void release(String project) {
+		busy.remove(project);
+		notifyAll();
+	}
+
+	/**
+	 * Closes this scheduler.
+	 * Waiting workers are woken up and queued requests are rejected.
+	 */
+	public synchronized void close() {
+		closed = true;
+		for (final ExplanationRequest request : inFlight.values()) {
+			if (interactive.contains(request) || bulk.contains(request)) {
+				for (final Waiter waiter : request.getWaiters()) {
+					waiter.respond("ERROR\tServer closed");
+				}
+			}
+		}
+		interactive.clear();
+		bulk.clear();
+		notifyAll();
+	}
+
+	/**
+	 * Returns the statistics of this scheduler.
+	 * 
+	 * @return the statistics as tab-separated key-value pairs; not null
+	 */
+	public synchronized String getStatistics() {
+		return String.format("submitted=%d\tcoalesced=%d\tbatches=%d\tbatched=%d\tqueued=%d",
+				submitted, coalesced, batches, batched, interactive.size() + bulk.size());
+	}
+}